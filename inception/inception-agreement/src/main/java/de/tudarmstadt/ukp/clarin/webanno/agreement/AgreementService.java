@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.agreement;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.List;
+
+import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.AgreementMeasure;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+
+public interface AgreementService
+{
+    /**
+     * Extracts the document tables required by the given measure for the given documents. The
+     * documents are processed concurrently and only the CASes of the documents currently being
+     * processed are held in memory. Tables are cached and re-used as long as the CASes they were
+     * extracted from have not changed. If the annotations of a rater on a document cannot be
+     * loaded, the rater is treated as not having worked on the document and the problem is reported
+     * via {@link AgreementTables#getErrors()}.
+     * 
+     * @param aMeasure
+     *            the agreement measure.
+     * @param aDocuments
+     *            the documents.
+     * @param aRaters
+     *            the raters.
+     * @param aLimitToFinishedDocuments
+     *            whether to consider only documents that the raters have marked as finished.
+     * @return the document tables.
+     * @throws IOException
+     *             if the extraction was interrupted or failed otherwise.
+     */
+    AgreementTables extractTables(AgreementMeasure<?> aMeasure, List<SourceDocument> aDocuments,
+            List<User> aRaters, boolean aLimitToFinishedDocuments)
+        throws IOException;
+
+    /**
+     * Calculates the agreement on the given tables, processing independent parts of the
+     * calculation concurrently.
+     * 
+     * @param aMeasure
+     *            the agreement measure.
+     * @param aTables
+     *            the document tables.
+     * @return the agreement.
+     */
+    <R extends Serializable> R calculateAgreement(AgreementMeasure<R> aMeasure,
+            AgreementTables aTables);
+}
@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.agreement;
+
+import static de.tudarmstadt.ukp.clarin.webanno.api.CasUpgradeMode.AUTO_CAS_UPGRADE;
+import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode.SHARED_READ_ONLY_ACCESS;
+import static de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocumentState.FINISHED;
+import static java.util.Collections.synchronizedList;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+import static org.apache.commons.lang3.exception.ExceptionUtils.getRootCauseMessage;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.uima.cas.CAS;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.AgreementMeasure;
+import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocument;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+import de.tudarmstadt.ukp.clarin.webanno.support.logging.MDCContext;
+import de.tudarmstadt.ukp.inception.annotation.storage.CasStorageSession;
+
+@Component
+public class AgreementServiceImpl
+    implements AgreementService, DisposableBean
+{
+    private static final Logger LOG = LoggerFactory.getLogger(AgreementServiceImpl.class);
+
+    private final DocumentService documentService;
+
+    private final ExecutorService executor;
+    private final Cache<TableKey, CachedTable> tableCache;
+
+    @Autowired
+    public AgreementServiceImpl(DocumentService aDocumentService)
+    {
+        documentService = aDocumentService;
+
+        executor = Executors.newFixedThreadPool(
+                Math.max(1, Runtime.getRuntime().availableProcessors()),
+                new BasicThreadFactory.Builder() //
+                        .daemon(true) //
+                        .namingPattern("agreement-%d") //
+                        .build());
+
+        tableCache = Caffeine.newBuilder() //
+                .expireAfterAccess(30, MINUTES) //
+                .maximumSize(10 * 1024) //
+                .build();
+    }
+
+    @Override
+    public void destroy()
+    {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public AgreementTables extractTables(AgreementMeasure<?> aMeasure,
+            List<SourceDocument> aDocuments, List<User> aRaters,
+            boolean aLimitToFinishedDocuments)
+        throws IOException
+    {
+        // Bulk-fetch the annotation documents of each rater which is faster then fetching them
+        // individually
+        Map<String, Map<SourceDocument, AnnotationDocument>> annotationDocuments = new HashMap<>();
+        if (!aDocuments.isEmpty()) {
+            for (User rater : aRaters) {
+                annotationDocuments.put(rater.getUsername(),
+                        documentService
+                                .listAnnotationDocuments(aDocuments.get(0).getProject(), rater)
+                                .stream() //
+                                .collect(toMap(AnnotationDocument::getDocument, identity(),
+                                        (a, b) -> a)));
+            }
+        }
+
+        // The CAS storage relies on the logging context, e.g. to locate the repository
+        var loggingContext = MDC.getCopyOfContextMap();
+
+        // Documents which cannot be loaded do not abort the calculation - the problems are
+        // reported back to the caller instead
+        List<String> errors = synchronizedList(new ArrayList<>());
+
+        List<Future<DocumentTable>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < aDocuments.size(); i++) {
+                SourceDocument doc = aDocuments.get(i);
+                int docIndex = i;
+                futures.add(executor.submit(() -> {
+                    try (var ctx = MDCContext.open()) {
+                        if (loggingContext != null) {
+                            MDC.setContextMap(loggingContext);
+                        }
+
+                        try (CasStorageSession session = CasStorageSession.openNested()) {
+                            return getTable(aMeasure, docIndex, doc, aRaters,
+                                    annotationDocuments, aLimitToFinishedDocuments, errors);
+                        }
+                    }
+                }));
+            }
+
+            List<DocumentTable> tables = new ArrayList<>();
+            for (Future<DocumentTable> future : futures) {
+                tables.add(future.get());
+            }
+
+            return new AgreementTables(
+                    aRaters.stream().map(User::getUsername).collect(toList()), tables, errors);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading annotations", e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        finally {
+            // If we bail out early, there is no need to process the remaining documents
+            futures.forEach(f -> f.cancel(false));
+        }
+    }
+
+    private DocumentTable getTable(AgreementMeasure<?> aMeasure, int aDocumentIndex,
+            SourceDocument aDocument, List<User> aRaters,
+            Map<String, Map<SourceDocument, AnnotationDocument>> aAnnDocs,
+            boolean aLimitToFinishedDocuments, List<String> aErrors)
+    {
+        // Determine the state of the annotations which the table would be extracted from
+        Map<String, Long> timestamps = new LinkedHashMap<>();
+        for (User rater : aRaters) {
+            AnnotationDocument annDoc = aAnnDocs.get(rater.getUsername()).get(aDocument);
+            if (annDoc != null && aLimitToFinishedDocuments
+                    && !annDoc.getState().equals(FINISHED)) {
+                continue;
+            }
+
+            // If there is no annotation CAS yet, the table is extracted from the initial CAS
+            timestamps.put(rater.getUsername(), documentService
+                    .getAnnotationCasTimestamp(aDocument, rater.getUsername()).orElse(-1L));
+        }
+
+        TableKey key = new TableKey(aMeasure, aDocumentIndex, aDocument);
+        CachedTable cachedTable = tableCache.getIfPresent(key);
+        if (cachedTable != null && cachedTable.timestamps.equals(timestamps)) {
+            return cachedTable.table;
+        }
+
+        boolean complete = true;
+        Map<String, CAS> casByRater = new LinkedHashMap<>();
+        for (User rater : aRaters) {
+            if (!timestamps.containsKey(rater.getUsername())) {
+                // Raters which did not finish the document do not contribute to the agreement
+                casByRater.put(rater.getUsername(), null);
+                continue;
+            }
+
+            // Reads the user's annotation document or the initial source document -
+            // depending on what is available. The CAS is shared with other readers, so it must
+            // not be modified - the document name is passed to the table instead.
+            CAS cas = null;
+            try {
+                cas = documentService.readAnnotationCas(aDocument, rater.getUsername(),
+                        AUTO_CAS_UPGRADE, SHARED_READ_ONLY_ACCESS);
+            }
+            catch (Exception e) {
+                // The rater is treated as if they did not work on the document yet
+                complete = false;
+                aErrors.add("Unable to load data of user [" + rater.getUsername()
+                        + "] for document [" + aDocument.getName() + "]: "
+                        + getRootCauseMessage(e));
+                LOG.error("Unable to load data of user [{}] for document {}",
+                        rater.getUsername(), aDocument, e);
+            }
+
+            casByRater.put(rater.getUsername(), cas);
+        }
+
+        DocumentTable table = aMeasure.extractTable(aDocumentIndex, aDocument, casByRater);
+
+        // Only cache complete tables, so that failed documents are loaded again next time
+        if (complete) {
+            tableCache.put(key, new CachedTable(timestamps, table));
+        }
+
+        LOG.trace("Extracted agreement table for {}", aDocument);
+
+        return table;
+    }
+
+    @Override
+    public <R extends Serializable> R calculateAgreement(AgreementMeasure<R> aMeasure,
+            AgreementTables aTables)
+    {
+        return aMeasure.getAgreement(aTables, executor);
+    }
+
+    /**
+     * The tables depend on the type of measure, the feature and the way links are compared. Also,
+     * the positions in the tables carry the index of the document in the study.
+     */
+    private static final class TableKey
+    {
+        private final String measure;
+        private final long feature;
+        private final String linkCompareBehavior;
+        private final int documentIndex;
+        private final long document;
+
+        public TableKey(AgreementMeasure<?> aMeasure, int aDocumentIndex,
+                SourceDocument aDocument)
+        {
+            measure = aMeasure.getClass().getName();
+            feature = aMeasure.getFeature().getId();
+            linkCompareBehavior = String.valueOf(aMeasure.getTraits().getLinkCompareBehavior());
+            documentIndex = aDocumentIndex;
+            document = aDocument.getId();
+        }
+
+        @Override
+        public boolean equals(Object aOther)
+        {
+            if (!(aOther instanceof TableKey)) {
+                return false;
+            }
+
+            TableKey other = (TableKey) aOther;
+            return feature == other.feature && document == other.document
+                    && documentIndex == other.documentIndex && measure.equals(other.measure)
+                    && linkCompareBehavior.equals(other.linkCompareBehavior);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(measure, feature, linkCompareBehavior, documentIndex, document);
+        }
+    }
+
+    private static final class CachedTable
+    {
+        private final Map<String, Long> timestamps;
+        private final DocumentTable table;
+
+        public CachedTable(Map<String, Long> aTimestamps, DocumentTable aTable)
+        {
+            timestamps = aTimestamps;
+            table = aTable;
+        }
+    }
+}
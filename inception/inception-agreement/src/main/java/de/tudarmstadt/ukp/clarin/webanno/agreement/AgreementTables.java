@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.agreement;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableList;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The input to an agreement calculation: the raters and one {@link DocumentTable} per document.
+ */
+public class AgreementTables
+    implements Serializable
+{
+    private static final long serialVersionUID = 4079137419637212254L;
+
+    private final List<String> raters;
+    private final List<DocumentTable> documents;
+    private final List<String> errors;
+
+    public AgreementTables(List<String> aRaters, List<? extends DocumentTable> aDocuments)
+    {
+        this(aRaters, aDocuments, emptyList());
+    }
+
+    public AgreementTables(List<String> aRaters, List<? extends DocumentTable> aDocuments,
+            List<String> aErrors)
+    {
+        raters = unmodifiableList(new ArrayList<>(aRaters));
+        documents = unmodifiableList(new ArrayList<>(aDocuments));
+        errors = unmodifiableList(new ArrayList<>(aErrors));
+    }
+
+    public List<String> getRaters()
+    {
+        return raters;
+    }
+
+    public List<DocumentTable> getDocuments()
+    {
+        return documents;
+    }
+
+    /**
+     * @return messages about annotations which could not be loaded. The tables were extracted
+     *         as if the affected raters had not worked on the affected documents.
+     */
+    public List<String> getErrors()
+    {
+        return errors;
+    }
+
+    public boolean isEmpty()
+    {
+        return documents.isEmpty();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends DocumentTable> List<T> getDocuments(Class<T> aType)
+    {
+        for (DocumentTable table : documents) {
+            if (!aType.isInstance(table)) {
+                throw new IllegalArgumentException("Expected document tables of type ["
+                        + aType.getName() + "] but got [" + table.getClass().getName() + "]");
+            }
+        }
+
+        return (List<T>) documents;
+    }
+}
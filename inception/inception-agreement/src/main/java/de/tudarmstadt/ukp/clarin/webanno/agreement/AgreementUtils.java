@@ -29,6 +29,7 @@ import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -37,6 +38,7 @@ import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.uima.cas.ArrayFS;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.FeatureStructure;
@@ -50,9 +52,12 @@ import org.dkpro.statistics.agreement.coding.ICodingAnnotationItem;
 import org.dkpro.statistics.agreement.coding.ICodingAnnotationStudy;
 
 import de.tudarmstadt.ukp.clarin.webanno.agreement.results.coding.CodingAgreementResult;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.results.coding.CodingDocumentTable;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.results.coding.CodingDocumentTable.Row;
 import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff;
 import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.Configuration;
 import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.ConfigurationSet;
+import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.DiffResult;
 import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.LinkCompareBehavior;
 import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.api.Position;
 import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.relation.RelationDiffAdapter;
@@ -64,8 +69,8 @@ public class AgreementUtils
             String aFeature, Set<String> aTagSet, boolean aExcludeIncomplete,
             Map<String, List<CAS>> aCasMap)
     {
-        return makeCodingStudy(aDiff, aCasMap.keySet(), aType, aFeature, aTagSet,
-                aExcludeIncomplete, true, aCasMap);
+        return makeCodingStudy(aCasMap.keySet(), aType, aFeature, aTagSet, aExcludeIncomplete,
+                true, asList(makeCodingTable(aDiff, aType, aFeature, aCasMap)));
     }
 
     private static CAS findSomeCas(Map<String, List<CAS>> aCasMap)
@@ -83,23 +88,50 @@ public class AgreementUtils
         return null;
     }
 
-    private static CodingAgreementResult makeCodingStudy(CasDiff aDiff, Collection<String> aUsers,
-            String aType, String aFeature, Set<String> aTagSet, boolean aExcludeIncomplete,
-            boolean aNullLabelsAsEmpty, Map<String, List<CAS>> aCasMap)
+    /**
+     * Extracts the labels the raters assigned at each position of the given diff into a table which
+     * no longer requires the CASes.
+     * 
+     * @param aDiff
+     *            the diff.
+     * @param aType
+     *            the type to calculate agreement on.
+     * @param aFeature
+     *            the feature to calculate agreement on.
+     * @param aCasMap
+     *            the CASes which the diff was calculated on.
+     * @return the table.
+     */
+    public static CodingDocumentTable makeCodingTable(CasDiff aDiff, String aType, String aFeature,
+            Map<String, List<CAS>> aCasMap)
     {
-        List<String> users = new ArrayList<>(aUsers);
-        Collections.sort(users);
-
-        List<ConfigurationSet> completeSets = new ArrayList<>();
-        List<ConfigurationSet> setsWithDifferences = new ArrayList<>();
-        List<ConfigurationSet> incompleteSetsByPosition = new ArrayList<>();
-        List<ConfigurationSet> incompleteSetsByLabel = new ArrayList<>();
-        List<ConfigurationSet> pluralitySets = new ArrayList<>();
-        List<ConfigurationSet> irrelevantSets = new ArrayList<>();
-        CodingAnnotationStudy study = new CodingAnnotationStudy(users.size());
+        return makeCodingTable(null, null, aDiff, aType, aFeature, aCasMap);
+    }
 
-        if (aTagSet != null) {
-            aTagSet.forEach(study::addCategory);
+    /**
+     * Extracts the labels the raters assigned at each position of the given diff into a table which
+     * no longer requires the CASes.
+     * 
+     * @param aCollectionId
+     *            the collection (project) the document belongs to - may be {@code null}.
+     * @param aDocumentId
+     *            the name of the document - may be {@code null}.
+     * @param aDiff
+     *            the diff.
+     * @param aType
+     *            the type to calculate agreement on.
+     * @param aFeature
+     *            the feature to calculate agreement on.
+     * @param aCasMap
+     *            the CASes which the diff was calculated on.
+     * @return the table.
+     */
+    public static CodingDocumentTable makeCodingTable(String aCollectionId, String aDocumentId,
+            CasDiff aDiff, String aType, String aFeature, Map<String, List<CAS>> aCasMap)
+    {
+        List<Row> rows = new ArrayList<>();
+        for (Position p : aDiff.getPositions()) {
+            rows.add(new Row(aDiff.getConfigurationSet(p)));
         }
 
         // Check if the feature we are looking at is a primitive feature or a link feature
@@ -109,11 +141,7 @@ public class AgreementUtils
         if (someCas == null) {
             // Well... there is NOTHING here!
             // All positions are irrelevant
-            aDiff.getPositions().forEach(p -> irrelevantSets.add(aDiff.getConfigurationSet(p)));
-
-            return new CodingAgreementResult(aType, aFeature, aDiff.toResult(), study, users,
-                    completeSets, irrelevantSets, setsWithDifferences, incompleteSetsByPosition,
-                    incompleteSetsByLabel, pluralitySets, aExcludeIncomplete);
+            return new CodingDocumentTable(aCollectionId, aDocumentId, null, rows);
         }
         TypeSystem ts = someCas.getTypeSystem();
 
@@ -121,11 +149,7 @@ public class AgreementUtils
         // We should just do the right thing here which is: do nothing
         if (ts.getType(aType) == null) {
             // All positions are irrelevant
-            aDiff.getPositions().forEach(p -> irrelevantSets.add(aDiff.getConfigurationSet(p)));
-
-            return new CodingAgreementResult(aType, aFeature, aDiff.toResult(), study, users,
-                    completeSets, irrelevantSets, setsWithDifferences, incompleteSetsByPosition,
-                    incompleteSetsByLabel, pluralitySets, aExcludeIncomplete);
+            return new CodingDocumentTable(aCollectionId, aDocumentId, null, rows);
         }
 
         // Check that the feature really exists instead of just getting a NPE later
@@ -137,57 +161,17 @@ public class AgreementUtils
         boolean isPrimitiveFeature = ts.getType(aType).getFeatureByBaseName(aFeature).getRange()
                 .isPrimitive();
 
-        nextPosition: for (Position p : aDiff.getPositions()) {
-            ConfigurationSet cfgSet = aDiff.getConfigurationSet(p);
+        for (Row row : rows) {
+            ConfigurationSet cfgSet = row.getConfigurationSet();
 
-            // Only calculate agreement for the given layer
-            if (!cfgSet.getPosition().getType().equals(aType)) {
-                // We don't even consider these as irrelevant, they are just filtered out
+            if (!isRelevant(cfgSet, aType, aFeature, isPrimitiveFeature)) {
                 continue;
             }
 
-            // If the feature on a position is set, then it is a subposition
-            boolean isSubPosition = p.getFeature() != null;
-
-            // Check if this position is irrelevant:
-            // - if we are looking for a primitive type and encounter a subposition
-            // - if we are looking for a non-primitive type and encounter a primary position
-            // this is an inverted XOR!
-            if (!(isPrimitiveFeature ^ isSubPosition)) {
-                irrelevantSets.add(cfgSet);
-                continue;
-            }
-
-            // Check if subposition is for the feature we are looking for or for a different
-            // feature
-            if (isSubPosition && !aFeature.equals(cfgSet.getPosition().getFeature())) {
-                irrelevantSets.add(cfgSet);
-                continue nextPosition;
-            }
-
-            // If non of the current users has made any annotation at this position, then skip it
-            if (users.stream().filter(u -> cfgSet.getCasGroupIds().contains(u)).count() == 0) {
-                irrelevantSets.add(cfgSet);
-                continue nextPosition;
-            }
-
-            Object[] values = new Object[users.size()];
-            int i = 0;
-            for (String user : users) {
-                // Set has to include all users, otherwise we cannot calculate the agreement for
-                // this configuration set.
-                if (!cfgSet.getCasGroupIds().contains(user)) {
-                    incompleteSetsByPosition.add(cfgSet);
-                    if (aExcludeIncomplete) {
-                        // Record as incomplete
-                        continue nextPosition;
-                    }
-                    else {
-                        // Record as missing value
-                        values[i] = null;
-                        i++;
-                        continue;
-                    }
+            nextUser: for (String user : cfgSet.getCasGroupIds()) {
+                // The diff may have been calculated over more CASes than we got
+                if (!aCasMap.containsKey(user)) {
+                    continue nextUser;
                 }
 
                 // Make sure a single user didn't do multiple alternative annotations at a single
@@ -195,8 +179,8 @@ public class AgreementUtils
                 // annotations.
                 List<Configuration> cfgs = cfgSet.getConfigurations(user);
                 if (cfgs.size() > 1) {
-                    pluralitySets.add(cfgSet);
-                    continue nextPosition;
+                    row.addPlurality(user);
+                    continue nextUser;
                 }
 
                 Configuration cfg = cfgs.get(0);
@@ -215,8 +199,8 @@ public class AgreementUtils
                     List<AnnotationFS> sourceCandidates = CasUtil.selectAt(arc.getCAS(),
                             source.getType(), source.getBegin(), source.getEnd());
                     if (sourceCandidates.size() > 1) {
-                        pluralitySets.add(cfgSet);
-                        continue nextPosition;
+                        row.addPlurality(user);
+                        continue nextUser;
                     }
 
                     // Check if the target of the relation is stacked
@@ -225,50 +209,185 @@ public class AgreementUtils
                     List<AnnotationFS> targetCandidates = CasUtil.selectAt(arc.getCAS(),
                             target.getType(), target.getBegin(), target.getEnd());
                     if (targetCandidates.size() > 1) {
-                        pluralitySets.add(cfgSet);
-                        continue nextPosition;
+                        row.addPlurality(user);
+                        continue nextUser;
                     }
                 }
 
                 // Only calculate agreement for the given feature
                 FeatureStructure fs = cfg.getFs(user, cfg.getPosition().getCasId(), aCasMap);
 
-                values[i] = extractValueForAgreement(fs, aFeature, cfg.getAID(user).index,
-                        cfg.getPosition().getLinkCompareBehavior());
+                row.setLabel(user, extractValueForAgreement(fs, aFeature, cfg.getAID(user).index,
+                        cfg.getPosition().getLinkCompareBehavior()));
+            }
+        }
+
+        return new CodingDocumentTable(aCollectionId, aDocumentId, isPrimitiveFeature,
+                rows);
+    }
+
+    private static boolean isRelevant(ConfigurationSet aCfgSet, String aType, String aFeature,
+            boolean aPrimitiveFeature)
+    {
+        // If the feature on a position is set, then it is a subposition
+        boolean isSubPosition = aCfgSet.getPosition().getFeature() != null;
+
+        // Check if this position is irrelevant:
+        // - if we are looking for a primitive type and encounter a subposition
+        // - if we are looking for a non-primitive type and encounter a primary position
+        // this is an inverted XOR!
+        if (!(aPrimitiveFeature ^ isSubPosition)) {
+            return false;
+        }
+
+        // Check if subposition is for the feature we are looking for or for a different
+        // feature
+        if (isSubPosition && !aFeature.equals(aCfgSet.getPosition().getFeature())) {
+            return false;
+        }
+
+        return aCfgSet.getPosition().getType().equals(aType);
+    }
+
+    /**
+     * Builds a coding study over the given raters from the given document tables. Positions at
+     * which none of the raters made an annotation are ignored, so tables extracted for a larger
+     * group of raters can be used to calculate the agreement of any sub-group of raters.
+     * 
+     * @param aUsers
+     *            the raters.
+     * @param aType
+     *            the type to calculate agreement on.
+     * @param aFeature
+     *            the feature to calculate agreement on.
+     * @param aTagSet
+     *            the categories which should be part of the study even if they were not observed.
+     * @param aExcludeIncomplete
+     *            whether to exclude positions at which not all raters assigned a label.
+     * @param aNullLabelsAsEmpty
+     *            whether to consider unset labels as empty labels.
+     * @param aTables
+     *            the document tables.
+     * @return the study.
+     */
+    public static CodingAgreementResult makeCodingStudy(Collection<String> aUsers, String aType,
+            String aFeature, Set<String> aTagSet, boolean aExcludeIncomplete,
+            boolean aNullLabelsAsEmpty, List<CodingDocumentTable> aTables)
+    {
+        List<String> users = new ArrayList<>(aUsers);
+        Collections.sort(users);
 
-                // Consider empty/null feature values to be the same and do not exclude them from
-                // agreement calculation. The empty label is still a valid label.
-                if (aNullLabelsAsEmpty && values[i] == null) {
-                    values[i] = "";
+        List<ConfigurationSet> completeSets = new ArrayList<>();
+        List<ConfigurationSet> setsWithDifferences = new ArrayList<>();
+        List<ConfigurationSet> incompleteSetsByPosition = new ArrayList<>();
+        List<ConfigurationSet> incompleteSetsByLabel = new ArrayList<>();
+        List<ConfigurationSet> pluralitySets = new ArrayList<>();
+        List<ConfigurationSet> irrelevantSets = new ArrayList<>();
+        List<ConfigurationSet> allSets = new ArrayList<>();
+        Map<Integer, Pair<String, String>> documents = new HashMap<>();
+        CodingAnnotationStudy study = new CodingAnnotationStudy(users.size());
+
+        if (aTagSet != null) {
+            aTagSet.forEach(study::addCategory);
+        }
+
+        for (CodingDocumentTable table : aTables) {
+            nextPosition: for (Row row : table.getRows()) {
+                // The positions carry the index of their document in the study as CAS ID
+                if (table.getDocumentId() != null) {
+                    documents.putIfAbsent(row.getConfigurationSet().getPosition().getCasId(),
+                            Pair.of(table.getCollectionId(), table.getDocumentId()));
                 }
 
-                // "null" cannot be used in agreement calculations. We treat these as incomplete
-                if (values[i] == null) {
-                    incompleteSetsByLabel.add(cfgSet);
-                    if (aExcludeIncomplete) {
+                // If non of the current users has made any annotation at this position, then it
+                // is not part of the study at all
+                if (users.stream().noneMatch(row::isObservedBy)) {
+                    continue nextPosition;
+                }
+
+                // The table may have been extracted for more raters than we are looking at now
+                ConfigurationSet cfgSet = row.getConfigurationSet().restrictTo(users);
+                allSets.add(cfgSet);
+
+                // All positions are irrelevant if the type did not exist in the CASes
+                if (table.isPrimitiveFeature() == null) {
+                    irrelevantSets.add(cfgSet);
+                    continue nextPosition;
+                }
+
+                // Only calculate agreement for the given layer
+                if (!cfgSet.getPosition().getType().equals(aType)) {
+                    // We don't even consider these as irrelevant, they are just filtered out
+                    continue nextPosition;
+                }
+
+                if (!isRelevant(cfgSet, aType, aFeature, table.isPrimitiveFeature())) {
+                    irrelevantSets.add(cfgSet);
+                    continue nextPosition;
+                }
+
+                Object[] values = new Object[users.size()];
+                int i = 0;
+                for (String user : users) {
+                    // Set has to include all users, otherwise we cannot calculate the agreement
+                    // for this configuration set.
+                    if (!row.isObservedBy(user)) {
+                        incompleteSetsByPosition.add(cfgSet);
+                        if (aExcludeIncomplete) {
+                            // Record as incomplete
+                            continue nextPosition;
+                        }
+                        else {
+                            // Record as missing value
+                            values[i] = null;
+                            i++;
+                            continue;
+                        }
+                    }
+
+                    // Stacked annotations or stacked relation endpoints
+                    if (row.isPlurality(user)) {
+                        pluralitySets.add(cfgSet);
                         continue nextPosition;
                     }
-                }
 
-                i++;
-            }
+                    values[i] = row.getLabel(user);
 
-            if (ObjectUtils.notEqual(values[0], values[1])) {
-                setsWithDifferences.add(cfgSet);
-            }
+                    // Consider empty/null feature values to be the same and do not exclude them
+                    // from agreement calculation. The empty label is still a valid label.
+                    if (aNullLabelsAsEmpty && values[i] == null) {
+                        values[i] = "";
+                    }
 
-            // If the position feature is set (subposition), then it must match the feature we
-            // are calculating agreement over
-            assert cfgSet.getPosition().getFeature() == null
-                    || cfgSet.getPosition().getFeature().equals(aFeature);
+                    // "null" cannot be used in agreement calculations. We treat these as
+                    // incomplete
+                    if (values[i] == null) {
+                        incompleteSetsByLabel.add(cfgSet);
+                        if (aExcludeIncomplete) {
+                            continue nextPosition;
+                        }
+                    }
+
+                    i++;
+                }
 
-            completeSets.add(cfgSet);
-            study.addItemAsArray(values);
+                if (ObjectUtils.notEqual(values[0], values[1])) {
+                    setsWithDifferences.add(cfgSet);
+                }
+
+                // If the position feature is set (subposition), then it must match the feature
+                // we are calculating agreement over
+                assert cfgSet.getPosition().getFeature() == null
+                        || cfgSet.getPosition().getFeature().equals(aFeature);
+
+                completeSets.add(cfgSet);
+                study.addItemAsArray(values);
+            }
         }
 
-        return new CodingAgreementResult(aType, aFeature, aDiff.toResult(), study, users,
-                completeSets, irrelevantSets, setsWithDifferences, incompleteSetsByPosition,
-                incompleteSetsByLabel, pluralitySets, aExcludeIncomplete);
+        return new CodingAgreementResult(aType, aFeature, new DiffResult(users, allSets), study,
+                users, completeSets, irrelevantSets, setsWithDifferences, incompleteSetsByPosition,
+                incompleteSetsByLabel, pluralitySets, documents, aExcludeIncomplete);
     }
 
     private static Object extractValueForAgreement(FeatureStructure aFs, String aFeature,
@@ -401,7 +520,7 @@ public class AgreementUtils
     }
 
     private static void configurationSetsWithItemsToCsv(CSVPrinter aOut,
-            AgreementResult<ICodingAnnotationStudy> aAgreement, List<ConfigurationSet> aSets)
+            CodingAgreementResult aAgreement, List<ConfigurationSet> aSets)
         throws IOException
     {
         List<String> headers = new ArrayList<>(
@@ -414,8 +533,8 @@ public class AgreementUtils
             Position pos = aSets.get(i).getPosition();
             List<String> values = new ArrayList<>();
             values.add(pos.getClass().getSimpleName());
-            values.add(pos.getCollectionId());
-            values.add(pos.getDocumentId());
+            values.add(aAgreement.getCollectionId(pos));
+            values.add(aAgreement.getDocumentId(pos));
             values.add(pos.getType());
             values.add(aAgreement.getFeature());
             values.add(aSets.get(i).getPosition().toMinimalString());
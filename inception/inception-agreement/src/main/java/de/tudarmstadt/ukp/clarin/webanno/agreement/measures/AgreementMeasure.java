@@ -18,16 +18,92 @@
 package de.tudarmstadt.ukp.clarin.webanno.agreement.measures;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Executor;
 
 import org.apache.uima.cas.CAS;
 
+import de.tudarmstadt.ukp.clarin.webanno.agreement.AgreementTables;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.DocumentTable;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
 
 public interface AgreementMeasure<R extends Serializable>
 {
-    R getAgreement(Map<String, List<CAS>> aCasMap);
+    /**
+     * Calculates the agreement on the given CASes.
+     * 
+     * @param aCasMap
+     *            the CASes of each rater. The lists must all have the same size and the CASes at a
+     *            given index must all belong to the same document. A {@code null} entry indicates
+     *            that the rater did not provide annotations for the document.
+     * @return the agreement.
+     */
+    default R getAgreement(Map<String, List<CAS>> aCasMap)
+    {
+        List<DocumentTable> tables = new ArrayList<>();
+        int docCount = aCasMap.values().stream().findFirst().map(List::size).orElse(0);
+        for (int i = 0; i < docCount; i++) {
+            Map<String, CAS> casByRater = new LinkedHashMap<>();
+            for (Entry<String, List<CAS>> e : aCasMap.entrySet()) {
+                casByRater.put(e.getKey(), e.getValue().get(i));
+            }
+            tables.add(extractTable(i, casByRater));
+        }
+
+        return getAgreement(new AgreementTables(new ArrayList<>(aCasMap.keySet()), tables),
+                Runnable::run);
+    }
+
+    /**
+     * Extracts the information required by this measure from the CASes of a single document.
+     * 
+     * @param aDocumentIndex
+     *            the index of the document in the study. It is used to tell apart positions in
+     *            different documents.
+     * @param aCasByRater
+     *            the CAS of each rater for the document. A {@code null} value indicates that the
+     *            rater did not provide annotations for the document.
+     * @return the document table.
+     */
+    DocumentTable extractTable(int aDocumentIndex, Map<String, CAS> aCasByRater);
+
+    /**
+     * Extracts the information required by this measure from the CASes of a single document. The
+     * document is only used to label the extracted information, e.g. in reports. The CASes must
+     * not be modified since they may be shared with other readers.
+     * 
+     * @param aDocumentIndex
+     *            the index of the document in the study. It is used to tell apart positions in
+     *            different documents.
+     * @param aDocument
+     *            the document the CASes belong to.
+     * @param aCasByRater
+     *            the CAS of each rater for the document. A {@code null} value indicates that the
+     *            rater did not provide annotations for the document.
+     * @return the document table.
+     */
+    default DocumentTable extractTable(int aDocumentIndex, SourceDocument aDocument,
+            Map<String, CAS> aCasByRater)
+    {
+        return extractTable(aDocumentIndex, aCasByRater);
+    }
+
+    /**
+     * Calculates the agreement from previously extracted document tables.
+     * 
+     * @param aTables
+     *            the raters and the document tables.
+     * @param aExecutor
+     *            an executor on which independent parts of the calculation may be run
+     *            concurrently.
+     * @return the agreement.
+     */
+    R getAgreement(AgreementTables aTables, Executor aExecutor);
 
     AnnotationFeature getFeature();
 
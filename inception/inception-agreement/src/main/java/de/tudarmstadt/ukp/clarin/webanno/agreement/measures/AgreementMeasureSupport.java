@@ -18,10 +18,7 @@
 package de.tudarmstadt.ukp.clarin.webanno.agreement.measures;
 
 import java.io.Serializable;
-import java.util.List;
-import java.util.Map;
 
-import org.apache.uima.cas.CAS;
 import org.apache.wicket.markup.html.panel.EmptyPanel;
 import org.apache.wicket.markup.html.panel.Panel;
 import org.apache.wicket.model.IModel;
@@ -29,6 +26,7 @@ import org.danekja.java.util.function.serializable.SerializableSupplier;
 import org.dkpro.statistics.agreement.IAnnotationStudy;
 import org.springframework.beans.factory.BeanNameAware;
 
+import de.tudarmstadt.ukp.clarin.webanno.agreement.AgreementTables;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
 
 public interface AgreementMeasureSupport<//
@@ -72,5 +70,5 @@ public interface AgreementMeasureSupport<//
     T createTraits();
 
     Panel createResultsPanel(String aId, IModel<R> aResults,
-            SerializableSupplier<Map<String, List<CAS>>> aCasMapSupplier);
+            SerializableSupplier<AgreementTables> aTablesSupplier);
 }
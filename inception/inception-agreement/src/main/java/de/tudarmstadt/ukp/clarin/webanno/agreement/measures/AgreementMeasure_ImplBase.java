@@ -17,8 +17,23 @@
  */
 package de.tudarmstadt.ukp.clarin.webanno.agreement.measures;
 
+import static java.util.Collections.nCopies;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+
+import org.apache.commons.lang3.tuple.Triple;
+import org.apache.uima.cas.CAS;
 
+import de.tudarmstadt.ukp.clarin.webanno.agreement.PairwiseAnnotationResult;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
 
 public abstract class AgreementMeasure_ImplBase<R extends Serializable, T extends DefaultAgreementTraits>
@@ -44,4 +59,71 @@ public abstract class AgreementMeasure_ImplBase<R extends Serializable, T extend
     {
         return traits;
     }
+
+    /**
+     * Calculates the agreement between all pairs of raters. The pairs do not depend on each other,
+     * so they are calculated concurrently on the given executor.
+     * 
+     * @param aRaters
+     *            the raters.
+     * @param aExecutor
+     *            the executor.
+     * @param aPairCalculation
+     *            the agreement calculation for a single pair of raters.
+     * @return the pairwise agreement.
+     */
+    protected <P extends Serializable> PairwiseAnnotationResult<P> calculatePairwiseAgreement(
+            List<String> aRaters, Executor aExecutor,
+            BiFunction<String, String, P> aPairCalculation)
+    {
+        List<Triple<String, String, CompletableFuture<P>>> pairs = new ArrayList<>();
+        for (int m = 0; m < aRaters.size(); m++) {
+            // Triangle matrix mirrored
+            for (int n = 0; n < m; n++) {
+                String rater1 = aRaters.get(m);
+                String rater2 = aRaters.get(n);
+                pairs.add(Triple.of(rater1, rater2,
+                        supplyAsync(() -> aPairCalculation.apply(rater1, rater2), aExecutor)));
+            }
+        }
+
+        PairwiseAnnotationResult<P> result = new PairwiseAnnotationResult<>(feature, traits);
+        try {
+            for (Triple<String, String, CompletableFuture<P>> pair : pairs) {
+                result.add(pair.getLeft(), pair.getMiddle(), pair.getRight().join());
+            }
+        }
+        catch (CompletionException e) {
+            pairs.forEach(pair -> pair.getRight().cancel(false));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+
+        return result;
+    }
+
+    /**
+     * Builds a CAS map in which the CASes of the given document are located at the given index,
+     * such that positions obtained from diffing the CASes carry the index of the document.
+     * 
+     * @param aDocumentIndex
+     *            the index of the document.
+     * @param aCasByRater
+     *            the CAS of each rater for the document.
+     * @return the CAS map.
+     */
+    protected static Map<String, List<CAS>> toCasMap(int aDocumentIndex,
+            Map<String, CAS> aCasByRater)
+    {
+        Map<String, List<CAS>> casMap = new LinkedHashMap<>();
+        aCasByRater.forEach((rater, cas) -> {
+            List<CAS> casList = new ArrayList<>(nCopies(aDocumentIndex, (CAS) null));
+            // The CAS may be null if the rater did not provide annotations for the document
+            casList.add(cas);
+            casMap.put(rater, casList);
+        });
+        return casMap;
+    }
 }
@@ -18,18 +18,10 @@
 package de.tudarmstadt.ukp.clarin.webanno.agreement.measures.krippendorffalpha;
 
 import static de.tudarmstadt.ukp.clarin.webanno.agreement.AgreementUtils.makeCodingStudy;
-import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.doDiff;
-import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.getDiffAdapters;
 import static java.lang.Double.NaN;
-import static java.util.Arrays.asList;
-import static java.util.stream.Collectors.toCollection;
 
-import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
-import org.apache.uima.cas.CAS;
 import org.dkpro.statistics.agreement.IAgreementMeasure;
 import org.dkpro.statistics.agreement.InsufficientDataException;
 import org.dkpro.statistics.agreement.coding.KrippendorffAlphaAgreement;
@@ -37,39 +29,29 @@ import org.dkpro.statistics.agreement.distance.NominalDistanceFunction;
 
 import de.tudarmstadt.ukp.clarin.webanno.agreement.results.coding.CodingAgreementMeasure_ImplBase;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.results.coding.CodingAgreementResult;
-import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff;
-import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.api.DiffAdapter;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.results.coding.CodingDocumentTable;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
-import de.tudarmstadt.ukp.clarin.webanno.model.Tag;
 import de.tudarmstadt.ukp.inception.schema.AnnotationSchemaService;
 
 public class KrippendorffAlphaAgreementMeasure
     extends CodingAgreementMeasure_ImplBase<KrippendorffAlphaAgreementTraits>
 {
-    private final AnnotationSchemaService annotationService;
-
     public KrippendorffAlphaAgreementMeasure(AnnotationFeature aFeature,
             KrippendorffAlphaAgreementTraits aTraits, AnnotationSchemaService aAnnotationService)
     {
-        super(aFeature, aTraits);
-        annotationService = aAnnotationService;
+        super(aFeature, aTraits, aAnnotationService);
     }
 
     @Override
-    public CodingAgreementResult calculatePairAgreement(Map<String, List<CAS>> aCasMap)
+    public CodingAgreementResult calculatePairAgreement(List<String> aRaters,
+            List<CodingDocumentTable> aTables)
     {
         AnnotationFeature feature = getFeature();
         KrippendorffAlphaAgreementTraits traits = getTraits();
 
-        List<DiffAdapter> adapters = getDiffAdapters(annotationService, asList(feature.getLayer()));
-
-        CasDiff diff = doDiff(adapters, traits.getLinkCompareBehavior(), aCasMap);
-
-        Set<String> tagset = annotationService.listTags(feature.getTagset()).stream()
-                .map(Tag::getName).collect(toCollection(LinkedHashSet::new));
-
-        CodingAgreementResult agreementResult = makeCodingStudy(diff, feature.getLayer().getName(),
-                feature.getName(), tagset, traits.isExcludeIncomplete(), aCasMap);
+        CodingAgreementResult agreementResult = makeCodingStudy(aRaters,
+                feature.getLayer().getName(), feature.getName(), getTagset(),
+                traits.isExcludeIncomplete(), true, aTables);
 
         IAgreementMeasure agreement = new KrippendorffAlphaAgreement(agreementResult.getStudy(),
                 new NominalDistanceFunction())
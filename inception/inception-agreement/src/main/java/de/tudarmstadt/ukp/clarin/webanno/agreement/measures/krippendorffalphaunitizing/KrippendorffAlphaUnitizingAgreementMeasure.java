@@ -17,16 +17,18 @@
  */
 package de.tudarmstadt.ukp.clarin.webanno.agreement.measures.krippendorffalphaunitizing;
 
+import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.Executor;
 
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.Feature;
+import org.apache.uima.cas.FeatureStructure;
 import org.apache.uima.cas.Type;
 import org.apache.uima.cas.text.AnnotationFS;
 import org.apache.uima.fit.util.FSUtil;
@@ -34,9 +36,12 @@ import org.dkpro.statistics.agreement.IAgreementMeasure;
 import org.dkpro.statistics.agreement.unitizing.KrippendorffAlphaUnitizingAgreement;
 import org.dkpro.statistics.agreement.unitizing.UnitizingAnnotationStudy;
 
+import de.tudarmstadt.ukp.clarin.webanno.agreement.AgreementTables;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.PairwiseAnnotationResult;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.AgreementMeasure_ImplBase;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.results.unitizing.UnitizingAgreementResult;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.results.unitizing.UnitizingDocumentTable;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.results.unitizing.UnitizingDocumentTable.Unit;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
 import de.tudarmstadt.ukp.inception.schema.AnnotationSchemaService;
 
@@ -56,89 +61,103 @@ public class KrippendorffAlphaUnitizingAgreementMeasure
     }
 
     @Override
-    public PairwiseAnnotationResult<UnitizingAgreementResult> getAgreement(
-            Map<String, List<CAS>> aCasMap)
+    public UnitizingDocumentTable extractTable(int aDocumentIndex,
+            Map<String, CAS> aCasByRater)
     {
-        PairwiseAnnotationResult<UnitizingAgreementResult> result = new PairwiseAnnotationResult<>(
-                getFeature(), getTraits());
-        List<Entry<String, List<CAS>>> entryList = new ArrayList<>(aCasMap.entrySet());
-        for (int m = 0; m < entryList.size(); m++) {
-            for (int n = 0; n < entryList.size(); n++) {
-                // Triangle matrix mirrored
-                if (n < m) {
-                    Map<String, List<CAS>> pairwiseCasMap = new LinkedHashMap<>();
-                    pairwiseCasMap.put(entryList.get(m).getKey(), entryList.get(m).getValue());
-                    pairwiseCasMap.put(entryList.get(n).getKey(), entryList.get(n).getValue());
-                    UnitizingAgreementResult res = calculatePairAgreement(pairwiseCasMap);
-                    result.add(entryList.get(m).getKey(), entryList.get(n).getKey(), res);
-                }
+        String typeName = getFeature().getLayer().getName();
+
+        // The users cannot change the document text, so we can take the document size from any
+        // of the CASes
+        int docSize = aCasByRater.values().stream() //
+                .filter(cas -> cas != null) //
+                .mapToInt(cas -> cas.getDocumentText().length()) //
+                .findFirst().orElse(0);
+
+        UnitizingDocumentTable table = new UnitizingDocumentTable(docSize);
+
+        // For each annotator, extract the feature values from the annotator's CAS
+        for (Entry<String, CAS> e : aCasByRater.entrySet()) {
+            CAS cas = e.getValue();
+
+            // If a user has never worked on a source document, its CAS is null here - we
+            // skip it.
+            if (cas == null) {
+                continue;
             }
+
+            assert docSize == cas.getDocumentText().length();
+
+            Type t = cas.getTypeSystem().getType(typeName);
+            Feature f = t.getFeatureByBaseName(getFeature().getName());
+            cas.select(t).map(fs -> (AnnotationFS) fs).forEach(fs -> {
+                Object featureValue = FSUtil.getFeature(fs, f, Object.class);
+                if (featureValue instanceof Collection) {
+                    for (Object value : (Collection<?>) featureValue) {
+                        table.addUnit(e.getKey(), fs.getBegin(), fs.getEnd() - fs.getBegin(),
+                                toCategory(e.getKey(), value));
+                    }
+                }
+                else {
+                    table.addUnit(e.getKey(), fs.getBegin(), fs.getEnd() - fs.getBegin(),
+                            toCategory(e.getKey(), featureValue));
+                }
+            });
         }
-        return result;
+
+        return table;
+    }
+
+    private static Serializable toCategory(String aRater, Object aValue)
+    {
+        // Feature structures can only ever be equal to themselves, so we replace them with a
+        // key that does not keep the CAS alive
+        if (aValue instanceof FeatureStructure) {
+            return new FeatureStructureCategory(aRater, ((FeatureStructure) aValue)._id());
+        }
+
+        return (Serializable) aValue;
+    }
+
+    @Override
+    public PairwiseAnnotationResult<UnitizingAgreementResult> getAgreement(
+            AgreementTables aTables, Executor aExecutor)
+    {
+        List<UnitizingDocumentTable> tables = aTables
+                .getDocuments(UnitizingDocumentTable.class);
+
+        return calculatePairwiseAgreement(aTables.getRaters(), aExecutor,
+                (rater1, rater2) -> calculatePairAgreement(List.of(rater1, rater2), tables));
     }
 
-    public UnitizingAgreementResult calculatePairAgreement(Map<String, List<CAS>> aCasMap)
+    public UnitizingAgreementResult calculatePairAgreement(List<String> aRaters,
+            List<UnitizingDocumentTable> aTables)
     {
         String typeName = getFeature().getLayer().getName();
 
-        // Calculate a character offset continuum over all CASses. We assume here that the documents
-        // all have the same size - since the users cannot change the document sizes, this should be
-        // an universally true assumption.
-        List<CAS> firstUserCasses = aCasMap.values().stream().findFirst().get();
-        int docCount = firstUserCasses.size();
-        int[] docSizes = new int[docCount];
-        Arrays.fill(docSizes, 0);
-        for (Entry<String, List<CAS>> set : aCasMap.entrySet()) {
-            int i = 0;
-            for (CAS cas : set.getValue()) {
-                if (cas != null) {
-                    assert docSizes[i] == 0 || docSizes[i] == cas.getDocumentText().length();
-
-                    docSizes[i] = cas.getDocumentText().length();
-                }
-                i++;
-            }
-        }
-        int continuumSize = Arrays.stream(docSizes).sum();
+        // Calculate a character offset continuum over all documents.
+        int continuumSize = aTables.stream().mapToInt(UnitizingDocumentTable::getDocumentLength)
+                .sum();
 
         // Create a unitizing study for that continuum.
         UnitizingAnnotationStudy study = new UnitizingAnnotationStudy(continuumSize);
 
-        // For each annotator, extract the feature values from all the annotator's CASses and add
-        // them to the unitizing study based on character offsets.
-        for (Entry<String, List<CAS>> set : aCasMap.entrySet()) {
-            int raterIdx = study.addRater(set.getKey());
+        // For each annotator, add the units from all the annotator's documents to the unitizing
+        // study based on character offsets.
+        for (String rater : aRaters) {
+            int raterIdx = study.addRater(rater);
             int docOffset = 0;
-            int i = 0;
-            for (CAS cas : set.getValue()) {
-                // If a user has never worked on a source document, its CAS is null here - we
-                // skip it.
-                if (cas != null) {
-                    Type t = cas.getTypeSystem().getType(typeName);
-                    Feature f = t.getFeatureByBaseName(getFeature().getName());
-                    int currentDocOffset = docOffset;
-                    cas.select(t).map(fs -> (AnnotationFS) fs).forEach(fs -> {
-                        Object featureValue = FSUtil.getFeature(fs, f, Object.class);
-                        if (featureValue instanceof Collection) {
-                            for (Object value : (Collection<?>) featureValue) {
-                                study.addUnit(currentDocOffset + fs.getBegin(),
-                                        fs.getEnd() - fs.getBegin(), raterIdx, value);
-                            }
-                        }
-                        else {
-                            study.addUnit(currentDocOffset + fs.getBegin(),
-                                    fs.getEnd() - fs.getBegin(), raterIdx, featureValue);
-                        }
-                    });
+            for (UnitizingDocumentTable table : aTables) {
+                for (Unit unit : table.getUnits(rater)) {
+                    study.addUnit(docOffset + unit.getBegin(), unit.getLength(), raterIdx,
+                            unit.getCategory());
                 }
 
-                docOffset += docSizes[i];
-                i++;
+                docOffset += table.getDocumentLength();
             }
         }
 
         UnitizingAgreementResult result = new UnitizingAgreementResult(typeName,
-                getFeature().getName(), study, new ArrayList<>(aCasMap.keySet()),
+                getFeature().getName(), study, new ArrayList<>(aRaters),
                 getTraits().isExcludeIncomplete());
 
         IAgreementMeasure agreement = new KrippendorffAlphaUnitizingAgreement(study);
@@ -152,4 +171,36 @@ public class KrippendorffAlphaUnitizingAgreementMeasure
 
         return result;
     }
+
+    private static final class FeatureStructureCategory
+        implements Serializable
+    {
+        private static final long serialVersionUID = 3937530010245367413L;
+
+        private final String rater;
+        private final int id;
+
+        public FeatureStructureCategory(String aRater, int aId)
+        {
+            rater = aRater;
+            id = aId;
+        }
+
+        @Override
+        public boolean equals(Object aOther)
+        {
+            if (!(aOther instanceof FeatureStructureCategory)) {
+                return false;
+            }
+
+            FeatureStructureCategory other = (FeatureStructureCategory) aOther;
+            return id == other.id && rater.equals(other.rater);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(rater, id);
+        }
+    }
 }
@@ -25,15 +25,12 @@ import static de.tudarmstadt.ukp.clarin.webanno.support.WebAnnoConst.RELATION_TY
 import static de.tudarmstadt.ukp.clarin.webanno.support.WebAnnoConst.SPAN_TYPE;
 import static java.util.Arrays.asList;
 
-import java.util.List;
-import java.util.Map;
-
-import org.apache.uima.cas.CAS;
 import org.apache.wicket.markup.html.panel.Panel;
 import org.apache.wicket.model.IModel;
 import org.danekja.java.util.function.serializable.SerializableSupplier;
 import org.dkpro.statistics.agreement.coding.ICodingAnnotationStudy;
 
+import de.tudarmstadt.ukp.clarin.webanno.agreement.AgreementTables;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.PairwiseAnnotationResult;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.AgreementMeasureSupport_ImplBase;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.DefaultAgreementTraits;
@@ -61,8 +58,8 @@ public abstract class AbstractCodingAgreementMeasureSupport<T extends DefaultAgr
     @Override
     public Panel createResultsPanel(String aId,
             IModel<PairwiseAnnotationResult<CodingAgreementResult>> aResults,
-            SerializableSupplier<Map<String, List<CAS>>> aCasMapSupplier)
+            SerializableSupplier<AgreementTables> aTablesSupplier)
     {
-        return new PairwiseCodingAgreementTable(aId, aResults, aCasMapSupplier);
+        return new PairwiseCodingAgreementTable(aId, aResults, aTablesSupplier);
     }
 }
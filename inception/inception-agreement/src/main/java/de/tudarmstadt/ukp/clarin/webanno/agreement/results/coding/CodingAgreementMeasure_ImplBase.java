@@ -17,48 +17,98 @@
  */
 package de.tudarmstadt.ukp.clarin.webanno.agreement.results.coding;
 
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import static de.tudarmstadt.ukp.clarin.webanno.agreement.AgreementUtils.makeCodingTable;
+import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.doDiff;
+import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.getDiffAdapters;
+import static java.util.Arrays.asList;
+import static java.util.Collections.unmodifiableSet;
+import static java.util.stream.Collectors.toCollection;
+
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 import org.apache.uima.cas.CAS;
 
+import de.tudarmstadt.ukp.clarin.webanno.agreement.AgreementTables;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.PairwiseAnnotationResult;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.AgreementMeasure_ImplBase;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.DefaultAgreementTraits;
+import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff;
+import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.api.DiffAdapter;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.clarin.webanno.model.Tag;
+import de.tudarmstadt.ukp.inception.schema.AnnotationSchemaService;
 
 public abstract class CodingAgreementMeasure_ImplBase<T extends DefaultAgreementTraits>
     extends AgreementMeasure_ImplBase<PairwiseAnnotationResult<CodingAgreementResult>, T>
 {
-    public CodingAgreementMeasure_ImplBase(AnnotationFeature aFeature, T aTraits)
+    private final AnnotationSchemaService annotationService;
+
+    private List<DiffAdapter> adapters;
+    private Set<String> tagset;
+
+    public CodingAgreementMeasure_ImplBase(AnnotationFeature aFeature, T aTraits,
+            AnnotationSchemaService aAnnotationService)
     {
         super(aFeature, aTraits);
+        annotationService = aAnnotationService;
+    }
+
+    @Override
+    public CodingDocumentTable extractTable(int aDocumentIndex, Map<String, CAS> aCasByRater)
+    {
+        return extractTable(aDocumentIndex, null, aCasByRater);
     }
 
     @Override
-    public PairwiseAnnotationResult<CodingAgreementResult> getAgreement(
-            Map<String, List<CAS>> aCasMap)
+    public CodingDocumentTable extractTable(int aDocumentIndex, SourceDocument aDocument,
+            Map<String, CAS> aCasByRater)
     {
-        PairwiseAnnotationResult<CodingAgreementResult> result = new PairwiseAnnotationResult<>(
-                getFeature(), getTraits());
-        List<Entry<String, List<CAS>>> entryList = new ArrayList<>(aCasMap.entrySet());
-        for (int m = 0; m < entryList.size(); m++) {
-            for (int n = 0; n < entryList.size(); n++) {
-                // Triangle matrix mirrored
-                if (n < m) {
-                    Map<String, List<CAS>> pairwiseCasMap = new LinkedHashMap<>();
-                    pairwiseCasMap.put(entryList.get(m).getKey(), entryList.get(m).getValue());
-                    pairwiseCasMap.put(entryList.get(n).getKey(), entryList.get(n).getValue());
-                    CodingAgreementResult res = calculatePairAgreement(pairwiseCasMap);
-                    result.add(entryList.get(m).getKey(), entryList.get(n).getKey(), res);
-                }
-            }
+        AnnotationFeature feature = getFeature();
+        Map<String, List<CAS>> casMap = toCasMap(aDocumentIndex, aCasByRater);
+
+        CasDiff diff = doDiff(getAdapters(), getTraits().getLinkCompareBehavior(), casMap);
+
+        String collectionId = aDocument != null ? aDocument.getProject().getName() : null;
+        String documentId = aDocument != null ? aDocument.getName() : null;
+        return makeCodingTable(collectionId, documentId, diff, feature.getLayer().getName(),
+                feature.getName(), casMap);
+    }
+
+    @Override
+    public PairwiseAnnotationResult<CodingAgreementResult> getAgreement(AgreementTables aTables,
+            Executor aExecutor)
+    {
+        List<CodingDocumentTable> tables = aTables.getDocuments(CodingDocumentTable.class);
+
+        return calculatePairwiseAgreement(aTables.getRaters(), aExecutor,
+                (rater1, rater2) -> calculatePairAgreement(asList(rater1, rater2), tables));
+    }
+
+    public abstract CodingAgreementResult calculatePairAgreement(List<String> aRaters,
+            List<CodingDocumentTable> aTables);
+
+    protected synchronized List<DiffAdapter> getAdapters()
+    {
+        if (adapters == null) {
+            adapters = getDiffAdapters(annotationService, asList(getFeature().getLayer()));
         }
-        return result;
+
+        return adapters;
     }
 
-    public abstract CodingAgreementResult calculatePairAgreement(Map<String, List<CAS>> aCasMap);
+    protected synchronized Set<String> getTagset()
+    {
+        if (tagset == null) {
+            Set<String> tags = annotationService.listTags(getFeature().getTagset()).stream()
+                    .map(Tag::getName).collect(toCollection(LinkedHashSet::new));
+            tagset = unmodifiableSet(tags);
+        }
+
+        return tagset;
+    }
 }
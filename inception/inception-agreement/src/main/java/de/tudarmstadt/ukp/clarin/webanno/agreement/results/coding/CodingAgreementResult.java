@@ -20,10 +20,14 @@ package de.tudarmstadt.ukp.clarin.webanno.agreement.results.coding;
 import static java.util.Collections.unmodifiableList;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import org.apache.commons.lang3.tuple.Pair;
+
 import org.dkpro.statistics.agreement.IAnnotationUnit;
 import org.dkpro.statistics.agreement.coding.ICodingAnnotationItem;
 import org.dkpro.statistics.agreement.coding.ICodingAnnotationStudy;
@@ -31,6 +35,7 @@ import org.dkpro.statistics.agreement.coding.ICodingAnnotationStudy;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.AgreementResult;
 import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.ConfigurationSet;
 import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.DiffResult;
+import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.api.Position;
 
 public class CodingAgreementResult
     extends AgreementResult<ICodingAnnotationStudy>
@@ -44,13 +49,15 @@ public class CodingAgreementResult
     protected final List<ConfigurationSet> incompleteSetsByPosition;
     protected final List<ConfigurationSet> incompleteSetsByLabel;
     protected final List<ConfigurationSet> pluralitySets;
+    protected final Map<Integer, Pair<String, String>> documents;
 
     public CodingAgreementResult(String aType, String aFeature, DiffResult aDiff,
             ICodingAnnotationStudy aStudy, List<String> aCasGroupIds,
             List<ConfigurationSet> aComplete, List<ConfigurationSet> aIrrelevantSets,
             List<ConfigurationSet> aSetsWithDifferences,
             List<ConfigurationSet> aIncompleteByPosition, List<ConfigurationSet> aIncompleteByLabel,
-            List<ConfigurationSet> aPluralitySets, boolean aExcludeIncomplete)
+            List<ConfigurationSet> aPluralitySets, Map<Integer, Pair<String, String>> aDocuments,
+            boolean aExcludeIncomplete)
     {
         super(aType, aFeature, aStudy, aCasGroupIds, aExcludeIncomplete);
 
@@ -61,6 +68,29 @@ public class CodingAgreementResult
         incompleteSetsByPosition = unmodifiableList(new ArrayList<>(aIncompleteByPosition));
         incompleteSetsByLabel = unmodifiableList(new ArrayList<>(aIncompleteByLabel));
         pluralitySets = unmodifiableList(new ArrayList<>(aPluralitySets));
+        documents = new HashMap<>(aDocuments);
+    }
+
+    /**
+     * @param aPosition
+     *            a position.
+     * @return the collection (project) of the document the position belongs to.
+     */
+    public String getCollectionId(Position aPosition)
+    {
+        var document = documents.get(aPosition.getCasId());
+        return document != null ? document.getLeft() : aPosition.getCollectionId();
+    }
+
+    /**
+     * @param aPosition
+     *            a position.
+     * @return the name of the document the position belongs to.
+     */
+    public String getDocumentId(Position aPosition)
+    {
+        var document = documents.get(aPosition.getCasId());
+        return document != null ? document.getRight() : aPosition.getDocumentId();
     }
 
     public boolean noPositions()
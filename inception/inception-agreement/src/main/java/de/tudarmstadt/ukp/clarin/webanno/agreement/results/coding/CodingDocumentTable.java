@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.agreement.results.coding;
+
+import static java.util.Collections.unmodifiableList;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.tudarmstadt.ukp.clarin.webanno.agreement.DocumentTable;
+import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.ConfigurationSet;
+
+/**
+ * The positions observed in a document together with the label each rater assigned at each
+ * position. This is everything needed to build a coding study, so once the table has been
+ * extracted, the CASes are no longer required.
+ */
+public class CodingDocumentTable
+    implements DocumentTable
+{
+    private static final long serialVersionUID = 3262478410271386497L;
+
+    private final String collectionId;
+    private final String documentId;
+    private final Boolean primitiveFeature;
+    private final List<Row> rows;
+
+    /**
+     * @param aPrimitiveFeature
+     *            whether the feature is a primitive feature or a link feature or {@code null} if
+     *            the type did not exist in the CASes - in this case all positions are irrelevant.
+     * @param aRows
+     *            the rows.
+     */
+    public CodingDocumentTable(Boolean aPrimitiveFeature, List<Row> aRows)
+    {
+        this(null, null, aPrimitiveFeature, aRows);
+    }
+
+    /**
+     * @param aCollectionId
+     *            the collection (project) the document belongs to - may be {@code null}.
+     * @param aDocumentId
+     *            the name of the document - may be {@code null}.
+     * @param aPrimitiveFeature
+     *            whether the feature is a primitive feature or a link feature or {@code null} if
+     *            the type did not exist in the CASes - in this case all positions are irrelevant.
+     * @param aRows
+     *            the rows.
+     */
+    public CodingDocumentTable(String aCollectionId, String aDocumentId,
+            Boolean aPrimitiveFeature, List<Row> aRows)
+    {
+        collectionId = aCollectionId;
+        documentId = aDocumentId;
+        primitiveFeature = aPrimitiveFeature;
+        rows = unmodifiableList(new ArrayList<>(aRows));
+    }
+
+    public String getCollectionId()
+    {
+        return collectionId;
+    }
+
+    public String getDocumentId()
+    {
+        return documentId;
+    }
+
+    public Boolean isPrimitiveFeature()
+    {
+        return primitiveFeature;
+    }
+
+    public List<Row> getRows()
+    {
+        return rows;
+    }
+
+    public static class Row
+        implements Serializable
+    {
+        private static final long serialVersionUID = -6284418536470779412L;
+
+        private final ConfigurationSet configurationSet;
+        private final Map<String, Object> labels = new HashMap<>();
+        private final Set<String> pluralityRaters = new HashSet<>();
+
+        public Row(ConfigurationSet aConfigurationSet)
+        {
+            configurationSet = aConfigurationSet;
+        }
+
+        public ConfigurationSet getConfigurationSet()
+        {
+            return configurationSet;
+        }
+
+        public boolean isObservedBy(String aRater)
+        {
+            return configurationSet.getCasGroupIds().contains(aRater);
+        }
+
+        /**
+         * Records that the given rater made multiple annotations at this position or that the
+         * endpoints of the rater's relation are stacked.
+         * 
+         * @param aRater
+         *            the rater.
+         */
+        public void addPlurality(String aRater)
+        {
+            pluralityRaters.add(aRater);
+        }
+
+        public boolean isPlurality(String aRater)
+        {
+            return pluralityRaters.contains(aRater);
+        }
+
+        /**
+         * @param aRater
+         *            the rater.
+         * @param aLabel
+         *            the label the rater assigned at this position - may be {@code null}.
+         */
+        public void setLabel(String aRater, Object aLabel)
+        {
+            labels.put(aRater, aLabel);
+        }
+
+        public Object getLabel(String aRater)
+        {
+            return labels.get(aRater);
+        }
+    }
+}
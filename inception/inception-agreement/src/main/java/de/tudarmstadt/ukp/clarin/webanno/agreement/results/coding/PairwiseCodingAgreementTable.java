@@ -19,7 +19,6 @@ package de.tudarmstadt.ukp.clarin.webanno.agreement.results.coding;
 
 import static de.tudarmstadt.ukp.clarin.webanno.agreement.AgreementReportExportFormat.CSV;
 import static de.tudarmstadt.ukp.clarin.webanno.agreement.AgreementUtils.makeCodingStudy;
-import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.doDiff;
 import static de.tudarmstadt.ukp.clarin.webanno.support.lambda.LambdaBehavior.enabledWhen;
 import static de.tudarmstadt.ukp.clarin.webanno.support.lambda.LambdaBehavior.visibleWhen;
 import static java.util.Arrays.asList;
@@ -33,10 +32,8 @@ import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
-import org.apache.uima.cas.CAS;
 import org.apache.wicket.ajax.AjaxEventBehavior;
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.behavior.AttributeAppender;
@@ -68,13 +65,11 @@ import de.agilecoders.wicket.core.markup.html.bootstrap.components.PopoverConfig
 import de.agilecoders.wicket.core.markup.html.bootstrap.components.TooltipConfig.Placement;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.AgreementReportExportFormat;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.AgreementResult;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.AgreementTables;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.AgreementUtils;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.PairwiseAnnotationResult;
-import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.DefaultAgreementTraits;
 import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
 import de.tudarmstadt.ukp.clarin.webanno.api.ProjectService;
-import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff;
-import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.api.DiffAdapter;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
 import de.tudarmstadt.ukp.clarin.webanno.model.Tag;
 import de.tudarmstadt.ukp.clarin.webanno.security.UserDao;
@@ -102,15 +97,15 @@ public class PairwiseCodingAgreementTable
     private final AjaxDownloadLink exportAllButton;
     private final DropDownChoice<AgreementReportExportFormat> formatField;
 
-    private final SerializableSupplier<Map<String, List<CAS>>> casMapSupplier;
+    private final SerializableSupplier<AgreementTables> tablesSupplier;
 
     public PairwiseCodingAgreementTable(String aId,
             IModel<PairwiseAnnotationResult<CodingAgreementResult>> aModel,
-            SerializableSupplier<Map<String, List<CAS>>> aCasMapSupplier)
+            SerializableSupplier<AgreementTables> aTablesSupplier)
     {
         super(aId, aModel);
 
-        casMapSupplier = aCasMapSupplier;
+        tablesSupplier = aTablesSupplier;
 
         setOutputMarkupId(true);
 
@@ -410,14 +405,8 @@ public class PairwiseCodingAgreementTable
             public InputStream getInputStream() throws ResourceStreamNotFoundException
             {
                 AnnotationFeature feature = getModelObject().getFeature();
-                DefaultAgreementTraits traits = getModelObject().getTraits();
 
-                Map<String, List<CAS>> casMap = casMapSupplier.get();
-
-                List<DiffAdapter> adapters = CasDiff.getDiffAdapters(annotationService,
-                        asList(feature.getLayer()));
-
-                CasDiff diff = doDiff(adapters, traits.getLinkCompareBehavior(), casMap);
+                AgreementTables tables = tablesSupplier.get();
 
                 Set<String> tagset = annotationService.listTags(feature.getTagset()).stream()
                         .map(Tag::getName).collect(toCollection(LinkedHashSet::new));
@@ -427,8 +416,9 @@ public class PairwiseCodingAgreementTable
                 // pref.excludeIncomplete, casMap);
                 // TODO: for the moment, we always include incomplete annotations during this
                 // export.
-                CodingAgreementResult agreementResult = makeCodingStudy(diff,
-                        feature.getLayer().getName(), feature.getName(), tagset, false, casMap);
+                CodingAgreementResult agreementResult = makeCodingStudy(tables.getRaters(),
+                        feature.getLayer().getName(), feature.getName(), tagset, false, true,
+                        tables.getDocuments(CodingDocumentTable.class));
 
                 try {
                     return AgreementUtils.generateCsvReport(agreementResult);
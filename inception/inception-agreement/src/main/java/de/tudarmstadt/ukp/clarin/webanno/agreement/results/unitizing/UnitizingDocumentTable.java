@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.agreement.results.unitizing;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.tudarmstadt.ukp.clarin.webanno.agreement.DocumentTable;
+
+/**
+ * The units each rater annotated in a document along with the length of the document.
+ */
+public class UnitizingDocumentTable
+    implements DocumentTable
+{
+    private static final long serialVersionUID = -1870307312858413064L;
+
+    private final int documentLength;
+    private final Map<String, List<Unit>> units = new LinkedHashMap<>();
+
+    public UnitizingDocumentTable(int aDocumentLength)
+    {
+        documentLength = aDocumentLength;
+    }
+
+    public int getDocumentLength()
+    {
+        return documentLength;
+    }
+
+    public void addUnit(String aRater, int aBegin, int aLength, Serializable aCategory)
+    {
+        units.computeIfAbsent(aRater, $ -> new ArrayList<>())
+                .add(new Unit(aBegin, aLength, aCategory));
+    }
+
+    public List<Unit> getUnits(String aRater)
+    {
+        return units.getOrDefault(aRater, List.of());
+    }
+
+    public static class Unit
+        implements Serializable
+    {
+        private static final long serialVersionUID = 2850372963406620128L;
+
+        private final int begin;
+        private final int length;
+        private final Serializable category;
+
+        public Unit(int aBegin, int aLength, Serializable aCategory)
+        {
+            begin = aBegin;
+            length = aLength;
+            category = aCategory;
+        }
+
+        public int getBegin()
+        {
+            return begin;
+        }
+
+        public int getLength()
+        {
+            return length;
+        }
+
+        public Serializable getCategory()
+        {
+            return category;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.agreement;
+
+import static de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocumentState.FINISHED;
+import static de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocumentState.IN_PROGRESS;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.fit.factory.CasFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.AgreementMeasure;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.DefaultAgreementTraits;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.results.coding.CodingDocumentTable;
+import de.tudarmstadt.ukp.clarin.webanno.api.CasUpgradeMode;
+import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
+import de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocument;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+
+public class AgreementServiceImplTest
+{
+    private DocumentService documentService;
+    private AgreementMeasure<?> measure;
+    private AgreementServiceImpl sut;
+
+    private Project project;
+    private List<SourceDocument> documents;
+    private List<User> raters;
+    private Map<String, Long> timestamps;
+    private List<CAS> casesRead;
+
+    @BeforeEach
+    public void setup() throws Exception
+    {
+        project = new Project("project");
+        project.setId(1l);
+        project.setName("Project");
+
+        documents = new ArrayList<>();
+        for (long i = 1; i <= 3; i++) {
+            var doc = new SourceDocument("doc" + i, project, "text");
+            doc.setId(i);
+            documents.add(doc);
+        }
+
+        raters = asList(new User("user1"), new User("user2"));
+
+        timestamps = new HashMap<>();
+        casesRead = new ArrayList<>();
+
+        documentService = mock(DocumentService.class);
+        when(documentService.listAnnotationDocuments(eq(project), any(User.class)))
+                .thenReturn(emptyList());
+        when(documentService.getAnnotationCasTimestamp(any(SourceDocument.class), anyString()))
+                .thenAnswer(call -> Optional.ofNullable(timestamps.get(
+                        ((SourceDocument) call.getArgument(0)).getName() + "/"
+                                + call.getArgument(1))));
+        when(documentService.readAnnotationCas(any(SourceDocument.class), anyString(),
+                any(CasUpgradeMode.class), any(CasAccessMode.class))).thenAnswer(call -> {
+                    CAS cas = CasFactory.createText("This is a test.");
+                    synchronized (casesRead) {
+                        casesRead.add(cas);
+                    }
+                    return cas;
+                });
+
+        var feature = new AnnotationFeature();
+        feature.setId(1l);
+
+        measure = mock(AgreementMeasure.class);
+        when(measure.getFeature()).thenReturn(feature);
+        when(measure.getTraits()).thenReturn(new DefaultAgreementTraits());
+        when(measure.extractTable(anyInt(), any(SourceDocument.class), anyMap()))
+                .thenAnswer(call -> {
+                    SourceDocument doc = call.getArgument(1);
+                    return new CodingDocumentTable(doc.getProject().getName(), doc.getName(),
+                            null, emptyList());
+                });
+
+        sut = new AgreementServiceImpl(documentService);
+    }
+
+    @AfterEach
+    public void tearDown()
+    {
+        sut.destroy();
+    }
+
+    @Test
+    public void thatTablesAreExtractedInDocumentOrder() throws Exception
+    {
+        var tables = sut.extractTables(measure, documents, raters, false);
+
+        assertThat(tables.getRaters()).containsExactly("user1", "user2");
+        assertThat(tables.getDocuments(CodingDocumentTable.class)) //
+                .extracting(CodingDocumentTable::getCollectionId,
+                        CodingDocumentTable::getDocumentId) //
+                .containsExactly( //
+                        tuple("Project", "doc1"),
+                        tuple("Project", "doc2"),
+                        tuple("Project", "doc3"));
+        for (int i = 0; i < documents.size(); i++) {
+            verify(measure).extractTable(eq(i), eq(documents.get(i)), anyMap());
+        }
+    }
+
+    @Test
+    public void thatTablesAreReusedUntilAnnotationsChange() throws Exception
+    {
+        sut.extractTables(measure, documents, raters, false);
+        assertThat(casesRead).hasSize(documents.size() * raters.size());
+
+        // Nothing changed - the cached tables are used
+        sut.extractTables(measure, documents, raters, false);
+        assertThat(casesRead).hasSize(documents.size() * raters.size());
+
+        // Only the document which changed is read again
+        timestamps.put("doc2/user1", 1000l);
+        sut.extractTables(measure, documents, raters, false);
+        assertThat(casesRead).hasSize(documents.size() * raters.size() + raters.size());
+        verify(measure, times(2)).extractTable(eq(1), eq(documents.get(1)), anyMap());
+        verify(measure, times(1)).extractTable(eq(0), eq(documents.get(0)), anyMap());
+    }
+
+    @Test
+    public void thatSharedCasesAreNotModified() throws Exception
+    {
+        sut.extractTables(measure, documents, raters, false);
+
+        assertThat(casesRead).isNotEmpty().allSatisfy(cas -> {
+            assertThat(cas.getDocumentText()).isEqualTo("This is a test.");
+            // Only the DocumentAnnotation - no metadata has been added to the CAS
+            assertThat(cas.getAnnotationIndex().size()).isEqualTo(1);
+        });
+    }
+
+    @Test
+    public void thatUnfinishedDocumentsCanBeExcluded() throws Exception
+    {
+        var finished = new AnnotationDocument("user1", documents.get(0));
+        finished.setState(FINISHED);
+        var inProgress = new AnnotationDocument("user2", documents.get(0));
+        inProgress.setState(IN_PROGRESS);
+        when(documentService.listAnnotationDocuments(project, raters.get(0)))
+                .thenReturn(asList(finished));
+        when(documentService.listAnnotationDocuments(project, raters.get(1)))
+                .thenReturn(asList(inProgress));
+
+        sut.extractTables(measure, documents.subList(0, 1), raters, true);
+
+        // The rater who did not finish the document does not contribute to the table
+        verify(measure).extractTable(eq(0), eq(documents.get(0)),
+                argThat(casByRater -> casByRater.get("user1") != null
+                        && casByRater.containsKey("user2") && casByRater.get("user2") == null));
+    }
+
+    @Test
+    public void thatDocumentsWhichCannotBeLoadedDoNotAbortTheCalculation() throws Exception
+    {
+        when(documentService.readAnnotationCas(eq(documents.get(1)), eq("user2"),
+                any(CasUpgradeMode.class), any(CasAccessMode.class)))
+                        .thenThrow(new IOException("Broken CAS"));
+
+        var tables = sut.extractTables(measure, documents, raters, false);
+
+        assertThat(tables.getDocuments()).hasSize(documents.size());
+        assertThat(tables.getErrors()).hasSize(1) //
+                .allSatisfy(error -> assertThat(error).contains("user2", "doc2", "Broken CAS"));
+        verify(measure).extractTable(eq(1), eq(documents.get(1)),
+                argThat(casByRater -> casByRater.get("user1") != null
+                        && casByRater.containsKey("user2") && casByRater.get("user2") == null));
+
+        // The incomplete table is not cached, so the document is loaded again
+        sut.extractTables(measure, documents, raters, false);
+        verify(measure, times(2)).extractTable(eq(1), eq(documents.get(1)), anyMap());
+        verify(measure, times(1)).extractTable(eq(0), eq(documents.get(0)), anyMap());
+    }
+}
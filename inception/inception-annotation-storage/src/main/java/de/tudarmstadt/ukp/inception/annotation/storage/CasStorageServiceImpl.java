@@ -37,6 +37,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Collection;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -82,6 +83,11 @@ import de.tudarmstadt.ukp.inception.annotation.storage.config.CasStorageServiceA
 import de.tudarmstadt.ukp.inception.annotation.storage.driver.CasStorageDriver;
 import de.tudarmstadt.ukp.inception.annotation.storage.driver.filesystem.CasPersistenceUtils;
 import de.tudarmstadt.ukp.inception.schema.AnnotationSchemaService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 
 /**
  * <p>
@@ -110,6 +116,9 @@ public class CasStorageServiceImpl
 
     private final CasStorageDriver driver;
 
+    private final Timer readTimer;
+    private final Timer writeTimer;
+
     public static enum RepairAndUpgradeFlags
     {
         /**
@@ -128,12 +137,15 @@ public class CasStorageServiceImpl
      *            (optional) if present, CAS validation can take place
      * @param aSchemaService
      *            (optional) if present, CAS upgrades can be performed
+     * @param aMeterRegistry
+     *            (optional) registry to which storage latencies and cache statistics are reported
      */
     @Autowired
     public CasStorageServiceImpl(CasStorageDriver aDriver,
             CasStorageCacheProperties aCasStorageProperties,
             @Autowired(required = false) CasDoctor aCasDoctor,
-            @Autowired(required = false) AnnotationSchemaService aSchemaService)
+            @Autowired(required = false) AnnotationSchemaService aSchemaService,
+            @Autowired(required = false) MeterRegistry aMeterRegistry)
     {
         driver = aDriver;
         casDoctor = aCasDoctor;
@@ -172,6 +184,37 @@ public class CasStorageServiceImpl
                 .recordStats() //
                 .build();
 
+        MeterRegistry meterRegistry = aMeterRegistry != null ? aMeterRegistry
+                : Metrics.globalRegistry;
+        readTimer = Timer.builder("inception.cas.read") //
+                .description("Time taken to read a CAS from the storage") //
+                .register(meterRegistry);
+        writeTimer = Timer.builder("inception.cas.write") //
+                .description("Time taken to write a CAS to the storage") //
+                .register(meterRegistry);
+        FunctionCounter.builder("inception.cas.shared.cache.gets", sharedAccessCache,
+                cache -> cache.stats().hitCount()) //
+                .tag("result", "hit") //
+                .description("Number of reads served from the shared read-only CAS cache") //
+                .register(meterRegistry);
+        FunctionCounter.builder("inception.cas.shared.cache.gets", sharedAccessCache,
+                cache -> cache.stats().missCount()) //
+                .tag("result", "miss") //
+                .description("Number of reads not served from the shared read-only CAS cache") //
+                .register(meterRegistry);
+        FunctionCounter.builder("inception.cas.shared.cache.evictions", sharedAccessCache,
+                cache -> cache.stats().evictionCount()) //
+                .description("Number of CASes evicted from the shared read-only CAS cache") //
+                .register(meterRegistry);
+        Gauge.builder("inception.cas.shared.cache.size", sharedAccessCache,
+                Cache::estimatedSize) //
+                .description("Number of CASes in the shared read-only CAS cache") //
+                .register(meterRegistry);
+        Gauge.builder("inception.cas.exclusive.active", exclusiveAccessPool,
+                GenericKeyedObjectPool::getNumActive) //
+                .description("Number of CASes currently borrowed for exclusive access") //
+                .register(meterRegistry);
+
         if (casDoctor == null) {
             log.info("CAS doctor not available - unable to check/repair CASes");
         }
@@ -431,7 +474,7 @@ public class CasStorageServiceImpl
                 // check for its existence
                 try (WithExclusiveAccess access = new WithExclusiveAccess(aDocument, aUsername)) {
                     casHolder = CasHolder.of(new CasKey(aDocument, aUsername),
-                            () -> driver.readCas(aDocument, aUsername));
+                            () -> realReadCas(aDocument, aUsername));
                 }
             }
             else {
@@ -457,6 +500,29 @@ public class CasStorageServiceImpl
         }
     }
 
+    @Override
+    public CAS readPartialCas(SourceDocument aDocument, String aUsername,
+            Collection<String> aTypes)
+        throws IOException
+    {
+        Validate.notNull(aDocument, "Source document must be specified");
+        Validate.notBlank(aUsername, "User must be specified");
+
+        try (var logCtx = withProjectLogger(aDocument.getProject())) {
+            // Ensure that the CAS is not being re-written and temporarily unavailable while we
+            // read it
+            try (WithExclusiveAccess access = new WithExclusiveAccess(aDocument, aUsername)) {
+                return driver.readPartialCas(aDocument, aUsername, aTypes);
+            }
+        }
+        catch (IOException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
     private CasHolder borrowCas(CasKey aKey)
     {
         try {
@@ -567,7 +633,7 @@ public class CasStorageServiceImpl
                     aDocument.getName(), aDocument.getId(), aUsername,
                     aDocument.getProject().getName(), aDocument.getProject().getId());
 
-            cas = driver.readCas(aDocument, aUsername);
+            cas = realReadCas(aDocument, aUsername);
             repairAndUpgradeCasIfRequired(aDocument, aUsername, cas, aUpgradeMode,
                     ISOLATED_SESSION);
             source = "disk";
@@ -1057,11 +1123,28 @@ public class CasStorageServiceImpl
                 .removeIf(key -> Objects.equals(key.getProjectId(), aEvent.getProject().getId()));
     }
 
+    private CAS realReadCas(SourceDocument aDocument, String aUserName) throws IOException
+    {
+        Timer.Sample sample = Timer.start();
+        try {
+            return driver.readCas(aDocument, aUserName);
+        }
+        finally {
+            sample.stop(readTimer);
+        }
+    }
+
     private void realWriteCas(SourceDocument aDocument, String aUserName, CAS aCas)
         throws IOException
     {
         analyze(aDocument.getProject(), aDocument.getName(), aDocument.getId(), aUserName, aCas);
 
-        driver.writeCas(aDocument, aUserName, aCas);
+        Timer.Sample sample = Timer.start();
+        try {
+            driver.writeCas(aDocument, aUserName, aCas);
+        }
+        finally {
+            sample.stop(writeTimer);
+        }
     }
 }
@@ -24,4 +24,6 @@ public interface CasStorageProperties
     boolean isParanoidCasSerialization();
 
     boolean isCompressedCasSerialization();
+
+    boolean isCompactCasSerialization();
 }
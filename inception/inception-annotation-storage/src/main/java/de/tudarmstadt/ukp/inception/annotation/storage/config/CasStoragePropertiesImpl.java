@@ -34,6 +34,7 @@ public class CasStoragePropertiesImpl
     private boolean compressedCasSerialization = true;
     private boolean paranoidCasSerialization = false;
     private boolean traceAccess = false;
+    private boolean compactCasSerialization = false;
 
     @ManagedAttribute
     public void setTraceAccess(boolean aTraceAccess)
@@ -71,4 +72,17 @@ public class CasStoragePropertiesImpl
     {
         return compressedCasSerialization;
     }
+
+    @ManagedAttribute
+    public void setCompactCasSerialization(boolean aCompactCasSerialization)
+    {
+        compactCasSerialization = aCompactCasSerialization;
+    }
+
+    @Override
+    @ManagedAttribute
+    public boolean isCompactCasSerialization()
+    {
+        return compactCasSerialization;
+    }
 }
@@ -30,6 +30,7 @@ import de.tudarmstadt.ukp.inception.annotation.storage.CasStorageServiceSharedAc
 import de.tudarmstadt.ukp.inception.annotation.storage.driver.CasStorageDriver;
 import de.tudarmstadt.ukp.inception.annotation.storage.driver.filesystem.FileSystemCasStorageDriver;
 import de.tudarmstadt.ukp.inception.schema.AnnotationSchemaService;
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Configuration
 @EnableConfigurationProperties({ CasStorageCachePropertiesImpl.class,
@@ -40,10 +41,11 @@ public class CasStorageServiceAutoConfiguration
     public CasStorageService casStorageService(CasStorageDriver aDriver,
             @Autowired(required = false) CasDoctor aCasDoctor,
             @Autowired(required = false) AnnotationSchemaService aSchemaService,
+            @Autowired(required = false) MeterRegistry aMeterRegistry,
             CasStorageCacheProperties aCasStorageProperties)
     {
         return new CasStorageServiceImpl(aDriver, aCasStorageProperties, aCasDoctor,
-                aSchemaService);
+                aSchemaService, aMeterRegistry);
     }
 
     @Bean
@@ -20,6 +20,7 @@ package de.tudarmstadt.ukp.inception.annotation.storage.driver;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Collection;
 import java.util.Optional;
 
 import org.apache.uima.cas.CAS;
@@ -32,6 +33,27 @@ public interface CasStorageDriver
 {
     CAS readCas(SourceDocument aDocument, String aUser) throws IOException;
 
+    /**
+     * Reads a CAS which contains only the feature structures of the given types (and of types they
+     * depend on). The CAS is meant for read-only bulk access. Drivers which are unable to read only
+     * parts of a CAS return the full CAS.
+     * 
+     * @param aDocument
+     *            the document.
+     * @param aUser
+     *            the user.
+     * @param aTypes
+     *            the names of the types to load.
+     * @return the CAS.
+     * @throws IOException
+     *             if the CAS could not be read.
+     */
+    default CAS readPartialCas(SourceDocument aDocument, String aUser, Collection<String> aTypes)
+        throws IOException
+    {
+        return readCas(aDocument, aUser);
+    }
+
     void writeCas(SourceDocument aDocument, String aUser, CAS aCas) throws IOException;
 
     void exportCas(SourceDocument aDocument, String aUser, OutputStream aStream) throws IOException;
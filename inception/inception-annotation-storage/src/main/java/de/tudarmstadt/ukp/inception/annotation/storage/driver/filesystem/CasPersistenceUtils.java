@@ -22,6 +22,11 @@ import static org.apache.uima.cas.impl.Serialization.deserializeCASComplete;
 import static org.apache.uima.cas.impl.Serialization.serializeCASComplete;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -31,13 +36,31 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Function;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Feature;
 import org.apache.uima.cas.SerialFormat;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.TypeSystem;
 import org.apache.uima.cas.impl.CASCompleteSerializer;
 import org.apache.uima.cas.impl.CASImpl;
+import org.apache.uima.cas.impl.CASMgrSerializer;
+import org.apache.uima.cas.impl.Serialization;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.metadata.TypeDescription;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.resource.metadata.impl.TypeSystemDescription_impl;
 import org.apache.uima.util.CasIOUtils;
+import org.apache.uima.util.CasLoadMode;
 import org.apache.uima.util.TypeSystemUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,6 +74,14 @@ public final class CasPersistenceUtils
 {
     private final static Logger LOG = LoggerFactory.getLogger(CasPersistenceUtils.class);
 
+    /**
+     * Header of the compact CAS format. It is followed by the format version, the ID of the type
+     * system the CAS was serialized against and then by the CAS data in UIMA compressed binary
+     * format (form 6) without an embedded type system.
+     */
+    private static final byte[] COMPACT_CAS_MAGIC = { 'I', 'C', 'A', 'S' };
+    private static final int COMPACT_CAS_VERSION = 1;
+
     private CasPersistenceUtils()
     {
         // No instances
@@ -105,7 +136,7 @@ public final class CasPersistenceUtils
         }
     }
 
-    private static void write(OutputStream aOut, CAS aCas) throws IOException, FileNotFoundException
+    static void write(OutputStream aOut, CAS aCas) throws IOException, FileNotFoundException
     {
         CASCompleteSerializer serializer = serializeCASComplete((CASImpl) getRealCas(aCas));
         write(aOut, serializer);
@@ -128,6 +159,224 @@ public final class CasPersistenceUtils
         }
     }
 
+    /**
+     * Writes the CAS in the compact format. The type system is not included in the file - it
+     * must be stored separately (cf. {@link #serializeTypeSystem}) and be resolvable under the given
+     * ID when the CAS is read again.
+     * 
+     * @param aCas
+     *            the CAS to write.
+     * @param aTypeSystemId
+     *            the ID under which the type system of the CAS has been stored.
+     * @param aFile
+     *            the target file.
+     * @throws IOException
+     *             if there was a problem writing the CAS.
+     */
+    public static void writeCompactCas(CAS aCas, String aTypeSystemId, File aFile)
+        throws IOException
+    {
+        FileUtils.forceMkdir(aFile.getParentFile());
+
+        CAS realCas = getRealCas(aCas);
+        // UIMA-6162 Workaround: synchronize CAS during de/serialization
+        synchronized (((CASImpl) realCas).getBaseCAS()) {
+            try (var os = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(aFile)))) {
+                os.write(COMPACT_CAS_MAGIC);
+                os.writeInt(COMPACT_CAS_VERSION);
+                os.writeUTF(aTypeSystemId);
+                CasIOUtils.save(realCas, os, SerialFormat.COMPRESSED_FILTERED);
+            }
+        }
+    }
+
+    /**
+     * Reads a CAS in the compact format. The CAS is re-initialized with the type system that was
+     * used to write it.
+     * 
+     * @param aCas
+     *            the CAS to read the data into.
+     * @param aFile
+     *            the source file.
+     * @param aTypeSystemResolver
+     *            function resolving a type system ID to the file holding the type system.
+     * @throws IOException
+     *             if there was a problem reading the CAS.
+     */
+    public static void readCompactCas(CAS aCas, File aFile,
+            Function<String, File> aTypeSystemResolver)
+        throws IOException
+    {
+        CAS realCas = getRealCas(aCas);
+        // UIMA-6162 Workaround: synchronize CAS during de/serialization
+        synchronized (((CASImpl) realCas).getBaseCAS()) {
+            try (var is = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(aFile)))) {
+                String typeSystemId = readCompactCasHeader(is, aFile);
+                File typeSystemFile = aTypeSystemResolver.apply(typeSystemId);
+                if (typeSystemFile == null || !typeSystemFile.exists()) {
+                    throw new FileNotFoundException("Type system [" + typeSystemId
+                            + "] required by [" + aFile + "] not found");
+                }
+
+                try (var tsis = new BufferedInputStream(new FileInputStream(typeSystemFile))) {
+                    CasIOUtils.load(is, tsis, realCas, CasLoadMode.REINIT);
+                }
+            }
+
+            removeDuplicateDocumentAnnotations(realCas);
+        }
+    }
+
+    /**
+     * Reads the header of a compact CAS file.
+     * 
+     * @param aInput
+     *            the input positioned at the start of the file. After the call, it is positioned at
+     *            the start of the CAS data.
+     * @param aFile
+     *            the file being read (used for error messages).
+     * @return the ID of the type system the CAS data was written against.
+     * @throws IOException
+     *             if the header could not be read or is not a supported compact CAS header.
+     */
+    public static String readCompactCasHeader(DataInput aInput, File aFile) throws IOException
+    {
+        byte[] magic = new byte[COMPACT_CAS_MAGIC.length];
+        aInput.readFully(magic);
+        if (!Arrays.equals(magic, COMPACT_CAS_MAGIC)) {
+            throw new IOException("File [" + aFile + "] is not a compact CAS file");
+        }
+
+        int version = aInput.readInt();
+        if (version != COMPACT_CAS_VERSION) {
+            throw new IOException("Unsupported compact CAS format version [" + version
+                    + "] in file [" + aFile + "]");
+        }
+
+        return aInput.readUTF();
+    }
+
+    /**
+     * Reads the CAS data of a compact CAS file into a CAS which may use a reduced type system.
+     * Feature structures of types not contained in the type system of the target CAS are skipped
+     * while decoding and are never materialized.
+     * 
+     * @param aCas
+     *            the CAS to read the data into.
+     * @param aInput
+     *            the input positioned at the start of the CAS data (cf.
+     *            {@link #readCompactCasHeader}).
+     * @param aTypeSystem
+     *            the type system the CAS data was written against.
+     * @throws IOException
+     *             if there was a problem reading the CAS.
+     */
+    public static void readCompactCasData(CAS aCas, InputStream aInput, TypeSystem aTypeSystem)
+        throws IOException
+    {
+        CAS realCas = getRealCas(aCas);
+        // UIMA-6162 Workaround: synchronize CAS during de/serialization
+        synchronized (((CASImpl) realCas).getBaseCAS()) {
+            try {
+                Serialization.deserializeCAS(realCas, aInput, aTypeSystem, null);
+            }
+            catch (ResourceInitializationException e) {
+                throw new IOException(e);
+            }
+
+            removeDuplicateDocumentAnnotations(realCas);
+        }
+    }
+
+    /**
+     * Reads a type system previously written using {@link #serializeTypeSystem}.
+     * 
+     * @param aFile
+     *            the type system file.
+     * @return the type system.
+     * @throws IOException
+     *             if there was a problem reading the type system.
+     */
+    public static TypeSystem readTypeSystem(File aFile) throws IOException
+    {
+        try (var is = new ObjectInputStream(
+                new BufferedInputStream(new FileInputStream(aFile)))) {
+            return ((CASMgrSerializer) is.readObject()).getTypeSystem().commit();
+        }
+        catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Creates a type system description which contains only the given types from the given type
+     * system as well as all types required to represent them, i.e. their super types and the
+     * ranges and element types of their features (transitively). Types which do not exist in the
+     * type system are ignored.
+     * 
+     * @param aTypeSystem
+     *            the full type system.
+     * @param aTypes
+     *            the names of the types to retain.
+     * @return the reduced type system description.
+     */
+    public static TypeSystemDescription createPartialTypeSystem(TypeSystem aTypeSystem,
+            Collection<String> aTypes)
+    {
+        Set<String> retained = new HashSet<>();
+        Deque<Type> queue = new ArrayDeque<>();
+        for (String typeName : aTypes) {
+            enqueueType(queue, aTypeSystem.getType(typeName));
+        }
+
+        while (!queue.isEmpty()) {
+            Type type = queue.poll();
+            if (!retained.add(type.getName())) {
+                continue;
+            }
+
+            enqueueType(queue, aTypeSystem.getParent(type));
+            enqueueType(queue, type.getComponentType());
+            for (Feature feature : type.getFeatures()) {
+                enqueueType(queue, feature.getRange());
+                enqueueType(queue, feature.getRange().getComponentType());
+            }
+        }
+
+        TypeSystemDescription fullTsd = TypeSystemUtil.typeSystem2TypeSystemDescription(aTypeSystem);
+        TypeSystemDescription partialTsd = new TypeSystemDescription_impl();
+        partialTsd.setTypes(Arrays.stream(fullTsd.getTypes()) //
+                .filter(td -> retained.contains(td.getName())) //
+                .toArray(TypeDescription[]::new));
+        return partialTsd;
+    }
+
+    private static void enqueueType(Deque<Type> aQueue, Type aType)
+    {
+        if (aType != null) {
+            aQueue.add(aType);
+        }
+    }
+
+    /**
+     * Writes the type system of the given CAS including its index definitions in the form expected
+     * by {@link #readCompactCas}.
+     * 
+     * @param aCas
+     *            the CAS whose type system to write.
+     * @return the serialized type system.
+     * @throws IOException
+     *             if there was a problem serializing the type system.
+     */
+    public static byte[] serializeTypeSystem(CAS aCas) throws IOException
+    {
+        var bos = new ByteArrayOutputStream();
+        CasIOUtils.writeTypeSystem(getRealCas(aCas), bos, true);
+        return bos.toByteArray();
+    }
+
     private static void preserveForDebugging(File aFile, CAS aCas,
             CASCompleteSerializer aSerializer)
     {
@@ -174,22 +423,26 @@ public final class CasPersistenceUtils
         try (ObjectInputStream ois = new ObjectInputStream(is)) {
             CASCompleteSerializer serializer = (CASCompleteSerializer) ois.readObject();
             deserializeCASComplete(serializer, (CASImpl) aCas);
-
-            // Workaround for UIMA adding back deleted DocumentAnnotations
-            // https://issues.apache.org/jira/browse/UIMA-6199
-            // If there is a DocumentMetaData annotation, then we can drop any of the default UIMA
-            // DocumentAnnotation instances (excluding the DocumentMetaData of course)
-            if (!aCas.select(DocumentMetaData.class.getName()).isEmpty()) {
-                aCas.select(CAS.TYPE_NAME_DOCUMENT_ANNOTATION).filter(
-                        fs -> !DocumentMetaData.class.getName().equals(fs.getType().getName()))
-                        .forEach(aCas::removeFsFromIndexes);
-            }
+            removeDuplicateDocumentAnnotations(aCas);
         }
         catch (ClassNotFoundException e) {
             throw new IOException(e);
         }
     }
 
+    private static void removeDuplicateDocumentAnnotations(CAS aCas)
+    {
+        // Workaround for UIMA adding back deleted DocumentAnnotations
+        // https://issues.apache.org/jira/browse/UIMA-6199
+        // If there is a DocumentMetaData annotation, then we can drop any of the default UIMA
+        // DocumentAnnotation instances (excluding the DocumentMetaData of course)
+        if (!aCas.select(DocumentMetaData.class.getName()).isEmpty()) {
+            aCas.select(CAS.TYPE_NAME_DOCUMENT_ANNOTATION)
+                    .filter(fs -> !DocumentMetaData.class.getName().equals(fs.getType().getName()))
+                    .forEach(aCas::removeFsFromIndexes);
+        }
+    }
+
     private static InputStream maybeUncompress(BufferedInputStream bis) throws IOException
     {
         byte[] buf = new byte[32];
@@ -219,4 +472,54 @@ public final class CasPersistenceUtils
 
         return true;
     }
+
+    /**
+     * Input stream reading from a (memory-mapped) byte buffer without copying it to the heap.
+     */
+    public static class ByteBufferInputStream
+        extends InputStream
+    {
+        private final ByteBuffer buffer;
+
+        public ByteBufferInputStream(ByteBuffer aBuffer)
+        {
+            buffer = aBuffer;
+        }
+
+        @Override
+        public int read()
+        {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] aBytes, int aOffset, int aLength)
+        {
+            if (aLength == 0) {
+                return 0;
+            }
+
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+
+            int len = Math.min(aLength, buffer.remaining());
+            buffer.get(aBytes, aOffset, len);
+            return len;
+        }
+
+        @Override
+        public long skip(long aCount)
+        {
+            int n = (int) Math.min(Math.max(aCount, 0), buffer.remaining());
+            buffer.position(buffer.position() + n);
+            return n;
+        }
+
+        @Override
+        public int available()
+        {
+            return buffer.remaining();
+        }
+    }
 }
@@ -24,36 +24,52 @@ import static de.tudarmstadt.ukp.clarin.webanno.api.annotation.util.WebAnnoCasUt
 import static de.tudarmstadt.ukp.clarin.webanno.support.logging.BaseLoggers.BOOT_LOG;
 import static java.lang.System.currentTimeMillis;
 import static java.nio.file.Files.move;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
 import static java.util.regex.Pattern.compile;
 import static java.util.regex.Pattern.quote;
 import static org.apache.commons.io.comparator.LastModifiedFileComparator.LASTMODIFIED_COMPARATOR;
 import static org.apache.commons.lang3.time.DurationFormatUtils.formatDurationHMS;
 
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.SimpleDateFormat;
 import java.time.Duration;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Optional;
+import java.util.TreeSet;
 import java.util.regex.Matcher;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.commons.lang3.Validate;
 import org.apache.uima.UIMAException;
 import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.TypeSystem;
 import org.apache.uima.fit.util.FSUtil;
 import org.apache.uima.jcas.cas.TOP;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 
@@ -63,6 +79,7 @@ import de.tudarmstadt.ukp.clarin.webanno.api.config.RepositoryProperties;
 import de.tudarmstadt.ukp.clarin.webanno.api.type.CASMetadata;
 import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
 import de.tudarmstadt.ukp.clarin.webanno.support.wicket.WicketUtil;
+import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
 import de.tudarmstadt.ukp.inception.annotation.storage.CasMetadataUtils;
 import de.tudarmstadt.ukp.inception.annotation.storage.CasStorageMetadata;
 import de.tudarmstadt.ukp.inception.annotation.storage.config.CasStorageBackupProperties;
@@ -73,7 +90,10 @@ public class FileSystemCasStorageDriver
     implements CasStorageDriver
 {
     public static final String SER_CAS_EXTENSION = ".ser";
+    public static final String COMPACT_CAS_EXTENSION = ".bcas";
     public static final String OLD_EXTENSION = ".old";
+    public static final String TYPE_SYSTEM_FOLDER = "typesystems";
+    public static final String TYPE_SYSTEM_EXTENSION = ".tsi";
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -81,6 +101,9 @@ public class FileSystemCasStorageDriver
     private final CasStorageProperties casStorageProperties;
     private final CasStorageBackupProperties backupProperties;
     private final LoadingCache<File, InternalMetadata> metadataCache;
+    private final Cache<TypeSystem, String> typeSystemIds;
+    private final Cache<File, TypeSystem> storedTypeSystems;
+    private final Cache<String, TypeSystemDescription> partialTypeSystems;
 
     public FileSystemCasStorageDriver(RepositoryProperties aRepositoryProperties,
             CasStorageBackupProperties aBackupProperties,
@@ -99,6 +122,20 @@ public class FileSystemCasStorageDriver
             metadataCache = null;
         }
 
+        typeSystemIds = Caffeine.newBuilder() //
+                .weakKeys() //
+                .build();
+
+        storedTypeSystems = Caffeine.newBuilder() //
+                .maximumSize(100) //
+                .expireAfterAccess(Duration.ofMinutes(30)) //
+                .build();
+
+        partialTypeSystems = Caffeine.newBuilder() //
+                .maximumSize(100) //
+                .expireAfterAccess(Duration.ofMinutes(30)) //
+                .build();
+
         if (backupProperties.getInterval() > 0) {
             BOOT_LOG.info("CAS backups enabled - interval: {}sec  max-backups: {}  max-age: {}sec",
                     backupProperties.getInterval(), backupProperties.getKeep().getNumber(),
@@ -112,8 +149,11 @@ public class FileSystemCasStorageDriver
     @Override
     public CAS readCas(SourceDocument aDocument, String aUser) throws IOException
     {
-        File casFile = getCasFile(aDocument.getProject().getId(), aDocument.getId(), aUser);
+        long projectId = aDocument.getProject().getId();
+        File casFile = getCasFile(projectId, aDocument.getId(), aUser);
         File oldCasFile = new File(casFile.getPath() + OLD_EXTENSION);
+        String casExtension = isCompactCasFile(casFile) ? COMPACT_CAS_EXTENSION
+                : SER_CAS_EXTENSION;
 
         if (metadataCache != null) {
             metadataCache.get(casFile).readAttempt();
@@ -125,10 +165,10 @@ public class FileSystemCasStorageDriver
                     "Existence of temporary annotation file [%s] indicates that a previous "
                             + "annotation storage process did not successfully complete. Contact "
                             + "your server administator and request renaming the '%s%s' file "
-                            + "to '.ser' manually on the command line. Advise the administrator to "
+                            + "to '%s' manually on the command line. Advise the administrator to "
                             + "check for sufficient disk space and that the application has the "
                             + "necessary permissions to save files in its data folder.",
-                    oldCasFile, SER_CAS_EXTENSION, OLD_EXTENSION);
+                    oldCasFile, casExtension, OLD_EXTENSION, casExtension);
         }
 
         CAS cas;
@@ -146,7 +186,13 @@ public class FileSystemCasStorageDriver
         }
 
         try {
-            CasPersistenceUtils.readSerializedCas(cas, casFile);
+            if (isCompactCasFile(casFile)) {
+                CasPersistenceUtils.readCompactCas(cas, casFile,
+                        id -> getTypeSystemFile(projectId, id));
+            }
+            else {
+                CasPersistenceUtils.readSerializedCas(cas, casFile);
+            }
             // Add/update the CAS metadata
             CasMetadataUtils.addOrUpdateCasMetadata(cas, casFile.lastModified(), aDocument, aUser);
         }
@@ -163,6 +209,68 @@ public class FileSystemCasStorageDriver
         return cas;
     }
 
+    @Override
+    public CAS readPartialCas(SourceDocument aDocument, String aUser, Collection<String> aTypes)
+        throws IOException
+    {
+        long projectId = aDocument.getProject().getId();
+        File casFile = getCasFile(projectId, aDocument.getId(), aUser);
+
+        if (!casFile.exists()) {
+            throw new FileNotFoundException("Annotation document of user [" + aUser
+                    + "] for source document " + aDocument + " not found in project ["
+                    + aDocument.getProject() + ")");
+        }
+
+        // Serialized CASes can only be read completely
+        if (!isCompactCasFile(casFile)) {
+            return readCas(aDocument, aUser);
+        }
+
+        // The document metadata and the CAS metadata are always required to handle the CAS
+        var types = new TreeSet<String>(aTypes);
+        types.add(DocumentMetaData.class.getName());
+        types.add(CASMetadata._TypeName);
+
+        try (var channel = FileChannel.open(casFile.toPath(), READ)) {
+            // Map the file instead of reading it so that it is not copied into the heap
+            var buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+            var is = new DataInputStream(new CasPersistenceUtils.ByteBufferInputStream(buffer));
+
+            String typeSystemId = CasPersistenceUtils.readCompactCasHeader(is, casFile);
+            File typeSystemFile = getTypeSystemFile(projectId, typeSystemId);
+            if (!typeSystemFile.exists()) {
+                throw new FileNotFoundException("Type system [" + typeSystemId + "] required by ["
+                        + casFile + "] not found");
+            }
+
+            TypeSystem typeSystem = storedTypeSystems.get(typeSystemFile, this::readTypeSystem);
+            TypeSystemDescription partialTypeSystem = partialTypeSystems.get(
+                    typeSystemId + types,
+                    k -> CasPersistenceUtils.createPartialTypeSystem(typeSystem, types));
+
+            CAS cas = WebAnnoCasUtil.createCas(partialTypeSystem);
+            CasPersistenceUtils.readCompactCasData(cas, is, typeSystem);
+            CasMetadataUtils.addOrUpdateCasMetadata(cas, casFile.lastModified(), aDocument, aUser);
+            return cas;
+        }
+        catch (ResourceInitializationException | UncheckedIOException e) {
+            throw new IOException("Annotation document of user [" + aUser + "] for source document "
+                    + aDocument + " in project [" + aDocument.getProject()
+                    + " cannot be read from file [" + casFile + "]", e);
+        }
+    }
+
+    private TypeSystem readTypeSystem(File aFile)
+    {
+        try {
+            return CasPersistenceUtils.readTypeSystem(aFile);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     @Override
     public void writeCas(SourceDocument aDocument, String aUserName, CAS aCas) throws IOException
     {
@@ -171,29 +279,38 @@ public class FileSystemCasStorageDriver
         log.debug("Preparing to update annotations for user [{}] on document {} " //
                 + "in project {}", aUserName, aDocument, aDocument.getProject());
 
+        boolean compact = casStorageProperties.isCompactCasSerialization();
         File annotationFolder = getAnnotationFolder(aDocument);
-        File currentVersion = new File(annotationFolder, aUserName + SER_CAS_EXTENSION);
-        File oldVersion = new File(annotationFolder, aUserName + SER_CAS_EXTENSION + OLD_EXTENSION);
+        // The previous version may be stored in a different format than the one we write now
+        File previousVersion = getCasFile(aDocument, aUserName);
+        File currentVersion = new File(annotationFolder,
+                aUserName + (compact ? COMPACT_CAS_EXTENSION : SER_CAS_EXTENSION));
+        File oldVersion = new File(previousVersion.getPath() + OLD_EXTENSION);
 
         if (metadataCache != null) {
             metadataCache.get(currentVersion).writeAttempt();
         }
 
         // Check if there was a concurrent change to the file on disk
-        if (currentVersion.exists()) {
-            failOnConcurrentModification(aCas, currentVersion, aDocument, aUserName, "writing");
+        if (previousVersion.exists()) {
+            failOnConcurrentModification(aCas, previousVersion, aDocument, aUserName, "writing");
         }
 
         // Save current version
         try {
             // Make a backup of the current version of the file before overwriting
-            if (currentVersion.exists()) {
-                move(currentVersion.toPath(), oldVersion.toPath());
+            if (previousVersion.exists()) {
+                move(previousVersion.toPath(), oldVersion.toPath());
             }
 
-            // Now write the new version to "<username>.ser" or CURATION_USER.ser
+            // Now write the new version to "<username>.ser" or CURATION_USER.ser (or the
+            // respective ".bcas" file if the compact format is used)
             setDocumentId(aCas, aUserName);
-            if (casStorageProperties.isParanoidCasSerialization()) {
+            if (compact) {
+                String typeSystemId = storeTypeSystem(aDocument.getProject().getId(), aCas);
+                CasPersistenceUtils.writeCompactCas(aCas, typeSystemId, currentVersion);
+            }
+            else if (casStorageProperties.isParanoidCasSerialization()) {
                 CasPersistenceUtils.writeSerializedCasParanoid(aCas, currentVersion);
             }
             else if (casStorageProperties.isCompressedCasSerialization()) {
@@ -218,7 +335,10 @@ public class FileSystemCasStorageDriver
                     + "project {} due exception when trying to write new " + "annotations: [{}]",
                     aUserName, aDocument, aDocument.getProject(), oldVersion);
             try {
-                move(oldVersion.toPath(), currentVersion.toPath(), REPLACE_EXISTING);
+                if (!currentVersion.equals(previousVersion)) {
+                    FileUtils.deleteQuietly(currentVersion);
+                }
+                move(oldVersion.toPath(), previousVersion.toPath(), REPLACE_EXISTING);
             }
             catch (Exception ex) {
                 log.error("Unable to restore previous annotations: [{}]", oldVersion, ex);
@@ -291,6 +411,63 @@ public class FileSystemCasStorageDriver
         return annotationFolder;
     }
 
+    private File getTypeSystemFile(long aProjectId, String aTypeSystemId)
+    {
+        return new File(repositoryProperties.getPath(),
+                "/" + PROJECT_FOLDER + "/" + aProjectId + "/" + TYPE_SYSTEM_FOLDER + "/"
+                        + aTypeSystemId + TYPE_SYSTEM_EXTENSION);
+    }
+
+    /**
+     * Stores the type system of the given CAS in the project unless it has already been stored
+     * before. Type systems are identified by a hash over their serialized form, so all CASes in a
+     * project that share the same type system also share the same type system file.
+     */
+    private String storeTypeSystem(long aProjectId, CAS aCas) throws IOException
+    {
+        TypeSystem typeSystem = aCas.getTypeSystem();
+        String typeSystemId = typeSystemIds.getIfPresent(typeSystem);
+        if (typeSystemId != null && getTypeSystemFile(aProjectId, typeSystemId).exists()) {
+            return typeSystemId;
+        }
+
+        byte[] data = CasPersistenceUtils.serializeTypeSystem(aCas);
+        try {
+            typeSystemId = HexFormat.of()
+                    .formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+
+        File typeSystemFile = getTypeSystemFile(aProjectId, typeSystemId);
+        if (!typeSystemFile.exists()) {
+            FileUtils.forceMkdir(typeSystemFile.getParentFile());
+            // Write to a temporary file first and move it into place atomically so that
+            // concurrent writers or readers never see a partially written type system
+            File tempFile = Files.createTempFile(typeSystemFile.getParentFile().toPath(),
+                    typeSystemId, ".tmp").toFile();
+            try {
+                FileUtils.writeByteArrayToFile(tempFile, data);
+                move(tempFile.toPath(), typeSystemFile.toPath(), ATOMIC_MOVE);
+            }
+            finally {
+                FileUtils.deleteQuietly(tempFile);
+            }
+
+            log.debug("Stored type system [{}] in project [{}]", typeSystemId, aProjectId);
+        }
+
+        typeSystemIds.put(typeSystem, typeSystemId);
+
+        return typeSystemId;
+    }
+
+    private static boolean isCompactCasFile(File aFile)
+    {
+        return aFile.getName().endsWith(COMPACT_CAS_EXTENSION);
+    }
+
     private void manageHistory(File aCurrentVersion, SourceDocument aDocument, String aUserName)
         throws IOException
     {
@@ -306,8 +483,8 @@ public class FileSystemCasStorageDriver
         // Get all history files for the current user
         File[] history = annotationFolder.listFiles(new FileFilter()
         {
-            private final Matcher matcher = compile(quote(aUserName) + "\\.ser\\.[0-9]+\\.bak")
-                    .matcher("");
+            private final Matcher matcher = compile(
+                    quote(aUserName) + "\\.(ser|bcas)\\.[0-9]+\\.bak").matcher("");
 
             @Override
             public boolean accept(File aFile)
@@ -322,7 +499,8 @@ public class FileSystemCasStorageDriver
 
         // Check if we need to make a new history file
         boolean historyFileCreated = false;
-        File historyFile = new File(annotationFolder, aUserName + ".ser." + now + ".bak");
+        File historyFile = new File(annotationFolder,
+                aCurrentVersion.getName() + "." + now + ".bak");
         if (history.length == 0) {
             // If there is no history yet but we should keep history, then we create a
             // history file in any case.
@@ -400,7 +578,23 @@ public class FileSystemCasStorageDriver
         Validate.notNull(aDocument, "Source document must be specified");
         Validate.notBlank(aUser, "User must be specified");
 
-        try (InputStream is = Files.newInputStream(getCasFile(aDocument, aUser).toPath())) {
+        File casFile = getCasFile(aDocument, aUser);
+
+        // Exported CASes always use the serialized CAS format because that is what the importers
+        // expect - so CASes stored in the compact format need to be converted
+        if (isCompactCasFile(casFile)) {
+            CAS cas = readCas(aDocument, aUser);
+            var os = CloseShieldOutputStream.wrap(aStream);
+            if (casStorageProperties.isCompressedCasSerialization()) {
+                CasPersistenceUtils.writeSnappyCompressed(os, cas);
+            }
+            else {
+                CasPersistenceUtils.write(os, cas);
+            }
+            return;
+        }
+
+        try (InputStream is = Files.newInputStream(casFile.toPath())) {
             IOUtils.copyLarge(is, aStream);
         }
     }
@@ -412,24 +606,49 @@ public class FileSystemCasStorageDriver
         Validate.notNull(aDocument, "Source document must be specified");
         Validate.notBlank(aUser, "User must be specified");
 
-        try (OutputStream os = Files.newOutputStream(getCasFile(aDocument, aUser).toPath())) {
+        File annotationFolder = getAnnotationFolder(aDocument);
+        try (OutputStream os = Files
+                .newOutputStream(new File(annotationFolder, aUser + SER_CAS_EXTENSION).toPath())) {
             IOUtils.copyLarge(aStream, os);
         }
+
+        // Imported data is in the serialized CAS format, so any compact version must go
+        File compactCasFile = new File(annotationFolder, aUser + COMPACT_CAS_EXTENSION);
+        if (compactCasFile.exists()) {
+            FileUtils.forceDelete(compactCasFile);
+        }
     }
 
+    /**
+     * @return the file the CAS is currently stored in. If the CAS is stored in the compact format,
+     *         that file is returned, otherwise the serialized CAS file is returned - whether it
+     *         exists or not.
+     */
     private File getCasFile(long aProjectId, long aDocumentId, String aUser) throws IOException
     {
-        return new File(getAnnotationFolder(aProjectId, aDocumentId), aUser + SER_CAS_EXTENSION);
+        File annotationFolder = getAnnotationFolder(aProjectId, aDocumentId);
+
+        File compactCasFile = new File(annotationFolder, aUser + COMPACT_CAS_EXTENSION);
+        if (compactCasFile.exists()) {
+            return compactCasFile;
+        }
+
+        return new File(annotationFolder, aUser + SER_CAS_EXTENSION);
     }
 
     @Override
     public boolean deleteCas(SourceDocument aDocument, String aUser) throws IOException
     {
-        File casFile = getCasFile(aDocument.getProject().getId(), aDocument.getId(), aUser);
-        if (metadataCache != null) {
-            metadataCache.invalidate(casFile);
+        File annotationFolder = getAnnotationFolder(aDocument);
+        boolean deleted = false;
+        for (String extension : List.of(COMPACT_CAS_EXTENSION, SER_CAS_EXTENSION)) {
+            File casFile = new File(annotationFolder, aUser + extension);
+            if (metadataCache != null) {
+                metadataCache.invalidate(casFile);
+            }
+            deleted |= casFile.delete();
         }
-        return casFile.delete();
+        return deleted;
     }
 
     @Override
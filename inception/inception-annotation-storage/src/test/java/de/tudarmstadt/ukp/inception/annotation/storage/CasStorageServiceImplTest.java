@@ -70,11 +70,16 @@ import de.tudarmstadt.ukp.clarin.webanno.api.type.CASMetadata;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
 import de.tudarmstadt.ukp.clarin.webanno.support.logging.Logging;
+import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 import de.tudarmstadt.ukp.inception.annotation.storage.config.CasStorageBackupProperties;
 import de.tudarmstadt.ukp.inception.annotation.storage.config.CasStorageCachePropertiesImpl;
 import de.tudarmstadt.ukp.inception.annotation.storage.config.CasStoragePropertiesImpl;
 import de.tudarmstadt.ukp.inception.annotation.storage.driver.filesystem.FileSystemCasStorageDriver;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 public class CasStorageServiceImplTest
 {
     private Logger log = LoggerFactory.getLogger(getClass());
@@ -115,7 +120,8 @@ public class CasStorageServiceImplTest
         driver = new FileSystemCasStorageDriver(repositoryProperties,
                 new CasStorageBackupProperties(), new CasStoragePropertiesImpl());
 
-        sut = new CasStorageServiceImpl(driver, new CasStorageCachePropertiesImpl(), null, null);
+        sut = new CasStorageServiceImpl(driver, new CasStorageCachePropertiesImpl(), null, null,
+                null);
     }
 
     @Test
@@ -141,6 +147,70 @@ public class CasStorageServiceImplTest
         }
     }
 
+    @Test
+    public void testSwitchingToCompactCasSerialization() throws Exception
+    {
+        SourceDocument doc = makeSourceDocument(9l, 9l, "test");
+        String user = "test";
+
+        try (CasStorageSession casStorageSession = openNested(true)) {
+            createCasFile(doc, user, "This is a test");
+            assertThat(new File(driver.getAnnotationFolder(doc), user + ".ser")).exists();
+        }
+
+        var casStorageProperties = new CasStoragePropertiesImpl();
+        casStorageProperties.setCompactCasSerialization(true);
+        driver = new FileSystemCasStorageDriver(repositoryProperties,
+                new CasStorageBackupProperties(), casStorageProperties);
+        sut = new CasStorageServiceImpl(driver, new CasStorageCachePropertiesImpl(), null, null,
+                null);
+
+        try (CasStorageSession casStorageSession = openNested(true)) {
+            CAS cas = sut.readCas(doc, user);
+            cas.addFsToIndexes(cas.createAnnotation(cas.getAnnotationType(), 0, 4));
+            sut.writeCas(doc, cas, user);
+
+            assertThat(new File(driver.getAnnotationFolder(doc), user + ".ser")).doesNotExist();
+            assertThat(driver.getCasFile(doc, user)).exists().hasExtension("bcas");
+        }
+
+        // Read directly through the driver to bypass the CAS cache
+        CAS cas = driver.readCas(doc, user);
+        assertThat(cas.getDocumentText()).isEqualTo("This is a test");
+        assertThat(cas.getAnnotationIndex().stream().map(a -> a.getBegin() + "-" + a.getEnd()))
+                .contains("0-4");
+    }
+
+    @Test
+    public void testReadPartialCas() throws Exception
+    {
+        var casStorageProperties = new CasStoragePropertiesImpl();
+        casStorageProperties.setCompactCasSerialization(true);
+        driver = new FileSystemCasStorageDriver(repositoryProperties,
+                new CasStorageBackupProperties(), casStorageProperties);
+        sut = new CasStorageServiceImpl(driver, new CasStorageCachePropertiesImpl(), null, null,
+                null);
+
+        SourceDocument doc = makeSourceDocument(10l, 10l, "test");
+        String user = "test";
+
+        try (CasStorageSession casStorageSession = openNested(true)) {
+            JCas jcas = createCasFile(doc, user, "This is a test");
+            new Token(jcas, 0, 4).addToIndexes();
+            new Sentence(jcas, 0, 14).addToIndexes();
+            sut.writeCas(doc, jcas.getCas(), user);
+        }
+
+        try (CasStorageSession casStorageSession = openNested(true)) {
+            CAS cas = sut.readPartialCas(doc, user, asList(Token.class.getName()));
+
+            assertThat(cas.getDocumentText()).isEqualTo("This is a test");
+            assertThat(cas.getTypeSystem().getType(Sentence.class.getName())).isNull();
+            assertThat(cas.select(Token.class.getName()).asList()).hasSize(1);
+            assertThat(cas.select(DocumentMetaData.class.getName()).asList()).hasSize(1);
+        }
+    }
+
     @Test
     public void testCasMetadataGetsCreated() throws Exception
     {
@@ -228,6 +298,51 @@ public class CasStorageServiceImplTest
                 .isNotEqualTo(casIdentity3);
     }
 
+    @Test
+    public void testThatStorageMetricsAreRecorded() throws Exception
+    {
+        // Setup fixture
+        var meterRegistry = new SimpleMeterRegistry();
+        sut = new CasStorageServiceImpl(driver, new CasStorageCachePropertiesImpl(), null, null,
+                meterRegistry);
+        SourceDocument doc = makeSourceDocument(5l, 5l, "test");
+        String user = "test";
+
+        // Actual test
+        try (CasStorageSession session = openNested(true)) {
+            JCas cas = createCasFile(doc, user, "This is a test");
+
+            assertThat(meterRegistry.get("inception.cas.exclusive.active").gauge().value())
+                    .as("The exclusively borrowed CAS is counted as active")
+                    .isGreaterThan(0.0);
+
+            long writes = meterRegistry.get("inception.cas.write").timer().count();
+            sut.writeCas(doc, cas.getCas(), user);
+            assertThat(meterRegistry.get("inception.cas.write").timer().count())
+                    .isEqualTo(writes + 1);
+        }
+
+        long reads = meterRegistry.get("inception.cas.read").timer().count();
+        try (CasStorageSession session = openNested(true)) {
+            sut.readCas(doc, user, SHARED_READ_ONLY_ACCESS);
+        }
+        try (CasStorageSession session = openNested(true)) {
+            sut.readCas(doc, user, SHARED_READ_ONLY_ACCESS);
+        }
+
+        assertThat(meterRegistry.get("inception.cas.read").timer().count())
+                .as("Only the first shared read has to load the CAS from disk")
+                .isEqualTo(reads + 1);
+        assertThat(meterRegistry.get("inception.cas.shared.cache.gets").tag("result", "miss")
+                .functionCounter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("inception.cas.shared.cache.gets").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("inception.cas.shared.cache.size").gauge().value())
+                .isEqualTo(1.0);
+        assertThat(meterRegistry.get("inception.cas.shared.cache.evictions").functionCounter()
+                .count()).isEqualTo(0.0);
+    }
+
     @Test
     public void testConcurrentAccess() throws Exception
     {
@@ -22,6 +22,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import java.io.File;
 import java.nio.file.Path;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.impl.CASImpl;
 import org.apache.uima.cas.text.AnnotationFS;
@@ -109,4 +110,27 @@ public class CasPersistenceUtilsTest
         assertThat(actualCas.getDocumentText()).isEqualTo(originalCas.getDocumentText());
         assertThat(actualCas.getDocumentLanguage()).isEqualTo(originalCas.getDocumentLanguage());
     }
+
+    @Test
+    void thatCompactCasCanBeSavedAndLoaded(@TempDir Path aTempDir) throws Exception
+    {
+        File target = aTempDir.resolve("out.bcas").toFile();
+        File typeSystem = aTempDir.resolve("ts.tsi").toFile();
+
+        CAS originalCas = CasFactory.createText("This is a test.", "en");
+        DocumentMetaData.create(originalCas).setDocumentId("doc");
+        FileUtils.writeByteArrayToFile(typeSystem,
+                CasPersistenceUtils.serializeTypeSystem(originalCas));
+        CasPersistenceUtils.writeCompactCas(originalCas, "ts", target);
+
+        CAS actualCas = CasCreationUtils.createCas((TypeSystemDescription) null, null, null);
+        CasPersistenceUtils.readCompactCas(actualCas, target,
+                id -> aTempDir.resolve(id + ".tsi").toFile());
+
+        assertThat(actualCas.getDocumentText()).isEqualTo(originalCas.getDocumentText());
+        assertThat(actualCas.getDocumentLanguage()).isEqualTo(originalCas.getDocumentLanguage());
+        assertThat(actualCas.select(DocumentAnnotation.class).asList())
+                .extracting(fs -> fs.getType().getName())
+                .containsExactly(DocumentMetaData.class.getName());
+    }
 }
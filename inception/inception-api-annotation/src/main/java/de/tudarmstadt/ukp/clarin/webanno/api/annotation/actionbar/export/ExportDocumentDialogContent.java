@@ -21,11 +21,13 @@ import static java.util.stream.Collectors.toList;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.List;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.uima.UIMAException;
 import org.apache.wicket.Application;
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.extensions.ajax.markup.html.modal.ModalDialog;
@@ -40,14 +42,19 @@ import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.apache.wicket.util.resource.IResourceStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.DocumentImportExportService;
 import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
 import de.tudarmstadt.ukp.clarin.webanno.api.format.FormatSupport;
+import de.tudarmstadt.ukp.clarin.webanno.model.Mode;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
 import de.tudarmstadt.ukp.clarin.webanno.support.lambda.LambdaAjaxFormComponentUpdatingBehavior;
 import de.tudarmstadt.ukp.clarin.webanno.support.lambda.LambdaAjaxLink;
+import de.tudarmstadt.ukp.clarin.webanno.support.logging.MDCContext;
 import de.tudarmstadt.ukp.clarin.webanno.support.wicket.AjaxDownloadLink;
 import de.tudarmstadt.ukp.clarin.webanno.support.wicket.InputStreamResourceStream;
+import de.tudarmstadt.ukp.clarin.webanno.support.wicket.PipedStreamResource;
 import de.tudarmstadt.ukp.inception.rendering.editorstate.AnnotatorState;
 
 /**
@@ -90,6 +97,7 @@ public class ExportDocumentDialogContent
         queue(format);
 
         queue(new AjaxDownloadLink("confirm", //
+                LoadableDetachableModel.of(this::exportFilename), //
                 LoadableDetachableModel.of(this::export)));
 
         cancelButton = new LambdaAjaxLink("cancel", this::actionCloseDialog);
@@ -99,13 +107,43 @@ public class ExportDocumentDialogContent
         queue(new LambdaAjaxLink("closeDialog", this::actionCloseDialog));
     }
 
+    private String exportFilename()
+    {
+        FormatSupport format = importExportService.getFormatByName(preferences.getObject().format)
+                .get();
+
+        // Non-streamable formats obtain the file name from the exported file
+        if (!format.isStreamable()) {
+            return null;
+        }
+
+        var docName = state.getObject().getDocument().getName();
+        var baseName = "document";
+
+        // Safe-guard for legacy instances where document name validity has not been checked
+        // during import.
+        if (documentService.isValidDocumentName(docName)) {
+            baseName = FilenameUtils.getBaseName(docName);
+        }
+
+        return baseName + format.getStreamedFileExtension();
+    }
+
     private IResourceStream export()
     {
+        AnnotatorState s = state.getObject();
+        FormatSupport format = importExportService.getFormatByName(preferences.getObject().format)
+                .get();
+
+        // If possible, write the export directly into the response instead of going through a
+        // temporary file
+        if (format.isStreamable()) {
+            return streamExport(importExportService, s.getDocument(), s.getUser().getUsername(),
+                    format, s.getMode());
+        }
+
         File exportedFile = null;
         try {
-            AnnotatorState s = state.getObject();
-            FormatSupport format = importExportService
-                    .getFormatByName(preferences.getObject().format).get();
             exportedFile = importExportService.exportAnnotationDocument(s.getDocument(),
                     s.getUser().getUsername(), format, s.getMode());
 
@@ -135,6 +173,31 @@ public class ExportDocumentDialogContent
         }
     }
 
+    static PipedStreamResource streamExport(DocumentImportExportService aImportExportService,
+            SourceDocument aDocument, String aUser, FormatSupport aFormat, Mode aMode)
+    {
+        var formatId = aFormat.getId();
+
+        // The export is written by the worker thread of the resource which does not inherit the
+        // logging context of the request thread - but the CAS storage relies on it, e.g. to
+        // locate the repository
+        var loggingContext = MDC.getCopyOfContextMap();
+
+        return new PipedStreamResource(os -> {
+            try (var ctx = MDCContext.open()) {
+                if (loggingContext != null) {
+                    MDC.setContextMap(loggingContext);
+                }
+
+                aImportExportService.exportAnnotationDocument(aDocument, aUser,
+                        aImportExportService.getFormatById(formatId).get(), aMode, true, os);
+            }
+            catch (UIMAException | RuntimeException e) {
+                throw new IOException(e);
+            }
+        });
+    }
+
     protected void actionCloseDialog(AjaxRequestTarget aTarget)
     {
         findParent(ModalDialog.class).close(aTarget);
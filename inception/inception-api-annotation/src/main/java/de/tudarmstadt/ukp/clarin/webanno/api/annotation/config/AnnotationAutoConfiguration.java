@@ -32,6 +32,8 @@ import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.FocusMarkerRen
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.LabelRenderer;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.PreRenderer;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.PreRendererImpl;
+import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.PreRendererProperties;
+import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.PreRendererPropertiesImpl;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.RenderNotificationRenderStep;
 import de.tudarmstadt.ukp.clarin.webanno.api.config.RepositoryProperties;
 import de.tudarmstadt.ukp.inception.preferences.PreferencesService;
@@ -41,7 +43,8 @@ import de.tudarmstadt.ukp.inception.schema.AnnotationSchemaService;
 import de.tudarmstadt.ukp.inception.schema.layer.LayerSupportRegistry;
 
 @Configuration
-@EnableConfigurationProperties(AnnotationEditorDefaultPreferencesPropertiesImpl.class)
+@EnableConfigurationProperties({ AnnotationEditorDefaultPreferencesPropertiesImpl.class,
+        PreRendererPropertiesImpl.class })
 public class AnnotationAutoConfiguration
 {
     @Bean
@@ -52,9 +55,9 @@ public class AnnotationAutoConfiguration
 
     @Bean
     public PreRenderer preRenderer(LayerSupportRegistry aLayerSupportRegistry,
-            AnnotationSchemaService aAnnotationService)
+            AnnotationSchemaService aAnnotationService, PreRendererProperties aProperties)
     {
-        return new PreRendererImpl(aLayerSupportRegistry, aAnnotationService);
+        return new PreRendererImpl(aLayerSupportRegistry, aAnnotationService, aProperties);
     }
 
     @Bean
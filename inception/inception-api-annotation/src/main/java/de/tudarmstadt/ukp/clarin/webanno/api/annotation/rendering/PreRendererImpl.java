@@ -21,13 +21,21 @@ import static java.lang.System.currentTimeMillis;
 import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.stream.Collectors.toList;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.uima.cas.CAS;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.core.annotation.Order;
@@ -40,10 +48,15 @@ import de.tudarmstadt.ukp.clarin.webanno.api.event.LayerConfigurationChangedEven
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.support.logging.MDCContext;
 import de.tudarmstadt.ukp.inception.rendering.Renderer;
 import de.tudarmstadt.ukp.inception.rendering.pipeline.RenderStep;
 import de.tudarmstadt.ukp.inception.rendering.request.RenderRequest;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VArc;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VComment;
 import de.tudarmstadt.ukp.inception.rendering.vmodel.VDocument;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VMarker;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VSpan;
 import de.tudarmstadt.ukp.inception.schema.AnnotationSchemaService;
 import de.tudarmstadt.ukp.inception.schema.layer.LayerSupport;
 import de.tudarmstadt.ukp.inception.schema.layer.LayerSupportRegistry;
@@ -52,10 +65,16 @@ import de.tudarmstadt.ukp.inception.schema.layer.LayerSupportRegistry;
  * <p>
  * This class is exposed as a Spring Component via {@link AnnotationAutoConfiguration#preRenderer}.
  * </p>
+ * <p>
+ * The visible layers are rendered concurrently on a render pool shared by all requests (see
+ * {@link PreRendererProperties#getThreads()}). Each layer is rendered into a separate
+ * {@link VDocument} which are then merged into the response in the order of the visible layers, so
+ * the result is the same as when rendering the layers one after the other.
+ * </p>
  */
 @Order(RenderStep.RENDER_STRUCTURE)
 public class PreRendererImpl
-    implements PreRenderer
+    implements PreRenderer, DisposableBean
 {
     public static final String ID = "PreRenderer";
 
@@ -63,13 +82,20 @@ public class PreRendererImpl
 
     private final AnnotationSchemaService annotationService;
     private final LayerSupportRegistry layerSupportRegistry;
+    private final ExecutorService executor;
 
     private LoadingCache<Project, List<AnnotationFeature>> supportedFeaturesCache;
     private LoadingCache<Project, List<AnnotationFeature>> allFeaturesCache;
 
-    @Autowired
     public PreRendererImpl(LayerSupportRegistry aLayerSupportRegistry,
             AnnotationSchemaService aAnnotationService)
+    {
+        this(aLayerSupportRegistry, aAnnotationService, new PreRendererPropertiesImpl());
+    }
+
+    @Autowired
+    public PreRendererImpl(LayerSupportRegistry aLayerSupportRegistry,
+            AnnotationSchemaService aAnnotationService, PreRendererProperties aProperties)
     {
         layerSupportRegistry = aLayerSupportRegistry;
         annotationService = aAnnotationService;
@@ -82,6 +108,25 @@ public class PreRendererImpl
                 .expireAfterAccess(5, MINUTES) //
                 .maximumSize(10 * 1024) //
                 .build(annotationService::listAnnotationFeature);
+
+        if (aProperties.getThreads() > 1) {
+            executor = Executors.newFixedThreadPool(aProperties.getThreads(),
+                    new BasicThreadFactory.Builder() //
+                            .daemon(true) //
+                            .namingPattern("pre-renderer-%d") //
+                            .build());
+        }
+        else {
+            executor = null;
+        }
+    }
+
+    @Override
+    public void destroy()
+    {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
     }
 
     @Override
@@ -119,7 +164,10 @@ public class PreRendererImpl
         List<AnnotationFeature> supportedFeatures = supportedFeaturesCache.get(project);
         List<AnnotationFeature> allFeatures = allFeaturesCache.get(project);
 
-        // Render (custom) layers
+        // Render (custom) layers - the renderers are created up-front so that only the actual
+        // rendering happens on the render pool
+        List<Renderer> renderers = new ArrayList<>();
+        List<List<AnnotationFeature>> rendererFeatures = new ArrayList<>();
         for (AnnotationLayer layer : aRequest.getVisibleLayers()) {
             List<AnnotationFeature> layerSupportedFeatures = supportedFeatures.stream() //
                     .filter(feature -> feature.getLayer().equals(layer)) //
@@ -131,8 +179,18 @@ public class PreRendererImpl
             // other places where we create renderers - and the set of features must always be
             // the same because otherwise the IDs of armed slots would be inconsistent
             LayerSupport<?, ?> layerSupport = layerSupportRegistry.getLayerSupport(layer);
-            Renderer renderer = layerSupport.createRenderer(layer, () -> layerAllFeatures);
-            renderer.render(cas, layerSupportedFeatures, aResponse, renderBegin, renderEnd);
+            renderers.add(layerSupport.createRenderer(layer, () -> layerAllFeatures));
+            rendererFeatures.add(layerSupportedFeatures);
+        }
+
+        if (executor == null || renderers.size() == 1) {
+            for (int i = 0; i < renderers.size(); i++) {
+                renderers.get(i).render(cas, rendererFeatures.get(i), aResponse, renderBegin,
+                        renderEnd);
+            }
+        }
+        else {
+            renderConcurrently(aResponse, cas, renderers, rendererFeatures);
         }
 
         if (log.isTraceEnabled()) {
@@ -144,6 +202,79 @@ public class PreRendererImpl
         }
     }
 
+    private void renderConcurrently(VDocument aResponse, CAS aCas, List<Renderer> aRenderers,
+            List<List<AnnotationFeature>> aRendererFeatures)
+    {
+        // The CAS is usually the exclusive-write CAS of the annotation editor. Nothing modifies it
+        // while the layers are rendered because the request thread which holds it waits here
+        // until all renderers are done - and the renderers themselves only read from it
+        var loggingContext = MDC.getCopyOfContextMap();
+
+        List<Future<VDocument>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < aRenderers.size(); i++) {
+                Renderer renderer = aRenderers.get(i);
+                List<AnnotationFeature> features = aRendererFeatures.get(i);
+                futures.add(executor.submit(() -> {
+                    try (var ctx = MDCContext.open()) {
+                        if (loggingContext != null) {
+                            MDC.setContextMap(loggingContext);
+                        }
+
+                        VDocument layerResponse = new VDocument();
+                        layerResponse.setText(aResponse.getText());
+                        layerResponse.setWindowBegin(aResponse.getWindowBegin());
+                        layerResponse.setWindowEnd(aResponse.getWindowEnd());
+                        renderer.render(aCas, features, layerResponse,
+                                aResponse.getWindowBegin(), aResponse.getWindowEnd());
+                        return layerResponse;
+                    }
+                }));
+            }
+
+            // Merge in the order of the visible layers, not in the order of completion
+            for (Future<VDocument> future : futures) {
+                merge(aResponse, future.get());
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while rendering layers", e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        finally {
+            // If we bail out early, there is no need to render the remaining layers
+            futures.forEach(f -> f.cancel(false));
+        }
+    }
+
+    private void merge(VDocument aTarget, VDocument aSource)
+    {
+        for (VSpan span : aSource.spans()) {
+            aTarget.add(span);
+        }
+
+        for (VArc arc : aSource.arcs()) {
+            aTarget.add(arc);
+        }
+
+        for (VComment comment : aSource.comments()) {
+            aTarget.add(comment);
+        }
+
+        for (VMarker marker : aSource.getMarkers()) {
+            aTarget.add(marker);
+        }
+    }
+
     @EventListener
     public void beforeLayerConfigurationChanged(LayerConfigurationChangedEvent aEvent)
     {
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.api.annotation.actionbar.export;
+
+import static de.tudarmstadt.ukp.clarin.webanno.support.logging.Logging.KEY_REPOSITORY_PATH;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Optional;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.Validate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.DocumentImportExportService;
+import de.tudarmstadt.ukp.clarin.webanno.api.format.FormatSupport;
+import de.tudarmstadt.ukp.clarin.webanno.model.Mode;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+
+public class ExportDocumentDialogContentTest
+{
+    @AfterEach
+    public void tearDown()
+    {
+        MDC.clear();
+    }
+
+    @Test
+    public void thatStreamedExportSeesLoggingContextOfRequestThread() throws Exception
+    {
+        var format = mock(FormatSupport.class);
+        when(format.getId()).thenReturn("test");
+
+        var importExportService = mock(DocumentImportExportService.class);
+        when(importExportService.getFormatById("test")).thenReturn(Optional.of(format));
+        doAnswer(call -> {
+            // Like the CAS storage, the export fails if the repository is unknown
+            var repositoryPath = Validate.notNull(MDC.get(KEY_REPOSITORY_PATH));
+            call.getArgument(5, OutputStream.class).write(repositoryPath.getBytes(UTF_8));
+            return null;
+        }).when(importExportService).exportAnnotationDocument(any(), any(), any(), any(),
+                anyBoolean(), any(OutputStream.class));
+
+        var document = new SourceDocument("doc.txt", new Project("project"), "text");
+
+        MDC.put(KEY_REPOSITORY_PATH, "/repository");
+
+        var resource = ExportDocumentDialogContent.streamExport(importExportService, document,
+                "user", format, Mode.ANNOTATION);
+
+        try (InputStream is = resource.getInputStream()) {
+            assertThat(IOUtils.toString(is, UTF_8)).isEqualTo("/repository");
+        }
+        finally {
+            resource.close();
+        }
+    }
+}
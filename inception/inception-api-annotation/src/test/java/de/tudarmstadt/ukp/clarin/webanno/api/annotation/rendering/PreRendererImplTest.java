@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering;
+
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.inception.rendering.Renderer;
+import de.tudarmstadt.ukp.inception.rendering.request.RenderRequest;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VAnnotationMarker;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VArc;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VComment;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VCommentType;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VDocument;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VID;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VMarker;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VObject;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VRange;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VSpan;
+import de.tudarmstadt.ukp.inception.schema.AnnotationSchemaService;
+import de.tudarmstadt.ukp.inception.schema.adapter.TypeAdapter;
+import de.tudarmstadt.ukp.inception.schema.feature.FeatureSupportRegistry;
+import de.tudarmstadt.ukp.inception.schema.layer.LayerSupport;
+import de.tudarmstadt.ukp.inception.schema.layer.LayerSupportRegistry;
+
+public class PreRendererImplTest
+{
+    private static final int LAYERS = 8;
+
+    private LayerSupportRegistry layerSupportRegistry;
+    private AnnotationSchemaService schemaService;
+    private List<AnnotationLayer> layers;
+    private CAS cas;
+    private RenderRequest request;
+
+    @BeforeEach
+    public void setup() throws Exception
+    {
+        Project project = new Project("test");
+        project.setId(1l);
+
+        cas = JCasFactory.createText("This is a test.").getCas();
+
+        layers = new ArrayList<>();
+        Map<AnnotationLayer, Renderer> renderers = new HashMap<>();
+        for (int i = 0; i < LAYERS; i++) {
+            AnnotationLayer layer = new AnnotationLayer();
+            layer.setId((long) i);
+            layer.setName("layer" + i);
+            layer.setProject(project);
+            layers.add(layer);
+            // Layers which come first take longest to render, so when rendering concurrently, the
+            // layers finish in reverse order
+            renderers.put(layer, new StaticRenderer(layer, (LAYERS - i) * 10));
+        }
+
+        LayerSupport<?, ?> layerSupport = mock(LayerSupport.class);
+        when(layerSupport.createRenderer(any(), any()))
+                .thenAnswer(call -> renderers.get(call.getArgument(0)));
+
+        layerSupportRegistry = mock(LayerSupportRegistry.class);
+        doReturn(layerSupport).when(layerSupportRegistry) //
+                .getLayerSupport(any(AnnotationLayer.class));
+
+        schemaService = mock(AnnotationSchemaService.class);
+
+        request = RenderRequest.builder() //
+                .withCas(cas) //
+                .withDocument(new SourceDocument("doc", project, "text"), null) //
+                .withWindow(0, cas.getDocumentText().length()) //
+                .withVisibleLayers(layers) //
+                .build();
+    }
+
+    @Test
+    public void thatConcurrentRenderingProducesSameDocumentAsSequentialRendering()
+    {
+        VDocument sequential = render(1);
+        VDocument concurrent = render(4);
+
+        assertThat(sequential.spans()).hasSize(2 * LAYERS);
+        assertThat(sequential.arcs()).hasSize(LAYERS);
+        assertThat(sequential.comments()).hasSize(LAYERS);
+        assertThat(sequential.getMarkers()).hasSize(LAYERS);
+
+        assertThat(concurrent.getText()).isEqualTo(sequential.getText());
+        assertThat(concurrent.getWindowBegin()).isEqualTo(sequential.getWindowBegin());
+        assertThat(concurrent.getWindowEnd()).isEqualTo(sequential.getWindowEnd());
+        assertThat(concurrent.spans()).containsExactlyElementsOf(sequential.spans());
+        assertThat(concurrent.arcs()).containsExactlyElementsOf(sequential.arcs());
+        assertThat(concurrent.comments()).containsExactlyElementsOf(sequential.comments());
+        assertThat(concurrent.getMarkers()).containsExactlyElementsOf(sequential.getMarkers());
+        assertThat(concurrent.getAnnotationLayers())
+                .containsExactlyElementsOf(sequential.getAnnotationLayers());
+    }
+
+    private VDocument render(int aThreads)
+    {
+        PreRendererPropertiesImpl properties = new PreRendererPropertiesImpl();
+        properties.setThreads(aThreads);
+
+        PreRendererImpl sut = new PreRendererImpl(layerSupportRegistry, schemaService,
+                properties);
+        try {
+            VDocument vdoc = new VDocument();
+            sut.render(vdoc, request);
+            return vdoc;
+        }
+        finally {
+            sut.destroy();
+        }
+    }
+
+    /**
+     * Renders the same objects on every call after a delay.
+     */
+    private static class StaticRenderer
+        implements Renderer
+    {
+        private final long delay;
+        private final List<VSpan> spans = new ArrayList<>();
+        private final VArc arc;
+        private final VComment comment;
+        private final VMarker marker;
+
+        public StaticRenderer(AnnotationLayer aLayer, long aDelay)
+        {
+            delay = aDelay;
+
+            int base = (int) (aLayer.getId() * 10);
+            VID source = new VID(base);
+            VID target = new VID(base + 1);
+            spans.add(new VSpan(aLayer, source, new VRange(0, 4), null));
+            spans.add(new VSpan(aLayer, target, new VRange(5, 7), null));
+            arc = new VArc(aLayer, new VID(base + 2), source, target, aLayer.getName(),
+                    (String) null);
+            comment = new VComment(source, VCommentType.INFO, aLayer.getName());
+            marker = new VAnnotationMarker(VMarker.FOCUS, target);
+        }
+
+        @Override
+        public void render(CAS aCas, List<AnnotationFeature> aFeatures, VDocument aBuffer,
+                int aWindowBeginOffset, int aWindowEndOffset)
+        {
+            try {
+                Thread.sleep(delay);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            spans.forEach(aBuffer::add);
+            aBuffer.add(arc);
+            aBuffer.add(comment);
+            aBuffer.add(marker);
+        }
+
+        @Override
+        public List<VObject> render(VDocument aVDocument, AnnotationFS aFS,
+                List<AnnotationFeature> aFeatures, int aWindowBegin, int aWindowEnd)
+        {
+            return emptyList();
+        }
+
+        @Override
+        public TypeAdapter getTypeAdapter()
+        {
+            return null;
+        }
+
+        @Override
+        public FeatureSupportRegistry getFeatureSupportRegistry()
+        {
+            return null;
+        }
+    }
+}
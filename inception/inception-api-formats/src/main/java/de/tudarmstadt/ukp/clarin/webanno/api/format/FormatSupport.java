@@ -29,8 +29,10 @@ import static org.apache.uima.fit.util.LifeCycleUtil.destroy;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.uima.analysis_engine.AnalysisEngine;
@@ -81,6 +83,58 @@ public interface FormatSupport
         return false;
     }
 
+    /**
+     * @return whether the format can be written directly to a stream (i.e.
+     *         {@link #getStreamingWriterFactory} is implemented).
+     */
+    default boolean isStreamable()
+    {
+        return getStreamingWriterFactory().isPresent();
+    }
+
+    /**
+     * @return whether the writer produces multiple files which are packaged as a ZIP archive when
+     *         writing to a stream.
+     */
+    default boolean isStreamedAsZip()
+    {
+        return false;
+    }
+
+    /**
+     * @return the extension (including the leading dot) of the data produced by
+     *         {@link #write(SourceDocument, CAS, boolean, OutputStream)} or {@code null} if the
+     *         format cannot be written to a stream. This is {@code .zip} if the writer produces
+     *         multiple files and otherwise the filename extension configured in the
+     *         {@link #getWriterDescription writer description}.
+     */
+    default String getStreamedFileExtension()
+    {
+        if (!isStreamable()) {
+            return null;
+        }
+
+        if (isStreamedAsZip()) {
+            return ".zip";
+        }
+
+        try {
+            return WriterOutputSink.getFilenameExtension(getWriterDescription(null, null, null));
+        }
+        catch (ResourceInitializationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return a factory for writers which redirect their output to a {@link WriterOutputSink} or
+     *         nothing if the format cannot be written directly to a stream.
+     */
+    default Optional<StreamingWriterFactory> getStreamingWriterFactory()
+    {
+        return Optional.empty();
+    }
+
     /**
      * @return format-specific CSS style-sheets that styleable editors should load.
      */
@@ -186,4 +240,39 @@ public interface FormatSupport
         copyFile(aTargetFolder.listFiles()[0], exportFile);
         return exportFile;
     }
+
+    /**
+     * Writes the given CAS directly to the given stream without going through the file system. If
+     * the format produces multiple files, they are packaged as a ZIP archive. The stream is not
+     * closed.
+     * 
+     * @param aDocument
+     *            the document to which the CAS belongs
+     * @param aCas
+     *            the CAS to be exported
+     * @param aStripExtension
+     *            whether to strip the extension from the document name
+     * @param aOut
+     *            the target stream
+     * @throws IOException
+     *             if the data could not be written or the format is not
+     *             {@link #isStreamable() streamable}
+     */
+    default void write(SourceDocument aDocument, CAS aCas, boolean aStripExtension,
+            OutputStream aOut)
+        throws IOException
+    {
+        StreamingWriterFactory writerFactory = getStreamingWriterFactory()
+                .orElseThrow(() -> new IOException(
+                        "The format [" + getName() + "] cannot be written to a stream"));
+
+        try (WriterOutputSink sink = new WriterOutputSink(aOut, isStreamedAsZip())) {
+            sink.run(writerFactory.createWriter(sink),
+                    getWriterDescription(aDocument.getProject(), null, aCas), aCas,
+                    aStripExtension);
+        }
+        catch (ResourceInitializationException e) {
+            throw new IOException(e);
+        }
+    }
 }
@@ -0,0 +1,34 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.api.format;
+
+import org.dkpro.core.api.io.JCasFileWriter_ImplBase;
+
+/**
+ * Creates writers which redirect their output to a {@link WriterOutputSink}. Since DKPro Core file
+ * writers obtain their output streams from the file system, a format usually implements this by
+ * instantiating an anonymous subclass of its writer which overrides
+ * {@code getOutputStream(String, String)} to call {@link WriterOutputSink#open(String, String)}.
+ * The writer does not need to be initialized - this is done by the sink using the parameters from
+ * the {@link FormatSupport#getWriterDescription writer description} of the format.
+ */
+@FunctionalInterface
+public interface StreamingWriterFactory
+{
+    JCasFileWriter_ImplBase createWriter(WriterOutputSink aSink);
+}
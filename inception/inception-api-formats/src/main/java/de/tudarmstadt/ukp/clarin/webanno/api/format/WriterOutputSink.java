@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.api.format;
+
+import static org.apache.uima.fit.factory.UimaContextFactory.createUimaContext;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.CASException;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.metadata.NameValuePair;
+import org.dkpro.core.api.io.JCasFileWriter_ImplBase;
+import org.dkpro.core.api.io.JCasFileWriter_ImplBase.NamedOutputStream;
+import org.dkpro.core.api.parameter.ComponentParameters;
+
+/**
+ * Redirects the output of a DKPro Core file writer into a stream instead of the file system. It is
+ * used by the streaming {@code write} method of {@link FormatSupport} together with the writers
+ * created by the {@link StreamingWriterFactory} of the format.
+ * <p>
+ * If the writer produces only a single file, its content is written directly to the target stream.
+ * Writers producing multiple files (e.g. a document and its type system) must use a sink in ZIP
+ * mode in which case each file becomes an entry in a ZIP archive written to the target stream. The
+ * target stream itself is never closed by the sink.
+ */
+public class WriterOutputSink
+    implements Closeable
+{
+    private static final String DUMMY_TARGET_LOCATION = "stream";
+
+    private final OutputStream target;
+    private final ZipOutputStream zip;
+
+    private boolean opened;
+
+    public WriterOutputSink(OutputStream aTarget, boolean aZip)
+    {
+        target = aTarget;
+        zip = aZip ? new ZipOutputStream(CloseShieldOutputStream.wrap(aTarget)) : null;
+    }
+
+    public NamedOutputStream open(String aRelativePath, String aExtension) throws IOException
+    {
+        String name = aRelativePath + aExtension;
+
+        if (zip != null) {
+            zip.putNextEntry(new ZipEntry(name));
+            return new NamedOutputStream(name, CloseShieldOutputStream.wrap(zip))
+            {
+                @Override
+                public void close() throws IOException
+                {
+                    super.close();
+                    zip.closeEntry();
+                }
+            };
+        }
+
+        if (opened) {
+            throw new IOException("Writer tried to produce more than one file [" + name
+                    + "] but the sink is not in ZIP mode");
+        }
+
+        opened = true;
+        return new NamedOutputStream(name, CloseShieldOutputStream.wrap(target));
+    }
+
+    /**
+     * Runs the given writer on the given CAS. The writer must redirect its output to this sink.
+     * 
+     * @param aWriter
+     *            the writer - an instance that overrides {@code getOutputStream(String, String)}
+     *            to call {@link #open(String, String)}
+     * @param aWriterDescription
+     *            the description of the writer from which the writer parameters are taken
+     * @param aCas
+     *            the CAS to write
+     * @param aStripExtension
+     *            whether to strip the extension from the document name
+     * @throws IOException
+     *             if there was an I/O-level problem or the writer failed
+     */
+    public void run(JCasFileWriter_ImplBase aWriter, AnalysisEngineDescription aWriterDescription,
+            CAS aCas, boolean aStripExtension)
+        throws IOException
+    {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        for (NameValuePair setting : aWriterDescription.getMetaData()
+                .getConfigurationParameterSettings().getParameterSettings()) {
+            settings.put(setting.getName(), setting.getValue());
+        }
+
+        // The target location is never used because all output is redirected to the sink, but
+        // the writer would otherwise fall back to writing to stdout
+        settings.put(JCasFileWriter_ImplBase.PARAM_USE_DOCUMENT_ID, true);
+        settings.put(JCasFileWriter_ImplBase.PARAM_ESCAPE_FILENAME, false);
+        settings.put(JCasFileWriter_ImplBase.PARAM_TARGET_LOCATION, DUMMY_TARGET_LOCATION);
+        settings.put(JCasFileWriter_ImplBase.PARAM_STRIP_EXTENSION, aStripExtension);
+
+        List<Object> parameters = new ArrayList<>();
+        settings.forEach((name, value) -> {
+            parameters.add(name);
+            parameters.add(value);
+        });
+
+        try {
+            aWriter.initialize(createUimaContext(parameters.toArray()));
+            try {
+                aWriter.process(aCas.getJCas());
+                aWriter.collectionProcessComplete();
+            }
+            finally {
+                aWriter.destroy();
+            }
+        }
+        catch (ResourceInitializationException | AnalysisEngineProcessException
+                | CASException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * @param aWriterDescription
+     *            a writer description
+     * @return the filename extension configured in the given writer description.
+     */
+    public static String getFilenameExtension(AnalysisEngineDescription aWriterDescription)
+    {
+        Object extension = aWriterDescription.getMetaData().getConfigurationParameterSettings()
+                .getParameterValue(ComponentParameters.PARAM_FILENAME_EXTENSION);
+
+        if (!(extension instanceof String)) {
+            throw new IllegalStateException(
+                    "Writer [" + aWriterDescription.getAnnotatorImplementationName()
+                            + "] does not declare a filename extension");
+        }
+
+        return (String) extension;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (zip != null) {
+            zip.finish();
+            zip.close();
+        }
+
+        target.flush();
+    }
+}
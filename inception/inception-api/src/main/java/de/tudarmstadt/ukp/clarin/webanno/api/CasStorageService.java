@@ -20,6 +20,7 @@ package de.tudarmstadt.ukp.clarin.webanno.api;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Collection;
 import java.util.Optional;
 
 import org.apache.uima.cas.CAS;
@@ -93,6 +94,27 @@ public interface CasStorageService
     CAS readCas(SourceDocument aDocument, String aUsername, CasAccessMode aAccessMode)
         throws IOException, CasSessionException;
 
+    /**
+     * Reads a CAS which only contains the feature structures of the given types (and of types they
+     * depend on, e.g. through features). This is meant for bulk consumers which only look at a few
+     * layers of many documents. The CAS is read directly from the storage - it is not cached, not
+     * added to the session, not analyzed/repaired and not upgraded. The caller must not modify or
+     * write the CAS. If the storage is unable to read only parts of the CAS, the full CAS is
+     * returned.
+     *
+     * @param aDocument
+     *            the document.
+     * @param aUsername
+     *            the user.
+     * @param aTypes
+     *            the names of the types to load.
+     * @return the CAS.
+     * @throws IOException
+     *             if there was a problem loading the CAS or if it does not exist.
+     */
+    CAS readPartialCas(SourceDocument aDocument, String aUsername, Collection<String> aTypes)
+        throws IOException;
+
     /**
      * Reads the CAS containing the annotation data for the given user on the given document. If
      * there is no CAS yet for that user/document combination, create one using the given
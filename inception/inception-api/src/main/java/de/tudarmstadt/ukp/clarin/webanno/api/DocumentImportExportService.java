@@ -19,6 +19,7 @@ package de.tudarmstadt.ukp.clarin.webanno.api;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -198,6 +199,37 @@ public interface DocumentImportExportService
             boolean aStripExtension, Map<Pair<Project, String>, Object> aBulkOperationContext)
         throws IOException, UIMAException;
 
+    /**
+     * Exports the given CAS directly to the given stream without creating any temporary files. The
+     * format must be {@link FormatSupport#isStreamable() streamable}. If the format produces
+     * multiple files, a ZIP archive is written to the stream. The stream is not closed.
+     * 
+     * @param cas
+     *            the CAS to export
+     * @param aDocument
+     *            the document to which the CAS belongs
+     * @param aFileName
+     *            the name the exported file should have - only the name, no path!
+     * @param aFormat
+     *            the format in which to export
+     * @param aStripExtension
+     *            whether to strip the original file extension from the file name
+     * @param aOut
+     *            the target stream
+     * @throws IOException
+     *             if there was an I/O-level problem
+     * @throws UIMAException
+     *             if there was an UIMA-level problem
+     */
+    void exportCasToStream(CAS cas, SourceDocument aDocument, String aFileName,
+            FormatSupport aFormat, boolean aStripExtension, OutputStream aOut)
+        throws IOException, UIMAException;
+
+    void exportCasToStream(CAS cas, SourceDocument aDocument, String aFileName,
+            FormatSupport aFormat, boolean aStripExtension,
+            Map<Pair<Project, String>, Object> aBulkOperationContext, OutputStream aOut)
+        throws IOException, UIMAException;
+
     /**
      * Exports an {@link AnnotationDocument } CAS Object as TCF/TXT/XMI... file formats.
      *
@@ -258,6 +290,36 @@ public interface DocumentImportExportService
             Map<Pair<Project, String>, Object> aBulkOperationContext)
         throws UIMAException, IOException, ClassNotFoundException;
 
+    /**
+     * Exports an {@link AnnotationDocument} CAS directly to the given stream. The format must be
+     * {@link FormatSupport#isStreamable() streamable}.
+     *
+     * @param aDocument
+     *            the source document
+     * @param aUser
+     *            the user whose annotations are exported.
+     * @param aFormat
+     *            the format.
+     * @param aMode
+     *            the mode.
+     * @param aStripExtension
+     *            whether to strip the original file extension from the file name
+     * @param aOut
+     *            the target stream
+     * @throws UIMAException
+     *             if there was a conversion error.
+     * @throws IOException
+     *             if there was an I/O error.
+     */
+    void exportAnnotationDocument(SourceDocument aDocument, String aUser, FormatSupport aFormat,
+            Mode aMode, boolean aStripExtension, OutputStream aOut)
+        throws UIMAException, IOException;
+
+    void exportAnnotationDocument(SourceDocument aDocument, String aUser, FormatSupport aFormat,
+            String aFileName, Mode aMode, boolean aStripExtension,
+            Map<Pair<Project, String>, Object> aBulkOperationContext, OutputStream aOut)
+        throws UIMAException, IOException;
+
     /**
      * @return a type system with all the types that should be present in an exported CAS. This
      *         means in particular that type internal to the application should <b>not</b> be
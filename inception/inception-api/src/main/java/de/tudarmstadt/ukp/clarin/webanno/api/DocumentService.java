@@ -437,6 +437,26 @@ public interface DocumentService
             CasAccessMode aMode)
         throws IOException;
 
+    /**
+     * Reads a CAS for the given source document and user which only contains the annotations of
+     * the given types. The CAS is read-only, not upgraded and not managed by the CAS storage
+     * session. If there is no CAS yet for the user, an exception is generated.
+     *
+     * @param aDocument
+     *            the source document.
+     * @param aUserName
+     *            the username.
+     * @param aTypes
+     *            the names of the types to load.
+     * @return the CAS.
+     * @throws IOException
+     *             if there was an I/O error or the CAS does not exist.
+     * @see CasStorageService#readPartialCas(SourceDocument, String, Collection)
+     */
+    CAS readPartialAnnotationCas(SourceDocument aDocument, String aUserName,
+            Collection<String> aTypes)
+        throws IOException;
+
     Map<String, CAS> readAllCasesSharedNoUpgrade(List<AnnotationDocument> aDocuments)
         throws IOException;
 
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.api.export;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+
+/**
+ * Target into which {@link ProjectExporter project exporters} write the files that become part of
+ * the exported project archive. Paths are relative to the root of the archive and use {@code /} as
+ * separator.
+ */
+@FunctionalInterface
+public interface ProjectExportStage
+{
+    /**
+     * Adds a file to the stage.
+     * 
+     * @param aPath
+     *            the path of the file within the archive.
+     * @param aContent
+     *            callback writing the file content. It must not close the stream.
+     * @throws IOException
+     *             if the file could not be written.
+     */
+    void write(String aPath, ContentWriter aContent) throws IOException;
+
+    default void write(String aPath, byte[] aData) throws IOException
+    {
+        write(aPath, os -> os.write(aData));
+    }
+
+    default void copy(String aPath, File aFile) throws IOException
+    {
+        write(aPath, os -> Files.copy(aFile.toPath(), os));
+    }
+
+    /**
+     * @param aFolder
+     *            the staging folder.
+     * @return a stage writing into a folder on disk.
+     */
+    static ProjectExportStage folder(File aFolder)
+    {
+        return (path, content) -> {
+            File file = new File(aFolder, path);
+            FileUtils.forceMkdirParent(file);
+            try (OutputStream os = new FileOutputStream(file)) {
+                content.write(os);
+            }
+        };
+    }
+
+    /**
+     * @param aZip
+     *            the ZIP stream.
+     * @return a stage writing each file directly as an entry into the given ZIP stream.
+     */
+    static ProjectExportStage zip(ZipOutputStream aZip)
+    {
+        return (path, content) -> {
+            aZip.putNextEntry(new ZipEntry(path));
+            content.write(CloseShieldOutputStream.wrap(aZip));
+            aZip.closeEntry();
+        };
+    }
+
+    @FunctionalInterface
+    interface ContentWriter
+    {
+        void write(OutputStream aOut) throws IOException;
+    }
+}
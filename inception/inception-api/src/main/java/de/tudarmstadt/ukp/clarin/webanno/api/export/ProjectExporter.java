@@ -18,13 +18,18 @@
 package de.tudarmstadt.ukp.clarin.webanno.api.export;
 
 import java.io.File;
+import java.nio.file.Files;
 import java.util.Collections;
 import java.util.List;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
 
 import de.tudarmstadt.ukp.clarin.webanno.export.model.ExportedProject;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.support.ZipUtils;
 
 public interface ProjectExporter
 {
@@ -42,6 +47,37 @@ public interface ProjectExporter
             ExportedProject aExProject, File aStage)
         throws Exception;
 
+    /**
+     * Exports the data directly into the project archive. The default implementation stages the
+     * data in a temporary folder via {@link #exportData(FullProjectExportRequest,
+     * ProjectExportTaskMonitor, ExportedProject, File)} and then adds it to the archive. Exporters
+     * which produce large amounts of data should override this method to avoid the temporary copy.
+     * 
+     * @param aRequest
+     *            the export request
+     * @param aMonitor
+     *            the export monitor
+     * @param aExProject
+     *            the exported project metadata
+     * @param aZip
+     *            the project archive
+     * @throws Exception
+     *             if there was a problem exporting the data
+     */
+    default void exportData(FullProjectExportRequest aRequest, ProjectExportTaskMonitor aMonitor,
+            ExportedProject aExProject, ZipOutputStream aZip)
+        throws Exception
+    {
+        File stage = Files.createTempDirectory("inception-project-export").toFile();
+        try {
+            exportData(aRequest, aMonitor, aExProject, stage);
+            ZipUtils.zipFolder(stage, aZip);
+        }
+        finally {
+            FileUtils.forceDelete(stage);
+        }
+    }
+
     void importData(ProjectImportRequest aRequest, Project aProject, ExportedProject aExProject,
             ZipFile aZip)
         throws Exception;
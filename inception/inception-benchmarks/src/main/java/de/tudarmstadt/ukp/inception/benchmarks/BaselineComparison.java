@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares the JSON results of a JMH run against those of a previous (baseline) run. A result is
+ * considered a regression if it is worse than the baseline by more than the given threshold and
+ * the difference is larger than the combined score errors of both runs.
+ */
+public class BaselineComparison
+{
+    private final Map<String, Score> baseline;
+    private final Map<String, Score> current;
+    private final double threshold;
+
+    public BaselineComparison(File aBaseline, File aCurrent, double aThreshold) throws IOException
+    {
+        baseline = readResults(aBaseline);
+        current = readResults(aCurrent);
+        threshold = aThreshold;
+    }
+
+    /**
+     * Prints a comparison table to the given stream.
+     * 
+     * @param aOut
+     *            the stream to print to.
+     * @return the number of regressions.
+     */
+    public int report(PrintStream aOut)
+    {
+        int regressions = 0;
+
+        aOut.printf("%-90s %14s %14s %9s%n", "Benchmark", "Baseline", "Current", "Change");
+        for (Entry<String, Score> e : current.entrySet()) {
+            Score cur = e.getValue();
+            Score base = baseline.get(e.getKey());
+            if (base == null) {
+                aOut.printf("%-90s %14s %14.3f %9s%n", e.getKey(), "-", cur.score, "new");
+                continue;
+            }
+
+            double change = (cur.score - base.score) / base.score;
+            boolean significant = Math.abs(cur.score - base.score) > cur.error + base.error;
+            boolean worse = cur.higherIsBetter ? change < -threshold : change > threshold;
+            String flag = "";
+            if (significant && worse) {
+                flag = " REGRESSION";
+                regressions++;
+            }
+
+            aOut.printf("%-90s %14.3f %14.3f %+8.1f%%%s%n", e.getKey(), base.score, cur.score,
+                    change * 100, flag);
+        }
+
+        aOut.printf("%d regression(s) beyond %.1f%% threshold%n", regressions, threshold * 100);
+
+        return regressions;
+    }
+
+    static Map<String, Score> readResults(File aFile) throws IOException
+    {
+        Map<String, Score> results = new LinkedHashMap<>();
+
+        JsonNode root = new ObjectMapper().readTree(aFile);
+        for (JsonNode run : root) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText());
+
+            // Sort the parameters so that the key does not depend on their order in the file
+            Map<String, String> params = new TreeMap<>();
+            Iterator<Entry<String, JsonNode>> i = run.path("params").fields();
+            while (i.hasNext()) {
+                Entry<String, JsonNode> param = i.next();
+                params.put(param.getKey(), param.getValue().asText());
+            }
+            List<String> paramStrings = new ArrayList<>();
+            params.forEach((k, v) -> paramStrings.add(k + "=" + v));
+            if (!paramStrings.isEmpty()) {
+                key.append(paramStrings);
+            }
+
+            JsonNode metric = run.path("primaryMetric");
+            double error = metric.path("scoreError").asDouble(0.0);
+            results.put(key.toString(),
+                    new Score(metric.path("score").asDouble(),
+                            Double.isNaN(error) ? 0.0 : error,
+                            "thrpt".equals(run.path("mode").asText())));
+        }
+
+        return results;
+    }
+
+    static final class Score
+    {
+        final double score;
+        final double error;
+        final boolean higherIsBetter;
+
+        Score(double aScore, double aError, boolean aHigherIsBetter)
+        {
+            score = aScore;
+            error = aError;
+            higherIsBetter = aHigherIsBetter;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.benchmarks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks and optionally compares the results against a baseline.
+ * <p>
+ * Accepts all regular JMH command line options (e.g. a benchmark name pattern or
+ * {@code -p tokens=1000}) plus:
+ * <ul>
+ * <li>{@code --baseline <file>} - JSON result file of an earlier run to compare against</li>
+ * <li>{@code --threshold <percent>} - relative slowdown tolerated before a result is reported as a
+ * regression (default: 10)</li>
+ * </ul>
+ * The results of the run are always written as JSON (by default to
+ * {@code target/jmh-result.json}) so they can serve as the baseline of a later run. If any
+ * regression is detected, the process exits with status 1.
+ */
+public class BenchmarkRunner
+{
+    private static final String DEFAULT_RESULT_FILE = "target/jmh-result.json";
+    private static final double DEFAULT_THRESHOLD = 10.0;
+
+    public static void main(String[] aArgs) throws Exception
+    {
+        File baseline = null;
+        double threshold = DEFAULT_THRESHOLD;
+        List<String> jmhArgs = new ArrayList<>();
+
+        for (int i = 0; i < aArgs.length; i++) {
+            switch (aArgs[i]) {
+            case "--baseline":
+                baseline = new File(aArgs[++i]);
+                break;
+            case "--threshold":
+                threshold = Double.parseDouble(aArgs[++i]);
+                break;
+            default:
+                jmhArgs.add(aArgs[i]);
+                break;
+            }
+        }
+
+        CommandLineOptions cmdOptions = new CommandLineOptions(jmhArgs.toArray(new String[0]));
+        String resultFile = cmdOptions.getResult().orElse(DEFAULT_RESULT_FILE);
+        new File(resultFile).getAbsoluteFile().getParentFile().mkdirs();
+
+        Options options = new OptionsBuilder() //
+                .parent(cmdOptions) //
+                .resultFormat(ResultFormatType.JSON) //
+                .result(resultFile) //
+                .build();
+
+        new Runner(options).run();
+
+        if (baseline != null) {
+            BaselineComparison comparison = new BaselineComparison(baseline, new File(resultFile),
+                    threshold / 100.0);
+            if (comparison.report(System.out) > 0) {
+                System.exit(1);
+            }
+        }
+    }
+}
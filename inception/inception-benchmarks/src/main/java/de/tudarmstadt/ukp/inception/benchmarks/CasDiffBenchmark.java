@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.benchmarks;
+
+import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.LinkCompareBehavior.LINK_TARGET_AS_LABEL;
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.uima.cas.CAS;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff;
+import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.api.DiffAdapter;
+import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.span.SpanDiffAdapter;
+
+/**
+ * Measures the difference computation between the CASes of three annotators as it is used by
+ * curation and agreement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CasDiffBenchmark
+{
+    private static final int ANNOTATORS = 3;
+
+    @Param({ "1000", "100000", "1000000" })
+    public int tokens;
+
+    @Param({ "1", "10", "50" })
+    public int layers;
+
+    private List<DiffAdapter> adapters;
+    private Map<String, List<CAS>> casMap;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        adapters = new ArrayList<>();
+        for (int i = 0; i < layers; i++) {
+            adapters.add(new SpanDiffAdapter(SyntheticCasFactory.layerName(i),
+                    SyntheticCasFactory.FEATURE_VALUE));
+        }
+
+        casMap = new LinkedHashMap<>();
+        for (int i = 0; i < ANNOTATORS; i++) {
+            casMap.put("user" + i, asList(SyntheticCasFactory.createCas(tokens, layers, i)));
+        }
+    }
+
+    @Benchmark
+    public CasDiff doDiff()
+    {
+        return CasDiff.doDiff(adapters, LINK_TARGET_AS_LABEL, casMap);
+    }
+}
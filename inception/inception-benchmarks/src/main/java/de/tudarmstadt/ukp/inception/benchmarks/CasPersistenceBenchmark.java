@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.benchmarks;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.util.CasCreationUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.tudarmstadt.ukp.inception.annotation.storage.driver.filesystem.CasPersistenceUtils;
+
+/**
+ * Measures writing and reading the binary CAS representation used by the file system storage
+ * driver.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CasPersistenceBenchmark
+{
+    @Param({ "1000", "100000", "1000000" })
+    public int tokens;
+
+    @Param({ "1", "10", "50" })
+    public int layers;
+
+    private File workDir;
+    private File writeTarget;
+    private File readSource;
+    private CAS cas;
+    private CAS target;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        workDir = Files.createTempDirectory("inception-benchmark").toFile();
+        writeTarget = new File(workDir, "write.ser");
+        readSource = new File(workDir, "read.ser");
+
+        cas = SyntheticCasFactory.createCas(tokens, layers, 0);
+        CasPersistenceUtils.writeSerializedCas(cas, readSource);
+
+        target = CasCreationUtils.createCas(SyntheticCasFactory.createTypeSystem(layers), null,
+                null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException
+    {
+        FileUtils.deleteQuietly(workDir);
+    }
+
+    @Benchmark
+    public long writeSerializedCas() throws IOException
+    {
+        CasPersistenceUtils.writeSerializedCas(cas, writeTarget);
+        return writeTarget.length();
+    }
+
+    @Benchmark
+    public CAS readSerializedCas() throws IOException
+    {
+        CasPersistenceUtils.readSerializedCas(target, readSource);
+        return target;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.benchmarks;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.List;
+
+import org.apache.uima.cas.CAS;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.inception.annotation.feature.string.StringFeatureSupport;
+import de.tudarmstadt.ukp.inception.schema.service.FeatureSupportRegistryImpl;
+import de.tudarmstadt.ukp.inception.search.FeatureIndexingSupportRegistryImpl;
+import de.tudarmstadt.ukp.inception.search.PrimitiveUimaIndexingSupport;
+import de.tudarmstadt.ukp.inception.search.index.mtas.MtasUimaParser;
+import de.tudarmstadt.ukp.inception.search.model.AnnotationSearchState;
+import mtas.analysis.token.MtasTokenCollection;
+
+/**
+ * Measures the conversion of a CAS into the MTAS token collection that is fed into the search
+ * index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MtasUimaParserBenchmark
+{
+    @Param({ "1000", "100000", "1000000" })
+    public int tokens;
+
+    @Param({ "1", "10", "50" })
+    public int layers;
+
+    private MtasUimaParser parser;
+    private CAS cas;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        Project project = new Project("benchmark");
+        project.setId(1l);
+
+        List<AnnotationFeature> features = SyntheticCasFactory
+                .createFeatures(SyntheticCasFactory.createLayers(project, layers));
+
+        FeatureSupportRegistryImpl featureSupportRegistry = new FeatureSupportRegistryImpl(
+                asList(new StringFeatureSupport()));
+        featureSupportRegistry.init();
+
+        FeatureIndexingSupportRegistryImpl featureIndexingSupportRegistry = //
+                new FeatureIndexingSupportRegistryImpl(
+                        asList(new PrimitiveUimaIndexingSupport(featureSupportRegistry)));
+        featureIndexingSupportRegistry.init();
+
+        parser = new MtasUimaParser(features, null, featureIndexingSupportRegistry,
+                new AnnotationSearchState());
+
+        cas = SyntheticCasFactory.createCas(tokens, layers, 0);
+    }
+
+    @Benchmark
+    public MtasTokenCollection createTokenCollection() throws Exception
+    {
+        return parser.createTokenCollection(cas);
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.benchmarks;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.apache.uima.cas.CAS;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.PreRenderer;
+import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.PreRendererImpl;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.inception.annotation.feature.string.StringFeatureSupport;
+import de.tudarmstadt.ukp.inception.annotation.layer.behaviors.LayerBehaviorRegistryImpl;
+import de.tudarmstadt.ukp.inception.annotation.layer.behaviors.LayerSupportRegistryImpl;
+import de.tudarmstadt.ukp.inception.annotation.layer.span.SpanLayerSupport;
+import de.tudarmstadt.ukp.inception.rendering.request.RenderRequest;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VDocument;
+import de.tudarmstadt.ukp.inception.schema.AnnotationSchemaService;
+import de.tudarmstadt.ukp.inception.schema.service.FeatureSupportRegistryImpl;
+
+/**
+ * Measures pre-rendering a page of a document, i.e. the step that turns the annotations in the
+ * visible window into the editor-independent {@link VDocument} model.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PreRendererBenchmark
+{
+    private static final int WINDOW_SIZE = 5000;
+
+    @Param({ "1000", "100000", "1000000" })
+    public int tokens;
+
+    @Param({ "1", "10", "50" })
+    public int layers;
+
+    private PreRenderer preRenderer;
+    private RenderRequest request;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        Project project = new Project("benchmark");
+        project.setId(1l);
+
+        List<AnnotationLayer> annotationLayers = SyntheticCasFactory.createLayers(project, layers);
+        List<AnnotationFeature> features = SyntheticCasFactory.createFeatures(annotationLayers);
+
+        FeatureSupportRegistryImpl featureSupportRegistry = new FeatureSupportRegistryImpl(
+                asList(new StringFeatureSupport()));
+        featureSupportRegistry.init();
+
+        LayerBehaviorRegistryImpl layerBehaviorRegistry = new LayerBehaviorRegistryImpl(asList());
+        layerBehaviorRegistry.init();
+
+        LayerSupportRegistryImpl layerSupportRegistry = new LayerSupportRegistryImpl(asList(
+                new SpanLayerSupport(featureSupportRegistry, null, layerBehaviorRegistry)));
+        layerSupportRegistry.init();
+
+        AnnotationSchemaService schemaService = mock(AnnotationSchemaService.class);
+        when(schemaService.listSupportedFeatures(any(Project.class))).thenReturn(features);
+        when(schemaService.listAnnotationFeature(any(Project.class))).thenReturn(features);
+
+        preRenderer = new PreRendererImpl(layerSupportRegistry, schemaService);
+
+        CAS cas = SyntheticCasFactory.createCas(tokens, layers, 0);
+        int length = cas.getDocumentText().length();
+        int windowBegin = Math.max(0, (length - WINDOW_SIZE) / 2);
+        int windowEnd = Math.min(length, windowBegin + WINDOW_SIZE);
+
+        request = RenderRequest.builder() //
+                .withDocument(new SourceDocument("benchmark.txt", project, null), null) //
+                .withCas(cas) //
+                .withWindow(windowBegin, windowEnd) //
+                .withVisibleLayers(annotationLayers) //
+                .build();
+    }
+
+    @Benchmark
+    public VDocument render()
+    {
+        VDocument vdoc = new VDocument();
+        preRenderer.render(vdoc, request);
+        return vdoc;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.benchmarks;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Feature;
+import org.apache.uima.cas.Type;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.trie.Trie;
+import de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.trie.WhitespaceNormalizingSanitizer;
+
+/**
+ * Measures building the dictionary trie of the string matching recommender from the annotations
+ * of a document and looking up every token position of the document in it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StringMatchingTrieBenchmark
+{
+    @Param({ "1000", "100000", "1000000" })
+    public int tokens;
+
+    private CAS cas;
+    private String text;
+    private int[] tokenBegins;
+    private Trie<String> dictionary;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        cas = SyntheticCasFactory.createCas(tokens, 1, 0);
+        text = cas.getDocumentText();
+
+        Type tokenType = cas.getTypeSystem().getType(Token.class.getName());
+        tokenBegins = cas.<Annotation> select(tokenType) //
+                .mapToInt(Annotation::getBegin) //
+                .toArray();
+
+        dictionary = train();
+    }
+
+    @Benchmark
+    public Trie<String> train()
+    {
+        Type type = cas.getTypeSystem().getType(SyntheticCasFactory.layerName(0));
+        Feature feature = type.getFeatureByBaseName(SyntheticCasFactory.FEATURE_VALUE);
+
+        Trie<String> trie = new Trie<>(WhitespaceNormalizingSanitizer.factory());
+        for (Annotation ann : cas.<Annotation> select(type)) {
+            trie.put(ann.getCoveredText(), ann.getFeatureValueAsString(feature));
+        }
+        return trie;
+    }
+
+    @Benchmark
+    public int predict()
+    {
+        int matches = 0;
+        for (int begin : tokenBegins) {
+            if (dictionary.getNode(text, begin) != null) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.benchmarks;
+
+import static de.tudarmstadt.ukp.clarin.webanno.model.AnchoringMode.TOKENS;
+import static de.tudarmstadt.ukp.clarin.webanno.model.OverlapMode.ANY_OVERLAP;
+import static de.tudarmstadt.ukp.clarin.webanno.support.WebAnnoConst.SPAN_TYPE;
+import static java.util.Arrays.asList;
+import static org.apache.uima.fit.factory.TypeSystemDescriptionFactory.createTypeSystemDescription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Feature;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.metadata.TypeDescription;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.resource.metadata.impl.TypeSystemDescription_impl;
+import org.apache.uima.util.CasCreationUtils;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+
+/**
+ * Creates deterministic synthetic CASes for the benchmarks. The text and the tokenization only
+ * depend on the number of tokens. Each token is covered by exactly one annotation on one of the
+ * custom span layers, so the total number of annotations does not grow with the number of layers.
+ * The labels depend on a seed such that CASes created with different seeds disagree on some
+ * positions.
+ */
+public final class SyntheticCasFactory
+{
+    public static final String LAYER_PREFIX = "benchmark.Layer";
+    public static final String FEATURE_VALUE = "value";
+
+    public static final int TOKENS_PER_SENTENCE = 20;
+
+    private static final int VOCABULARY_SIZE = 500;
+    private static final int LABEL_COUNT = 20;
+    private static final int DISAGREEMENT_RATE = 10;
+
+    private static final String[] VOCABULARY = createVocabulary();
+
+    private SyntheticCasFactory()
+    {
+        // No instances
+    }
+
+    public static String layerName(int aLayerIndex)
+    {
+        return LAYER_PREFIX + aLayerIndex;
+    }
+
+    public static TypeSystemDescription createTypeSystem(int aLayerCount)
+        throws ResourceInitializationException
+    {
+        TypeSystemDescription tsd = new TypeSystemDescription_impl();
+        for (int i = 0; i < aLayerCount; i++) {
+            TypeDescription td = tsd.addType(layerName(i), "", CAS.TYPE_NAME_ANNOTATION);
+            td.addFeature(FEATURE_VALUE, "", CAS.TYPE_NAME_STRING);
+        }
+
+        return CasCreationUtils.mergeTypeSystems(asList(createTypeSystemDescription(), tsd));
+    }
+
+    public static CAS createCas(int aTokenCount, int aLayerCount, long aLabelSeed)
+        throws ResourceInitializationException
+    {
+        CAS cas = CasCreationUtils.createCas(createTypeSystem(aLayerCount), null, null);
+        fillCas(cas, aTokenCount, aLayerCount, aLabelSeed);
+        return cas;
+    }
+
+    public static void fillCas(CAS aCas, int aTokenCount, int aLayerCount, long aLabelSeed)
+    {
+        Random textRandom = new Random(0);
+        Random labelRandom = new Random(aLabelSeed);
+
+        StringBuilder text = new StringBuilder();
+        int[] tokenBegins = new int[aTokenCount];
+        int[] tokenEnds = new int[aTokenCount];
+        for (int i = 0; i < aTokenCount; i++) {
+            if (i > 0) {
+                text.append(i % TOKENS_PER_SENTENCE == 0 ? '\n' : ' ');
+            }
+            tokenBegins[i] = text.length();
+            text.append(VOCABULARY[textRandom.nextInt(VOCABULARY.length)]);
+            tokenEnds[i] = text.length();
+        }
+        aCas.setDocumentText(text.toString());
+
+        Type tokenType = aCas.getTypeSystem().getType(Token.class.getName());
+        Type sentenceType = aCas.getTypeSystem().getType(Sentence.class.getName());
+        List<Type> layerTypes = new ArrayList<>();
+        List<Feature> valueFeatures = new ArrayList<>();
+        for (int i = 0; i < aLayerCount; i++) {
+            Type type = aCas.getTypeSystem().getType(layerName(i));
+            layerTypes.add(type);
+            valueFeatures.add(type.getFeatureByBaseName(FEATURE_VALUE));
+        }
+
+        for (int i = 0; i < aTokenCount; i++) {
+            aCas.addFsToIndexes(aCas.createAnnotation(tokenType, tokenBegins[i], tokenEnds[i]));
+
+            if (i % TOKENS_PER_SENTENCE == 0) {
+                int last = Math.min(i + TOKENS_PER_SENTENCE, aTokenCount) - 1;
+                aCas.addFsToIndexes(
+                        aCas.createAnnotation(sentenceType, tokenBegins[i], tokenEnds[last]));
+            }
+
+            if (aLayerCount > 0) {
+                int layer = i % aLayerCount;
+                int label = i % LABEL_COUNT;
+                if (labelRandom.nextInt(DISAGREEMENT_RATE) == 0) {
+                    label = labelRandom.nextInt(LABEL_COUNT);
+                }
+                AnnotationFS ann = aCas.createAnnotation(layerTypes.get(layer), tokenBegins[i],
+                        tokenEnds[i]);
+                ann.setStringValue(valueFeatures.get(layer), "label-" + label);
+                aCas.addFsToIndexes(ann);
+            }
+        }
+    }
+
+    public static List<AnnotationLayer> createLayers(Project aProject, int aLayerCount)
+    {
+        List<AnnotationLayer> layers = new ArrayList<>();
+        for (int i = 0; i < aLayerCount; i++) {
+            AnnotationLayer layer = new AnnotationLayer(layerName(i), "Layer " + i, SPAN_TYPE,
+                    aProject, false, TOKENS, ANY_OVERLAP);
+            layer.setId((long) i + 1);
+            layers.add(layer);
+        }
+        return layers;
+    }
+
+    public static List<AnnotationFeature> createFeatures(List<AnnotationLayer> aLayers)
+    {
+        List<AnnotationFeature> features = new ArrayList<>();
+        for (AnnotationLayer layer : aLayers) {
+            AnnotationFeature feature = new AnnotationFeature();
+            feature.setId(layer.getId());
+            feature.setName(FEATURE_VALUE);
+            feature.setUiName("Value");
+            feature.setType(CAS.TYPE_NAME_STRING);
+            feature.setLayer(layer);
+            feature.setProject(layer.getProject());
+            feature.setEnabled(true);
+            feature.setVisible(true);
+            features.add(feature);
+        }
+        return features;
+    }
+
+    private static String[] createVocabulary()
+    {
+        Random rnd = new Random(1);
+        String[] vocabulary = new String[VOCABULARY_SIZE];
+        for (int i = 0; i < vocabulary.length; i++) {
+            int length = 2 + rnd.nextInt(9);
+            StringBuilder word = new StringBuilder(length);
+            for (int n = 0; n < length; n++) {
+                word.append((char) ('a' + rnd.nextInt(26)));
+            }
+            vocabulary[i] = word.toString();
+        }
+        return vocabulary;
+    }
+}
@@ -17,7 +17,13 @@
  */
 package de.tudarmstadt.ukp.inception.conceptlinking.config;
 
+import static java.time.Duration.ofMinutes;
+import static java.time.temporal.ChronoUnit.MINUTES;
+
+import java.time.Duration;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.convert.DurationUnit;
 
 /**
  * <p>
@@ -36,6 +42,11 @@ public class EntityLinkingPropertiesImpl
     private int candidateDisplayLimit = 100;
     private int signatureQueryLimit = Integer.MAX_VALUE;
 
+    private int candidateCacheSize = 10_000;
+    private @DurationUnit(MINUTES) Duration candidateCacheExpireDelay = ofMinutes(15);
+
+    private int rankingThreads = 2;
+
     @Override
     public int getCacheSize()
     {
@@ -90,4 +101,37 @@ public class EntityLinkingPropertiesImpl
     {
         this.signatureQueryLimit = signatureQueryLimit;
     }
+
+    @Override
+    public int getCandidateCacheSize()
+    {
+        return candidateCacheSize;
+    }
+
+    public void setCandidateCacheSize(int aCandidateCacheSize)
+    {
+        candidateCacheSize = aCandidateCacheSize;
+    }
+
+    @Override
+    public Duration getCandidateCacheExpireDelay()
+    {
+        return candidateCacheExpireDelay;
+    }
+
+    public void setCandidateCacheExpireDelay(Duration aCandidateCacheExpireDelay)
+    {
+        candidateCacheExpireDelay = aCandidateCacheExpireDelay;
+    }
+
+    @Override
+    public int getRankingThreads()
+    {
+        return rankingThreads;
+    }
+
+    public void setRankingThreads(int aRankingThreads)
+    {
+        rankingThreads = aRankingThreads;
+    }
 }
@@ -18,12 +18,17 @@
 package de.tudarmstadt.ukp.inception.conceptlinking.recommender;
 
 import static de.tudarmstadt.ukp.clarin.webanno.api.annotation.util.WebAnnoCasUtil.selectOverlapping;
+import static java.util.stream.Collectors.toCollection;
 import static org.apache.uima.fit.util.CasUtil.getType;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
@@ -97,22 +102,38 @@ public class NamedEntityLinker
 
         var sentences = selectOverlapping(aCas, getType(aCas, Sentence.class), aBegin, aEnd);
 
+        List<Annotation> mentions = new ArrayList<>();
         for (AnnotationFS sentence : sentences) {
+            mentions.addAll(aCas.<Annotation> select(predictedType).coveredBy(sentence).asList());
+        }
 
-            for (Annotation annotation : aCas.<Annotation> select(predictedType)
-                    .coveredBy(sentence)) {
-                int begin = annotation.getBegin();
-                int end = annotation.getEnd();
-                predictSingle(annotation.getCoveredText(), begin, end, aCas);
-            }
+        if (mentions.isEmpty()) {
+            return new Range(sentences);
+        }
+
+        // Every surface form is looked up only once per knowledge base, even if it occurs
+        // multiple times in the document
+        Set<String> surfaceForms = mentions.stream() //
+                .map(Annotation::getCoveredText) //
+                .collect(toCollection(LinkedHashSet::new));
+
+        Map<KnowledgeBase, Map<String, Set<KBHandle>>> candidates = new LinkedHashMap<>();
+        for (KnowledgeBase kb : getKnowledgeBases()) {
+            candidates.put(kb, clService.generateCandidates(kb, featureTraits.getScope(),
+                    featureTraits.getAllowedValueType(), surfaceForms));
+        }
+
+        for (Annotation mention : mentions) {
+            predictSingle(mention.getCoveredText(), mention.getBegin(), mention.getEnd(), aCas,
+                    candidates);
         }
 
         return new Range(sentences);
     }
 
-    private void predictSingle(String aCoveredText, int aBegin, int aEnd, CAS aCas)
+    private List<KnowledgeBase> getKnowledgeBases()
     {
-        List<KBHandle> handles = new ArrayList<>();
+        List<KnowledgeBase> knowledgeBases = new ArrayList<>();
 
         AnnotationFeature feat = recommender.getFeature();
         ConceptFeatureTraits conceptFeatureTraits = fsRegistry.readTraits(feat,
@@ -122,17 +143,32 @@ public class NamedEntityLinker
             Optional<KnowledgeBase> kb = kbService.getKnowledgeBaseById(recommender.getProject(),
                     conceptFeatureTraits.getRepositoryId());
             if (kb.isPresent() && kb.get().isEnabled() && kb.get().isSupportConceptLinking()) {
-                handles.addAll(readCandidates(kb.get(), aCoveredText, aBegin, aCas));
+                knowledgeBases.add(kb.get());
             }
         }
         else {
             for (KnowledgeBase kb : kbService.getEnabledKnowledgeBases(recommender.getProject())) {
                 if (kb.isSupportConceptLinking()) {
-                    handles.addAll(readCandidates(kb, aCoveredText, aBegin, aCas));
+                    knowledgeBases.add(kb);
                 }
             }
         }
 
+        return knowledgeBases;
+    }
+
+    private void predictSingle(String aCoveredText, int aBegin, int aEnd, CAS aCas,
+            Map<KnowledgeBase, Map<String, Set<KBHandle>>> aCandidates)
+    {
+        List<KBHandle> handles = new ArrayList<>();
+        for (Map<String, Set<KBHandle>> kbCandidates : aCandidates.values()) {
+            Set<KBHandle> mentionCandidates = kbCandidates.get(aCoveredText);
+            if (mentionCandidates != null && !mentionCandidates.isEmpty()) {
+                handles.addAll(clService.rankCandidates(null, aCoveredText, mentionCandidates,
+                        aCas, aBegin));
+            }
+        }
+
         Type predictedType = getPredictedType(aCas);
         // Feature scoreFeature = getScoreFeature(aCas);
         Feature predictedFeature = getPredictedFeature(aCas);
@@ -147,13 +183,6 @@ public class NamedEntityLinker
         }
     }
 
-    private List<KBHandle> readCandidates(KnowledgeBase kb, String aCoveredText, int aBegin,
-            CAS aCas)
-    {
-        return kbService.read(kb, (conn) -> clService.disambiguate(kb, featureTraits.getScope(),
-                featureTraits.getAllowedValueType(), null, aCoveredText, aBegin, aCas));
-    }
-
     @Override
     public TrainingCapability getTrainingCapability()
     {
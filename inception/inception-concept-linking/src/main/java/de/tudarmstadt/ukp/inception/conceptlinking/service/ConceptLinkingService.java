@@ -17,7 +17,9 @@
  */
 package de.tudarmstadt.ukp.inception.conceptlinking.service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.uima.cas.CAS;
@@ -59,6 +61,24 @@ public interface ConceptLinkingService
             ConceptFeatureValueType aValueType, String aUserQuery, String aMention,
             int aMentionBeginOffset, CAS aCas);
 
+    /**
+     * Generates the linking candidates for several mentions at once. Duplicate mentions are only
+     * looked up once and the exact matches for the mentions are retrieved in batches. The
+     * candidates for the mentions are cached for read-only knowledge bases.
+     *
+     * @param aKB
+     *            the KB used to generate candidates.
+     * @param aConceptScope
+     *            the search scope
+     * @param aValueType
+     *            the kind of KB items to be retrieved
+     * @param aMentions
+     *            the surface forms of the entities to be linked.
+     * @return the (unranked) candidates for each of the mentions.
+     */
+    Map<String, Set<KBHandle>> generateCandidates(KnowledgeBase aKB, String aConceptScope,
+            ConceptFeatureValueType aValueType, Collection<String> aMentions);
+
     /**
      * Get all linking instances within the scope of a given knowledge base. If null is passed for
      * aRepositoryId, all enabled knowledge bases in the project are considered. If the given
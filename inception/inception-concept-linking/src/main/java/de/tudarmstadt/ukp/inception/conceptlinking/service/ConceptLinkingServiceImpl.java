@@ -30,25 +30,39 @@ import static java.util.Arrays.asList;
 import static java.util.Collections.unmodifiableList;
 import static java.util.Comparator.comparingInt;
 import static java.util.stream.Collectors.toCollection;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.normalizeSpace;
 
 import java.io.File;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.ClassUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.text.AnnotationFS;
 import org.eclipse.rdf4j.common.net.ParsedIRI;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
@@ -56,6 +70,9 @@ import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.core.annotation.AnnotationAwareOrderComparator;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
 import de.tudarmstadt.ukp.clarin.webanno.api.config.RepositoryProperties;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.support.logging.BaseLoggers;
@@ -70,6 +87,7 @@ import de.tudarmstadt.ukp.inception.conceptlinking.util.FileUtils;
 import de.tudarmstadt.ukp.inception.kb.ConceptFeatureValueType;
 import de.tudarmstadt.ukp.inception.kb.KnowledgeBaseService;
 import de.tudarmstadt.ukp.inception.kb.RepositoryType;
+import de.tudarmstadt.ukp.inception.kb.event.KnowledgeBaseConfigurationChangedEvent;
 import de.tudarmstadt.ukp.inception.kb.graph.KBHandle;
 import de.tudarmstadt.ukp.inception.kb.model.KnowledgeBase;
 import de.tudarmstadt.ukp.inception.kb.querybuilder.SPARQLQueryBuilder;
@@ -82,10 +100,21 @@ import de.tudarmstadt.ukp.inception.kb.querybuilder.SPARQLQueryPrimaryConditions
  * </p>
  */
 public class ConceptLinkingServiceImpl
-    implements InitializingBean, ConceptLinkingService
+    implements InitializingBean, DisposableBean, ConceptLinkingService
 {
     private final Logger log = LoggerFactory.getLogger(getClass());
 
+    /**
+     * Maximum number of mentions whose exact matches are retrieved using a single query.
+     */
+    private static final int CANDIDATE_BATCH_SIZE = 25;
+
+    /**
+     * Minimum number of candidates for which a ranking task is submitted to the executor. For
+     * fewer candidates, the overhead of the parallelization is higher than its benefit.
+     */
+    private static final int MIN_CANDIDATES_PER_RANKING_TASK = 50;
+
     private final KnowledgeBaseService kbService;
     private final EntityLinkingProperties properties;
     private final RepositoryProperties repoProperties;
@@ -95,6 +124,9 @@ public class ConceptLinkingServiceImpl
     private final List<EntityRankingFeatureGenerator> featureGeneratorsProxy;
     private List<EntityRankingFeatureGenerator> featureGenerators;
 
+    private final Cache<CandidateCacheKey, Set<KBHandle>> candidateCache;
+    private final ExecutorService rankingExecutor;
+
     @Autowired
     public ConceptLinkingServiceImpl(KnowledgeBaseService aKbService,
             EntityLinkingPropertiesImpl aProperties, RepositoryProperties aRepoProperties,
@@ -107,6 +139,22 @@ public class ConceptLinkingServiceImpl
         properties = aProperties;
         featureGeneratorsProxy = aFeatureGenerators;
         repoProperties = aRepoProperties;
+
+        candidateCache = Caffeine.newBuilder() //
+                .maximumSize(properties.getCandidateCacheSize()) //
+                .expireAfterWrite(properties.getCandidateCacheExpireDelay()) //
+                .build();
+
+        if (properties.getRankingThreads() > 1) {
+            rankingExecutor = Executors.newFixedThreadPool(properties.getRankingThreads(),
+                    new BasicThreadFactory.Builder() //
+                            .namingPattern("entity-ranking-%d") //
+                            .daemon(true) //
+                            .build());
+        }
+        else {
+            rankingExecutor = null;
+        }
     }
 
     @Override
@@ -116,6 +164,14 @@ public class ConceptLinkingServiceImpl
         stopwords = FileUtils.loadStopwordFile(stopwordsFile);
     }
 
+    @Override
+    public void destroy()
+    {
+        if (rankingExecutor != null) {
+            rankingExecutor.shutdownNow();
+        }
+    }
+
     @EventListener
     public void onContextRefreshedEvent(ContextRefreshedEvent aEvent)
     {
@@ -226,6 +282,185 @@ public class ConceptLinkingServiceImpl
         return result;
     }
 
+    @Override
+    public Map<String, Set<KBHandle>> generateCandidates(KnowledgeBase aKB, String aConceptScope,
+            ConceptFeatureValueType aValueType, Collection<String> aMentions)
+    {
+        long startTime = currentTimeMillis();
+
+        // Only the candidates of read-only KBs are cached - same as for the KB query cache
+        boolean useCache = aKB.isReadOnly();
+
+        Map<String, Set<KBHandle>> result = new LinkedHashMap<>();
+        List<String> pendingMentions = new ArrayList<>();
+        for (String mention : new LinkedHashSet<>(aMentions)) {
+            if (isBlank(mention)) {
+                continue;
+            }
+
+            Set<KBHandle> cached = useCache
+                    ? candidateCache.getIfPresent(
+                            new CandidateCacheKey(aKB, aConceptScope, aValueType, mention))
+                    : null;
+
+            if (cached != null) {
+                result.put(mention, cached);
+            }
+            else {
+                pendingMentions.add(mention);
+            }
+        }
+
+        int cacheHits = result.size();
+
+        // See generateCandidates(KnowledgeBase, String, ConceptFeatureValueType, String, String)
+        final int threshold = RepositoryType.LOCAL.equals(aKB.getType()) ? 0 : 3;
+
+        for (int i = 0; i < pendingMentions.size(); i += CANDIDATE_BATCH_SIZE) {
+            List<String> batch = pendingMentions.subList(i,
+                    Math.min(i + CANDIDATE_BATCH_SIZE, pendingMentions.size()));
+
+            Map<String, Set<KBHandle>> batchResult = new LinkedHashMap<>();
+            batch.forEach(mention -> batchResult.put(mention, new HashSet<>()));
+
+            // Exact matches for all the mentions in the batch are retrieved in a single query
+            findExactMatches(batchResult, aKB, aConceptScope, aValueType);
+
+            // The containing matches cannot be reliably attributed to the mentions if we retrieve
+            // them in a single query, so we still have to query for them one by one
+            for (String mention : batch) {
+                String label = mention.trim();
+                if (label.length() >= threshold) {
+                    findContainingMatches(batchResult.get(mention), aKB, aConceptScope,
+                            aValueType, new String[] { label });
+                }
+            }
+
+            if (useCache) {
+                batchResult.forEach((mention, candidates) -> candidateCache.put(
+                        new CandidateCacheKey(aKB, aConceptScope, aValueType, mention),
+                        candidates));
+            }
+
+            result.putAll(batchResult);
+        }
+
+        long duration = currentTimeMillis() - startTime;
+        log.debug("Generated candidates for [{}] mentions ([{}] cached) in {}ms", result.size(),
+                cacheHits, duration);
+        WicketUtil.serverTiming("generateCandidates", duration);
+
+        return result;
+    }
+
+    void findExactMatches(Map<String, Set<KBHandle>> aResult, KnowledgeBase aKB,
+            String aConceptScope, ConceptFeatureValueType aValueType)
+    {
+        // The result limit applies to the query as a whole, so it is scaled by the number of
+        // mentions in the batch to give each of them the same share as a per-mention query.
+        int limit = aKB.getMaxResults() * aResult.size();
+        Set<KBHandle> exactMatches = new HashSet<>();
+        findExactMatches(exactMatches, aKB, aConceptScope, aValueType,
+                aResult.keySet().toArray(String[]::new), limit);
+
+        if (exactMatches.isEmpty()) {
+            return;
+        }
+
+        // If the limit was reached, e.g. because one of the mentions is a very frequent label,
+        // the matches of the other mentions may have been cut off.
+        if (aResult.size() > 1 && exactMatches.size() >= limit) {
+            log.debug("Exact matches for the [{}] mentions of the batch reached the limit of [{}] "
+                    + "- querying the mentions individually", aResult.size(), limit);
+            findExactMatchesIndividually(aResult, aKB, aConceptScope, aValueType);
+            return;
+        }
+
+        Set<KBHandle> unattributed = attributeExactMatches(aResult, exactMatches);
+
+        // If the label through which a candidate was matched is not known, we cannot tell which
+        // mention it belongs to. Instead of guessing, we fall back to querying the mentions one by
+        // one - this should be rare since the matched label is usually returned as name or match
+        // term.
+        if (unattributed.isEmpty()) {
+            return;
+        }
+
+        // With a single mention, the query was the same as the per-mention query
+        if (aResult.size() == 1) {
+            aResult.values().iterator().next().addAll(unattributed);
+        }
+        else {
+            log.debug("[{}] exact matches could not be attributed to a mention - querying the "
+                    + "[{}] mentions of the batch individually", unattributed.size(),
+                    aResult.size());
+            findExactMatchesIndividually(aResult, aKB, aConceptScope, aValueType);
+        }
+    }
+
+    private void findExactMatchesIndividually(Map<String, Set<KBHandle>> aResult,
+            KnowledgeBase aKB, String aConceptScope, ConceptFeatureValueType aValueType)
+    {
+        for (var entry : aResult.entrySet()) {
+            entry.getValue().clear();
+            findExactMatches(entry.getValue(), aKB, aConceptScope, aValueType,
+                    new String[] { entry.getKey() });
+        }
+    }
+
+    /**
+     * Adds each of the given exact matches to the candidates of the mentions matching its label
+     * or one of its match terms.
+     * 
+     * @param aResult
+     *            the candidates by mention.
+     * @param aMatches
+     *            the exact matches retrieved for all the mentions at once.
+     * @return the matches which could not be attributed to any mention.
+     */
+    static Set<KBHandle> attributeExactMatches(Map<String, Set<KBHandle>> aResult,
+            Collection<KBHandle> aMatches)
+    {
+        Map<String, List<String>> mentionsByLabel = new HashMap<>();
+        for (String mention : aResult.keySet()) {
+            mentionsByLabel.computeIfAbsent(normalizeLabel(mention), k -> new ArrayList<>())
+                    .add(mention);
+        }
+
+        Set<KBHandle> unattributed = new LinkedHashSet<>();
+        for (KBHandle handle : aMatches) {
+            List<String> labels = new ArrayList<>();
+            labels.add(handle.getName());
+            if (handle.getMatchTerms() != null) {
+                handle.getMatchTerms().forEach(term -> labels.add(term.getKey()));
+            }
+
+            boolean attributed = false;
+            for (String label : labels) {
+                if (label == null) {
+                    continue;
+                }
+
+                for (String mention : mentionsByLabel.getOrDefault(normalizeLabel(label),
+                        List.of())) {
+                    aResult.get(mention).add(handle);
+                    attributed = true;
+                }
+            }
+
+            if (!attributed) {
+                unattributed.add(handle);
+            }
+        }
+
+        return unattributed;
+    }
+
+    private static String normalizeLabel(String aLabel)
+    {
+        return normalizeSpace(aLabel).toLowerCase(Locale.ROOT);
+    }
+
     private void findContainingMatches(Set<KBHandle> result, KnowledgeBase aKB,
             String aConceptScope, ConceptFeatureValueType aValueType, String[] aLongLabels)
     {
@@ -303,6 +538,13 @@ public class ConceptLinkingServiceImpl
 
     private void findExactMatches(Set<KBHandle> result, KnowledgeBase aKB, String aConceptScope,
             ConceptFeatureValueType aValueType, String[] aExactLabels)
+    {
+        findExactMatches(result, aKB, aConceptScope, aValueType, aExactLabels,
+                aKB.getMaxResults());
+    }
+
+    private void findExactMatches(Set<KBHandle> result, KnowledgeBase aKB, String aConceptScope,
+            ConceptFeatureValueType aValueType, String[] aExactLabels, int aLimit)
     {
         var startTime = currentTimeMillis();
 
@@ -315,7 +557,7 @@ public class ConceptLinkingServiceImpl
 
         exactBuilder.withLabelMatchingExactlyAnyOf(aExactLabels);
 
-        exactBuilder.retrieveLabel().retrieveDescription();
+        exactBuilder.retrieveLabel().retrieveDescription().limit(aLimit);
 
         List<KBHandle> exactMatches;
         if (aKB.isReadOnly()) {
@@ -436,14 +678,10 @@ public class ConceptLinkingServiceImpl
         List<CandidateEntity> candidates = aCandidates.stream() //
                 .map(CandidateEntity::new) //
                 .map(candidate -> initCandidate(candidate, aQuery, aMention, aCas, aBegin))
-                .map(candidate -> {
-                    for (EntityRankingFeatureGenerator generator : featureGenerators) {
-                        generator.apply(candidate);
-                    }
-                    return candidate;
-                }) //
                 .collect(toCollection(ArrayList::new));
 
+        applyFeatureGenerators(candidates);
+
         // Do the main ranking
         // Sort candidates by multiple keys.
         candidates.sort(BaselineRankingStrategy.getInstance());
@@ -471,6 +709,53 @@ public class ConceptLinkingServiceImpl
         return results;
     }
 
+    private void applyFeatureGenerators(List<CandidateEntity> aCandidates)
+    {
+        if (rankingExecutor == null
+                || aCandidates.size() < 2 * MIN_CANDIDATES_PER_RANKING_TASK) {
+            aCandidates.forEach(this::applyFeatureGenerators);
+            return;
+        }
+
+        // The feature generators only modify the candidate they are applied to, so the
+        // candidates can be processed in parallel
+        int taskCount = Math.min(properties.getRankingThreads(),
+                aCandidates.size() / MIN_CANDIDATES_PER_RANKING_TASK);
+        int chunkSize = (aCandidates.size() + taskCount - 1) / taskCount;
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < aCandidates.size(); i += chunkSize) {
+            List<CandidateEntity> chunk = aCandidates.subList(i,
+                    Math.min(i + chunkSize, aCandidates.size()));
+            tasks.add(() -> {
+                chunk.forEach(this::applyFeatureGenerators);
+                return null;
+            });
+        }
+
+        try {
+            for (Future<Void> result : rankingExecutor.invokeAll(tasks)) {
+                result.get();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while ranking candidates", e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void applyFeatureGenerators(CandidateEntity aCandidate)
+    {
+        for (EntityRankingFeatureGenerator generator : featureGenerators) {
+            generator.apply(aCandidate);
+        }
+    }
+
     @Override
     public List<KBHandle> getLinkingInstancesInKBScope(String aRepositoryId, String aConceptScope,
             ConceptFeatureValueType aValueType, String aQuery, String aMention,
@@ -500,6 +785,21 @@ public class ConceptLinkingServiceImpl
         return rankCandidates(query, aMention, candidates, aCas, aMentionBeginOffset);
     }
 
+    /**
+     * If the KB configuration of a project is changed, drop the cached candidates of any KBs of
+     * that project.
+     * 
+     * @param aEvent
+     *            The event containing the project
+     */
+    @EventListener
+    public void onKnowledgeBaseConfigurationChangedEvent(
+            KnowledgeBaseConfigurationChangedEvent aEvent)
+    {
+        candidateCache.asMap().keySet()
+                .removeIf(key -> Objects.equals(key.project, aEvent.getProject()));
+    }
+
     /**
      * Find KB items (classes and instances) matching the given query.
      */
@@ -508,4 +808,44 @@ public class ConceptLinkingServiceImpl
     {
         return disambiguate(aKB, null, ConceptFeatureValueType.ANY_OBJECT, aQuery, null, 0, null);
     }
+
+    private static final class CandidateCacheKey
+    {
+        private final Project project;
+        private final String repositoryId;
+        private final String conceptScope;
+        private final ConceptFeatureValueType valueType;
+        private final String mention;
+
+        public CandidateCacheKey(KnowledgeBase aKB, String aConceptScope,
+                ConceptFeatureValueType aValueType, String aMention)
+        {
+            project = aKB.getProject();
+            repositoryId = aKB.getRepositoryId();
+            conceptScope = aConceptScope;
+            valueType = aValueType;
+            mention = aMention;
+        }
+
+        @Override
+        public boolean equals(Object aOther)
+        {
+            if (this == aOther) {
+                return true;
+            }
+            if (!(aOther instanceof CandidateCacheKey)) {
+                return false;
+            }
+            CandidateCacheKey other = (CandidateCacheKey) aOther;
+            return Objects.equals(repositoryId, other.repositoryId)
+                    && Objects.equals(conceptScope, other.conceptScope)
+                    && valueType == other.valueType && Objects.equals(mention, other.mention);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(repositoryId, conceptScope, valueType, mention);
+        }
+    }
 }
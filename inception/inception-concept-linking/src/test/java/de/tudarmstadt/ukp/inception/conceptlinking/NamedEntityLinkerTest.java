@@ -25,7 +25,9 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assumptions.assumeThat;
 import static org.dkpro.core.api.datasets.DatasetValidationPolicy.CONTINUE;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anySet;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -34,9 +36,14 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import org.apache.uima.UIMAException;
 import org.apache.uima.cas.CAS;
@@ -130,6 +137,16 @@ public class NamedEntityLinkerTest
         ConceptLinkingServiceImpl clService = mock(ConceptLinkingServiceImpl.class);
         when(clService.disambiguate(any(), anyString(), any(ConceptFeatureValueType.class),
                 anyString(), anyString(), anyInt(), any())).thenReturn(mockResult);
+        when(clService.generateCandidates(any(), any(), any(), anyCollection()))
+                .thenAnswer(invocation -> {
+                    Map<String, Set<KBHandle>> candidates = new HashMap<>();
+                    for (String mention : invocation.<Collection<String>> getArgument(3)) {
+                        candidates.put(mention, new HashSet<>(mockResult));
+                    }
+                    return candidates;
+                });
+        when(clService.rankCandidates(any(), anyString(), anySet(), any(), anyInt()))
+                .thenReturn(mockResult);
 
         FeatureSupportRegistry fsRegistry = mock(FeatureSupportRegistry.class);
         FeatureSupport<Object> fs = mock(FeatureSupport.class);
@@ -19,12 +19,17 @@
 package de.tudarmstadt.ukp.inception.conceptlinking.service;
 
 import static de.tudarmstadt.ukp.inception.kb.ConceptFeatureValueType.ANY_OBJECT;
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.io.File;
 import java.io.InputStream;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.persistence.EntityManager;
 
@@ -126,6 +131,75 @@ public class ConceptLinkingServiceImplTest
         kbService.removeKnowledgeBase(kb);
     }
 
+    @Test
+    public void thatCandidatesForMultipleMentionsCanBeGeneratedAtOnce() throws Exception
+    {
+        kbService.registerKnowledgeBase(kb, kbService.getNativeConfig());
+        importKnowledgeBase("data/pets.ttl");
+
+        Map<String, Set<KBHandle>> candidates = sut.generateCandidates(kb, null, ANY_OBJECT,
+                asList("Cat", "Dog", "Cat", "Socke", "Unicorn"));
+
+        assertThat(candidates).containsOnlyKeys("Cat", "Dog", "Socke", "Unicorn");
+        assertThat(candidates.get("Cat")).extracting(KBHandle::getName).contains("Cat")
+                .doesNotContain("Dog");
+        assertThat(candidates.get("Dog")).extracting(KBHandle::getName).contains("Dog")
+                .doesNotContain("Cat");
+        assertThat(candidates.get("Socke")).extracting(KBHandle::getName).contains("Socke");
+        assertThat(candidates.get("Unicorn")).isEmpty();
+
+        kbService.removeKnowledgeBase(kb);
+    }
+
+    @Test
+    public void thatFrequentLabelDoesNotCutOffExactMatchesOfOtherMentions() throws Exception
+    {
+        kb.setMaxResults(2);
+        kbService.registerKnowledgeBase(kb, kbService.getNativeConfig());
+        importKnowledgeBase("data/pets.ttl");
+
+        // More concepts with the same label than the limit of the whole batch
+        for (int i = 0; i < 10; i++) {
+            KBConcept concept = new KBConcept();
+            concept.setName("Pet");
+            kbService.createConcept(kb, concept);
+        }
+
+        Map<String, Set<KBHandle>> candidates = new LinkedHashMap<>();
+        candidates.put("Pet", new HashSet<>());
+        candidates.put("Cat", new HashSet<>());
+        candidates.put("Dog", new HashSet<>());
+
+        sut.findExactMatches(candidates, kb, null, ANY_OBJECT);
+
+        assertThat(candidates.get("Pet")).isNotEmpty() //
+                .extracting(KBHandle::getName).containsOnly("Pet");
+        assertThat(candidates.get("Cat")).extracting(KBHandle::getName).containsExactly("Cat");
+        assertThat(candidates.get("Dog")).extracting(KBHandle::getName).containsExactly("Dog");
+
+        kbService.removeKnowledgeBase(kb);
+    }
+
+    @Test
+    public void thatUnattributableExactMatchesAreNotAddedToAllMentions() throws Exception
+    {
+        var cat = new KBHandle("http://mbugert.de/pets#cat", "Cat");
+        var kitty = new KBHandle("http://mbugert.de/pets#kitty", "Kitty");
+        var dog = new KBHandle("http://mbugert.de/pets#dog", "Hound");
+        dog.addMatchTerm("dog", null);
+
+        Map<String, Set<KBHandle>> candidates = new LinkedHashMap<>();
+        candidates.put("cat", new HashSet<>());
+        candidates.put("Dog", new HashSet<>());
+
+        var unattributed = ConceptLinkingServiceImpl.attributeExactMatches(candidates,
+                asList(cat, kitty, dog));
+
+        assertThat(unattributed).containsExactly(kitty);
+        assertThat(candidates.get("cat")).containsExactly(cat);
+        assertThat(candidates.get("Dog")).containsExactly(dog);
+    }
+
     private void importKnowledgeBase(String resourceName) throws Exception
     {
         ClassLoader classLoader = getClass().getClassLoader();
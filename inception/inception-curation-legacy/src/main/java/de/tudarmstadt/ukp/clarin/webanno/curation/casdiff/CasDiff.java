@@ -17,12 +17,14 @@
  */
 package de.tudarmstadt.ukp.clarin.webanno.curation.casdiff;
 
+import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.LinkCompareBehavior.LINK_TARGET_AS_LABEL;
 import static de.tudarmstadt.ukp.clarin.webanno.model.LinkMode.NONE;
 import static de.tudarmstadt.ukp.clarin.webanno.support.WebAnnoConst.RELATION_TYPE;
 import static de.tudarmstadt.ukp.clarin.webanno.support.WebAnnoConst.SPAN_TYPE;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.emptySet;
+import static java.util.Comparator.comparing;
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
 import static org.apache.commons.collections4.CollectionUtils.subtract;
@@ -92,6 +94,8 @@ public class CasDiff
 
     private boolean recurseIntoLinkFeatures = false;
 
+    private final Map<Type, List<Feature>> fingerprintFeatures = new HashMap<>();
+
     private CasDiff(int aBegin, int aEnd, Iterable<? extends DiffAdapter> aAdapters,
             LinkCompareBehavior aLinkCompareBehavior)
     {
@@ -387,9 +391,11 @@ public class CasDiff
         }
 
         if (aSet.position.getFeature() == null) {
-            // Check if this configuration is already present
+            // Check if this configuration is already present. Only configurations with the same
+            // fingerprint can be equal, so we only need to compare against these.
+            List<Configuration> candidates = aSet.getIndexBucket(fingerprint(aFS));
             Configuration configuration = null;
-            for (Configuration cfg : aSet.getConfigurations()) {
+            for (Configuration cfg : candidates) {
                 // Handle main positions
                 if (equalsFS(cfg.getRepresentative(cases), aFS)) {
                     configuration = cfg;
@@ -401,6 +407,7 @@ public class CasDiff
             if (configuration == null) {
                 configuration = new Configuration(aSet.position);
                 aSet.addConfiguration(configuration);
+                candidates.add(configuration);
             }
 
             configuration.add(aCasGroupId, aFS);
@@ -414,17 +421,19 @@ public class CasDiff
                 return;
             }
 
+            DiffAdapter adapter = getAdapter(aFS.getType().getName());
+            LinkFeatureDecl decl = adapter.getLinkFeature(aSet.position.getFeature());
+
             // For each slot at the given position in the FS-to-be-added, we need find a
             // corresponding configuration
 
             var links = FSUtil.getFeature(aFS, feat, ArrayFS.class);
             for (int i = 0; i < links.size(); i++) {
                 FeatureStructure link = links.get(i);
-                DiffAdapter adapter = getAdapter(aFS.getType().getName());
-                LinkFeatureDecl decl = adapter.getLinkFeature(aSet.position.getFeature());
 
-                // Check if this configuration is already present
-                Configuration configuration = null;
+                // Determine the key under which the slot is matched against the slots of the
+                // existing configurations
+                Object key;
                 switch (aSet.position.getLinkCompareBehavior()) {
                 case LINK_TARGET_AS_LABEL: {
                     String role = link.getStringValue(
@@ -433,24 +442,12 @@ public class CasDiff
                         continue;
                     }
 
+                    // Compare targets
                     AnnotationFS target = (AnnotationFS) link.getFeatureValue(
                             link.getType().getFeatureByBaseName(decl.getTargetFeature()));
-
-                    cfgLoop: for (Configuration cfg : aSet.configurations) {
-                        FeatureStructure repFS = cfg.getRepresentative(cases);
-                        AID repAID = cfg.getRepresentativeAID();
-                        FeatureStructure repLink = FSUtil.getFeature(repFS,
-                                repFS.getType().getFeatureByBaseName(decl.getName()), ArrayFS.class)
-                                .get(repAID.index);
-                        AnnotationFS repTarget = (AnnotationFS) repLink.getFeatureValue(
-                                repLink.getType().getFeatureByBaseName(decl.getTargetFeature()));
-
-                        // Compare targets
-                        if (equalsAnnotationFS(repTarget, target)) {
-                            configuration = cfg;
-                            break cfgLoop;
-                        }
-                    }
+                    key = target != null
+                            ? getAdapter(target.getType().getName()).getPosition(0, target)
+                            : null;
                     break;
                 }
                 case LINK_ROLE_AS_LABEL: {
@@ -461,24 +458,9 @@ public class CasDiff
                         continue;
                     }
 
-                    String role = link.getStringValue(
+                    // Compare roles
+                    key = link.getStringValue(
                             link.getType().getFeatureByBaseName(decl.getRoleFeature()));
-
-                    cfgLoop: for (Configuration cfg : aSet.configurations) {
-                        FeatureStructure repFS = cfg.getRepresentative(cases);
-                        AID repAID = cfg.getRepresentativeAID();
-                        FeatureStructure repLink = FSUtil.getFeature(repFS,
-                                repFS.getType().getFeatureByBaseName(decl.getName()), ArrayFS.class)
-                                .get(repAID.index);
-                        String linkRole = repLink.getStringValue(
-                                repLink.getType().getFeatureByBaseName(decl.getRoleFeature()));
-
-                        // Compare roles
-                        if (role.equals(linkRole)) {
-                            configuration = cfg;
-                            break cfgLoop;
-                        }
-                    }
                     break;
                 }
                 default:
@@ -486,10 +468,21 @@ public class CasDiff
                             "Unknown link target comparison mode [" + linkCompareBehavior + "]");
                 }
 
+                // Check if this configuration is already present - a slot without a target never
+                // matches any other slot
+                List<Configuration> candidates = key != null ? aSet.getIndexBucket(key) : null;
+                Configuration configuration = null;
+                if (candidates != null && !candidates.isEmpty()) {
+                    configuration = candidates.get(0);
+                }
+
                 // Not found, add new one
                 if (configuration == null) {
                     configuration = new Configuration(aSet.position);
                     aSet.configurations.add(configuration);
+                    if (candidates != null) {
+                        candidates.add(configuration);
+                    }
                 }
 
                 configuration.add(aCasGroupId, aFS, aSet.position.getFeature(), i);
@@ -499,6 +492,114 @@ public class CasDiff
         aSet.casGroupIds.add(aCasGroupId);
     }
 
+    /**
+     * Calculates a fingerprint of the label features of the given feature structure. Feature
+     * structures considered equal by {@link #equalsFS} always have the same fingerprint. The
+     * opposite is not true because features pointing to other feature structures are not included
+     * in the fingerprint - so feature structures with the same fingerprint still need to be
+     * compared using {@link #equalsFS}.
+     * 
+     * @param aFS
+     *            a feature structure.
+     * @return the fingerprint.
+     */
+    private List<Object> fingerprint(FeatureStructure aFS)
+    {
+        List<Object> fingerprint = new ArrayList<>();
+        fingerprint.add(aFS.getType().getName());
+
+        for (Feature feature : getFingerprintFeatures(aFS.getType())) {
+            Object value = getFingerprintValue(aFS, feature);
+            // Default values are skipped because equalsFS treats a feature that is not declared
+            // on a type in the same way as a feature that has its default value
+            if (value != null) {
+                fingerprint.add(feature.getShortName());
+                fingerprint.add(value);
+            }
+        }
+
+        return fingerprint;
+    }
+
+    private List<Feature> getFingerprintFeatures(Type aType)
+    {
+        return fingerprintFeatures.computeIfAbsent(aType, _type -> {
+            DiffAdapter adapter = diffAdapters.get(_type.getName());
+
+            // Without an adapter, equalsFS considers all feature structures of a type to be equal
+            if (adapter == null) {
+                return emptyList();
+            }
+
+            Set<String> labelFeatures = adapter.getLabelFeatures();
+            return _type.getFeatures().stream() //
+                    .filter(f -> labelFeatures.contains(f.getShortName())) //
+                    .filter(f -> recurseIntoLinkFeatures
+                            || adapter.getLinkFeature(f.getShortName()) == null) //
+                    .filter(f -> isFingerprintRange(f.getRange())) //
+                    .sorted(comparing(Feature::getShortName)) //
+                    .collect(toList());
+        });
+    }
+
+    private static boolean isFingerprintRange(Type aRange)
+    {
+        switch (aRange.getName()) {
+        case CAS.TYPE_NAME_STRING_ARRAY: // fall-through
+        case CAS.TYPE_NAME_BOOLEAN: // fall-through
+        case CAS.TYPE_NAME_BYTE: // fall-through
+        case CAS.TYPE_NAME_DOUBLE: // fall-through
+        case CAS.TYPE_NAME_FLOAT: // fall-through
+        case CAS.TYPE_NAME_INTEGER: // fall-through
+        case CAS.TYPE_NAME_LONG: // fall-through
+        case CAS.TYPE_NAME_SHORT: // fall-through
+        case CAS.TYPE_NAME_STRING:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private static Object getFingerprintValue(FeatureStructure aFS, Feature aFeature)
+    {
+        switch (aFeature.getRange().getName()) {
+        case CAS.TYPE_NAME_STRING_ARRAY: {
+            Set<?> value = FSUtil.getFeature(aFS, aFeature, Set.class);
+            return value == null || value.isEmpty() ? null : value;
+        }
+        case CAS.TYPE_NAME_BOOLEAN:
+            return aFS.getBooleanValue(aFeature) ? Boolean.TRUE : null;
+        case CAS.TYPE_NAME_BYTE: {
+            byte value = aFS.getByteValue(aFeature);
+            return value != 0 ? value : null;
+        }
+        case CAS.TYPE_NAME_DOUBLE: {
+            double value = aFS.getDoubleValue(aFeature);
+            return value != 0.0d ? value : null;
+        }
+        case CAS.TYPE_NAME_FLOAT: {
+            float value = aFS.getFloatValue(aFeature);
+            return value != 0.0f ? value : null;
+        }
+        case CAS.TYPE_NAME_INTEGER: {
+            int value = aFS.getIntValue(aFeature);
+            return value != 0 ? value : null;
+        }
+        case CAS.TYPE_NAME_LONG: {
+            long value = aFS.getLongValue(aFeature);
+            return value != 0l ? value : null;
+        }
+        case CAS.TYPE_NAME_SHORT: {
+            short value = aFS.getShortValue(aFeature);
+            return value != 0 ? value : null;
+        }
+        case CAS.TYPE_NAME_STRING:
+            return aFS.getStringValue(aFeature);
+        default:
+            return null;
+        }
+    }
+
     /**
      * The set of configurations seen at a particular position.
      */
@@ -511,11 +612,34 @@ public class CasDiff
         private List<Configuration> configurations = new ArrayList<>();
         private Set<String> casGroupIds = new LinkedHashSet<>();
 
+        /**
+         * Configurations indexed by the key used to match new feature structures against them.
+         * Only needed while the diff is being calculated.
+         */
+        private transient Map<Object, List<Configuration>> configurationIndex;
+
         public ConfigurationSet(Position aPosition)
         {
             position = aPosition;
         }
 
+        private List<Configuration> getIndexBucket(Object aKey)
+        {
+            if (configurationIndex == null) {
+                // Link targets are matched by their position which does not implement hashCode
+                // but is comparable
+                if (position.getFeature() != null
+                        && position.getLinkCompareBehavior() == LINK_TARGET_AS_LABEL) {
+                    configurationIndex = new TreeMap<>();
+                }
+                else {
+                    configurationIndex = new HashMap<>();
+                }
+            }
+
+            return configurationIndex.computeIfAbsent(aKey, _key -> new ArrayList<>());
+        }
+
         /**
          * @return the total number of configurations recorded in this set. If a configuration has
          *         been seen in multiple CASes, it will be counted multiple times.
@@ -585,6 +709,31 @@ public class CasDiff
         {
             return position;
         }
+
+        /**
+         * @param aCasGroupIds
+         *            the CAS group IDs to retain.
+         * @return a copy of this set containing only the configurations observed in the given CAS
+         *         groups.
+         */
+        public ConfigurationSet restrictTo(Collection<String> aCasGroupIds)
+        {
+            ConfigurationSet copy = new ConfigurationSet(position);
+            for (Configuration cfg : configurations) {
+                Configuration cfgCopy = cfg.restrictTo(aCasGroupIds);
+                if (!cfgCopy.fsAddresses.isEmpty()) {
+                    copy.configurations.add(cfgCopy);
+                }
+            }
+
+            for (String casGroupId : casGroupIds) {
+                if (aCasGroupIds.contains(casGroupId)) {
+                    copy.casGroupIds.add(casGroupId);
+                }
+            }
+
+            return copy;
+        }
     }
 
     public Collection<Position> getPositions()
@@ -886,6 +1035,18 @@ public class CasDiff
             add(aCasGroupId, new AID(ICasUtil.getAddr(aFS), aFeature, aSlot));
         }
 
+        private Configuration restrictTo(Collection<String> aCasGroupIds)
+        {
+            Configuration copy = new Configuration(position);
+            copy.stacked = stacked;
+            for (Entry<String, AID> e : fsAddresses.entrySet()) {
+                if (aCasGroupIds.contains(e.getKey())) {
+                    copy.fsAddresses.put(e.getKey(), e.getValue());
+                }
+            }
+            return copy;
+        }
+
         public AID getRepresentativeAID()
         {
             Entry<String, AID> e = fsAddresses.entrySet().iterator().next();
@@ -995,6 +1156,26 @@ public class CasDiff
             casGroupIds = new LinkedHashSet<>(aDiff.cases.keySet());
         }
 
+        /**
+         * Creates a diff result from previously calculated configuration sets, e.g. from sets
+         * which were restricted to a subset of the CAS groups of the original diff.
+         * 
+         * @param aCasGroupIds
+         *            the CAS group IDs.
+         * @param aConfigurationSets
+         *            the configuration sets.
+         */
+        public DiffResult(Collection<String> aCasGroupIds,
+                Collection<ConfigurationSet> aConfigurationSets)
+        {
+            Map<Position, ConfigurationSet> sets = new TreeMap<>();
+            for (ConfigurationSet set : aConfigurationSets) {
+                sets.put(set.getPosition(), set);
+            }
+            data = Collections.unmodifiableMap(sets);
+            casGroupIds = new LinkedHashSet<>(aCasGroupIds);
+        }
+
         public Set<String> getCasGroupIds()
         {
             return casGroupIds;
@@ -34,6 +34,7 @@ import static org.apache.uima.fit.factory.CasFactory.createText;
 import static org.apache.uima.fit.factory.JCasFactory.createJCas;
 import static org.apache.uima.fit.util.JCasUtil.select;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import java.util.ArrayList;
@@ -41,6 +42,7 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.Type;
@@ -456,6 +458,43 @@ public class CasDiffTest
         // assertEquals(1, agreement.getPluralitySets().size());
     }
 
+    @Test
+    public void stackedSpanConfigurationsTest() throws Exception
+    {
+        var cas1 = createText("John");
+        for (var value : asList("PER", "LOC", "PER")) {
+            buildAnnotation(cas1, NamedEntity.class.getName()) //
+                    .at(0, 4) //
+                    .withFeature("value", value) //
+                    .buildAndAddToIndexes();
+        }
+
+        var cas2 = createText("John");
+        for (var value : asList("LOC", "ORG")) {
+            buildAnnotation(cas2, NamedEntity.class.getName()) //
+                    .at(0, 4) //
+                    .withFeature("value", value) //
+                    .buildAndAddToIndexes();
+        }
+
+        var casByUser = Map.of( //
+                "user1", asList(cas1), //
+                "user2", asList(cas2));
+
+        var adapter = new SpanDiffAdapter(NamedEntity.class.getName(), "value");
+
+        DiffResult result = doDiff(asList(adapter), LINK_TARGET_AS_LABEL, casByUser).toResult();
+
+        assertThat(result.size()).isEqualTo(1);
+        var cfgSet = result.getConfigurationSets().iterator().next();
+        assertThat(cfgSet.getConfigurations()) //
+                .extracting(cfg -> cfg.getCasGroupIds(), cfg -> cfg.isStacked()) //
+                .containsExactlyInAnyOrder( //
+                        tuple(Set.of("user1"), true), //
+                        tuple(Set.of("user1", "user2"), false), //
+                        tuple(Set.of("user2"), false));
+    }
+
     @Test
     public void multiValueStringFeatureDifferenceTest() throws Exception
     {
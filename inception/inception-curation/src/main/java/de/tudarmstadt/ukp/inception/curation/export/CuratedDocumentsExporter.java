@@ -25,23 +25,20 @@ import static de.tudarmstadt.ukp.clarin.webanno.support.WebAnnoConst.CURATION_US
 import static java.lang.Math.ceil;
 import static java.util.Arrays.asList;
 import static org.apache.commons.io.FileUtils.forceDelete;
-import static org.apache.commons.io.FileUtils.forceMkdir;
 import static org.apache.commons.io.FilenameUtils.getExtension;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.uima.UIMAException;
@@ -53,6 +50,7 @@ import de.tudarmstadt.ukp.clarin.webanno.api.DocumentImportExportService;
 import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
 import de.tudarmstadt.ukp.clarin.webanno.api.export.FullProjectExportRequest;
 import de.tudarmstadt.ukp.clarin.webanno.api.export.ProjectExportException;
+import de.tudarmstadt.ukp.clarin.webanno.api.export.ProjectExportStage;
 import de.tudarmstadt.ukp.clarin.webanno.api.export.ProjectExportTaskMonitor;
 import de.tudarmstadt.ukp.clarin.webanno.api.export.ProjectExporter;
 import de.tudarmstadt.ukp.clarin.webanno.api.export.ProjectImportRequest;
@@ -74,9 +72,9 @@ import de.tudarmstadt.ukp.inception.documents.exporters.SourceDocumentExporter;
 public class CuratedDocumentsExporter
     implements ProjectExporter
 {
-    private static final String CURATION_FOLDER = "/curation/";
+    private static final String CURATION_FOLDER = "curation/";
     private static final String CURATION_AS_SERIALISED_CAS = "curation_ser";
-    private static final String CURATION_CAS_FOLDER = "/" + CURATION_AS_SERIALISED_CAS + "/";
+    private static final String CURATION_CAS_FOLDER = CURATION_AS_SERIALISED_CAS + "/";
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -107,6 +105,21 @@ public class CuratedDocumentsExporter
     public void exportData(FullProjectExportRequest aRequest, ProjectExportTaskMonitor aMonitor,
             ExportedProject aExProject, File aStage)
         throws Exception
+    {
+        exportCuratedDocumentContents(aRequest, aMonitor, ProjectExportStage.folder(aStage));
+    }
+
+    @Override
+    public void exportData(FullProjectExportRequest aRequest, ProjectExportTaskMonitor aMonitor,
+            ExportedProject aExProject, ZipOutputStream aZip)
+        throws Exception
+    {
+        exportCuratedDocumentContents(aRequest, aMonitor, ProjectExportStage.zip(aZip));
+    }
+
+    private void exportCuratedDocumentContents(FullProjectExportRequest aRequest,
+            ProjectExportTaskMonitor aMonitor, ProjectExportStage aStage)
+        throws Exception
     {
         Project project = aRequest.getProject();
 
@@ -121,13 +134,6 @@ public class CuratedDocumentsExporter
         int i = 1;
         for (SourceDocument sourceDocument : documents) {
             try (CasStorageSession session = CasStorageSession.openNested()) {
-                File curationCasDir = new File(aStage,
-                        CURATION_CAS_FOLDER + sourceDocument.getName());
-                forceMkdir(curationCasDir);
-
-                File curationDir = new File(aStage, CURATION_FOLDER + sourceDocument.getName());
-                forceMkdir(curationDir);
-
                 // If depending on aInProgress, include only the the curation documents that are
                 // finished or also the ones that are in progress
                 if (documentService.existsCas(sourceDocument, CURATION_USER)
@@ -135,7 +141,7 @@ public class CuratedDocumentsExporter
                                 && CURATION_IN_PROGRESS.equals(sourceDocument.getState()))
                         || CURATION_FINISHED.equals(sourceDocument.getState())) {
                     // Copy CAS - this is used when importing the project again
-                    exportSerializedCas(sourceDocument, curationCasDir);
+                    exportSerializedCas(sourceDocument, aStage);
 
                     // Determine which format to use for export
                     if (aRequest.getFormat() != null) {
@@ -154,7 +160,7 @@ public class CuratedDocumentsExporter
                                 });
 
                         // Copy secondary export format for convenience - not used during import
-                        exportAdditionalFormat(bulkOperationContext, sourceDocument, curationDir,
+                        exportAdditionalFormat(bulkOperationContext, sourceDocument, aStage,
                                 format);
                     }
                 }
@@ -165,15 +171,26 @@ public class CuratedDocumentsExporter
     }
 
     private void exportAdditionalFormat(Map<Pair<Project, String>, Object> bulkOperationContext,
-            SourceDocument srcDoc, File curationDir, FormatSupport format)
+            SourceDocument srcDoc, ProjectExportStage aStage, FormatSupport format)
         throws ProjectExportException, IOException, ClassNotFoundException, UIMAException
     {
+        String curationDir = CURATION_FOLDER + srcDoc.getName() + "/";
+
+        if (format.isStreamable()) {
+            var buffer = new ByteArrayOutputStream();
+            importExportService.exportAnnotationDocument(srcDoc, CURATION_USER, format,
+                    CURATION_USER, CURATION, true, bulkOperationContext, buffer);
+            aStage.write(curationDir + CURATION_USER + format.getStreamedFileExtension(),
+                    buffer.toByteArray());
+            return;
+        }
+
         File curationFile = null;
         try {
             curationFile = importExportService.exportAnnotationDocument(srcDoc, CURATION_USER,
                     format, CURATION_USER, CURATION, true, bulkOperationContext);
             var filename = CURATION_USER + "." + getExtension(curationFile.getName());
-            FileUtils.copyFile(curationFile, new File(curationDir, filename));
+            aStage.copy(curationDir + filename, curationFile);
         }
         finally {
             if (curationFile != null) {
@@ -182,13 +199,11 @@ public class CuratedDocumentsExporter
         }
     }
 
-    private void exportSerializedCas(SourceDocument sourceDocument, File curationCasDir)
-        throws IOException, FileNotFoundException
+    private void exportSerializedCas(SourceDocument sourceDocument, ProjectExportStage aStage)
+        throws IOException
     {
-        try (OutputStream os = new FileOutputStream(
-                new File(curationCasDir, CURATION_USER + ".ser"))) {
-            documentService.exportCas(sourceDocument, CURATION_USER, os);
-        }
+        aStage.write(CURATION_CAS_FOLDER + sourceDocument.getName() + "/" + CURATION_USER + ".ser",
+                os -> documentService.exportCas(sourceDocument, CURATION_USER, os));
     }
 
     /**
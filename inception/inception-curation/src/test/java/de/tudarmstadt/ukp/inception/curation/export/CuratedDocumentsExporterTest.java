@@ -97,7 +97,7 @@ public class CuratedDocumentsExporterTest
                 new CasStorageBackupProperties(), new CasStoragePropertiesImpl());
 
         casStorageService = spy(new CasStorageServiceImpl(driver,
-                new CasStorageCachePropertiesImpl(), null, schemaService));
+                new CasStorageCachePropertiesImpl(), null, schemaService, null));
 
         importExportSerivce = new DocumentImportExportServiceImpl(repositoryProperties,
                 asList(new XmiFormatSupport()), casStorageService, schemaService, properties);
@@ -34,7 +34,9 @@ import org.slf4j.LoggerFactory;
 import org.springframework.boot.context.event.ApplicationStartedEvent;
 import org.springframework.context.event.EventListener;
 
+import de.tudarmstadt.ukp.clarin.webanno.diag.checks.AnnotationVisitorCheck;
 import de.tudarmstadt.ukp.clarin.webanno.diag.checks.Check;
+import de.tudarmstadt.ukp.clarin.webanno.diag.checks.FusedCheckRunner;
 import de.tudarmstadt.ukp.clarin.webanno.diag.config.CasDoctorProperties;
 import de.tudarmstadt.ukp.clarin.webanno.diag.repairs.Repair;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
@@ -166,11 +168,18 @@ public class CasDoctor
         long tStart = currentTimeMillis();
 
         boolean ok = true;
+        List<AnnotationVisitorCheck> visitorChecks = new ArrayList<>();
         for (String checkId : activeChecks) {
             try {
                 Check check = checksRegistry.getExtension(checkId).orElseThrow(
                         () -> new NoSuchElementException("Unknown check [" + checkId + "]"));
 
+                // Visitor checks are run together in a single pass over the CAS below
+                if (check instanceof AnnotationVisitorCheck) {
+                    visitorChecks.add((AnnotationVisitorCheck) check);
+                    continue;
+                }
+
                 long tStartTask = currentTimeMillis();
                 LOG.debug("CasDoctor analysis [" + check.getId() + "] running...");
                 ok &= check.check(aProject, aCas, aMessages);
@@ -182,6 +191,10 @@ public class CasDoctor
             }
         }
 
+        if (!visitorChecks.isEmpty()) {
+            ok &= FusedCheckRunner.run(aProject, aCas, visitorChecks, aMessages);
+        }
+
         if (!ok) {
             aMessages.forEach(s -> LOG.error("{}", s));
         }
@@ -18,25 +18,21 @@
 package de.tudarmstadt.ukp.clarin.webanno.diag.checks;
 
 import static org.apache.commons.lang3.StringUtils.abbreviate;
-import static org.apache.uima.fit.util.CasUtil.getType;
-import static org.apache.uima.fit.util.CasUtil.select;
 
 import java.util.ArrayList;
 import java.util.List;
 
-import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.Type;
+import org.apache.uima.cas.TypeSystem;
 import org.apache.uima.cas.text.AnnotationFS;
-import org.springframework.util.CollectionUtils;
 
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
-import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.support.logging.LogMessage;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
 import de.tudarmstadt.ukp.inception.schema.AnnotationSchemaService;
 
 public class AllAnnotationsStartAndEndWithinSentencesCheck
-    implements Check
+    implements AnnotationVisitorCheck
 {
     private final AnnotationSchemaService annotationService;
 
@@ -46,38 +42,50 @@ public class AllAnnotationsStartAndEndWithinSentencesCheck
     }
 
     @Override
-    public boolean check(Project aProject, CAS aCas, List<LogMessage> aMessages)
+    public Visitor createVisitor(CheckContext aContext, List<LogMessage> aMessages)
     {
         if (annotationService == null) {
-            return true;
+            return null;
         }
 
-        List<AnnotationLayer> allAnnoLayers = annotationService.listAnnotationLayer(aProject);
-        allAnnoLayers.removeIf(layer -> Sentence._TypeName.equals(layer.getName()));
-        if (CollectionUtils.isEmpty(allAnnoLayers)) {
-            return true;
-        }
+        List<Type> layerTypes = new ArrayList<>();
+        for (AnnotationLayer layer : aContext.listAnnotationLayers(annotationService)) {
+            if (Sentence._TypeName.equals(layer.getName())) {
+                continue;
+            }
 
-        boolean ok = true;
-        for (AnnotationLayer layer : allAnnoLayers) {
-            Type type;
-            try {
-                type = getType(aCas, layer.getName());
+            // If the type does not exist, the CAS has not been upgraded. In this case, we
+            // can skip checking the layer because there will be no annotations anyway.
+            Type type = aContext.getType(layer.getName());
+            if (type != null) {
+                layerTypes.add(type);
             }
-            catch (IllegalArgumentException e) {
-                // If the type does not exist, the CAS has not been upgraded. In this case, we
-                // can skip checking the layer because there will be no annotations anyway.
-                continue;
+        }
+
+        if (layerTypes.isEmpty()) {
+            return null;
+        }
+
+        TypeSystem ts = aContext.getCas().getTypeSystem();
+
+        return new Visitor()
+        {
+            private boolean ok = true;
+
+            @Override
+            public boolean accepts(Type aType)
+            {
+                return layerTypes.stream().anyMatch(layerType -> ts.subsumes(layerType, aType));
             }
 
-            for (AnnotationFS ann : select(aCas, type)) {
-                var startsOutside = aCas.select(Sentence._TypeName)
-                        .covering(ann.getBegin(), ann.getBegin()).isEmpty();
-                var endsOutside = aCas.select(Sentence._TypeName)
-                        .covering(ann.getEnd(), ann.getEnd()).isEmpty();
+            @Override
+            public void visit(AnnotationFS aAnn)
+            {
+                var startsOutside = !aContext.isCoveredBySentence(aAnn.getBegin());
+                var endsOutside = !aContext.isCoveredBySentence(aAnn.getEnd());
 
                 if (!startsOutside && !endsOutside) {
-                    continue;
+                    return;
                 }
 
                 var outsides = new ArrayList<>();
@@ -88,15 +96,19 @@ public class AllAnnotationsStartAndEndWithinSentencesCheck
                     outsides.add("ends");
                 }
 
-                aMessages.add(LogMessage.error(this, "[%s] [%s]@[%d-%d] %s outside any sentence",
-                        ann.getType().getName(), abbreviate(ann.getCoveredText(), "…", 10),
-                        ann.getBegin(), ann.getEnd(),
-                        String.join(" and ", outsides.toArray(String[]::new))));
+                aMessages.add(LogMessage.error(AllAnnotationsStartAndEndWithinSentencesCheck.this,
+                        "[%s] [%s]@[%d-%d] %s outside any sentence", aAnn.getType().getName(),
+                        abbreviate(aAnn.getCoveredText(), "…", 10), aAnn.getBegin(),
+                        aAnn.getEnd(), String.join(" and ", outsides.toArray(String[]::new))));
 
                 ok = false;
             }
-        }
 
-        return ok;
+            @Override
+            public boolean finish()
+            {
+                return ok;
+            }
+        };
     }
 }
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.diag.checks;
+
+import static java.util.Collections.singletonList;
+
+import java.util.List;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.text.AnnotationFS;
+
+import de.tudarmstadt.ukp.clarin.webanno.diag.CasDoctor;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.support.logging.LogMessage;
+
+/**
+ * A {@link Check} which inspects the annotations of a CAS one at a time. The {@link CasDoctor}
+ * feeds all active visitor checks from a single shared pass over the annotation index instead of
+ * having each of them iterate over the CAS on its own.
+ */
+public interface AnnotationVisitorCheck
+    extends Check
+{
+    /**
+     * Prepares the check for a pass over the CAS in the given context.
+     * 
+     * @param aContext
+     *            the context providing the CAS and data shared between the checks.
+     * @param aMessages
+     *            the list to which messages are added.
+     * @return the visitor receiving the annotations or {@code null} if there is nothing to check.
+     */
+    Visitor createVisitor(CheckContext aContext, List<LogMessage> aMessages);
+
+    @Override
+    default boolean check(Project aProject, CAS aCas, List<LogMessage> aMessages)
+    {
+        return FusedCheckRunner.run(aProject, aCas, singletonList(this), aMessages);
+    }
+
+    interface Visitor
+    {
+        /**
+         * @param aType
+         *            a type occurring in the CAS.
+         * @return whether annotations of the given type need to be visited. This is called at most
+         *         once per type and pass.
+         */
+        boolean accepts(Type aType);
+
+        /**
+         * @param aAnnotation
+         *            an annotation of an accepted type. Annotations are visited in annotation
+         *            index order.
+         */
+        void visit(AnnotationFS aAnnotation);
+
+        /**
+         * @return whether the check passed after all annotations have been visited.
+         */
+        boolean finish();
+    }
+}
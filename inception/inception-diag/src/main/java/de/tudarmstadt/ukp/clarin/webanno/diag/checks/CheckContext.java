@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.diag.checks;
+
+import static java.util.Collections.unmodifiableList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Type;
+import org.apache.uima.jcas.tcas.Annotation;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+import de.tudarmstadt.ukp.inception.schema.AnnotationSchemaService;
+
+/**
+ * Data shared by the {@link AnnotationVisitorCheck visitor checks} during a single pass over a
+ * CAS. Everything is computed lazily on first access and at most once per pass.
+ */
+public class CheckContext
+{
+    private final Project project;
+    private final CAS cas;
+
+    private List<AnnotationLayer> layers;
+
+    // Sentence begins in index order and the maximum sentence end up to each position - this
+    // allows locating a covering sentence by binary search even if sentences overlap
+    private int[] sentenceBegins;
+    private int[] sentenceMaxEnds;
+
+    public CheckContext(Project aProject, CAS aCas)
+    {
+        project = aProject;
+        cas = aCas;
+    }
+
+    public Project getProject()
+    {
+        return project;
+    }
+
+    public CAS getCas()
+    {
+        return cas;
+    }
+
+    /**
+     * @param aAnnotationService
+     *            the schema service used to load the layers on first access.
+     * @return the layers of the project.
+     */
+    public List<AnnotationLayer> listAnnotationLayers(AnnotationSchemaService aAnnotationService)
+    {
+        if (layers == null) {
+            layers = unmodifiableList(
+                    new ArrayList<>(aAnnotationService.listAnnotationLayer(project)));
+        }
+
+        return layers;
+    }
+
+    /**
+     * @param aTypeName
+     *            a type name.
+     * @return the type or {@code null} if the type does not exist in the CAS, e.g. because the CAS
+     *         has not been upgraded yet.
+     */
+    public Type getType(String aTypeName)
+    {
+        return cas.getTypeSystem().getType(aTypeName);
+    }
+
+    /**
+     * @param aOffset
+     *            a character offset.
+     * @return whether there is a sentence covering the given offset (inclusive of the sentence
+     *         boundaries).
+     */
+    public boolean isCoveredBySentence(int aOffset)
+    {
+        if (sentenceBegins == null) {
+            indexSentences();
+        }
+
+        int idx = Arrays.binarySearch(sentenceBegins, aOffset);
+        if (idx < 0) {
+            idx = -idx - 2;
+        }
+        else {
+            // Move to the last sentence starting at the offset
+            while (idx + 1 < sentenceBegins.length && sentenceBegins[idx + 1] == aOffset) {
+                idx++;
+            }
+        }
+
+        return idx >= 0 && sentenceMaxEnds[idx] >= aOffset;
+    }
+
+    private void indexSentences()
+    {
+        List<Annotation> sentences = cas.<Annotation> select(Sentence._TypeName).asList();
+        sentenceBegins = new int[sentences.size()];
+        sentenceMaxEnds = new int[sentences.size()];
+        int maxEnd = Integer.MIN_VALUE;
+        for (int i = 0; i < sentences.size(); i++) {
+            Annotation sentence = sentences.get(i);
+            maxEnd = Math.max(maxEnd, sentence.getEnd());
+            sentenceBegins[i] = sentence.getBegin();
+            sentenceMaxEnds[i] = maxEnd;
+        }
+    }
+}
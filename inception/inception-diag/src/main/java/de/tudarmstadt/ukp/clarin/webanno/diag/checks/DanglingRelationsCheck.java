@@ -21,15 +21,15 @@ import static de.tudarmstadt.ukp.clarin.webanno.support.WebAnnoConst.FEAT_REL_SO
 import static de.tudarmstadt.ukp.clarin.webanno.support.WebAnnoConst.FEAT_REL_TARGET;
 import static de.tudarmstadt.ukp.clarin.webanno.support.logging.LogLevel.INFO;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.Feature;
 import org.apache.uima.cas.FeatureStructure;
 import org.apache.uima.cas.Type;
 import org.apache.uima.cas.text.AnnotationFS;
 
-import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.support.logging.LogMessage;
 import de.tudarmstadt.ukp.clarin.webanno.support.uima.ICasUtil;
 import de.tudarmstadt.ukp.inception.annotation.layer.relation.RelationAdapter;
@@ -40,7 +40,7 @@ import de.tudarmstadt.ukp.inception.schema.AnnotationSchemaService;
  * referring to non-indexed end-points are handled by {@link AllFeatureStructuresIndexedCheck}.
  */
 public class DanglingRelationsCheck
-    implements Check
+    implements AnnotationVisitorCheck
 {
     private final AnnotationSchemaService annotationService;
 
@@ -50,64 +50,80 @@ public class DanglingRelationsCheck
     }
 
     @Override
-    public boolean check(Project aProject, CAS aCas, List<LogMessage> aMessages)
+    public Visitor createVisitor(CheckContext aContext, List<LogMessage> aMessages)
     {
-        boolean ok = true;
-
-        for (AnnotationFS fs : aCas.getAnnotationIndex()) {
-            Type t = fs.getType();
-
-            Feature sourceFeat = t.getFeatureByBaseName(FEAT_REL_SOURCE);
-            Feature targetFeat = t.getFeatureByBaseName(FEAT_REL_TARGET);
-
-            // Is this a relation?
-            if (!(sourceFeat != null && targetFeat != null)) {
-                continue;
+        return new Visitor()
+        {
+            // The adapter only depends on the type, so we look it up once per type
+            private final Map<Type, RelationAdapter> adapters = new HashMap<>();
+            private boolean ok = true;
+
+            @Override
+            public boolean accepts(Type aType)
+            {
+                // Is this a relation?
+                return aType.getFeatureByBaseName(FEAT_REL_SOURCE) != null
+                        && aType.getFeatureByBaseName(FEAT_REL_TARGET) != null;
             }
 
-            RelationAdapter relationAdapter = (RelationAdapter) annotationService
-                    .findAdapter(aProject, fs);
+            @Override
+            public void visit(AnnotationFS aFs)
+            {
+                Type t = aFs.getType();
 
-            Feature relationSourceAttachFeature = null;
-            Feature relationTargetAttachFeature = null;
-            if (relationAdapter.getAttachFeatureName() != null) {
-                relationSourceAttachFeature = sourceFeat.getRange()
-                        .getFeatureByBaseName(relationAdapter.getAttachFeatureName());
-                relationTargetAttachFeature = targetFeat.getRange()
-                        .getFeatureByBaseName(relationAdapter.getAttachFeatureName());
-            }
+                Feature sourceFeat = t.getFeatureByBaseName(FEAT_REL_SOURCE);
+                Feature targetFeat = t.getFeatureByBaseName(FEAT_REL_TARGET);
 
-            FeatureStructure source = fs.getFeatureValue(sourceFeat);
-            FeatureStructure target = fs.getFeatureValue(targetFeat);
+                RelationAdapter relationAdapter = adapters.computeIfAbsent(t,
+                        _type -> (RelationAdapter) annotationService
+                                .findAdapter(aContext.getProject(), aFs));
 
-            // Here we get the annotations that the relation is pointing to in the UI
-            if (source != null && relationSourceAttachFeature != null) {
-                source = (AnnotationFS) source.getFeatureValue(relationSourceAttachFeature);
-            }
+                Feature relationSourceAttachFeature = null;
+                Feature relationTargetAttachFeature = null;
+                if (relationAdapter.getAttachFeatureName() != null) {
+                    relationSourceAttachFeature = sourceFeat.getRange()
+                            .getFeatureByBaseName(relationAdapter.getAttachFeatureName());
+                    relationTargetAttachFeature = targetFeat.getRange()
+                            .getFeatureByBaseName(relationAdapter.getAttachFeatureName());
+                }
 
-            if (target != null && relationTargetAttachFeature != null) {
-                target = (AnnotationFS) target.getFeatureValue(relationTargetAttachFeature);
-            }
+                FeatureStructure source = aFs.getFeatureValue(sourceFeat);
+                FeatureStructure target = aFs.getFeatureValue(targetFeat);
 
-            // Does it have null endpoints?
-            if (source == null || target == null) {
-                StringBuilder message = new StringBuilder();
+                // Here we get the annotations that the relation is pointing to in the UI
+                if (source != null && relationSourceAttachFeature != null) {
+                    source = (AnnotationFS) source.getFeatureValue(relationSourceAttachFeature);
+                }
 
-                message.append("Relation [" + relationAdapter.getLayer().getName() + "] with id ["
-                        + ICasUtil.getAddr(fs) + "] has loose ends.");
-                if (relationAdapter.getAttachFeatureName() != null) {
-                    message.append("\nRelation [" + relationAdapter.getLayer().getName()
-                            + "] attached to feature [" + relationAdapter.getAttachFeatureName()
-                            + "].");
+                if (target != null && relationTargetAttachFeature != null) {
+                    target = (AnnotationFS) target.getFeatureValue(relationTargetAttachFeature);
                 }
-                message.append("\nSource: " + source);
-                message.append("\nTarget: " + target);
 
-                aMessages.add(new LogMessage(this, INFO, "%s", message));
-                ok = false;
+                // Does it have null endpoints?
+                if (source == null || target == null) {
+                    StringBuilder message = new StringBuilder();
+
+                    message.append("Relation [" + relationAdapter.getLayer().getName()
+                            + "] with id [" + ICasUtil.getAddr(aFs) + "] has loose ends.");
+                    if (relationAdapter.getAttachFeatureName() != null) {
+                        message.append("\nRelation [" + relationAdapter.getLayer().getName()
+                                + "] attached to feature ["
+                                + relationAdapter.getAttachFeatureName() + "].");
+                    }
+                    message.append("\nSource: " + source);
+                    message.append("\nTarget: " + target);
+
+                    aMessages.add(
+                            new LogMessage(DanglingRelationsCheck.this, INFO, "%s", message));
+                    ok = false;
+                }
             }
-        }
 
-        return ok;
+            @Override
+            public boolean finish()
+            {
+                return ok;
+            }
+        };
     }
 }
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.diag.checks;
+
+import static java.lang.System.currentTimeMillis;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.support.logging.LogMessage;
+
+/**
+ * Runs several {@link AnnotationVisitorCheck visitor checks} in a single pass over the annotation
+ * index of a CAS. Each annotation is only handed to the visitors that accept its type.
+ */
+public final class FusedCheckRunner
+{
+    private static final Logger LOG = LoggerFactory.getLogger(FusedCheckRunner.class);
+
+    private FusedCheckRunner()
+    {
+        // No instances
+    }
+
+    public static boolean run(Project aProject, CAS aCas,
+            List<? extends AnnotationVisitorCheck> aChecks, List<LogMessage> aMessages)
+    {
+        long tStart = currentTimeMillis();
+
+        CheckContext context = new CheckContext(aProject, aCas);
+
+        List<Participant> participants = new ArrayList<>();
+        for (AnnotationVisitorCheck check : aChecks) {
+            try {
+                AnnotationVisitorCheck.Visitor visitor = check.createVisitor(context, aMessages);
+                if (visitor != null) {
+                    participants.add(new Participant(check, visitor));
+                }
+            }
+            catch (Exception e) {
+                LOG.error("Cannot apply check [" + check.getId() + "]", e);
+            }
+        }
+
+        Map<Type, List<Participant>> participantsByType = new HashMap<>();
+        for (AnnotationFS ann : aCas.getAnnotationIndex()) {
+            List<Participant> interested = participantsByType.computeIfAbsent(ann.getType(),
+                    type -> participantsAccepting(participants, type));
+            for (Participant participant : interested) {
+                if (participant.failed) {
+                    continue;
+                }
+
+                try {
+                    participant.visitor.visit(ann);
+                }
+                catch (Exception e) {
+                    LOG.error("Cannot apply check [" + participant.check.getId() + "]", e);
+                    participant.failed = true;
+                }
+            }
+        }
+
+        boolean ok = true;
+        for (Participant participant : participants) {
+            if (participant.failed) {
+                continue;
+            }
+
+            try {
+                ok &= participant.visitor.finish();
+            }
+            catch (Exception e) {
+                LOG.error("Cannot apply check [" + participant.check.getId() + "]", e);
+            }
+        }
+
+        LOG.debug("CasDoctor fused analysis of {} checks completed in {}ms", participants.size(),
+                currentTimeMillis() - tStart);
+
+        return ok;
+    }
+
+    private static List<Participant> participantsAccepting(List<Participant> aParticipants,
+            Type aType)
+    {
+        List<Participant> result = new ArrayList<>();
+        for (Participant participant : aParticipants) {
+            try {
+                if (participant.visitor.accepts(aType)) {
+                    result.add(participant);
+                }
+            }
+            catch (Exception e) {
+                LOG.error("Cannot apply check [" + participant.check.getId() + "]", e);
+                participant.failed = true;
+            }
+        }
+        return result;
+    }
+
+    private static class Participant
+    {
+        private final AnnotationVisitorCheck check;
+        private final AnnotationVisitorCheck.Visitor visitor;
+        private boolean failed;
+
+        Participant(AnnotationVisitorCheck aCheck, AnnotationVisitorCheck.Visitor aVisitor)
+        {
+            check = aCheck;
+            visitor = aVisitor;
+        }
+    }
+}
@@ -21,28 +21,43 @@ import static de.tudarmstadt.ukp.clarin.webanno.support.logging.LogMessage.error
 
 import java.util.List;
 
-import org.apache.uima.cas.CAS;
-import org.apache.uima.jcas.tcas.Annotation;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.text.AnnotationFS;
 
-import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.support.logging.LogMessage;
 
 public class NegativeSizeAnnotationsCheck
-    implements Check
+    implements AnnotationVisitorCheck
 {
     @Override
-    public boolean check(Project aProject, CAS aCas, List<LogMessage> aMessages)
+    public Visitor createVisitor(CheckContext aContext, List<LogMessage> aMessages)
     {
-        boolean ok = true;
+        return new Visitor()
+        {
+            private boolean ok = true;
 
-        for (Annotation ann : aCas.select(Annotation.class)) {
-            if (ann.getBegin() > ann.getEnd()) {
-                aMessages.add(error(this, "[%s] at [%d-%d] has negative size (starts after ending)",
-                        ann.getType().getName(), ann.getBegin(), ann.getEnd()));
-                ok = false;
+            @Override
+            public boolean accepts(Type aType)
+            {
+                return true;
             }
-        }
 
-        return ok;
+            @Override
+            public void visit(AnnotationFS aAnn)
+            {
+                if (aAnn.getBegin() > aAnn.getEnd()) {
+                    aMessages.add(error(NegativeSizeAnnotationsCheck.this,
+                            "[%s] at [%d-%d] has negative size (starts after ending)",
+                            aAnn.getType().getName(), aAnn.getBegin(), aAnn.getEnd()));
+                    ok = false;
+                }
+            }
+
+            @Override
+            public boolean finish()
+            {
+                return ok;
+            }
+        };
     }
 }
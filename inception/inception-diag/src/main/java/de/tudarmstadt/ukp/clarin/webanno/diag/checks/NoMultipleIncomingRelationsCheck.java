@@ -20,29 +20,26 @@ package de.tudarmstadt.ukp.clarin.webanno.diag.checks;
 import static de.tudarmstadt.ukp.clarin.webanno.support.WebAnnoConst.FEAT_REL_SOURCE;
 import static de.tudarmstadt.ukp.clarin.webanno.support.WebAnnoConst.FEAT_REL_TARGET;
 import static de.tudarmstadt.ukp.clarin.webanno.support.WebAnnoConst.RELATION_TYPE;
-import static org.apache.uima.fit.util.CasUtil.getType;
-import static org.apache.uima.fit.util.CasUtil.select;
 import static org.apache.uima.fit.util.FSUtil.getFeature;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
-import org.apache.commons.collections4.CollectionUtils;
-import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.Type;
+import org.apache.uima.cas.TypeSystem;
 import org.apache.uima.cas.text.AnnotationFS;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.util.WebAnnoCasUtil;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
-import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.support.logging.LogMessage;
 import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.dependency.Dependency;
 import de.tudarmstadt.ukp.inception.schema.AnnotationSchemaService;
 
 public class NoMultipleIncomingRelationsCheck
-    implements Check
+    implements AnnotationVisitorCheck
 {
     private final AnnotationSchemaService annotationService;
 
@@ -52,20 +49,14 @@ public class NoMultipleIncomingRelationsCheck
     }
 
     @Override
-    public boolean check(Project aProject, CAS aCas, List<LogMessage> aMessages)
+    public Visitor createVisitor(CheckContext aContext, List<LogMessage> aMessages)
     {
         if (annotationService == null) {
-            return true;
+            return null;
         }
 
-        List<AnnotationLayer> allAnnoLayers = annotationService.listAnnotationLayer(aProject);
-        if (CollectionUtils.isEmpty(allAnnoLayers)) {
-            return true;
-        }
-
-        boolean ok = true;
-        for (AnnotationLayer layer : allAnnoLayers) {
-
+        List<Type> relationTypes = new ArrayList<>();
+        for (AnnotationLayer layer : aContext.listAnnotationLayers(annotationService)) {
             if (!RELATION_TYPE.equals(layer.getType())) {
                 continue;
             }
@@ -74,67 +65,81 @@ public class NoMultipleIncomingRelationsCheck
                 continue;
             }
 
-            Type type;
-            try {
-                type = getType(aCas, layer.getName());
-            }
-            catch (IllegalArgumentException e) {
-                // If the type does not exist, the CAS has not been upgraded. In this case, we
-                // can skip checking the layer because there will be no annotations anyway.
-                continue;
+            // If the type does not exist, the CAS has not been upgraded. In this case, we
+            // can skip checking the layer because there will be no annotations anyway.
+            Type type = aContext.getType(layer.getName());
+            if (type != null) {
+                relationTypes.add(type);
             }
+        }
+
+        if (relationTypes.isEmpty()) {
+            return null;
+        }
 
+        TypeSystem ts = aContext.getCas().getTypeSystem();
+
+        return new Visitor()
+        {
             // Remember all nodes that already have a known incoming relation.
             // Map from the target to the existing source, so the source can be used
             // to provide a better debugging output.
-            Map<AnnotationFS, AnnotationFS> incoming = new HashMap<>();
+            private final Map<AnnotationFS, AnnotationFS> incoming = new HashMap<>();
 
-            for (AnnotationFS rel : select(aCas, type)) {
+            @Override
+            public boolean accepts(Type aType)
+            {
+                return relationTypes.stream().anyMatch(relType -> ts.subsumes(relType, aType));
+            }
 
-                AnnotationFS source = getFeature(rel, FEAT_REL_SOURCE, AnnotationFS.class);
-                AnnotationFS target = getFeature(rel, FEAT_REL_TARGET, AnnotationFS.class);
+            @Override
+            public void visit(AnnotationFS aRel)
+            {
+                AnnotationFS source = getFeature(aRel, FEAT_REL_SOURCE, AnnotationFS.class);
+                AnnotationFS target = getFeature(aRel, FEAT_REL_TARGET, AnnotationFS.class);
 
                 AnnotationFS existingSource = incoming.get(target);
-                if (existingSource != null) {
-
-                    // Debug output should include sentence number to make the orientation
-                    // easier
-                    Optional<Integer> sentenceNumber = Optional.empty();
-                    try {
-                        sentenceNumber = Optional.of(WebAnnoCasUtil
-                                .getSentenceNumber(target.getCAS(), target.getBegin()));
-                    }
-                    catch (IndexOutOfBoundsException e) {
-                        // ignore this error and don't output sentence number
-                        sentenceNumber = Optional.empty();
-                    }
-
-                    if (sentenceNumber.isPresent()) {
-                        aMessages.add(LogMessage.warn(this,
-                                "Sentence %d: Relation [%s] -> [%s] points to span that already has an "
-                                        + "incoming relation [%s] -> [%s].",
-                                sentenceNumber.get(), source.getCoveredText(),
-                                target.getCoveredText(), existingSource.getCoveredText(),
-                                target.getCoveredText()));
-                    }
-                    else {
-
-                        aMessages.add(LogMessage.warn(this,
-                                "Relation [%s] -> [%s] points to span that already has an "
-                                        + "incoming relation [%s] -> [%s].",
-                                source.getCoveredText(), target.getCoveredText(),
-                                existingSource.getCoveredText(), target.getCoveredText()));
-                    }
-
-                    // This check only logs warnings - it should not fail. Having multiple
-                    // incoming edges is not a serious problem.
-                    // ok = false;
+                if (existingSource == null) {
+                    incoming.put(target, source);
+                    return;
+                }
+
+                // Debug output should include sentence number to make the orientation
+                // easier
+                Optional<Integer> sentenceNumber = Optional.empty();
+                try {
+                    sentenceNumber = Optional.of(
+                            WebAnnoCasUtil.getSentenceNumber(target.getCAS(), target.getBegin()));
+                }
+                catch (IndexOutOfBoundsException e) {
+                    // ignore this error and don't output sentence number
+                    sentenceNumber = Optional.empty();
+                }
+
+                if (sentenceNumber.isPresent()) {
+                    aMessages.add(LogMessage.warn(NoMultipleIncomingRelationsCheck.this,
+                            "Sentence %d: Relation [%s] -> [%s] points to span that already has an "
+                                    + "incoming relation [%s] -> [%s].",
+                            sentenceNumber.get(), source.getCoveredText(),
+                            target.getCoveredText(), existingSource.getCoveredText(),
+                            target.getCoveredText()));
                 }
                 else {
-                    incoming.put(target, source);
+                    aMessages.add(LogMessage.warn(NoMultipleIncomingRelationsCheck.this,
+                            "Relation [%s] -> [%s] points to span that already has an "
+                                    + "incoming relation [%s] -> [%s].",
+                            source.getCoveredText(), target.getCoveredText(),
+                            existingSource.getCoveredText(), target.getCoveredText()));
                 }
             }
-        }
-        return ok;
+
+            @Override
+            public boolean finish()
+            {
+                // This check only logs warnings - it should not fail. Having multiple
+                // incoming edges is not a serious problem.
+                return true;
+            }
+        };
     }
 }
@@ -17,42 +17,58 @@
  */
 package de.tudarmstadt.ukp.clarin.webanno.diag.checks;
 
-import static de.tudarmstadt.ukp.clarin.webanno.api.annotation.util.WebAnnoCasUtil.selectSentences;
-import static de.tudarmstadt.ukp.clarin.webanno.api.annotation.util.WebAnnoCasUtil.selectTokens;
-
 import java.util.List;
 
-import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.TypeSystem;
 import org.apache.uima.cas.text.AnnotationFS;
 
-import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.support.logging.LogLevel;
 import de.tudarmstadt.ukp.clarin.webanno.support.logging.LogMessage;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 
 public class NoZeroSizeTokensAndSentencesCheck
-    implements Check
+    implements AnnotationVisitorCheck
 {
     @Override
-    public boolean check(Project aProject, CAS aCas, List<LogMessage> aMessages)
+    public Visitor createVisitor(CheckContext aContext, List<LogMessage> aMessages)
     {
-        boolean ok = true;
+        TypeSystem ts = aContext.getCas().getTypeSystem();
+        Type tokenType = aContext.getType(Token._TypeName);
+        Type sentenceType = aContext.getType(Sentence._TypeName);
 
-        for (AnnotationFS t : selectTokens(aCas)) {
-            if (t.getBegin() >= t.getEnd()) {
-                aMessages.add(
-                        new LogMessage(this, LogLevel.ERROR, "Token with illegal span: %s", t));
-                ok = false;
+        return new Visitor()
+        {
+            private boolean ok = true;
+
+            @Override
+            public boolean accepts(Type aType)
+            {
+                return (tokenType != null && ts.subsumes(tokenType, aType))
+                        || (sentenceType != null && ts.subsumes(sentenceType, aType));
             }
-        }
 
-        for (AnnotationFS s : selectSentences(aCas)) {
-            if (s.getBegin() >= s.getEnd()) {
-                aMessages.add(
-                        new LogMessage(this, LogLevel.ERROR, "Sentence with illegal span: %s", s));
+            @Override
+            public void visit(AnnotationFS aAnn)
+            {
+                if (aAnn.getBegin() < aAnn.getEnd()) {
+                    return;
+                }
+
+                String kind = tokenType != null && ts.subsumes(tokenType, aAnn.getType())
+                        ? "Token"
+                        : "Sentence";
+                aMessages.add(new LogMessage(NoZeroSizeTokensAndSentencesCheck.this,
+                        LogLevel.ERROR, "%s with illegal span: %s", kind, aAnn));
                 ok = false;
             }
-        }
 
-        return ok;
+            @Override
+            public boolean finish()
+            {
+                return ok;
+            }
+        };
     }
 }
@@ -18,18 +18,16 @@
 package de.tudarmstadt.ukp.clarin.webanno.diag.checks;
 
 import static de.tudarmstadt.ukp.clarin.webanno.support.WebAnnoConst.RELATION_TYPE;
-import static org.apache.uima.fit.util.CasUtil.getType;
-import static org.apache.uima.fit.util.CasUtil.select;
 import static org.apache.uima.fit.util.FSUtil.getFeature;
 
+import java.util.ArrayList;
 import java.util.List;
 
-import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.Type;
+import org.apache.uima.cas.TypeSystem;
 import org.apache.uima.cas.text.AnnotationFS;
 
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
-import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.support.WebAnnoConst;
 import de.tudarmstadt.ukp.clarin.webanno.support.logging.LogLevel;
 import de.tudarmstadt.ukp.clarin.webanno.support.logging.LogMessage;
@@ -41,7 +39,7 @@ import de.tudarmstadt.ukp.inception.schema.AnnotationSchemaService;
  * dependent.
  */
 public class RelationOffsetsCheck
-    implements Check
+    implements AnnotationVisitorCheck
 {
     private final AnnotationSchemaService annotationService;
 
@@ -51,37 +49,56 @@ public class RelationOffsetsCheck
     }
 
     @Override
-    public boolean check(Project aProject, CAS aCas, List<LogMessage> aMessages)
+    public Visitor createVisitor(CheckContext aContext, List<LogMessage> aMessages)
     {
-        boolean ok = true;
-
-        for (AnnotationLayer layer : annotationService.listAnnotationLayer(aProject)) {
+        List<Type> relationTypes = new ArrayList<>();
+        for (AnnotationLayer layer : aContext.listAnnotationLayers(annotationService)) {
             if (!RELATION_TYPE.equals(layer.getType())) {
                 continue;
             }
 
-            Type type;
-            try {
-                type = getType(aCas, layer.getName());
+            // If the type does not exist, the CAS has not been upgraded. In this case, we
+            // can skip checking the layer because there will be no annotations anyway.
+            Type type = aContext.getType(layer.getName());
+            if (type != null) {
+                relationTypes.add(type);
             }
-            catch (IllegalArgumentException e) {
-                // If the type does not exist, the CAS has not been upgraded. In this case, we
-                // can skip checking the layer because there will be no annotations anyway.
-                continue;
+        }
+
+        if (relationTypes.isEmpty()) {
+            return null;
+        }
+
+        TypeSystem ts = aContext.getCas().getTypeSystem();
+
+        return new Visitor()
+        {
+            private boolean ok = true;
+
+            @Override
+            public boolean accepts(Type aType)
+            {
+                return relationTypes.stream().anyMatch(relType -> ts.subsumes(relType, aType));
             }
 
-            for (AnnotationFS rel : select(aCas, type)) {
-                AnnotationFS target = getFeature(rel, WebAnnoConst.FEAT_REL_TARGET,
+            @Override
+            public void visit(AnnotationFS aRel)
+            {
+                AnnotationFS target = getFeature(aRel, WebAnnoConst.FEAT_REL_TARGET,
                         AnnotationFS.class);
-                if ((rel.getBegin() != target.getBegin()) || (rel.getEnd() != target.getEnd())) {
-                    aMessages.add(new LogMessage(this, LogLevel.ERROR,
+                if ((aRel.getBegin() != target.getBegin()) || (aRel.getEnd() != target.getEnd())) {
+                    aMessages.add(new LogMessage(RelationOffsetsCheck.this, LogLevel.ERROR,
                             "Relation offsets [%d,%d] to not match target offsets [%d,%d]",
-                            rel.getBegin(), rel.getEnd(), target.getBegin(), target.getEnd()));
+                            aRel.getBegin(), aRel.getEnd(), target.getBegin(), target.getEnd()));
                     ok = false;
                 }
             }
-        }
 
-        return ok;
+            @Override
+            public boolean finish()
+            {
+                return ok;
+            }
+        };
     }
 }
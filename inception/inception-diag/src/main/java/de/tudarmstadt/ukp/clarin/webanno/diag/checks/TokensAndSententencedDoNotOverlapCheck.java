@@ -20,62 +20,103 @@ package de.tudarmstadt.ukp.clarin.webanno.diag.checks;
 import static org.apache.commons.lang3.StringUtils.abbreviate;
 import static org.apache.commons.lang3.StringUtils.abbreviateMiddle;
 
+import java.util.ArrayList;
 import java.util.List;
 
-import org.apache.uima.cas.CAS;
-import org.apache.uima.jcas.tcas.Annotation;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.cas.text.AnnotationFS;
 
-import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.support.logging.LogMessage;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 
 public class TokensAndSententencedDoNotOverlapCheck
-    implements Check
+    implements AnnotationVisitorCheck
 {
     @Override
-    public boolean check(Project aProject, CAS aCas, List<LogMessage> aMessages)
+    public Visitor createVisitor(CheckContext aContext, List<LogMessage> aMessages)
     {
-        return checkTokens(aCas, aMessages) && checkSentences(aCas, aMessages);
-    }
+        TypeSystem ts = aContext.getCas().getTypeSystem();
+        Type tokenType = aContext.getType(Token._TypeName);
+        Type sentenceType = aContext.getType(Sentence._TypeName);
 
-    private boolean checkTokens(CAS aCas, List<LogMessage> aMessages)
-    {
-        boolean ok = true;
-        var tokenIter = aCas.<Annotation> select(Token._TypeName).iterator();
-        Annotation prevToken = null;
-        while (tokenIter.hasNext()) {
-            var token = tokenIter.next();
-            if (prevToken != null && token.getBegin() < prevToken.getEnd()) {
-                aMessages.add(LogMessage.error(this,
-                        "Token [%s]@[%d-%d] overlaps with previous token [%s]@[%d-%d]",
-                        abbreviate(token.getCoveredText(), "…", 10), token.getBegin(),
-                        token.getEnd(), abbreviate(prevToken.getCoveredText(), "…", 10),
-                        prevToken.getBegin(), prevToken.getEnd()));
-                ok = false;
+        return new Visitor()
+        {
+            private AnnotationFS prevToken;
+            private AnnotationFS prevSentence;
+            private boolean tokensOk = true;
+            private boolean sentencesOk = true;
+            // Sentences are only reported if the tokens are fine, so their messages are held back
+            // until the end of the pass
+            private final List<LogMessage> sentenceMessages = new ArrayList<>();
+
+            @Override
+            public boolean accepts(Type aType)
+            {
+                return isToken(aType) || isSentence(aType);
             }
-            prevToken = token;
-        }
-        return ok;
-    }
 
-    private boolean checkSentences(CAS aCas, List<LogMessage> aMessages)
-    {
-        boolean ok = true;
-        var sentenceIter = aCas.<Annotation> select(Sentence._TypeName).iterator();
-        Annotation prevSentence = null;
-        while (sentenceIter.hasNext()) {
-            var sentence = sentenceIter.next();
-            if (prevSentence != null && sentence.getBegin() < prevSentence.getEnd()) {
-                aMessages.add(LogMessage.error(this,
-                        "Sentence [%s]@[%d-%d] overlaps with previous sentence at [%s]@[%d-%d]",
-                        abbreviateMiddle(sentence.getCoveredText(), "…", 10), sentence.getBegin(),
-                        sentence.getEnd(), abbreviateMiddle(prevSentence.getCoveredText(), "…", 10),
-                        prevSentence.getBegin(), prevSentence.getEnd()));
-                ok = false;
+            @Override
+            public void visit(AnnotationFS aAnn)
+            {
+                if (isToken(aAnn.getType())) {
+                    checkToken(aAnn);
+                }
+
+                if (isSentence(aAnn.getType())) {
+                    checkSentence(aAnn);
+                }
+            }
+
+            @Override
+            public boolean finish()
+            {
+                if (!tokensOk) {
+                    return false;
+                }
+
+                aMessages.addAll(sentenceMessages);
+                return sentencesOk;
+            }
+
+            private boolean isToken(Type aType)
+            {
+                return tokenType != null && ts.subsumes(tokenType, aType);
+            }
+
+            private boolean isSentence(Type aType)
+            {
+                return sentenceType != null && ts.subsumes(sentenceType, aType);
+            }
+
+            private void checkToken(AnnotationFS aToken)
+            {
+                if (prevToken != null && aToken.getBegin() < prevToken.getEnd()) {
+                    aMessages.add(LogMessage.error(TokensAndSententencedDoNotOverlapCheck.this,
+                            "Token [%s]@[%d-%d] overlaps with previous token [%s]@[%d-%d]",
+                            abbreviate(aToken.getCoveredText(), "…", 10), aToken.getBegin(),
+                            aToken.getEnd(), abbreviate(prevToken.getCoveredText(), "…", 10),
+                            prevToken.getBegin(), prevToken.getEnd()));
+                    tokensOk = false;
+                }
+                prevToken = aToken;
+            }
+
+            private void checkSentence(AnnotationFS aSentence)
+            {
+                if (prevSentence != null && aSentence.getBegin() < prevSentence.getEnd()) {
+                    sentenceMessages.add(LogMessage.error(
+                            TokensAndSententencedDoNotOverlapCheck.this,
+                            "Sentence [%s]@[%d-%d] overlaps with previous sentence at [%s]@[%d-%d]",
+                            abbreviateMiddle(aSentence.getCoveredText(), "…", 10),
+                            aSentence.getBegin(), aSentence.getEnd(),
+                            abbreviateMiddle(prevSentence.getCoveredText(), "…", 10),
+                            prevSentence.getBegin(), prevSentence.getEnd()));
+                    sentencesOk = false;
+                }
+                prevSentence = aSentence;
             }
-            prevSentence = sentence;
-        }
-        return ok;
+        };
     }
 }
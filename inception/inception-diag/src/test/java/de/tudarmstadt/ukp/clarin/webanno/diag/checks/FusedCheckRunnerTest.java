@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.diag.checks;
+
+import static de.tudarmstadt.ukp.clarin.webanno.support.WebAnnoConst.RELATION_TYPE;
+import static de.tudarmstadt.ukp.clarin.webanno.support.WebAnnoConst.SPAN_TYPE;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.support.logging.LogMessage;
+import de.tudarmstadt.ukp.clarin.webanno.support.uima.ICasUtil;
+import de.tudarmstadt.ukp.dkpro.core.api.ner.type.NamedEntity;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.dependency.Dependency;
+import de.tudarmstadt.ukp.inception.annotation.layer.relation.RelationAdapter;
+import de.tudarmstadt.ukp.inception.schema.AnnotationSchemaService;
+
+class FusedCheckRunnerTest
+{
+    Project project;
+    JCas jCas;
+    AnnotationSchemaService annotationService;
+    AnnotationLayer dependencyLayer;
+    AnnotationLayer namedEntityLayer;
+
+    @BeforeEach
+    void setup() throws Exception
+    {
+        project = new Project();
+        jCas = JCasFactory.createJCas();
+
+        dependencyLayer = new AnnotationLayer();
+        dependencyLayer.setName(Dependency._TypeName);
+        dependencyLayer.setType(RELATION_TYPE);
+
+        namedEntityLayer = new AnnotationLayer();
+        namedEntityLayer.setName(NamedEntity._TypeName);
+        namedEntityLayer.setType(SPAN_TYPE);
+
+        annotationService = mock(AnnotationSchemaService.class);
+        when(annotationService.listAnnotationLayer(project))
+                .thenReturn(asList(dependencyLayer, namedEntityLayer));
+    }
+
+    @Test
+    void thatStructuralChecksReportExpectedMessages()
+    {
+        jCas.setDocumentText("This is a test.");
+
+        var annotations = asList( //
+                new Sentence(jCas, 0, 15), //
+                new Token(jCas, 0, 4), //
+                new Token(jCas, 3, 7), //
+                new Token(jCas, 8, 8), //
+                new Annotation(jCas, 10, 9));
+        annotations.forEach(Annotation::addToIndexes);
+
+        var checks = asList( //
+                new NegativeSizeAnnotationsCheck(), //
+                new NoZeroSizeTokensAndSentencesCheck(), //
+                new TokensAndSententencedDoNotOverlapCheck());
+
+        var messages = new ArrayList<LogMessage>();
+        var result = FusedCheckRunner.run(project, jCas.getCas(), checks, messages);
+
+        assertThat(result).isFalse();
+        assertThat(messages) //
+                .extracting(LogMessage::getMessage) //
+                .hasSize(3) //
+                .contains( //
+                        "[uima.tcas.Annotation] at [10-9] has negative size (starts after ending)",
+                        "Token [s is]@[3-7] overlaps with previous token [This]@[0-4]") //
+                .anySatisfy(msg -> assertThat(msg).startsWith("Token with illegal span: "));
+    }
+
+    @Test
+    void thatOverlappingSentencesAreNotReportedIfTokensOverlap()
+    {
+        jCas.setDocumentText("123");
+
+        var annotations = asList( //
+                new Sentence(jCas, 0, 2), //
+                new Sentence(jCas, 1, 3), //
+                new Token(jCas, 0, 2), //
+                new Token(jCas, 1, 3));
+        annotations.forEach(Annotation::addToIndexes);
+
+        var messages = new ArrayList<LogMessage>();
+        var result = FusedCheckRunner.run(project, jCas.getCas(),
+                asList(new TokensAndSententencedDoNotOverlapCheck()), messages);
+
+        assertThat(result).isFalse();
+        assertThat(messages) //
+                .extracting(LogMessage::getMessage) //
+                .containsExactly("Token [23]@[1-3] overlaps with previous token [12]@[0-2]");
+    }
+
+    @Test
+    void thatLayerBasedChecksReportExpectedMessages()
+    {
+        jCas.setDocumentText("This is a test.");
+
+        var sentence = new Sentence(jCas, 0, 7);
+        var tokenThis = new Token(jCas, 0, 4);
+        var tokenIs = new Token(jCas, 5, 7);
+        var tokenTest = new Token(jCas, 10, 14);
+
+        // The offsets of the relation do not match its dependent
+        var dependency = new Dependency(jCas, 5, 7);
+        dependency.setGovernor(tokenIs);
+        dependency.setDependent(tokenThis);
+
+        // The named entity is not within any sentence
+        var namedEntity = new NamedEntity(jCas, 10, 14);
+
+        asList(sentence, tokenThis, tokenIs, tokenTest, dependency, namedEntity)
+                .forEach(Annotation::addToIndexes);
+
+        var checks = asList( //
+                new RelationOffsetsCheck(annotationService), //
+                new AllAnnotationsStartAndEndWithinSentencesCheck(annotationService));
+
+        var messages = new ArrayList<LogMessage>();
+        var result = FusedCheckRunner.run(project, jCas.getCas(), checks, messages);
+
+        assertThat(result).isFalse();
+        assertThat(messages) //
+                .extracting(LogMessage::getMessage) //
+                .containsExactlyInAnyOrder( //
+                        "Relation offsets [5,7] to not match target offsets [0,4]", //
+                        "[" + NamedEntity._TypeName + "] [test]@[10-14] starts and ends "
+                                + "outside any sentence");
+    }
+
+    @Test
+    void thatDanglingRelationsAreReported()
+    {
+        var adapter = mock(RelationAdapter.class);
+        when(adapter.getLayer()).thenReturn(dependencyLayer);
+        when(annotationService.findAdapter(any(), any())).thenReturn(adapter);
+
+        jCas.setDocumentText("This is a test.");
+
+        var tokenThis = new Token(jCas, 0, 4);
+        var tokenIs = new Token(jCas, 5, 7);
+        var dependency = new Dependency(jCas, 0, 4);
+        dependency.setGovernor(tokenIs);
+        dependency.setDependent(tokenThis);
+        var danglingDependency = new Dependency(jCas, 5, 7);
+
+        asList(tokenThis, tokenIs, dependency, danglingDependency)
+                .forEach(Annotation::addToIndexes);
+
+        var messages = new ArrayList<LogMessage>();
+        var result = FusedCheckRunner.run(project, jCas.getCas(),
+                asList(new DanglingRelationsCheck(annotationService)), messages);
+
+        assertThat(result).isFalse();
+        assertThat(messages) //
+                .extracting(LogMessage::getMessage) //
+                .containsExactly("Relation [" + Dependency._TypeName + "] with id ["
+                        + ICasUtil.getAddr(danglingDependency) + "] has loose ends."
+                        + "\nSource: null\nTarget: null");
+    }
+
+    @Test
+    void thatSentenceCoverageConsidersOverlappingSentences()
+    {
+        jCas.setDocumentText("0123456789012345678901234567890");
+
+        var annotations = asList( //
+                new Sentence(jCas, 0, 20), //
+                new Sentence(jCas, 5, 10), //
+                new Sentence(jCas, 25, 30));
+        annotations.forEach(Annotation::addToIndexes);
+
+        var sut = new CheckContext(project, jCas.getCas());
+
+        assertThat(sut.isCoveredBySentence(0)).isTrue();
+        assertThat(sut.isCoveredBySentence(15)).isTrue();
+        assertThat(sut.isCoveredBySentence(20)).isTrue();
+        assertThat(sut.isCoveredBySentence(22)).isFalse();
+        assertThat(sut.isCoveredBySentence(25)).isTrue();
+        assertThat(sut.isCoveredBySentence(31)).isFalse();
+    }
+}
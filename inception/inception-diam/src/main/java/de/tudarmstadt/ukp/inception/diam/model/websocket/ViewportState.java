@@ -17,15 +17,21 @@
  */
 package de.tudarmstadt.ukp.inception.diam.model.websocket;
 
+import static java.lang.Math.max;
+import static java.lang.Math.min;
 import static java.util.Collections.newSetFromMap;
 
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.lang3.tuple.Pair;
 
 import com.fasterxml.jackson.databind.JsonNode;
 
+import de.tudarmstadt.ukp.inception.rendering.model.Range;
+
 public class ViewportState
 {
     private final ViewportDefinition vpd;
@@ -33,8 +39,13 @@ public class ViewportState
     private final Set<Pair<String, String>> subscriberSessionIds = newSetFromMap(
             new ConcurrentHashMap<>());
 
+    private final Lock renderLock = new ReentrantLock();
+
     private JsonNode json;
 
+    private Range pendingUpdate;
+    private boolean updateScheduled;
+
     public ViewportState(ViewportDefinition aVpd)
     {
         vpd = aVpd;
@@ -45,6 +56,17 @@ public class ViewportState
         return vpd;
     }
 
+    /**
+     * @return lock that must be held while rendering the viewport and exchanging its JSON such
+     *         that the diff sent to the subscribers is always computed against the JSON they have
+     *         last seen. This is separate from the monitor of the state so that recording pending
+     *         updates does not block while a render is in progress.
+     */
+    public Lock getRenderLock()
+    {
+        return renderLock;
+    }
+
     public synchronized void setJson(JsonNode aJson)
     {
         json = aJson;
@@ -75,4 +97,48 @@ public class ViewportState
         subscriberSessionIds.removeIf(
                 p -> p.getKey().equals(aSessionId) && p.getValue().equals(aSubscriptionId));
     }
+
+    /**
+     * Records that the given range needs to be sent to the subscribers of this viewport. If there
+     * is already an update pending, the ranges are merged such that only a single update is sent.
+     * 
+     * @param aBegin
+     *            the begin of the changed range.
+     * @param aEnd
+     *            the end of the changed range.
+     * @return whether the caller needs to schedule the processing of the pending updates. If
+     *         {@code false}, the update is picked up by the processing that is already scheduled.
+     */
+    public synchronized boolean addPendingUpdate(int aBegin, int aEnd)
+    {
+        if (pendingUpdate == null) {
+            pendingUpdate = new Range(aBegin, aEnd);
+        }
+        else {
+            pendingUpdate = new Range(min(pendingUpdate.getBegin(), aBegin),
+                    max(pendingUpdate.getEnd(), aEnd));
+        }
+
+        if (updateScheduled) {
+            return false;
+        }
+
+        updateScheduled = true;
+        return true;
+    }
+
+    /**
+     * @return the pending update or {@code null} if there is none. In the latter case, the
+     *         processing of the pending updates ends and needs to be re-scheduled for the next
+     *         update.
+     */
+    public synchronized Range takePendingUpdate()
+    {
+        Range update = pendingUpdate;
+        pendingUpdate = null;
+        if (update == null) {
+            updateScheduled = false;
+        }
+        return update;
+    }
 }
@@ -26,19 +26,32 @@ import static de.tudarmstadt.ukp.inception.websocket.config.WebSocketConstants.T
 import static de.tudarmstadt.ukp.inception.websocket.config.WebSocketConstants.TOPIC_ELEMENT_PROJECT;
 import static de.tudarmstadt.ukp.inception.websocket.config.WebSocketConstants.TOPIC_ELEMENT_USER;
 import static java.lang.Integer.MAX_VALUE;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.Collections.emptyList;
 import static java.util.stream.Collectors.toList;
 
 import java.io.IOException;
 import java.security.Principal;
 import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.persistence.NoResultException;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.uima.cas.CAS;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.event.EventListener;
@@ -47,6 +60,7 @@ import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
 import org.springframework.stereotype.Controller;
 import org.springframework.transaction.event.TransactionalEventListener;
 import org.springframework.util.PropertyPlaceholderHelper;
@@ -57,6 +71,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.flipkart.zjsonpatch.JsonDiff;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
 import de.tudarmstadt.ukp.clarin.webanno.api.ProjectService;
@@ -71,17 +86,22 @@ import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
 import de.tudarmstadt.ukp.clarin.webanno.security.UserDao;
 import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
 import de.tudarmstadt.ukp.clarin.webanno.support.JSONUtil;
+import de.tudarmstadt.ukp.inception.annotation.events.AnnotationEvent;
 import de.tudarmstadt.ukp.inception.annotation.storage.CasStorageSession;
 import de.tudarmstadt.ukp.inception.diam.messages.MViewportInit;
 import de.tudarmstadt.ukp.inception.diam.messages.MViewportUpdate;
 import de.tudarmstadt.ukp.inception.diam.model.websocket.ViewportDefinition;
 import de.tudarmstadt.ukp.inception.diam.model.websocket.ViewportState;
 import de.tudarmstadt.ukp.inception.rendering.editorstate.AnnotationPreference;
+import de.tudarmstadt.ukp.inception.rendering.model.Range;
 import de.tudarmstadt.ukp.inception.rendering.pipeline.RenderingPipeline;
 import de.tudarmstadt.ukp.inception.rendering.request.RenderRequest;
 import de.tudarmstadt.ukp.inception.rendering.vmodel.VDocument;
 import de.tudarmstadt.ukp.inception.rendering.vmodel.serialization.VDocumentSerializerExtensionPoint;
 import de.tudarmstadt.ukp.inception.schema.AnnotationSchemaService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 
 /**
  * Differential INCEpTION Annotation Messaging (DIAM) protocol controller.
@@ -90,11 +110,14 @@ import de.tudarmstadt.ukp.inception.schema.AnnotationSchemaService;
 @ConditionalOnExpression("${websocket.enabled:true}")
 @Controller
 public class DiamWebsocketController
+    implements DisposableBean
 {
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     public static final String FORMAT_LEGACY = "legacy";
 
+    private static final int UPDATE_THREADS = 2;
+
     public static final String PARAM_FROM = "from";
     public static final String PARAM_TO = "to";
     public static final String PARAM_FORMAT = "format";
@@ -131,15 +154,20 @@ public class DiamWebsocketController
     private final UserDao userRepository;
     private final VDocumentSerializerExtensionPoint vDocumentSerializerExtensionPoint;
     private final UserPreferencesService userPreferencesService;
+    private final MeterRegistry meterRegistry;
 
     private final LoadingCache<ViewportDefinition, ViewportState> activeViewports;
+    private final Map<Pair<Long, String>, Set<ViewportDefinition>> viewportsByDocument;
+    private final Map<Pair<Long, String>, Range> changedRanges;
+    private final ExecutorService updateExecutor;
 
     public DiamWebsocketController(SimpMessagingTemplate aMsgTemplate,
             RenderingPipeline aRenderingPipeline, DocumentService aDocumentService,
             RepositoryProperties aRepositoryProperties, AnnotationSchemaService aSchemaService,
             ProjectService aProjectService, UserDao aUserRepository,
             VDocumentSerializerExtensionPoint aVDocumentSerializerExtensionPoint,
-            UserPreferencesService aUserPreferencesService)
+            UserPreferencesService aUserPreferencesService,
+            @Autowired(required = false) MeterRegistry aMeterRegistry)
     {
         msgTemplate = aMsgTemplate;
         renderingPipeline = aRenderingPipeline;
@@ -150,10 +178,29 @@ public class DiamWebsocketController
         userRepository = aUserRepository;
         vDocumentSerializerExtensionPoint = aVDocumentSerializerExtensionPoint;
         userPreferencesService = aUserPreferencesService;
+        meterRegistry = aMeterRegistry != null ? aMeterRegistry : Metrics.globalRegistry;
+
+        viewportsByDocument = new ConcurrentHashMap<>();
+        changedRanges = new ConcurrentHashMap<>();
 
         activeViewports = Caffeine.newBuilder() //
                 .expireAfterAccess(Duration.ofMinutes(30)) //
+                .removalListener(this::onViewportRemoved) //
                 .build(this::initState);
+
+        // The renderers consult the current user (e.g. to pick the suggestions to show), so the
+        // security context of the thread which triggered the update is carried over to the pool
+        updateExecutor = new DelegatingSecurityContextExecutorService(
+                Executors.newFixedThreadPool(UPDATE_THREADS, new BasicThreadFactory.Builder() //
+                        .namingPattern("diam-update-%d") //
+                        .daemon(true) //
+                        .build()));
+    }
+
+    @Override
+    public void destroy()
+    {
+        updateExecutor.shutdownNow();
     }
 
     @EventListener
@@ -193,10 +240,49 @@ public class DiamWebsocketController
         activeViewports.invalidate(aVpd);
     }
 
+    /**
+     * Collects the ranges affected by annotation operations so that only the viewports overlapping
+     * these ranges need to be updated when the CAS is written.
+     */
+    @EventListener
+    public void onAnnotationEvent(AnnotationEvent aEvent)
+    {
+        if (aEvent.getDocument() == null) {
+            return;
+        }
+
+        Range range = aEvent.getAffectedRange();
+        if (range == null || Range.UNDEFINED.equals(range)) {
+            range = new Range(0, MAX_VALUE);
+        }
+
+        // No need to remember anything if nobody is looking at the document. The range is recorded
+        // while holding the viewport entry such that it cannot race with the removal of the last
+        // viewport on the document which also drops the recorded range.
+        var changedRange = range;
+        viewportsByDocument.computeIfPresent(
+                Pair.of(aEvent.getDocument().getId(), aEvent.getUser()), (key, viewports) -> {
+                    changedRanges.merge(key, changedRange,
+                            (r1, r2) -> new Range(min(r1.getBegin(), r2.getBegin()),
+                                    max(r1.getEnd(), r2.getEnd())));
+                    return viewports;
+                });
+    }
+
     @TransactionalEventListener(fallbackExecution = true)
     public void afterAnnotationUpdate(AfterCasWrittenEvent aEvent)
     {
-        sendUpdate(aEvent.getDocument());
+        AnnotationDocument doc = aEvent.getDocument();
+
+        // If the write was not preceded by annotation events (e.g. bulk operations), we do not
+        // know what has changed and have to update all viewports on the document
+        Range range = changedRanges.remove(Pair.of(doc.getDocument().getId(), doc.getUser()));
+        if (range == null) {
+            range = new Range(0, MAX_VALUE);
+        }
+
+        scheduleUpdate(doc.getProject().getId(), doc.getDocument().getId(), doc.getUser(),
+                range.getBegin(), range.getEnd());
     }
 
     @SubscribeMapping(DOCUMENT_VIEWPORT_TOPIC_TEMPLATE)
@@ -226,10 +312,16 @@ public class DiamWebsocketController
             vps.addSubscription(aHeaderAccessor.getSessionId(),
                     aHeaderAccessor.getSubscriptionId());
 
-            JsonNode json = render(project, aDocumentId, aUser, aViewportBegin, aViewportEnd,
-                    aFormat);
-            vps.setJson(json);
-            return json;
+            vps.getRenderLock().lock();
+            try {
+                JsonNode json = render(project, aDocumentId, aUser, aViewportBegin, aViewportEnd,
+                        aFormat);
+                vps.setJson(json);
+                return json;
+            }
+            finally {
+                vps.getRenderLock().unlock();
+            }
         }
         finally {
             MDC.remove(KEY_REPOSITORY_PATH);
@@ -272,6 +364,8 @@ public class DiamWebsocketController
             int aViewportEnd, String aFormat)
         throws IOException
     {
+        Timer.Sample sample = Timer.start();
+
         SourceDocument doc = documentService.getSourceDocument(aProject.getId(), aDocumentId);
         User user = userRepository.get(aUser);
         CAS cas = documentService.readAnnotationCas(doc, aUser);
@@ -293,25 +387,97 @@ public class DiamWebsocketController
 
         VDocument vdoc = renderingPipeline.render(request);
 
+        JsonNode json;
         if (FORMAT_LEGACY.equals(aFormat)) {
-            return JSONUtil.getObjectMapper().valueToTree(new MViewportInit(vdoc));
+            json = JSONUtil.getObjectMapper().valueToTree(new MViewportInit(vdoc));
+        }
+        else {
+            var serializer = vDocumentSerializerExtensionPoint.getExtension(aFormat).orElseThrow(
+                    () -> new IllegalStateException("Unsupported format [" + aFormat + "]"));
+            json = JSONUtil.getObjectMapper().valueToTree(serializer.render(vdoc, request));
         }
 
-        var serializer = vDocumentSerializerExtensionPoint.getExtension(aFormat).orElseThrow(
-                () -> new IllegalStateException("Unsupported format [" + aFormat + "]"));
+        // Only record after the format has been validated to keep the number of tags bounded
+        sample.stop(Timer.builder("inception.diam.render") //
+                .description("Time taken to render a viewport for a websocket client") //
+                .tag("format", aFormat) //
+                .register(meterRegistry));
 
-        return JSONUtil.getObjectMapper().valueToTree(serializer.render(vdoc, request));
+        return json;
     }
 
     private ViewportState initState(ViewportDefinition aVpd)
     {
+        viewportsByDocument.compute(Pair.of(aVpd.getDocumentId(), aVpd.getUser()),
+                (key, viewports) -> {
+                    var result = viewports != null ? viewports
+                            : ConcurrentHashMap.<ViewportDefinition> newKeySet();
+                    result.add(aVpd);
+                    return result;
+                });
+
         return new ViewportState(aVpd);
     }
 
-    private void sendUpdate(AnnotationDocument aDoc)
+    private void onViewportRemoved(ViewportDefinition aVpd, ViewportState aVps,
+            RemovalCause aCause)
+    {
+        // The viewport may have been re-opened in the meantime
+        if (aVpd == null || activeViewports.asMap().containsKey(aVpd)) {
+            return;
+        }
+
+        viewportsByDocument.computeIfPresent(Pair.of(aVpd.getDocumentId(), aVpd.getUser()),
+                (key, viewports) -> {
+                    viewports.remove(aVpd);
+                    if (viewports.isEmpty()) {
+                        changedRanges.remove(key);
+                        return null;
+                    }
+                    return viewports;
+                });
+    }
+
+    private List<ViewportDefinition> getViewports(long aDocumentId, String aUser, int aUpdateBegin,
+            int aUpdateEnd)
     {
-        sendUpdate(aDoc.getProject().getId(), aDoc.getDocument().getId(), aDoc.getUser(), 0,
-                MAX_VALUE);
+        var viewports = viewportsByDocument.get(Pair.of(aDocumentId, aUser));
+        if (viewports == null) {
+            return emptyList();
+        }
+
+        return viewports.stream() //
+                .filter(vpd -> vpd.matches(aDocumentId, aUser, aUpdateBegin, aUpdateEnd)) //
+                .collect(toList());
+    }
+
+    /**
+     * Schedules the update of all viewports overlapping the given range. The rendering happens in
+     * the background. Updates to the same viewport which arrive while a previous update is still
+     * pending are merged into a single update.
+     */
+    private void scheduleUpdate(long aProjectId, long aDocumentId, String aUser, int aUpdateBegin,
+            int aUpdateEnd)
+    {
+        for (var vpd : getViewports(aDocumentId, aUser, aUpdateBegin, aUpdateEnd)) {
+            var vps = activeViewports.getIfPresent(vpd);
+            if (vps == null || !vps.addPendingUpdate(aUpdateBegin, aUpdateEnd)) {
+                continue;
+            }
+
+            try {
+                updateExecutor.execute(() -> {
+                    Range update;
+                    while ((update = vps.takePendingUpdate()) != null) {
+                        sendUpdate(vpd, vps, aProjectId, aDocumentId, aUser, update.getBegin(),
+                                update.getEnd());
+                    }
+                });
+            }
+            catch (RejectedExecutionException e) {
+                log.debug("Not sending update to {} - shutting down", vpd);
+            }
+        }
     }
 
     void sendUpdate(AnnotationDocument aDoc, int aUpdateBegin, int aUpdateEnd)
@@ -323,10 +489,12 @@ public class DiamWebsocketController
     private void sendUpdate(long aProjectId, long aDocumentId, String aUser, int aUpdateBegin,
             int aUpdateEnd)
     {
-        activeViewports.asMap().entrySet().stream() //
-                .filter(e -> e.getKey().matches(aDocumentId, aUser, aUpdateBegin, aUpdateEnd)) //
-                .forEach(e -> sendUpdate(e.getKey(), e.getValue(), aProjectId, aDocumentId, aUser,
-                        aUpdateBegin, aUpdateEnd));
+        for (var vpd : getViewports(aDocumentId, aUser, aUpdateBegin, aUpdateEnd)) {
+            var vps = activeViewports.getIfPresent(vpd);
+            if (vps != null) {
+                sendUpdate(vpd, vps, aProjectId, aDocumentId, aUser, aUpdateBegin, aUpdateEnd);
+            }
+        }
     }
 
     private void sendUpdate(ViewportDefinition vpd, ViewportState vps, long aProjectId,
@@ -334,6 +502,9 @@ public class DiamWebsocketController
     {
         // MDC.put(KEY_REPOSITORY_PATH, repositoryProperties.getPath().toString());
 
+        // Updates may be sent from the pool and from the calling thread at the same time, so the
+        // render, the diff against the previous JSON and the send need to happen atomically
+        vps.getRenderLock().lock();
         try (CasStorageSession session = CasStorageSession.openNested()) {
             Project project = projectService.getProject(vpd.getProjectId());
             JsonNode newJson = render(project, vpd.getDocumentId(), vpd.getUser(), vpd.getBegin(),
@@ -349,6 +520,9 @@ public class DiamWebsocketController
         catch (Exception ex) {
             log.error("Unable to render update", ex);
         }
+        finally {
+            vps.getRenderLock().unlock();
+        }
 
         // finally {
         // MDC.remove(KEY_REPOSITORY_PATH);
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.diam.model.websocket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import de.tudarmstadt.ukp.inception.rendering.model.Range;
+
+class ViewportStateTest
+{
+    private ViewportState sut = new ViewportState(
+            new ViewportDefinition(1l, 1l, "user", 0, 100, "legacy"));
+
+    @Test
+    void thatPendingUpdatesAreMerged()
+    {
+        assertThat(sut.addPendingUpdate(10, 20)).isTrue();
+        assertThat(sut.addPendingUpdate(30, 40)).isFalse();
+        assertThat(sut.addPendingUpdate(5, 15)).isFalse();
+
+        assertThat(sut.takePendingUpdate()).isEqualTo(new Range(5, 40));
+        assertThat(sut.takePendingUpdate()).isNull();
+    }
+
+    @Test
+    void thatUpdateArrivingDuringProcessingIsPickedUp()
+    {
+        assertThat(sut.addPendingUpdate(10, 20)).isTrue();
+        assertThat(sut.takePendingUpdate()).isEqualTo(new Range(10, 20));
+
+        // Processing is still running, so it picks up the new update
+        assertThat(sut.addPendingUpdate(30, 40)).isFalse();
+        assertThat(sut.takePendingUpdate()).isEqualTo(new Range(30, 40));
+
+        // Processing has ended, so the next update needs to be scheduled again
+        assertThat(sut.takePendingUpdate()).isNull();
+        assertThat(sut.addPendingUpdate(50, 60)).isTrue();
+    }
+}
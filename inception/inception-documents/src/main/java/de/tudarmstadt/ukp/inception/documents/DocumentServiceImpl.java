@@ -950,6 +950,19 @@ public class DocumentServiceImpl
         return readAnnotationCas(aDocument, userName, aUpgradeMode);
     }
 
+    // NO TRANSACTION REQUIRED - This does not do any should not do a database access, so we do not
+    // need to be in a transaction here. Avoiding the transaction speeds up the call.
+    @Override
+    public CAS readPartialAnnotationCas(SourceDocument aDocument, String aUserName,
+            Collection<String> aTypes)
+        throws IOException
+    {
+        Validate.notNull(aDocument, "Source document must be specified");
+        Validate.notBlank(aUserName, "User must be specified");
+
+        return casStorageService.readPartialCas(aDocument, aUserName, aTypes);
+    }
+
     // NO TRANSACTION REQUIRED - This does not do any should not do a database access, so we do not
     // need to be in a transaction here. Avoiding the transaction speeds up the call.
     @Override
@@ -37,8 +37,8 @@ import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.commons.lang3.time.DurationFormatUtils;
@@ -49,6 +49,7 @@ import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
 import de.tudarmstadt.ukp.clarin.webanno.api.config.RepositoryProperties;
 import de.tudarmstadt.ukp.clarin.webanno.api.export.FullProjectExportRequest;
 import de.tudarmstadt.ukp.clarin.webanno.api.export.ProjectExportException;
+import de.tudarmstadt.ukp.clarin.webanno.api.export.ProjectExportStage;
 import de.tudarmstadt.ukp.clarin.webanno.api.export.ProjectExportTaskMonitor;
 import de.tudarmstadt.ukp.clarin.webanno.api.export.ProjectExporter;
 import de.tudarmstadt.ukp.clarin.webanno.api.export.ProjectImportRequest;
@@ -88,7 +89,17 @@ public class SourceDocumentExporter
         throws IOException, ProjectExportException, InterruptedException
     {
         exportSourceDocuments(aRequest.getProject(), aExProject);
-        exportSourceDocumentContents(aRequest, aMonitor, aExProject, aStage);
+        exportSourceDocumentContents(aRequest, aMonitor, aExProject,
+                ProjectExportStage.folder(aStage));
+    }
+
+    @Override
+    public void exportData(FullProjectExportRequest aRequest, ProjectExportTaskMonitor aMonitor,
+            ExportedProject aExProject, ZipOutputStream aZip)
+        throws IOException, ProjectExportException, InterruptedException
+    {
+        exportSourceDocuments(aRequest.getProject(), aExProject);
+        exportSourceDocumentContents(aRequest, aMonitor, aExProject, ProjectExportStage.zip(aZip));
     }
 
     private void exportSourceDocuments(Project aProject, ExportedProject exProject)
@@ -113,12 +124,11 @@ public class SourceDocumentExporter
     }
 
     private void exportSourceDocumentContents(FullProjectExportRequest aRequest,
-            ProjectExportTaskMonitor aMonitor, ExportedProject aExProject, File aStage)
+            ProjectExportTaskMonitor aMonitor, ExportedProject aExProject,
+            ProjectExportStage aStage)
         throws IOException, ProjectExportException, InterruptedException
     {
         Project project = aRequest.getProject();
-        File sourceDocumentDir = new File(aStage, SOURCE_FOLDER);
-        FileUtils.forceMkdir(sourceDocumentDir);
         // Get all the source documents from the project
         List<SourceDocument> documents = documentService.listSourceDocuments(project);
         int i = 1;
@@ -129,8 +139,12 @@ public class SourceDocumentExporter
             }
 
             try {
-                FileUtils.copyFileToDirectory(documentService.getSourceDocumentFile(sourceDocument),
-                        sourceDocumentDir);
+                File sourceFile = documentService.getSourceDocumentFile(sourceDocument);
+                if (!sourceFile.exists()) {
+                    throw new FileNotFoundException(
+                            "Source file [" + sourceFile + "] does not exist");
+                }
+                aStage.copy(SOURCE_FOLDER + "/" + sourceFile.getName(), sourceFile);
                 aMonitor.setProgress((int) Math.ceil(((double) i) / documents.size() * 10.0));
                 i++;
                 log.info("Exported content for source document [" + sourceDocument.getId()
@@ -120,7 +120,7 @@ public class DocumentServiceImplConcurrencyTest
                 new CasStorageBackupProperties(), new CasStoragePropertiesImpl());
 
         storageService = new CasStorageServiceImpl(driver, new CasStorageCachePropertiesImpl(),
-                null, null);
+                null, null, null);
 
         sut = spy(new DocumentServiceImpl(repositoryProperties, storageService, importExportService,
                 projectService, applicationEventPublisher, entityManager));
@@ -43,6 +43,7 @@ import static org.apache.uima.util.CasCreationUtils.mergeTypeSystems;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.nio.file.Files;
 import java.text.BreakIterator;
@@ -239,18 +240,7 @@ public class DocumentImportExportServiceImpl
                 bulkOperationContext = new HashMap<>();
             }
 
-            String username;
-            switch (aMode) {
-            case ANNOTATION:
-                username = aUser;
-                break;
-            case CURATION:
-                // The merge result will be exported
-                username = CURATION_USER;
-                break;
-            default:
-                throw new IllegalArgumentException("Unknown mode [" + aMode + "]");
-            }
+            String username = getExportUsername(aUser, aMode);
 
             // Read file
             File exportFile;
@@ -267,6 +257,50 @@ public class DocumentImportExportServiceImpl
         }
     }
 
+    @Override
+    @Transactional
+    public void exportAnnotationDocument(SourceDocument aDocument, String aUser,
+            FormatSupport aFormat, Mode aMode, boolean aStripExtension, OutputStream aOut)
+        throws UIMAException, IOException
+    {
+        exportAnnotationDocument(aDocument, aUser, aFormat, aDocument.getName(), aMode,
+                aStripExtension, null, aOut);
+    }
+
+    @Override
+    @Transactional
+    public void exportAnnotationDocument(SourceDocument aDocument, String aUser,
+            FormatSupport aFormat, String aFileName, Mode aMode, boolean aStripExtension,
+            Map<Pair<Project, String>, Object> aBulkOperationContext, OutputStream aOut)
+        throws UIMAException, IOException
+    {
+        try (var logCtx = withProjectLogger(aDocument.getProject())) {
+            String username = getExportUsername(aUser, aMode);
+
+            try (CasStorageSession session = CasStorageSession.openNested()) {
+                CAS cas = casStorageService.readCas(aDocument, username);
+                exportCasToStream(cas, aDocument, aFileName, aFormat, aStripExtension,
+                        aBulkOperationContext, aOut);
+            }
+
+            log.info("Exported annotations {} for user [{}] from project {} using format [{}]",
+                    aDocument, aUser, aDocument.getProject(), aFormat.getId());
+        }
+    }
+
+    private String getExportUsername(String aUser, Mode aMode)
+    {
+        switch (aMode) {
+        case ANNOTATION:
+            return aUser;
+        case CURATION:
+            // The merge result will be exported
+            return CURATION_USER;
+        default:
+            throw new IllegalArgumentException("Unknown mode [" + aMode + "]");
+        }
+    }
+
     @Override
     public CAS importCasFromFile(File aFile, SourceDocument aDocument)
         throws UIMAException, IOException
@@ -470,6 +504,48 @@ public class DocumentImportExportServiceImpl
             FormatSupport aFormat, boolean aStripExtension,
             Map<Pair<Project, String>, Object> aBulkOperationContext)
         throws IOException, UIMAException
+    {
+        return exportCas(aCas, aDocument, aFileName, aBulkOperationContext, exportCas -> {
+            File exportTempDir = Files.createTempDirectory("inception-export").toFile();
+            try {
+                return aFormat.write(aDocument, exportCas, exportTempDir, aStripExtension);
+            }
+            finally {
+                if (exportTempDir != null) {
+                    forceDelete(exportTempDir);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void exportCasToStream(CAS aCas, SourceDocument aDocument, String aFileName,
+            FormatSupport aFormat, boolean aStripExtension, OutputStream aOut)
+        throws IOException, UIMAException
+    {
+        exportCasToStream(aCas, aDocument, aFileName, aFormat, aStripExtension, null, aOut);
+    }
+
+    @Override
+    public void exportCasToStream(CAS aCas, SourceDocument aDocument, String aFileName,
+            FormatSupport aFormat, boolean aStripExtension,
+            Map<Pair<Project, String>, Object> aBulkOperationContext, OutputStream aOut)
+        throws IOException, UIMAException
+    {
+        if (!aFormat.isStreamable()) {
+            throw new IllegalArgumentException(
+                    "Format [" + aFormat.getId() + "] cannot be written to a stream");
+        }
+
+        exportCas(aCas, aDocument, aFileName, aBulkOperationContext, exportCas -> {
+            aFormat.write(aDocument, exportCas, aStripExtension, aOut);
+            return null;
+        });
+    }
+
+    private <T> T exportCas(CAS aCas, SourceDocument aDocument, String aFileName,
+            Map<Pair<Project, String>, Object> aBulkOperationContext, CasExporter<T> aExporter)
+        throws IOException, UIMAException
     {
         Project project = aDocument.getProject();
         try (var logCtx = withProjectLogger(project)) {
@@ -504,16 +580,7 @@ public class DocumentImportExportServiceImpl
 
                 addTagsetDefinitionAnnotations(exportCas, project, bulkOperationContext);
 
-                File exportTempDir = Files.createTempDirectory("inception-export").toFile();
-                try {
-                    return aFormat.write(aDocument, getRealCas(exportCas), exportTempDir,
-                            aStripExtension);
-                }
-                finally {
-                    if (exportTempDir != null) {
-                        forceDelete(exportTempDir);
-                    }
-                }
+                return aExporter.export(getRealCas(exportCas));
             }
         }
     }
@@ -676,4 +743,10 @@ public class DocumentImportExportServiceImpl
             }
         }
     }
+
+    @FunctionalInterface
+    private interface CasExporter<T>
+    {
+        T export(CAS aExportCas) throws IOException, UIMAException;
+    }
 }
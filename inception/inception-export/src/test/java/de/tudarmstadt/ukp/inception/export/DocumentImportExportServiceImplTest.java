@@ -44,8 +44,12 @@ import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -117,7 +121,7 @@ public class DocumentImportExportServiceImplTest
                 new CasStorageBackupProperties(), new CasStoragePropertiesImpl());
 
         var storageService = new CasStorageServiceImpl(driver, new CasStorageCachePropertiesImpl(),
-                null, null);
+                null, null, null);
 
         sut = new DocumentImportExportServiceImpl(repositoryProperties,
                 List.of(new XmiFormatSupport()), storageService, schemaService, properties);
@@ -212,6 +216,38 @@ public class DocumentImportExportServiceImplTest
                         tuple(layerDefs.get(1), f2.getName(), f2.getUiName()));
     }
 
+    @Test
+    public void thatStreamedExportMatchesFileExport() throws Exception
+    {
+        JCas jcas = makeJCas();
+        var format = sut.getFormatById(XmiFormatSupport.ID).get();
+
+        assertThat(format.isStreamable()).isTrue();
+        assertThat(format.getStreamedFileExtension()).isEqualTo(".zip");
+
+        var buffer = new ByteArrayOutputStream();
+        sut.exportCasToStream(jcas.getCas(), sourceDocument, "testfile", format, true, buffer);
+
+        var entries = new ArrayList<String>();
+        try (var zipInput = new ZipArchiveInputStream(
+                new ByteArrayInputStream(buffer.toByteArray()))) {
+            ZipArchiveEntry entry;
+            while ((entry = zipInput.getNextZipEntry()) != null) {
+                entries.add(entry.getName());
+            }
+        }
+
+        assertThat(entries).containsExactlyInAnyOrder("testfile.xmi", "TypeSystem.xml");
+
+        JCas streamedJCas = loadJCasFromZippedXmi(new ByteArrayInputStream(buffer.toByteArray()));
+        JCas fileJCas = loadJCasFromZippedXmi(
+                sut.exportCasToFile(jcas.getCas(), sourceDocument, "testfile", format));
+
+        assertThat(streamedJCas.getDocumentText()).isEqualTo(fileJCas.getDocumentText());
+        assertThat(select(streamedJCas, CASMetadata.class)).hasSize(0);
+        assertThat(streamedJCas.select().count()).isEqualTo(fileJCas.select().count());
+    }
+
     private JCas makeJCas() throws Exception
     {
         // Prepare a test CAS with a CASMetadata annotation (DocumentMetaData is added as well
@@ -226,6 +262,16 @@ public class DocumentImportExportServiceImplTest
     }
 
     private JCas loadJCasFromZippedXmi(File exportedXmi) throws Exception
+    {
+        try (var is = new FileInputStream(exportedXmi)) {
+            return loadJCasFromZippedXmi(is);
+        }
+        finally {
+            exportedXmi.delete();
+        }
+    }
+
+    private JCas loadJCasFromZippedXmi(InputStream aZippedXmi) throws Exception
     {
         TypeSystemDescription tsd = mergeTypeSystems(asList( //
                 sut.getTypeSystemForExport(project),
@@ -235,8 +281,7 @@ public class DocumentImportExportServiceImplTest
         // files are always serialized as XMI file + type system file.
         JCas jcas = JCasFactory.createJCas(tsd);
         casStorageSession.add("jcas2", EXCLUSIVE_WRITE_ACCESS, jcas.getCas());
-        try (ZipArchiveInputStream zipInput = new ZipArchiveInputStream(
-                new FileInputStream(exportedXmi))) {
+        try (ZipArchiveInputStream zipInput = new ZipArchiveInputStream(aZippedXmi)) {
             ZipArchiveEntry entry;
             while ((entry = zipInput.getNextZipEntry()) != null) {
                 if (entry.getName().endsWith(".xmi")) {
@@ -245,9 +290,6 @@ public class DocumentImportExportServiceImplTest
                 }
             }
         }
-        finally {
-            exportedXmi.delete();
-        }
         return jcas;
     }
 }
@@ -41,6 +41,7 @@ import org.apache.commons.io.IOUtils;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.CASException;
 import org.apache.uima.cas.CASRuntimeException;
+import org.apache.uima.cas.impl.CASImpl;
 import org.apache.uima.cas.impl.XmiCasDeserializer;
 import org.apache.uima.cas.impl.XmiCasSerializer;
 import org.apache.uima.fit.util.JCasUtil;
@@ -210,17 +211,21 @@ public class ExternalRecommender
 
     private String serializeCas(CAS aCas) throws RecommendationException
     {
-        try (StringWriter out = new StringWriter()) {
-            // Passing "null" as the type system to the XmiCasSerializer means that we want
-            // to serialize all types (i.e. no filtering for a specific target type system).
-            XmiCasSerializer xmiCasSerializer = new XmiCasSerializer(null);
-            XMLSerializer sax2xml = new XMLSerializer(out, true);
-            xmiCasSerializer.serialize(getRealCas(aCas), sax2xml.getContentHandler(), null, null,
-                    null);
-            return out.toString();
-        }
-        catch (CASRuntimeException | SAXException | IOException e) {
-            throw new RecommendationException("Error while serializing CAS!", e);
+        CAS realCas = getRealCas(aCas);
+        // UIMA-6162 Workaround: synchronize CAS during de/serialization - the training CASes are
+        // shared between recommenders which are trained in parallel
+        synchronized (((CASImpl) realCas).getBaseCAS()) {
+            try (StringWriter out = new StringWriter()) {
+                // Passing "null" as the type system to the XmiCasSerializer means that we want
+                // to serialize all types (i.e. no filtering for a specific target type system).
+                XmiCasSerializer xmiCasSerializer = new XmiCasSerializer(null);
+                XMLSerializer sax2xml = new XMLSerializer(out, true);
+                xmiCasSerializer.serialize(realCas, sax2xml.getContentHandler(), null, null, null);
+                return out.toString();
+            }
+            catch (CASRuntimeException | SAXException | IOException e) {
+                throw new RecommendationException("Error while serializing CAS!", e);
+            }
         }
     }
 
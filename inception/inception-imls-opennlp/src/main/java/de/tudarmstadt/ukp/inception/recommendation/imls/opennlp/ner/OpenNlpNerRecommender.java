@@ -49,6 +49,7 @@ import de.tudarmstadt.ukp.inception.recommendation.api.recommender.Recommendatio
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext.Key;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.TrainingCapability;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.TrainingSampleCache;
 import de.tudarmstadt.ukp.inception.rendering.model.Range;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
@@ -66,6 +67,8 @@ public class OpenNlpNerRecommender
     extends RecommendationEngine
 {
     public static final Key<TokenNameFinderModel> KEY_MODEL = new Key<>("opennlp_ner_model");
+    public static final Key<TrainingSampleCache<NameSample>> KEY_SAMPLES = new Key<>(
+            "opennlp_ner_samples");
     private static final Logger LOG = LoggerFactory.getLogger(OpenNlpNerRecommender.class);
 
     private static final String NO_NE_TAG = "O";
@@ -88,10 +91,25 @@ public class OpenNlpNerRecommender
         return aContext.get(KEY_MODEL).map(Objects::nonNull).orElse(false);
     }
 
+    @Override
+    public RecommenderContext newContext(RecommenderContext aContext)
+    {
+        // Carry over the samples so that only changed documents need to be processed again
+        RecommenderContext context = new RecommenderContext();
+        aContext.get(KEY_SAMPLES).ifPresent(samples -> context.put(KEY_SAMPLES, samples));
+        return context;
+    }
+
     @Override
     public void train(RecommenderContext aContext, List<CAS> aCasses) throws RecommendationException
     {
-        List<NameSample> nameSamples = extractNameSamples(aCasses);
+        TrainingSampleCache<NameSample> sampleCache = aContext.get(KEY_SAMPLES)
+                .orElseGet(TrainingSampleCache::new);
+        aContext.put(KEY_SAMPLES, sampleCache);
+
+        List<NameSample> nameSamples = sampleCache.getSamples(aCasses,
+                cas -> extractNameSamples(cas, Integer.MAX_VALUE),
+                traits.getTrainingSetSizeLimit());
 
         if (nameSamples.size() < 2) {
             aContext.warn("Not enough training data: [%d] items", nameSamples.size());
@@ -311,26 +329,40 @@ public class OpenNlpNerRecommender
     {
         List<NameSample> nameSamples = new ArrayList<>();
 
-        casses: for (CAS cas : aCasses) {
-            Type sampleUnitType = getType(cas, SAMPLE_UNIT);
-            Type tokenType = getType(cas, Token.class);
+        for (CAS cas : aCasses) {
+            int limit = traits.getTrainingSetSizeLimit() - nameSamples.size();
+            if (limit <= 0) {
+                break;
+            }
 
-            for (AnnotationFS sampleUnit : cas.<Annotation> select(sampleUnitType)) {
-                if (nameSamples.size() >= traits.getTrainingSetSizeLimit()) {
-                    break casses;
-                }
+            nameSamples.addAll(extractNameSamples(cas, limit));
+        }
 
-                if (isBlank(sampleUnit.getCoveredText())) {
-                    continue;
-                }
+        return nameSamples;
+    }
 
-                Collection<Annotation> tokens = cas.<Annotation> select(tokenType)
-                        .coveredBy(sampleUnit).asList();
+    private List<NameSample> extractNameSamples(CAS aCas, int aLimit)
+    {
+        List<NameSample> nameSamples = new ArrayList<>();
 
-                NameSample nameSample = createNameSample(cas, sampleUnit, tokens);
-                if (nameSample.getNames().length > 0) {
-                    nameSamples.add(nameSample);
-                }
+        Type sampleUnitType = getType(aCas, SAMPLE_UNIT);
+        Type tokenType = getType(aCas, Token.class);
+
+        for (AnnotationFS sampleUnit : aCas.<Annotation> select(sampleUnitType)) {
+            if (nameSamples.size() >= aLimit) {
+                break;
+            }
+
+            if (isBlank(sampleUnit.getCoveredText())) {
+                continue;
+            }
+
+            Collection<Annotation> tokens = aCas.<Annotation> select(tokenType)
+                    .coveredBy(sampleUnit).asList();
+
+            NameSample nameSample = createNameSample(aCas, sampleUnit, tokens);
+            if (nameSample.getNames().length > 0) {
+                nameSamples.add(nameSample);
             }
         }
 
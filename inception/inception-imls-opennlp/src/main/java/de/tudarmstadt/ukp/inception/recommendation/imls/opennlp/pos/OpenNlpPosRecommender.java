@@ -53,6 +53,7 @@ import de.tudarmstadt.ukp.inception.recommendation.api.recommender.Recommendatio
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext.Key;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.TrainingCapability;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.TrainingSampleCache;
 import de.tudarmstadt.ukp.inception.rendering.model.Range;
 import opennlp.tools.ml.BeamSearch;
 import opennlp.tools.postag.POSModel;
@@ -66,6 +67,8 @@ public class OpenNlpPosRecommender
     extends RecommendationEngine
 {
     public static final Key<POSModel> KEY_MODEL = new Key<>("opennlp_pos_model");
+    public static final Key<TrainingSampleCache<POSSample>> KEY_SAMPLES = new Key<>(
+            "opennlp_pos_samples");
 
     private static final Logger LOG = LoggerFactory.getLogger(OpenNlpPosRecommender.class);
     private static final String PAD = "<PAD>";
@@ -88,10 +91,25 @@ public class OpenNlpPosRecommender
         return aContext.get(KEY_MODEL).map(Objects::nonNull).orElse(false);
     }
 
+    @Override
+    public RecommenderContext newContext(RecommenderContext aContext)
+    {
+        // Carry over the samples so that only changed documents need to be processed again
+        RecommenderContext context = new RecommenderContext();
+        aContext.get(KEY_SAMPLES).ifPresent(samples -> context.put(KEY_SAMPLES, samples));
+        return context;
+    }
+
     @Override
     public void train(RecommenderContext aContext, List<CAS> aCasses) throws RecommendationException
     {
-        List<POSSample> posSamples = extractPosSamples(aCasses);
+        TrainingSampleCache<POSSample> sampleCache = aContext.get(KEY_SAMPLES)
+                .orElseGet(TrainingSampleCache::new);
+        aContext.put(KEY_SAMPLES, sampleCache);
+
+        List<POSSample> posSamples = sampleCache.getSamples(aCasses,
+                cas -> extractPosSamples(cas, Integer.MAX_VALUE),
+                traits.getTrainingSetSizeLimit());
 
         if (posSamples.size() < 2) {
             aContext.warn("Not enough training data: [%d] items", posSamples.size());
@@ -268,27 +286,41 @@ public class OpenNlpPosRecommender
     {
         List<POSSample> posSamples = new ArrayList<>();
 
-        casses: for (CAS cas : aCasses) {
-            Type sampleUnitType = getType(cas, SAMPLE_UNIT);
-            Type tokenType = getType(cas, Token.class);
+        for (CAS cas : aCasses) {
+            int limit = traits.getTrainingSetSizeLimit() - posSamples.size();
+            if (limit <= 0) {
+                break;
+            }
 
-            for (Annotation sampleUnit : cas.<Annotation> select(sampleUnitType)) {
-                if (posSamples.size() >= traits.getTrainingSetSizeLimit()) {
-                    break casses;
-                }
+            posSamples.addAll(extractPosSamples(cas, limit));
+        }
 
-                if (isBlank(sampleUnit.getCoveredText())) {
-                    continue;
-                }
+        LOG.debug("Extracted {} POS samples", posSamples.size());
+
+        return posSamples;
+    }
 
-                List<Annotation> tokens = cas.<Annotation> select(tokenType).coveredBy(sampleUnit)
-                        .asList();
+    private List<POSSample> extractPosSamples(CAS aCas, int aLimit)
+    {
+        List<POSSample> posSamples = new ArrayList<>();
 
-                createPosSample(cas, sampleUnit, tokens).map(posSamples::add);
+        Type sampleUnitType = getType(aCas, SAMPLE_UNIT);
+        Type tokenType = getType(aCas, Token.class);
+
+        for (Annotation sampleUnit : aCas.<Annotation> select(sampleUnitType)) {
+            if (posSamples.size() >= aLimit) {
+                break;
             }
-        }
 
-        LOG.debug("Extracted {} POS samples", posSamples.size());
+            if (isBlank(sampleUnit.getCoveredText())) {
+                continue;
+            }
+
+            List<Annotation> tokens = aCas.<Annotation> select(tokenType).coveredBy(sampleUnit)
+                    .asList();
+
+            createPosSample(aCas, sampleUnit, tokens).map(posSamples::add);
+        }
 
         return posSamples;
     }
@@ -28,16 +28,22 @@ import static org.apache.uima.fit.util.CasUtil.getType;
 import static org.apache.uima.fit.util.CasUtil.select;
 import static org.apache.uima.fit.util.CasUtil.selectCovered;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -62,6 +68,7 @@ import de.tudarmstadt.ukp.inception.recommendation.api.recommender.Recommendatio
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationException;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext.Key;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.TrainingSampleCache;
 import de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.gazeteer.GazeteerService;
 import de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.gazeteer.model.Gazeteer;
 import de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.gazeteer.model.GazeteerEntry;
@@ -73,6 +80,9 @@ public class StringMatchingRecommender
     extends RecommendationEngine
 {
     public static final Key<Trie<DictEntry>> KEY_MODEL = new Key<>("model");
+    public static final Key<TrainingSampleCache<GazeteerEntry>> KEY_SAMPLES = new Key<>(
+            "samples");
+    public static final Key<GazeteerModel> KEY_GAZETEER_MODEL = new Key<>("gazeteerModel");
 
     private static final String UNKNOWN_LABEL = "unknown";
     private static final String NO_LABEL = "O";
@@ -111,12 +121,18 @@ public class StringMatchingRecommender
     {
         Trie<DictEntry> dict = aContext.get(KEY_MODEL)
                 .orElseThrow(() -> new IOException("No model trained yet."));
+        Trie<DictEntry> gazeteerDict = getGazeteerDict(aContext);
 
         OutputStreamWriter out = new OutputStreamWriter(aOutput);
-        List<String> sortedKeys = new ArrayList<>(dict.keys());
+        Set<String> keys = new LinkedHashSet<>(dict.keys());
+        if (gazeteerDict != null) {
+            keys.addAll(gazeteerDict.keys());
+        }
+        List<String> sortedKeys = new ArrayList<>(keys);
         Collections.sort(sortedKeys);
         for (String key : sortedKeys) {
-            DictEntry value = dict.get(key);
+            DictEntry value = DictEntry.merge(dict.get(key),
+                    gazeteerDict != null ? gazeteerDict.get(key) : null);
             for (int i = 0; i < value.labels.length; i++) {
                 out.append(key);
                 out.append("\t");
@@ -142,50 +158,85 @@ public class StringMatchingRecommender
         aContext.put(KEY_MODEL, dict);
     }
 
+    private void pretrainGazeteers(RecommenderContext aContext)
+    {
+        List<Gazeteer> gazeteers = gazeteerService.listGazeteers(recommender);
+
+        // The gazeteer files only change when they are re-uploaded, so we identify the state of
+        // the gazeteers by their IDs and the timestamps/sizes of their files
+        List<String> signature = new ArrayList<>();
+        for (Gazeteer gaz : gazeteers) {
+            try {
+                File file = gazeteerService.getGazeteerFile(gaz);
+                signature.add(gaz.getId() + ":" + file.lastModified() + ":" + file.length());
+            }
+            catch (IOException e) {
+                signature.add(gaz.getId() + ":?");
+            }
+        }
+
+        GazeteerModel model = aContext.get(KEY_GAZETEER_MODEL) //
+                .filter(m -> m.signature.equals(signature)) //
+                .orElse(null);
+
+        if (model == null) {
+            Trie<DictEntry> dict = createTrie();
+            pretrainGazeteers(gazeteers, dict);
+            model = new GazeteerModel(signature, dict);
+        }
+        else {
+            log.trace("Using cached gazeteer model with [{}] entries", model.dict.size());
+        }
+
+        aContext.put(KEY_GAZETEER_MODEL, model);
+    }
+
+    private void pretrainGazeteers(List<Gazeteer> aGazeteers, Trie<DictEntry> aDict)
+    {
+        for (Gazeteer gaz : aGazeteers) {
+            try {
+                for (GazeteerEntry entry : gazeteerService.readGazeteerFile(gaz)) {
+                    learn(aDict, entry.text, entry.label);
+                }
+            }
+            catch (IOException e) {
+                log.info(
+                        "Unable to load gazeteer [{}] for recommender [{}]({}) in project [{}]({})",
+                        gaz.getName(), gaz.getRecommender().getName(),
+                        gaz.getRecommender().getId(), gaz.getRecommender().getProject().getName(),
+                        gaz.getRecommender().getProject().getId(), e);
+            }
+        }
+    }
+
     private <T> Trie<T> createTrie()
     {
         return new Trie<>(WhitespaceNormalizingSanitizer.factory());
     }
 
+    private Trie<DictEntry> getGazeteerDict(RecommenderContext aContext)
+    {
+        return aContext.get(KEY_GAZETEER_MODEL).map(model -> model.dict).orElse(null);
+    }
+
     @Override
     public void train(RecommenderContext aContext, List<CAS> aCasses) throws RecommendationException
     {
-        // Pre-load the gazeteers into the model
+        // Pre-load the gazeteers into their own model which is shared between training runs. The
+        // training data goes into a separate dictionary, so the gazeteer model is never modified.
         if (gazeteerService != null) {
-            for (Gazeteer gaz : gazeteerService.listGazeteers(recommender)) {
-                try {
-                    pretrain(gazeteerService.readGazeteerFile(gaz), aContext);
-                }
-                catch (IOException e) {
-                    log.info(
-                            "Unable to load gazeteer [{}] for recommender [{}]({}) in project [{}]({})",
-                            gaz.getName(), gaz.getRecommender().getName(),
-                            gaz.getRecommender().getId(),
-                            gaz.getRecommender().getProject().getName(),
-                            gaz.getRecommender().getProject().getId(), e);
-                }
-            }
+            pretrainGazeteers(aContext);
         }
 
         Trie<DictEntry> dict = aContext.get(KEY_MODEL).orElseGet(this::createTrie);
 
-        for (CAS cas : aCasses) {
-            Type predictedType = getPredictedType(cas);
-            Feature predictedFeature = getPredictedFeature(cas);
-            boolean isStringMultiValue = CAS.TYPE_NAME_STRING_ARRAY
-                    .equals(predictedFeature.getRange().getName());
+        TrainingSampleCache<GazeteerEntry> sampleCache = aContext.get(KEY_SAMPLES)
+                .orElseGet(TrainingSampleCache::new);
+        aContext.put(KEY_SAMPLES, sampleCache);
 
-            for (AnnotationFS ann : select(cas, predictedType)) {
-                if (isStringMultiValue) {
-                    for (String label : FSUtil.getFeature(ann, predictedFeature, String[].class)) {
-                        learn(dict, ann.getCoveredText(), label);
-                    }
-                }
-                else {
-                    learn(dict, ann.getCoveredText(),
-                            ann.getFeatureValueAsString(predictedFeature));
-                }
-            }
+        for (GazeteerEntry entry : sampleCache.getSamples(aCasses, this::extractDictionaryEntries,
+                Integer.MAX_VALUE)) {
+            learn(dict, entry.text, entry.label);
         }
 
         aContext.info("Learned dictionary model with %d entries on %d documents", dict.size(),
@@ -194,12 +245,47 @@ public class StringMatchingRecommender
         aContext.put(KEY_MODEL, dict);
     }
 
+    private List<GazeteerEntry> extractDictionaryEntries(CAS aCas)
+    {
+        Type predictedType = getPredictedType(aCas);
+        Feature predictedFeature = getPredictedFeature(aCas);
+        boolean isStringMultiValue = CAS.TYPE_NAME_STRING_ARRAY
+                .equals(predictedFeature.getRange().getName());
+
+        List<GazeteerEntry> entries = new ArrayList<>();
+        for (AnnotationFS ann : select(aCas, predictedType)) {
+            if (isStringMultiValue) {
+                for (String label : FSUtil.getFeature(ann, predictedFeature, String[].class)) {
+                    entries.add(new GazeteerEntry(ann.getCoveredText(), label));
+                }
+            }
+            else {
+                entries.add(new GazeteerEntry(ann.getCoveredText(),
+                        ann.getFeatureValueAsString(predictedFeature)));
+            }
+        }
+
+        return entries;
+    }
+
+    @Override
+    public RecommenderContext newContext(RecommenderContext aContext)
+    {
+        // Carry over the samples so that only changed documents need to be processed again
+        RecommenderContext context = new RecommenderContext();
+        aContext.get(KEY_SAMPLES).ifPresent(samples -> context.put(KEY_SAMPLES, samples));
+        aContext.get(KEY_GAZETEER_MODEL)
+                .ifPresent(model -> context.put(KEY_GAZETEER_MODEL, model));
+        return context;
+    }
+
     @Override
     public Range predict(RecommenderContext aContext, CAS aCas, int aBegin, int aEnd)
         throws RecommendationException
     {
         Trie<DictEntry> dict = aContext.get(KEY_MODEL).orElseThrow(
                 () -> new RecommendationException("Key [" + KEY_MODEL + "] not found in context"));
+        Trie<DictEntry> gazeteerDict = getGazeteerDict(aContext);
 
         Type predictedType = getPredictedType(aCas);
         Feature predictedFeature = getPredictedFeature(aCas);
@@ -209,7 +295,7 @@ public class StringMatchingRecommender
 
         var units = selectOverlapping(aCas, sampleUnitType, aBegin, aEnd);
 
-        List<Sample> data = predict(aCas, units, dict);
+        List<Sample> data = predict(aCas, units, dict, gazeteerDict);
 
         for (Sample sample : data) {
             for (Span span : sample.getSpans()) {
@@ -228,7 +314,8 @@ public class StringMatchingRecommender
         return new Range(units);
     }
 
-    private List<Sample> predict(CAS aCas, List<AnnotationFS> units, Trie<DictEntry> aDict)
+    private List<Sample> predict(CAS aCas, List<AnnotationFS> units, Trie<DictEntry> aDict,
+            Trie<DictEntry> aGazeteerDict)
     {
         boolean requireEndAtTokenBoundary = !CHARACTERS
                 .equals(getRecommender().getLayer().getAnchoringMode());
@@ -250,9 +337,31 @@ public class StringMatchingRecommender
                     .asList();
             for (Annotation token : tokens) {
                 Trie<DictEntry>.MatchedNode match = aDict.getNode(text, token.getBegin());
+                Trie<DictEntry>.MatchedNode gazeteerMatch = aGazeteerDict != null
+                        ? aGazeteerDict.getNode(text, token.getBegin())
+                        : null;
+
+                // The longest match wins - if both dictionaries match the same text, their
+                // label counts are combined
+                int matchLength = -1;
+                DictEntry entry = null;
                 if (match != null) {
+                    matchLength = match.matchLength;
+                    entry = match.node.value;
+                }
+                if (gazeteerMatch != null) {
+                    if (gazeteerMatch.matchLength > matchLength) {
+                        matchLength = gazeteerMatch.matchLength;
+                        entry = gazeteerMatch.node.value;
+                    }
+                    else if (gazeteerMatch.matchLength == matchLength) {
+                        entry = DictEntry.merge(entry, gazeteerMatch.node.value);
+                    }
+                }
+
+                if (entry != null) {
                     int begin = token.getBegin();
-                    int end = begin + match.matchLength;
+                    int end = begin + matchLength;
 
                     // If the end is not in the same sentence as the start, skip
                     if (requireSingleSentence && !(end <= sampleUnit.getEnd())) {
@@ -265,7 +374,7 @@ public class StringMatchingRecommender
                         continue;
                     }
 
-                    for (LabelStats lc : match.node.value.getBest(maxRecommendations)) {
+                    for (LabelStats lc : entry.getBest(maxRecommendations)) {
                         String label = lc.getLabel();
                         // check instance equality to avoid collision with user labels
                         if (label == UNKNOWN_LABEL) {
@@ -639,8 +748,32 @@ public class StringMatchingRecommender
         }
     }
 
+    /**
+     * Dictionary built from the gazeteers of the recommender. It is carried over between training
+     * runs so the gazeteer files do not have to be read again as long as they do not change. The
+     * dictionary is shared between the contexts of these runs, so it must not be modified after it
+     * has been built.
+     */
+    public static class GazeteerModel
+        implements Serializable
+    {
+        private static final long serialVersionUID = 2270939623339925064L;
+
+        private final List<String> signature;
+        private final Trie<DictEntry> dict;
+
+        public GazeteerModel(List<String> aSignature, Trie<DictEntry> aDict)
+        {
+            signature = aSignature;
+            dict = aDict;
+        }
+    }
+
     public static class DictEntry
+        implements Serializable
     {
+        private static final long serialVersionUID = -4150597012786138813L;
+
         private String key;
         private String[] labels;
         private int[] counts;
@@ -651,11 +784,16 @@ public class StringMatchingRecommender
         }
 
         public void put(String aLabel)
+        {
+            put(aLabel, 1);
+        }
+
+        private void put(String aLabel, int aCount)
         {
             // No data yet - create it
             if (labels == null) {
                 labels = new String[] { aLabel };
-                counts = new int[] { 1 };
+                counts = new int[] { aCount };
                 return;
             }
 
@@ -664,7 +802,7 @@ public class StringMatchingRecommender
 
             // Label already exists
             if (i != -1) {
-                counts[i]++;
+                counts[i] += aCount;
                 return;
             }
 
@@ -678,7 +816,31 @@ public class StringMatchingRecommender
             counts = newCounts;
 
             labels[labels.length - 1] = aLabel;
-            counts[counts.length - 1] = 1;
+            counts[counts.length - 1] = aCount;
+        }
+
+        /**
+         * @return an entry with the label counts of both entries. The entries themselves are not
+         *         modified. If one of them is {@code null}, the other one is returned.
+         */
+        static DictEntry merge(DictEntry aEntry, DictEntry aOther)
+        {
+            if (aEntry == null) {
+                return aOther;
+            }
+
+            if (aOther == null) {
+                return aEntry;
+            }
+
+            DictEntry merged = new DictEntry(aEntry.key);
+            for (int i = 0; i < aEntry.labels.length; i++) {
+                merged.put(aEntry.labels[i], aEntry.counts[i]);
+            }
+            for (int i = 0; i < aOther.labels.length; i++) {
+                merged.put(aOther.labels[i], aOther.counts[i]);
+            }
+            return merged;
         }
 
         public List<LabelStats> getBest(int aN)
@@ -694,6 +856,31 @@ public class StringMatchingRecommender
                     .collect(Collectors.toList());
         }
 
+        private void writeObject(ObjectOutputStream aOut) throws IOException
+        {
+            aOut.defaultWriteObject();
+
+            // The unknown label is recognized by instance identity which does not survive
+            // serialization, so we remember its position separately
+            int unknownIndex = -1;
+            for (int i = 0; labels != null && i < labels.length; i++) {
+                if (labels[i] == UNKNOWN_LABEL) {
+                    unknownIndex = i;
+                }
+            }
+            aOut.writeInt(unknownIndex);
+        }
+
+        private void readObject(ObjectInputStream aIn) throws IOException, ClassNotFoundException
+        {
+            aIn.defaultReadObject();
+
+            int unknownIndex = aIn.readInt();
+            if (unknownIndex >= 0) {
+                labels[unknownIndex] = UNKNOWN_LABEL;
+            }
+        }
+
         @Override
         public String toString()
         {
@@ -17,7 +17,15 @@
  */
 package de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.trie;
 
+import java.io.Serializable;
+
+/**
+ * Creates {@link KeySanitizer sanitizers}. Factories are serializable so that they can be stored
+ * together with the {@link Trie} they are configured in.
+ */
+@FunctionalInterface
 public interface KeySanitizerFactory
+    extends Serializable
 {
     public KeySanitizer create();
 }
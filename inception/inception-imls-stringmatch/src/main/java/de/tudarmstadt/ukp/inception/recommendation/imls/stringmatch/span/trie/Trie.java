@@ -17,7 +17,9 @@
  */
 package de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.trie;
 
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -25,17 +27,26 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
-import java.util.TreeMap;
 
 /**
- * A HashMap-based Trie. Zero-length or null keys are not allowed. Null values are allowed.
+ * A compact Trie. The children of each node are stored in a sorted character array and a parallel
+ * node array which are searched using binary search. This avoids boxing the characters and keeps
+ * the memory footprint of large dictionaries low. Zero-length or null keys are not allowed. Null
+ * values are allowed.
+ * <p>
+ * The trie is serializable if its values and the key sanitizer factory are serializable.
  *
  * @param <V>
  *            the value type.
  */
 public class Trie<V>
+    implements Serializable
 // implements Map<CharSequence, V>
 {
+    private static final long serialVersionUID = -3617328396291539046L;
+
+    private static final char[] NO_KEYS = {};
+
     private int size = 0;
     private KeySanitizerFactory sanitizerFactory;
 
@@ -52,18 +63,62 @@ public class Trie<V>
     }
 
     public class Node
+        implements Serializable
     {
-        final Map<Character, Node> children;
+        private static final long serialVersionUID = 3907150011405069466L;
+
+        char[] keys;
+        Node[] children;
         public V value;
         public final int level;
         boolean set;
 
         Node(final int l)
         {
-            children = new TreeMap<Character, Node>();
+            keys = NO_KEYS;
+            children = null;
             level = l;
             set = false;
         }
+
+        Node getChild(final char aKey)
+        {
+            final int i = Arrays.binarySearch(keys, aKey);
+            return i >= 0 ? children[i] : null;
+        }
+
+        Node getOrAddChild(final char aKey)
+        {
+            int i = Arrays.binarySearch(keys, aKey);
+            if (i >= 0) {
+                return children[i];
+            }
+
+            // Insert the new child at the insertion point so the keys remain sorted
+            i = -(i + 1);
+
+            @SuppressWarnings("unchecked")
+            final Node[] newChildren = (Node[]) new Trie<?>.Node[keys.length + 1];
+            final char[] newKeys = new char[keys.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, i);
+            System.arraycopy(keys, i, newKeys, i + 1, keys.length - i);
+            if (children != null) {
+                System.arraycopy(children, 0, newChildren, 0, i);
+                System.arraycopy(children, i, newChildren, i + 1, children.length - i);
+            }
+
+            final Node child = new Node(level + 1);
+            newKeys[i] = aKey;
+            newChildren[i] = child;
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+
+        int childCount()
+        {
+            return keys.length;
+        }
     }
 
     private Node root;
@@ -124,16 +179,8 @@ public class Trie<V>
         // }
 
         Node last = root;
-        int level = 1;
         for (int i = 0; i < key.length(); i++) {
-            final char k = key.charAt(i);
-            Node cur = last.children.get(k);
-            if (cur == null) {
-                cur = new Node(level);
-                last.children.put(k, cur);
-            }
-            last = cur;
-            level++;
+            last = last.getOrAddChild(key.charAt(i));
         }
 
         if (!last.set) {
@@ -173,8 +220,8 @@ public class Trie<V>
         }
         Node last = root;
         Node match = null;
-        int i = offset;
-        for (; i < key.length(); i++) {
+        int matchEnd = offset;
+        for (int i = offset; i < key.length(); i++) {
             char k = key.charAt(i);
 
             if (sanitizer != null) {
@@ -184,19 +231,20 @@ public class Trie<V>
                 }
             }
 
-            final Node cur = last.children.get(k);
+            final Node cur = last.getChild(k);
             if (cur == null) {
                 break;
             }
             else {
                 if (cur.set) {
                     match = cur;
+                    matchEnd = i + 1;
                 }
             }
             last = cur;
         }
 
-        return match != null ? new MatchedNode(match, i - offset) : null;
+        return match != null ? new MatchedNode(match, matchEnd - offset) : null;
     }
 
     /**
@@ -257,7 +305,7 @@ public class Trie<V>
 
             acceptedKeyChars++;
 
-            final Node cur = last.children.get(k);
+            final Node cur = last.getChild(k);
             if (cur == null) {
                 break;
             }
@@ -394,8 +442,8 @@ public class Trie<V>
             vals.add(cur.value);
         }
 
-        for (final Node n : cur.children.values()) {
-            values(n, vals);
+        for (int i = 0; i < cur.childCount(); i++) {
+            values(cur.children[i], vals);
         }
     }
 
@@ -404,9 +452,9 @@ public class Trie<V>
         final Set<String> vals = new HashSet<String>(size);
         final StringBuilder b = new StringBuilder();
 
-        for (final Character c : root.children.keySet()) {
+        for (int i = 0; i < root.childCount(); i++) {
             b.setLength(0);
-            keys(c, root.children.get(c), b, vals);
+            keys(root.keys[i], root.children[i], b, vals);
         }
         return vals;
     }
@@ -428,8 +476,7 @@ public class Trie<V>
      * @param vals
      *            the found key values.
      */
-    private void keys(final Character c, final Node n, final StringBuilder b,
-            final Set<String> vals)
+    private void keys(final char c, final Node n, final StringBuilder b, final Set<String> vals)
     {
         b.append(c);
 
@@ -437,9 +484,9 @@ public class Trie<V>
             vals.add(b.toString());
         }
 
-        for (final Character cc : n.children.keySet()) {
+        for (int i = 0; i < n.childCount(); i++) {
             b.setLength(n.level);
-            keys(cc, n.children.get(cc), b, vals);
+            keys(n.keys[i], n.children[i], b, vals);
         }
     }
 
@@ -453,25 +500,27 @@ public class Trie<V>
         {
             private final Character c;
             private final Node n;
-            private final Iterator<Character> i;
+            private int i;
             private boolean nodeDone;
 
             public Frame(final Character aChar, final Node aNode)
             {
                 c = aChar;
                 n = aNode;
-                i = aNode.children.keySet().iterator();
+                i = 0;
                 nodeDone = c == null || !n.set;
             }
 
             boolean hasNext()
             {
-                return i.hasNext() || !nodeDone;
+                return i < n.childCount() || !nodeDone;
             }
 
             void step()
             {
-                sb.append(c);
+                if (c != null) {
+                    sb.append(c);
+                }
                 sb.setLength(n.level);
 
                 if (!nodeDone) {
@@ -480,8 +529,8 @@ public class Trie<V>
                 }
                 else {
                     // Render the children
-                    final Character ch = i.next();
-                    final Frame f = new Frame(ch, n.children.get(ch));
+                    final Frame f = new Frame(n.keys[i], n.children[i]);
+                    i++;
                     stack.add(f);
                     f.step();
                 }
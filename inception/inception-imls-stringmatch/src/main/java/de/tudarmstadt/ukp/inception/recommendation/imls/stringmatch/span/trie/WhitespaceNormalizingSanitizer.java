@@ -39,6 +39,6 @@ public class WhitespaceNormalizingSanitizer
 
     public static KeySanitizerFactory factory()
     {
-        return () -> new WhitespaceNormalizingSanitizer();
+        return WhitespaceNormalizingSanitizer::new;
     }
 }
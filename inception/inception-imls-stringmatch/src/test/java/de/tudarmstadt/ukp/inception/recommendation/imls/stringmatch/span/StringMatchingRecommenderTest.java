@@ -20,12 +20,18 @@ package de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span;
 import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode.EXCLUSIVE_WRITE_ACCESS;
 import static de.tudarmstadt.ukp.clarin.webanno.model.AnchoringMode.CHARACTERS;
 import static de.tudarmstadt.ukp.inception.support.test.recommendation.RecommenderTestHelper.getPredictions;
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static org.apache.uima.fit.factory.CollectionReaderFactory.createReader;
 import static org.apache.uima.fit.util.JCasUtil.select;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assumptions.assumeThat;
+import static org.assertj.core.groups.Tuple.tuple;
 import static org.dkpro.core.api.datasets.DatasetValidationPolicy.CONTINUE;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -64,7 +70,11 @@ import de.tudarmstadt.ukp.inception.recommendation.api.evaluation.IncrementalSpl
 import de.tudarmstadt.ukp.inception.recommendation.api.evaluation.PercentageBasedSplitter;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext;
+import de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.StringMatchingRecommender.GazeteerModel;
+import de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.gazeteer.GazeteerService;
+import de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.gazeteer.model.Gazeteer;
 import de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.gazeteer.model.GazeteerEntry;
+import de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.trie.Trie;
 import de.tudarmstadt.ukp.inception.support.test.recommendation.DkproTestHelper;
 import de.tudarmstadt.ukp.inception.support.test.recommendation.RecommenderTestHelper;
 
@@ -205,6 +215,67 @@ public class StringMatchingRecommenderTest
         assertThat(predictions).extracting(NamedEntity::getCoveredText).contains("Smith .\nPeter");
     }
 
+    @Test
+    public void thatGazeteerModelIsSharedAndNotModifiedByTraining() throws Exception
+    {
+        Gazeteer gaz = new Gazeteer("gaz", recommender);
+        GazeteerService gazeteerService = mock(GazeteerService.class);
+        when(gazeteerService.listGazeteers(recommender)).thenReturn(asList(gaz));
+        when(gazeteerService.getGazeteerFile(gaz)).thenReturn(new File("gazeteer.txt"));
+        when(gazeteerService.readGazeteerFile(gaz)).thenReturn(asList( //
+                new GazeteerEntry("John Smith", "PER"), //
+                new GazeteerEntry("Peter Miller", "LOC")));
+
+        StringMatchingRecommender sut = new StringMatchingRecommender(recommender, traits,
+                gazeteerService);
+
+        String text = "John Smith met Peter Miller .";
+        int[][] sentIndices = new int[][] { { 0, 29 } };
+        int[][] tokenIndices = new int[][] { { 0, 4 }, { 5, 10 }, { 11, 14 }, { 15, 20 },
+                { 21, 27 }, { 28, 29 } };
+        List<CAS> trainingCas = getTestNECas(text, new String[] { "ORG" },
+                new int[][] { { 15, 27 } }, sentIndices, tokenIndices);
+
+        sut.train(context, trainingCas);
+        GazeteerModel gazeteerModel = context.get(StringMatchingRecommender.KEY_GAZETEER_MODEL)
+                .get();
+
+        // Predictions consider both the gazeteer and the training data
+        CAS cas = getTestNECas(text, new String[0], new int[0][], sentIndices, tokenIndices)
+                .get(0);
+        casStorageSession.add("cas", EXCLUSIVE_WRITE_ACCESS, cas);
+        RecommenderTestHelper.addScoreFeature(cas, NamedEntity.class, "value");
+        sut.predict(context, cas);
+        assertThat(getPredictions(cas, NamedEntity.class)) //
+                .extracting(NamedEntity::getCoveredText, NamedEntity::getValue) //
+                .containsExactlyInAnyOrder( //
+                        tuple("John Smith", "PER"), //
+                        tuple("Peter Miller", "ORG"), //
+                        tuple("Peter Miller", "LOC"));
+
+        // The next training run re-uses the gazeteer model without reading the gazeteer again
+        RecommenderContext nextContext = sut.newContext(context);
+        sut.train(nextContext, trainingCas);
+        assertThat(nextContext.get(StringMatchingRecommender.KEY_GAZETEER_MODEL))
+                .containsSame(gazeteerModel);
+        verify(gazeteerService, times(1)).readGazeteerFile(gaz);
+
+        // The training data has not been added to the gazeteer model
+        RecommenderContext gazeteerOnlyContext = new RecommenderContext();
+        gazeteerOnlyContext.put(StringMatchingRecommender.KEY_GAZETEER_MODEL, gazeteerModel);
+        gazeteerOnlyContext.put(StringMatchingRecommender.KEY_MODEL, new Trie<>());
+        CAS cas2 = getTestNECas(text, new String[0], new int[0][], sentIndices, tokenIndices)
+                .get(0);
+        casStorageSession.add("cas2", EXCLUSIVE_WRITE_ACCESS, cas2);
+        RecommenderTestHelper.addScoreFeature(cas2, NamedEntity.class, "value");
+        sut.predict(gazeteerOnlyContext, cas2);
+        assertThat(getPredictions(cas2, NamedEntity.class)) //
+                .extracting(NamedEntity::getCoveredText, NamedEntity::getValue) //
+                .containsExactlyInAnyOrder( //
+                        tuple("John Smith", "PER"), //
+                        tuple("Peter Miller", "LOC"));
+    }
+
     private CAS getTestCasNoLabelLabels() throws Exception
     {
         try {
@@ -18,10 +18,13 @@
 package de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.trie;
 
 import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.commons.lang3.SerializationUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -81,4 +84,49 @@ public class TrieTest
         assertThat(sut.getNode("  this is\ta test  .").node.level).isEqualTo(16);
         assertThat(sut.getNode("  this is\ta test  .").matchLength).isEqualTo(19);
     }
+
+    @Test
+    public void thatChildrenAreKeptInOrder()
+    {
+        List<String> keys = new ArrayList<>();
+        for (char c = 'z'; c >= 'a'; c--) {
+            keys.add("x" + c + c);
+            keys.add(String.valueOf(c));
+        }
+
+        for (String key : keys) {
+            sut.put(key, new DictEntry(key));
+        }
+
+        assertThat(sut.size()).isEqualTo(keys.size());
+        assertThat(sut.keyIterator()).toIterable()
+                .containsExactlyElementsOf(keys.stream().sorted().collect(toList()));
+
+        for (String key : keys) {
+            assertThat(sut.get(key)).hasToString("DictEntry [key=" + key + "]");
+        }
+
+        assertThat(sut.get("xa")).isNull();
+        assertThat(sut.containsPrefix("xa")).isTrue();
+    }
+
+    @Test
+    public void thatTrieCanBeSerialized()
+    {
+        sut = new Trie<DictEntry>(WhitespaceNormalizingSanitizer.factory());
+        sut.put("this is a test", new DictEntry("test"));
+        sut.put("this is", new DictEntry("this"));
+
+        Trie<DictEntry> copy = SerializationUtils.clone(sut);
+
+        assertThat(copy.size()).isEqualTo(2);
+        assertThat(copy.keys()).containsExactlyInAnyOrder("this is a test", "this is");
+        assertThat(copy.getNode("  this\tis  a test", 0).matchLength).isEqualTo(17);
+        assertThat(copy.getNode("this is  another test", 0).matchLength).isEqualTo(7);
+
+        copy.put("this", new DictEntry("other"));
+
+        assertThat(copy.size()).isEqualTo(3);
+        assertThat(sut.size()).isEqualTo(2);
+    }
 }
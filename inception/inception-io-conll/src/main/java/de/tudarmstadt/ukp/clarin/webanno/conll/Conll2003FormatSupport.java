@@ -20,6 +20,9 @@ package de.tudarmstadt.ukp.clarin.webanno.conll;
 import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngineDescription;
 import static org.apache.uima.fit.factory.CollectionReaderFactory.createReaderDescription;
 
+import java.io.IOException;
+import java.util.Optional;
+
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.collection.CollectionReaderDescription;
@@ -29,6 +32,7 @@ import org.dkpro.core.io.conll.Conll2003Reader;
 import org.dkpro.core.io.conll.Conll2003Writer;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.format.FormatSupport;
+import de.tudarmstadt.ukp.clarin.webanno.api.format.StreamingWriterFactory;
 import de.tudarmstadt.ukp.clarin.webanno.conll.config.ConllFormatsAutoConfiguration;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 
@@ -82,4 +86,18 @@ public class Conll2003FormatSupport
     {
         return createEngineDescription(Conll2003Writer.class, aTSD);
     }
+
+    @Override
+    public Optional<StreamingWriterFactory> getStreamingWriterFactory()
+    {
+        return Optional.of(sink -> new Conll2003Writer()
+        {
+            @Override
+            protected NamedOutputStream getOutputStream(String aRelativePath, String aExtension)
+                throws IOException
+            {
+                return sink.open(aRelativePath, aExtension);
+            }
+        });
+    }
 }
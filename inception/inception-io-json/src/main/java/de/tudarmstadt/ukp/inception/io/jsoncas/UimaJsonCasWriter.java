@@ -21,6 +21,7 @@ import java.io.OutputStream;
 
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.json.jsoncas2.JsonCas2Serializer;
 import org.apache.uima.json.jsoncas2.mode.FeatureStructuresMode;
@@ -31,6 +32,7 @@ import org.apache.uima.json.jsoncas2.ref.FullyQualifiedTypeRefGenerator;
 import org.apache.uima.json.jsoncas2.ref.SequentialIdRefGenerator;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.dkpro.core.api.io.JCasFileWriter_ImplBase;
+import org.dkpro.core.api.parameter.ComponentParameters;
 
 /**
  * UIMA JSON CAS format writer.
@@ -38,6 +40,13 @@ import org.dkpro.core.api.io.JCasFileWriter_ImplBase;
 public class UimaJsonCasWriter
     extends JCasFileWriter_ImplBase
 {
+    /**
+     * Use this filename extension.
+     */
+    public static final String PARAM_FILENAME_EXTENSION = ComponentParameters.PARAM_FILENAME_EXTENSION;
+    @ConfigurationParameter(name = PARAM_FILENAME_EXTENSION, mandatory = true, defaultValue = ".json")
+    private String filenameSuffix;
+
     private JsonCas2Serializer jcs;
 
     @Override
@@ -57,7 +66,7 @@ public class UimaJsonCasWriter
     @Override
     public void process(JCas aJCas) throws AnalysisEngineProcessException
     {
-        try (OutputStream docOS = getOutputStream(aJCas, ".json")) {
+        try (OutputStream docOS = getOutputStream(aJCas, filenameSuffix)) {
             jcs.serialize(aJCas.getCas(), docOS);
         }
         catch (Exception e) {
@@ -106,8 +106,10 @@ import org.springframework.context.event.EventListener;
 import org.springframework.http.HttpHeaders;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.config.RepositoryProperties;
 import de.tudarmstadt.ukp.clarin.webanno.api.event.BeforeProjectRemovedEvent;
@@ -158,6 +160,7 @@ public class KnowledgeBaseServiceImpl
     private final KnowledgeBaseProperties properties;
 
     private final LoadingCache<QueryKey, List<KBHandle>> queryCache;
+    private final PersistentQueryCache persistentQueryCache;
     private final MemoryOAuthSessionRepository<KnowledgeBase> oAuthSessionRepository;
 
     @Autowired
@@ -166,6 +169,16 @@ public class KnowledgeBaseServiceImpl
     {
         properties = aKBProperties;
 
+        if (aKBProperties.getPersistentCacheSize() > 0) {
+            persistentQueryCache = new PersistentQueryCache(
+                    new File(aRepoProperties.getPath(), "kb-cache"),
+                    aKBProperties.getPersistentCacheSize(),
+                    aKBProperties.getPersistentCacheExpireDelay());
+        }
+        else {
+            persistentQueryCache = null;
+        }
+
         queryCache = createQueryCache(aKBProperties);
         oAuthSessionRepository = new MemoryOAuthSessionRepository<>();
 
@@ -216,7 +229,22 @@ public class KnowledgeBaseServiceImpl
             queryCacheBuilder.recordStats();
         }
 
-        return queryCacheBuilder.build(this::runQuery);
+        return queryCacheBuilder.build(new CacheLoader<QueryKey, List<KBHandle>>()
+        {
+            @Override
+            public List<KBHandle> load(QueryKey aKey)
+            {
+                return loadQuery(aKey);
+            }
+
+            @Override
+            public List<KBHandle> reload(QueryKey aKey, List<KBHandle> aOldValue)
+            {
+                // Refreshing must bypass the persistent cache - otherwise we would never pick up
+                // changes from the KB until the persistent entry expires
+                return runQuery(aKey);
+            }
+        });
     }
 
     public KnowledgeBaseServiceImpl(RepositoryProperties aRepoProperties,
@@ -382,6 +410,7 @@ public class KnowledgeBaseServiceImpl
     {
         assertRegistration(kb);
         repoManager.addRepositoryConfig(new RepositoryConfig(kb.getRepositoryId(), cfg));
+        invalidateQueryCache(kb);
         updateKnowledgeBase(kb);
     }
 
@@ -427,6 +456,8 @@ public class KnowledgeBaseServiceImpl
 
         repoManager.removeRepository(aKB.getRepositoryId());
 
+        invalidateQueryCache(aKB);
+
         entityManager.remove(entityManager.contains(aKB) ? aKB : entityManager.merge(aKB));
     }
 
@@ -607,6 +638,8 @@ public class KnowledgeBaseServiceImpl
             String prefix = StringUtils.removeEnd(kb.getBasePrefix(), "#");
             conn.add(is, prefix, format);
         }
+
+        invalidateQueryCache(kb);
     }
 
     @Override
@@ -628,6 +661,8 @@ public class KnowledgeBaseServiceImpl
         try (RepositoryConnection conn = getConnection(kb)) {
             conn.clear();
         }
+
+        invalidateQueryCache(kb);
     }
 
     @Override
@@ -981,6 +1016,8 @@ public class KnowledgeBaseServiceImpl
                 }
             }
         }
+
+        invalidateQueryCache(kb);
     }
 
     @Override
@@ -1464,9 +1501,50 @@ public class KnowledgeBaseServiceImpl
         return result;
     }
 
+    private List<KBHandle> loadQuery(QueryKey aKey)
+    {
+        if (persistentQueryCache != null) {
+            Optional<List<KBHandle>> cached = persistentQueryCache.get(aKey.kb,
+                    aKey.query.selectQuery().getQueryString(), aKey.all);
+            if (log.isTraceEnabled()) {
+                log.trace("Persistent KB cache stats: {}", persistentQueryCache.stats());
+            }
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+        }
+
+        return runQuery(aKey);
+    }
+
     private List<KBHandle> runQuery(QueryKey aKey)
     {
-        return read(aKey.kb, conn -> aKey.query.asHandles(conn, true));
+        List<KBHandle> results = read(aKey.kb, conn -> aKey.query.asHandles(conn, true));
+
+        if (persistentQueryCache != null) {
+            persistentQueryCache.put(aKey.kb, aKey.query.selectQuery().getQueryString(), aKey.all,
+                    results);
+        }
+
+        return results;
+    }
+
+    /**
+     * @return the hit/miss statistics of the persistent KB query cache or {@code null} if the
+     *         persistent cache is disabled.
+     */
+    public CacheStats getPersistentQueryCacheStats()
+    {
+        return persistentQueryCache != null ? persistentQueryCache.stats() : null;
+    }
+
+    private void invalidateQueryCache(KnowledgeBase aKB)
+    {
+        queryCache.asMap().keySet().removeIf(key -> key.kb.equals(aKB));
+
+        if (persistentQueryCache != null) {
+            persistentQueryCache.invalidate(aKB);
+        }
     }
 
     /**
@@ -1482,6 +1560,10 @@ public class KnowledgeBaseServiceImpl
         queryCache.asMap().keySet().stream()
                 .filter(key -> key.kb.getProject().equals(aEvent.getProject()))
                 .forEach(key -> queryCache.invalidate(key));
+
+        if (persistentQueryCache != null) {
+            getKnowledgeBases(aEvent.getProject()).forEach(persistentQueryCache::invalidate);
+        }
     }
 
     @EventListener
@@ -0,0 +1,343 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.kb;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Comparator.comparingLong;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import de.tudarmstadt.ukp.inception.kb.graph.KBHandle;
+import de.tudarmstadt.ukp.inception.kb.model.KnowledgeBase;
+
+/**
+ * Second-tier cache for KB query results which is persisted on disk and therefore survives
+ * restarts. The entries are stored in one file per query under a folder per knowledge base. The
+ * cache is bounded by the number of entries it holds - if the limit is exceeded, the least recently
+ * written entries are removed. Entries older than the configured expiration delay are ignored and
+ * removed when they are encountered.
+ */
+public class PersistentQueryCache
+{
+    private static final int FORMAT_VERSION = 1;
+    private static final String SUFFIX = ".bin";
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final File root;
+    private final long maxEntries;
+    private final Duration expireDelay;
+
+    private final AtomicInteger entryCount = new AtomicInteger(-1);
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong writeCount = new AtomicLong();
+    private final AtomicLong writeFailureCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public PersistentQueryCache(File aRoot, long aMaxEntries, Duration aExpireDelay)
+    {
+        root = aRoot;
+        maxEntries = aMaxEntries;
+        expireDelay = aExpireDelay;
+    }
+
+    public Optional<List<KBHandle>> get(KnowledgeBase aKB, String aQuery, boolean aAll)
+    {
+        String query = normalizeQuery(aQuery);
+        File file = getFile(aKB, query, aAll);
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                missCount.incrementAndGet();
+                return Optional.empty();
+            }
+
+            long timestamp = in.readLong();
+            if (isExpired(timestamp)) {
+                missCount.incrementAndGet();
+                delete(file);
+                return Optional.empty();
+            }
+
+            // Guard against hash collisions
+            if (!query.equals(readString(in)) || aAll != in.readBoolean()) {
+                missCount.incrementAndGet();
+                return Optional.empty();
+            }
+
+            int size = in.readInt();
+            List<KBHandle> handles = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                KBHandle handle = readHandle(in);
+                handle.setKB(aKB);
+                handles.add(handle);
+            }
+
+            hitCount.incrementAndGet();
+            return Optional.of(handles);
+        }
+        catch (FileNotFoundException | NoSuchFileException e) {
+            missCount.incrementAndGet();
+            return Optional.empty();
+        }
+        catch (IOException e) {
+            log.warn("Unable to read cached query results from [{}] - ignoring", file, e);
+            missCount.incrementAndGet();
+            delete(file);
+            return Optional.empty();
+        }
+    }
+
+    public void put(KnowledgeBase aKB, String aQuery, boolean aAll, List<KBHandle> aHandles)
+    {
+        String query = normalizeQuery(aQuery);
+        File file = getFile(aKB, query, aAll);
+
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+
+            // Write to a temporary file first and then move it to its final location so that
+            // readers never see partially written entries
+            Path tmp = Files.createTempFile(file.getParentFile().toPath(), "query", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(System.currentTimeMillis());
+                writeString(out, query);
+                out.writeBoolean(aAll);
+                out.writeInt(aHandles.size());
+                for (KBHandle handle : aHandles) {
+                    writeHandle(out, handle);
+                }
+            }
+
+            // Make sure the entries are counted before the new entry is added
+            AtomicInteger count = getEntryCount();
+            boolean existed = file.exists();
+            try {
+                Files.move(tmp, file.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file.toPath(), REPLACE_EXISTING);
+            }
+
+            writeCount.incrementAndGet();
+            if (!existed && count.incrementAndGet() > maxEntries) {
+                prune();
+            }
+        }
+        catch (IOException e) {
+            writeFailureCount.incrementAndGet();
+            log.warn("Unable to write cached query results to [{}]", file, e);
+        }
+    }
+
+    /**
+     * Removes all cached entries of the given knowledge base.
+     * 
+     * @param aKB
+     *            a knowledge base
+     */
+    public void invalidate(KnowledgeBase aKB)
+    {
+        if (aKB.getRepositoryId() == null) {
+            return;
+        }
+
+        File kbFolder = new File(root, aKB.getRepositoryId());
+        if (kbFolder.exists()) {
+            FileUtils.deleteQuietly(kbFolder);
+            // Re-count lazily on the next write
+            entryCount.set(-1);
+        }
+    }
+
+    public CacheStats stats()
+    {
+        return CacheStats.of(hitCount.get(), missCount.get(), writeCount.get(),
+                writeFailureCount.get(), 0, evictionCount.get(), evictionCount.get());
+    }
+
+    private AtomicInteger getEntryCount()
+    {
+        if (entryCount.get() < 0) {
+            entryCount.compareAndSet(-1, listEntries().size());
+        }
+        return entryCount;
+    }
+
+    /**
+     * Removes expired entries and - if there are still too many - the least recently written
+     * entries until only 90% of the permitted entries remain.
+     */
+    synchronized void prune()
+    {
+        List<Pair<File, Long>> entries = listEntries().stream() //
+                .map(f -> Pair.of(f, f.lastModified())) //
+                .sorted(comparingLong(Pair::getValue)) //
+                .collect(Collectors.toList());
+
+        long target = (maxEntries * 9) / 10;
+        int remaining = entries.size();
+        for (Pair<File, Long> entry : entries) {
+            if (remaining <= target && !isExpired(entry.getValue())) {
+                break;
+            }
+
+            delete(entry.getKey());
+            evictionCount.incrementAndGet();
+            remaining--;
+        }
+
+        entryCount.set(remaining);
+        log.debug("Pruned persistent KB query cache to [{}] entries", remaining);
+    }
+
+    private List<File> listEntries()
+    {
+        if (!root.exists()) {
+            return List.of();
+        }
+
+        try (Stream<Path> files = Files.walk(root.toPath(), 2)) {
+            return files //
+                    .filter(p -> p.getFileName().toString().endsWith(SUFFIX)) //
+                    .map(Path::toFile) //
+                    .collect(Collectors.toList());
+        }
+        catch (IOException e) {
+            log.warn("Unable to list entries of persistent KB query cache in [{}]", root, e);
+            return List.of();
+        }
+    }
+
+    private boolean isExpired(long aTimestamp)
+    {
+        return System.currentTimeMillis() - aTimestamp > expireDelay.toMillis();
+    }
+
+    private File getFile(KnowledgeBase aKB, String aNormalizedQuery, boolean aAll)
+    {
+        String key = DigestUtils.sha256Hex(aNormalizedQuery + "|" + aAll);
+        return new File(new File(root, aKB.getRepositoryId()), key + SUFFIX);
+    }
+
+    static String normalizeQuery(String aQuery)
+    {
+        return aQuery.trim().replaceAll("\\s+", " ");
+    }
+
+    private void delete(File aFile)
+    {
+        try {
+            Files.deleteIfExists(aFile.toPath());
+        }
+        catch (IOException e) {
+            log.debug("Unable to delete [{}]", aFile, e);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static void writeHandle(DataOutputStream aOut, KBHandle aHandle) throws IOException
+    {
+        writeString(aOut, aHandle.getIdentifier());
+        writeString(aOut, aHandle.getName());
+        writeString(aOut, aHandle.getDescription());
+        writeString(aOut, aHandle.getLanguage());
+        writeString(aOut, aHandle.getDomain());
+        writeString(aOut, aHandle.getRange());
+
+        List<Pair<String, String>> matchTerms = aHandle.getMatchTerms();
+        aOut.writeInt(matchTerms != null ? matchTerms.size() : -1);
+        if (matchTerms != null) {
+            for (Pair<String, String> term : matchTerms) {
+                writeString(aOut, term.getKey());
+                writeString(aOut, term.getValue());
+            }
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static KBHandle readHandle(DataInputStream aIn) throws IOException
+    {
+        KBHandle handle = new KBHandle(readString(aIn), readString(aIn), readString(aIn),
+                readString(aIn), readString(aIn), readString(aIn));
+
+        int matchTermCount = aIn.readInt();
+        for (int i = 0; i < matchTermCount; i++) {
+            handle.addMatchTerm(readString(aIn), readString(aIn));
+        }
+
+        return handle;
+    }
+
+    private static void writeString(DataOutputStream aOut, String aString) throws IOException
+    {
+        if (aString == null) {
+            aOut.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = aString.getBytes(UTF_8);
+        aOut.writeInt(bytes.length);
+        aOut.write(bytes);
+    }
+
+    private static String readString(DataInputStream aIn) throws IOException
+    {
+        int length = aIn.readInt();
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        aIn.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
@@ -42,6 +42,17 @@ public interface KnowledgeBaseProperties
      */
     Duration getCacheRefreshDelay();
 
+    /**
+     * @return the number of query results that are cached on disk. These survive restarts of the
+     *         application. Set to {@code 0} to disable the persistent cache.
+     */
+    long getPersistentCacheSize();
+
+    /**
+     * @return the time before query results cached on disk are no longer used (in minutes).
+     */
+    Duration getPersistentCacheExpireDelay();
+
     /**
      * @return whether do delete orphaned knowledge bases during startup.
      */
@@ -17,6 +17,7 @@
  */
 package de.tudarmstadt.ukp.inception.kb.config;
 
+import static java.time.Duration.ofDays;
 import static java.time.Duration.ofMinutes;
 import static java.time.temporal.ChronoUnit.MINUTES;
 
@@ -45,6 +46,9 @@ public class KnowledgeBasePropertiesImpl
     private @DurationUnit(MINUTES) Duration cacheExpireDelay = ofMinutes(15);
     private @DurationUnit(MINUTES) Duration cacheRefreshDelay = ofMinutes(5);
 
+    private long persistentCacheSize = 10_000;
+    private @DurationUnit(MINUTES) Duration persistentCacheExpireDelay = ofDays(1);
+
     private long renderCacheSize = 10_000;
     private @DurationUnit(MINUTES) Duration renderCacheExpireDelay = ofMinutes(10);
     private @DurationUnit(MINUTES) Duration renderCacheRefreshDelay = ofMinutes(1);
@@ -104,6 +108,28 @@ public class KnowledgeBasePropertiesImpl
         cacheRefreshDelay = aCacheRefreshDelay;
     }
 
+    @Override
+    public long getPersistentCacheSize()
+    {
+        return persistentCacheSize;
+    }
+
+    public void setPersistentCacheSize(long aPersistentCacheSize)
+    {
+        persistentCacheSize = aPersistentCacheSize;
+    }
+
+    @Override
+    public Duration getPersistentCacheExpireDelay()
+    {
+        return persistentCacheExpireDelay;
+    }
+
+    public void setPersistentCacheExpireDelay(Duration aPersistentCacheExpireDelay)
+    {
+        persistentCacheExpireDelay = aPersistentCacheExpireDelay;
+    }
+
     @Override
     public boolean isRemoveOrphansOnStart()
     {
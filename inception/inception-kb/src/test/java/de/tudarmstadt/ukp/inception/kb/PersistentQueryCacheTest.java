@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.kb;
+
+import static java.time.Duration.ofDays;
+import static java.time.Duration.ofMillis;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.tudarmstadt.ukp.inception.kb.graph.KBHandle;
+import de.tudarmstadt.ukp.inception.kb.model.KnowledgeBase;
+
+public class PersistentQueryCacheTest
+{
+    private static final String QUERY = "SELECT ?s WHERE { ?s ?p ?o }";
+
+    @TempDir
+    File temporaryFolder;
+
+    private KnowledgeBase kb;
+
+    @BeforeEach
+    public void setup()
+    {
+        kb = new KnowledgeBase();
+        kb.setName("kb");
+        kb.setRepositoryId("pid-1-kbid-1");
+    }
+
+    @Test
+    public void thatResultsSurviveNewCacheInstance()
+    {
+        KBHandle handle = new KBHandle("http://example.org/1", "Label", "Description", "en");
+        handle.addMatchTerm("Alias", "de");
+
+        new PersistentQueryCache(temporaryFolder, 100, ofDays(1)).put(kb, QUERY, true,
+                List.of(handle, new KBHandle("http://example.org/2")));
+
+        PersistentQueryCache sut = new PersistentQueryCache(temporaryFolder, 100, ofDays(1));
+
+        // Whitespace differences in the query do not matter
+        List<KBHandle> result = sut.get(kb, "  SELECT ?s  WHERE {\n ?s ?p ?o }", true).get();
+
+        assertThat(result).extracting(KBHandle::getIdentifier) //
+                .containsExactly("http://example.org/1", "http://example.org/2");
+        assertThat(result.get(0).getName()).isEqualTo("Label");
+        assertThat(result.get(0).getDescription()).isEqualTo("Description");
+        assertThat(result.get(0).getLanguage()).isEqualTo("en");
+        assertThat(result.get(0).getMatchTerms()).hasSize(1);
+        assertThat(result.get(0).getKB()).isSameAs(kb);
+        assertThat(result.get(1).getName()).isNull();
+
+        assertThat(sut.get(kb, QUERY, false)).isEmpty();
+
+        assertThat(sut.stats().hitCount()).isEqualTo(1);
+        assertThat(sut.stats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void thatExpiredResultsAreIgnored() throws Exception
+    {
+        PersistentQueryCache sut = new PersistentQueryCache(temporaryFolder, 100, ofMillis(1));
+
+        sut.put(kb, QUERY, true, List.of(new KBHandle("http://example.org/1")));
+        Thread.sleep(10);
+
+        assertThat(sut.get(kb, QUERY, true)).isEmpty();
+    }
+
+    @Test
+    public void thatInvalidationRemovesResultsOfKnowledgeBase()
+    {
+        KnowledgeBase otherKb = new KnowledgeBase();
+        otherKb.setName("other");
+        otherKb.setRepositoryId("pid-1-kbid-2");
+
+        PersistentQueryCache sut = new PersistentQueryCache(temporaryFolder, 100, ofDays(1));
+        sut.put(kb, QUERY, true, List.of(new KBHandle("http://example.org/1")));
+        sut.put(otherKb, QUERY, true, List.of(new KBHandle("http://example.org/2")));
+
+        sut.invalidate(kb);
+
+        assertThat(sut.get(kb, QUERY, true)).isEmpty();
+        assertThat(sut.get(otherKb, QUERY, true)).isPresent();
+    }
+
+    @Test
+    public void thatCacheSizeIsBounded()
+    {
+        PersistentQueryCache sut = new PersistentQueryCache(temporaryFolder, 10, ofDays(1));
+
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            String query = QUERY + " LIMIT " + i;
+            queries.add(query);
+            sut.put(kb, query, true, List.of(new KBHandle("http://example.org/" + i)));
+        }
+
+        long remaining = queries.stream() //
+                .filter(q -> sut.get(kb, q, true).isPresent()) //
+                .count();
+
+        assertThat(remaining).isEqualTo(9);
+        assertThat(sut.stats().evictionCount()).isEqualTo(2);
+    }
+}
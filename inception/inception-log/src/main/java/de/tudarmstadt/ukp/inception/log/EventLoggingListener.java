@@ -17,60 +17,115 @@
  */
 package de.tudarmstadt.ukp.inception.log;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
-import java.util.Deque;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.DisposableBean;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationEvent;
 import org.springframework.context.event.EventListener;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
 
+import de.tudarmstadt.ukp.clarin.webanno.support.JSONUtil;
 import de.tudarmstadt.ukp.inception.log.adapter.EventLoggingAdapter;
 import de.tudarmstadt.ukp.inception.log.adapter.EventLoggingAdapterRegistry;
 import de.tudarmstadt.ukp.inception.log.config.EventLoggingAutoConfiguration;
+import de.tudarmstadt.ukp.inception.log.config.EventLoggingOverflowPolicy;
 import de.tudarmstadt.ukp.inception.log.config.EventLoggingProperties;
 import de.tudarmstadt.ukp.inception.log.model.LoggedEvent;
 import de.tudarmstadt.ukp.inception.support.spring.StartupProgressInfoEvent;
 
 /**
+ * Captures application events and writes them to the event log. Events are placed into a bounded
+ * queue which is drained by a dedicated writer thread that stores them in batches. What happens
+ * when the queue is full is controlled by the {@link EventLoggingOverflowPolicy}.
  * <p>
  * This class is exposed as a Spring Component via
  * {@link EventLoggingAutoConfiguration#eventLoggingListener}.
  * </p>
  */
+@ManagedResource
 public class EventLoggingListener
     implements DisposableBean
 {
+    private static final String SPILL_FILE = "spill.jsonl";
+    private static final String RECOVERY_FILE = "spill.jsonl.recovering";
+    private static final String RECOVERY_OFFSET_FILE = "spill.jsonl.recovering.offset";
+    private static final String REJECTED_FILE = "spill.jsonl.rejected";
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private final EventRepository repo;
-    private final ScheduledExecutorService scheduler;
-    private final Deque<LoggedEvent> queue;
     private final EventLoggingProperties properties;
     private final EventLoggingAdapterRegistry adapterRegistry;
+    private final BlockingQueue<LoggedEvent> queue;
+    private final ExecutorService writer;
+    private final File spillFolder;
+
+    private final Object writeLock = new Object();
+    private final Object spillLock = new Object();
+
+    private final AtomicLong writtenEvents = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong spilledEvents = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private volatile long lastFlushDuration;
+    private volatile long maxFlushDuration;
 
-    private volatile boolean flushing = false;
+    private volatile boolean running = true;
 
-    @Autowired
+    /**
+     * @param aRepo
+     *            the repository to write the events to.
+     * @param aProperties
+     *            the event logging settings.
+     * @param aAdapterRegistry
+     *            the adapters used to convert application events into logged events.
+     * @param aSpillFolder
+     *            folder to which events are spilled if the queue is full and the
+     *            {@link EventLoggingOverflowPolicy#SPILL} policy is used. If this is {@code null},
+     *            such events are dropped instead.
+     */
     public EventLoggingListener(EventRepository aRepo, EventLoggingProperties aProperties,
-            EventLoggingAdapterRegistry aAdapterRegistry)
+            EventLoggingAdapterRegistry aAdapterRegistry, File aSpillFolder)
     {
         repo = aRepo;
         properties = aProperties;
         adapterRegistry = aAdapterRegistry;
+        spillFolder = aSpillFolder;
 
-        queue = new ConcurrentLinkedDeque<>();
+        queue = new ArrayBlockingQueue<>(Math.max(1, properties.getQueueSize()));
 
-        scheduler = Executors.newSingleThreadScheduledExecutor();
-        scheduler.scheduleAtFixedRate(() -> flush(), 1, 1, TimeUnit.SECONDS);
+        writer = Executors.newSingleThreadExecutor(new BasicThreadFactory.Builder()
+                .namingPattern("event-log-writer-%d").daemon(true).build());
+        writer.execute(this::runWriter);
     }
 
     @EventListener
@@ -100,51 +155,408 @@ public class EventLoggingListener
                 return;
             }
 
-            // Add to the writing queue which gets flushed regularly by a timer
-            queue.add(e);
+            // Add to the writing queue which is drained by the writer thread
+            enqueue(e);
+        }
+    }
+
+    private void enqueue(LoggedEvent aEvent)
+    {
+        if (queue.offer(aEvent)) {
+            return;
+        }
+
+        switch (properties.getOverflowPolicy()) {
+        case BLOCK:
+            try {
+                queue.put(aEvent);
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                droppedEvents.incrementAndGet();
+            }
+            break;
+        case DROP_OLDEST:
+            while (!queue.offer(aEvent)) {
+                if (queue.poll() != null) {
+                    droppedEvents.incrementAndGet();
+                }
+            }
+            break;
+        case SPILL:
+            spill(List.of(aEvent));
+            break;
+        }
+    }
+
+    private void runWriter()
+    {
+        int batchSize = Math.max(1, properties.getBatchSize());
+        long lingerTime = properties.getLingerTime().toNanos();
+
+        List<LoggedEvent> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                LoggedEvent first = queue.poll(properties.getLingerTime().toMillis(),
+                        MILLISECONDS);
+
+                // When there is nothing else to do, use the time to write spilled events
+                if (first == null) {
+                    recoverSpilledEvents(batchSize);
+                    continue;
+                }
+
+                // Give further events the chance to arrive until the batch is full or the linger
+                // time has passed
+                batch.add(first);
+                long deadline = System.nanoTime() + lingerTime;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
 
-            // If the queue gets too large, force a flush even if the timer is not there yet
-            if (queue.size() > 1000) {
-                flush();
+                    LoggedEvent next = queue.poll(remaining, NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                writeOrSpill(batch);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            catch (Exception e) {
+                log.error("Event log writer encountered an error", e);
+            }
+            finally {
+                batch.clear();
             }
         }
     }
 
+    /**
+     * Synchronously writes all events that are currently queued to the database.
+     */
     public void flush()
     {
-        // If a flushing process is already in progress, we can abort here already. No need to
-        // wait for obtaining a synchronize lock. This also avoids a deadlock situation that was
-        // observed when importing huge tagsets with HSQLDB.
-        if (flushing) {
+        int batchSize = Math.max(1, properties.getBatchSize());
+
+        List<LoggedEvent> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void writeOrSpill(List<LoggedEvent> aBatch)
+    {
+        try {
+            write(aBatch);
+        }
+        catch (Exception e) {
+            log.error("Unable to write {} events to the event log", aBatch.size(), e);
+            spill(aBatch);
+        }
+    }
+
+    private void write(List<LoggedEvent> aBatch)
+    {
+        synchronized (writeLock) {
+            long start = System.currentTimeMillis();
+
+            repo.create(aBatch.toArray(LoggedEvent[]::new));
+
+            long duration = System.currentTimeMillis() - start;
+            lastFlushDuration = duration;
+            maxFlushDuration = Math.max(maxFlushDuration, duration);
+            flushCount.incrementAndGet();
+            writtenEvents.addAndGet(aBatch.size());
+        }
+    }
+
+    private void spill(Collection<LoggedEvent> aEvents)
+    {
+        if (spillFolder == null) {
+            droppedEvents.addAndGet(aEvents.size());
             return;
         }
 
-        synchronized (queue) {
+        synchronized (spillLock) {
             try {
-                flushing = true;
+                Files.createDirectories(spillFolder.toPath());
+                try (BufferedWriter out = Files.newBufferedWriter(
+                        new File(spillFolder, SPILL_FILE).toPath(), UTF_8, CREATE, APPEND)) {
+                    for (LoggedEvent event : aEvents) {
+                        out.write(JSONUtil.toJsonString(new SpilledEvent(event)));
+                        out.newLine();
+                    }
+                }
+                spilledEvents.addAndGet(aEvents.size());
+            }
+            catch (IOException e) {
+                log.error("Unable to spill {} events to [{}]", aEvents.size(), spillFolder, e);
+                droppedEvents.addAndGet(aEvents.size());
+            }
+        }
+    }
+
+    private void recoverSpilledEvents(int aBatchSize)
+    {
+        if (spillFolder == null) {
+            return;
+        }
 
-                // Fetch all items that are currently in the queue
-                List<LoggedEvent> batch = new ArrayList<>();
-                while (!queue.isEmpty()) {
-                    batch.add(queue.pop());
+        File recoveryFile = new File(spillFolder, RECOVERY_FILE);
+        File offsetFile = new File(spillFolder, RECOVERY_OFFSET_FILE);
+
+        // A recovery file may be left over if writing to the database failed before - in this
+        // case, we continue with it before picking up newly spilled events
+        synchronized (spillLock) {
+            File spillFile = new File(spillFolder, SPILL_FILE);
+            if (!recoveryFile.exists()) {
+                if (!spillFile.exists()) {
+                    return;
                 }
 
-                // And dump them into the database
-                repo.create(batch.toArray(new LoggedEvent[batch.size()]));
+                try {
+                    // An offset file left over from an earlier recovery does not apply to the
+                    // new recovery file
+                    Files.deleteIfExists(offsetFile.toPath());
+                    Files.move(spillFile.toPath(), recoveryFile.toPath(), ATOMIC_MOVE);
+                }
+                catch (IOException e) {
+                    log.error("Unable to recover spilled events from [{}]", spillFile, e);
+                    return;
+                }
             }
-            finally {
-                flushing = false;
+        }
+
+        // Lines up to the offset have already been written to the database (or rejected) by an
+        // earlier attempt that failed later on - they must not be written again
+        long committed;
+        try {
+            committed = readRecoveryOffset(offsetFile);
+        }
+        catch (IOException | NumberFormatException e) {
+            log.error("Unable to read recovery offset from [{}]", offsetFile, e);
+            return;
+        }
+
+        long lineNumber = 0;
+        int recovered = 0;
+        try (BufferedReader in = Files.newBufferedReader(recoveryFile.toPath(), UTF_8)) {
+            List<LoggedEvent> batch = new ArrayList<>(aBatchSize);
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber <= committed || line.isBlank()) {
+                    continue;
+                }
+
+                try {
+                    batch.add(JSONUtil.fromJsonString(SpilledEvent.class, line).toLoggedEvent());
+                }
+                catch (IOException e) {
+                    rejectSpilledEvent(recoveryFile, lineNumber, line, e);
+                    // If there is nothing pending, remember right away that the line is done
+                    if (batch.isEmpty()) {
+                        writeRecoveryOffset(offsetFile, lineNumber);
+                    }
+                    continue;
+                }
+
+                if (batch.size() >= aBatchSize) {
+                    write(batch);
+                    recovered += batch.size();
+                    batch.clear();
+                    writeRecoveryOffset(offsetFile, lineNumber);
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                write(batch);
+                recovered += batch.size();
+                writeRecoveryOffset(offsetFile, lineNumber);
             }
         }
+        catch (Exception e) {
+            log.error("Unable to recover spilled events from [{}] - will resume from the last "
+                    + "committed batch", recoveryFile, e);
+            return;
+        }
+
+        try {
+            Files.delete(recoveryFile.toPath());
+            Files.deleteIfExists(offsetFile.toPath());
+            log.info("Recovered {} spilled events", recovered);
+        }
+        catch (IOException e) {
+            log.error("Unable to clean up recovered spill file [{}]", recoveryFile, e);
+        }
+    }
+
+    private void rejectSpilledEvent(File aRecoveryFile, long aLineNumber, String aLine,
+            Exception aCause)
+    {
+        File rejectedFile = new File(spillFolder, REJECTED_FILE);
+        log.warn("Unable to read spilled event in line {} of [{}] - moving it to [{}]",
+                aLineNumber, aRecoveryFile, rejectedFile, aCause);
+
+        try (BufferedWriter out = Files.newBufferedWriter(rejectedFile.toPath(), UTF_8, CREATE,
+                APPEND)) {
+            out.write(aLine);
+            out.newLine();
+        }
+        catch (IOException e) {
+            log.error("Unable to write rejected spilled event to [{}] - dropping it: {}",
+                    rejectedFile, aLine, e);
+        }
+        droppedEvents.incrementAndGet();
+    }
+
+    private long readRecoveryOffset(File aOffsetFile) throws IOException
+    {
+        if (!aOffsetFile.exists()) {
+            return 0;
+        }
+
+        return Long.parseLong(Files.readString(aOffsetFile.toPath(), UTF_8).trim());
+    }
+
+    /**
+     * Records the number of lines of the recovery file that have been fully processed. The offset
+     * is first written to a temporary file and then moved into place so that a crash never leaves
+     * a partially written offset behind.
+     */
+    private void writeRecoveryOffset(File aOffsetFile, long aLineNumber) throws IOException
+    {
+        File tmpFile = new File(spillFolder, RECOVERY_OFFSET_FILE + ".tmp");
+        Files.writeString(tmpFile.toPath(), Long.toString(aLineNumber), UTF_8);
+        Files.move(tmpFile.toPath(), aOffsetFile.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+    }
+
+    @ManagedAttribute
+    public int getQueueDepth()
+    {
+        return queue.size();
+    }
+
+    @ManagedAttribute
+    public int getQueueCapacity()
+    {
+        return queue.size() + queue.remainingCapacity();
+    }
+
+    @ManagedAttribute
+    public long getWrittenEvents()
+    {
+        return writtenEvents.get();
+    }
+
+    @ManagedAttribute
+    public long getDroppedEvents()
+    {
+        return droppedEvents.get();
+    }
+
+    @ManagedAttribute
+    public long getSpilledEvents()
+    {
+        return spilledEvents.get();
+    }
+
+    @ManagedAttribute
+    public long getFlushCount()
+    {
+        return flushCount.get();
+    }
+
+    @ManagedAttribute
+    public long getLastFlushDurationMs()
+    {
+        return lastFlushDuration;
+    }
+
+    @ManagedAttribute
+    public long getMaxFlushDurationMs()
+    {
+        return maxFlushDuration;
     }
 
     @Override
     public void destroy() throws Exception
     {
-        // Kill the flush scheduler
-        scheduler.shutdownNow();
+        // Stop the writer and wait for it to finish the batch it may currently be writing
+        running = false;
+        writer.shutdown();
+        if (!writer.awaitTermination(10, SECONDS)) {
+            writer.shutdownNow();
+        }
 
         // Make sure and pending events are flushed before the application shuts down
         flush();
     }
+
+    /**
+     * Format in which events are written to the spill file. {@link LoggedEvent} itself cannot be
+     * used here because it has no ID yet.
+     */
+    private static class SpilledEvent
+    {
+        @JsonProperty("event")
+        private String event;
+
+        @JsonProperty("created")
+        private Date created;
+
+        @JsonProperty("user")
+        private String user;
+
+        @JsonProperty("project")
+        private long project;
+
+        @JsonProperty("document")
+        private long document;
+
+        @JsonProperty("annotator")
+        private String annotator;
+
+        @JsonProperty("details")
+        private String details;
+
+        @SuppressWarnings("unused")
+        SpilledEvent()
+        {
+            // Needed by Jackson
+        }
+
+        SpilledEvent(LoggedEvent aEvent)
+        {
+            event = aEvent.getEvent();
+            created = aEvent.getCreated();
+            user = aEvent.getUser();
+            project = aEvent.getProject();
+            document = aEvent.getDocument();
+            annotator = aEvent.getAnnotator();
+            details = aEvent.getDetails();
+        }
+
+        LoggedEvent toLoggedEvent()
+        {
+            LoggedEvent e = new LoggedEvent();
+            e.setEvent(event);
+            e.setCreated(created);
+            e.setUser(user);
+            e.setProject(project);
+            e.setDocument(document);
+            e.setAnnotator(annotator);
+            e.setDetails(details);
+            return e;
+        }
+    }
 }
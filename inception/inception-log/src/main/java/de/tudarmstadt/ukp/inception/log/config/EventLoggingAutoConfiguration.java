@@ -17,6 +17,7 @@
  */
 package de.tudarmstadt.ukp.inception.log.config;
 
+import java.io.File;
 import java.util.List;
 
 import javax.persistence.EntityManager;
@@ -30,6 +31,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
+import de.tudarmstadt.ukp.clarin.webanno.api.config.RepositoryProperties;
 import de.tudarmstadt.ukp.inception.log.EventLoggingListener;
 import de.tudarmstadt.ukp.inception.log.EventRepository;
 import de.tudarmstadt.ukp.inception.log.EventRepositoryImpl;
@@ -68,9 +70,11 @@ public class EventLoggingAutoConfiguration
     @Bean
     @Autowired
     public EventLoggingListener eventLoggingListener(EventRepository aRepo,
-            EventLoggingAdapterRegistry aAdapterRegistry, EventLoggingProperties aProperties)
+            EventLoggingAdapterRegistry aAdapterRegistry, EventLoggingProperties aProperties,
+            RepositoryProperties aRepositoryProperties)
     {
-        return new EventLoggingListener(aRepo, aProperties, aAdapterRegistry);
+        return new EventLoggingListener(aRepo, aProperties, aAdapterRegistry,
+                new File(aRepositoryProperties.getPath(), "event-log"));
     }
 
     @Bean
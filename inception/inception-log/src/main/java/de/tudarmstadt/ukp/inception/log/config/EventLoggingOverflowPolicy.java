@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.log.config;
+
+/**
+ * What the event logging listener does with new events when its queue is full.
+ */
+public enum EventLoggingOverflowPolicy
+{
+    /**
+     * The thread publishing the event waits until there is room in the queue again.
+     */
+    BLOCK,
+
+    /**
+     * The oldest event in the queue is discarded to make room for the new event.
+     */
+    DROP_OLDEST,
+
+    /**
+     * The event is appended to a file in the repository folder. Spilled events are written to the
+     * database once the queue has drained.
+     */
+    SPILL
+}
@@ -17,6 +17,7 @@
  */
 package de.tudarmstadt.ukp.inception.log.config;
 
+import java.time.Duration;
 import java.util.Set;
 
 public interface EventLoggingProperties
@@ -32,4 +33,24 @@ public interface EventLoggingProperties
      *            events never to be written to the event log.
      */
     void setExcludeEvents(Set<String> aExcludeEvents);
+
+    /**
+     * @return maximum number of events waiting to be written to the database.
+     */
+    int getQueueSize();
+
+    /**
+     * @return maximum number of events written to the database in a single transaction.
+     */
+    int getBatchSize();
+
+    /**
+     * @return how long the writer waits for further events to fill up a batch before writing it.
+     */
+    Duration getLingerTime();
+
+    /**
+     * @return what to do with new events when the queue is full.
+     */
+    EventLoggingOverflowPolicy getOverflowPolicy();
 }
@@ -17,10 +17,15 @@
  */
 package de.tudarmstadt.ukp.inception.log.config;
 
+import static java.time.Duration.ofSeconds;
+import static java.time.temporal.ChronoUnit.MILLIS;
+
+import java.time.Duration;
 import java.util.Set;
 
 import org.springframework.boot.availability.AvailabilityChangeEvent;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.convert.DurationUnit;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.event.AfterCasWrittenEvent;
 
@@ -35,6 +40,11 @@ public class EventLoggingPropertiesImpl
             AfterCasWrittenEvent.class.getSimpleName(),
             AvailabilityChangeEvent.class.getSimpleName());
 
+    private int queueSize = 10_000;
+    private int batchSize = 500;
+    private @DurationUnit(MILLIS) Duration lingerTime = ofSeconds(1);
+    private EventLoggingOverflowPolicy overflowPolicy = EventLoggingOverflowPolicy.SPILL;
+
     @Override
     public boolean isEnabled()
     {
@@ -58,4 +68,48 @@ public class EventLoggingPropertiesImpl
     {
         excludeEvents = aExcludeEvents;
     }
+
+    @Override
+    public int getQueueSize()
+    {
+        return queueSize;
+    }
+
+    public void setQueueSize(int aQueueSize)
+    {
+        queueSize = aQueueSize;
+    }
+
+    @Override
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+
+    public void setBatchSize(int aBatchSize)
+    {
+        batchSize = aBatchSize;
+    }
+
+    @Override
+    public Duration getLingerTime()
+    {
+        return lingerTime;
+    }
+
+    public void setLingerTime(Duration aLingerTime)
+    {
+        lingerTime = aLingerTime;
+    }
+
+    @Override
+    public EventLoggingOverflowPolicy getOverflowPolicy()
+    {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(EventLoggingOverflowPolicy aOverflowPolicy)
+    {
+        overflowPolicy = aOverflowPolicy;
+    }
 }
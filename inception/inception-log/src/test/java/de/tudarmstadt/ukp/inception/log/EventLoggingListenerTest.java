@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.log;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.Duration.ofMillis;
+import static java.time.Duration.ofSeconds;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEvent;
+
+import de.tudarmstadt.ukp.inception.log.adapter.EventLoggingAdapter;
+import de.tudarmstadt.ukp.inception.log.adapter.EventLoggingAdapterRegistry;
+import de.tudarmstadt.ukp.inception.log.config.EventLoggingOverflowPolicy;
+import de.tudarmstadt.ukp.inception.log.config.EventLoggingPropertiesImpl;
+import de.tudarmstadt.ukp.inception.log.model.LoggedEvent;
+
+class EventLoggingListenerTest
+{
+    private @TempDir File spillFolder;
+
+    private EventLoggingPropertiesImpl properties;
+    private EventLoggingAdapterRegistry adapterRegistry;
+    private EventRepository repo;
+    private List<Integer> batchSizes;
+    private CountDownLatch writerBusy;
+    private CountDownLatch releaseWriter;
+    private EventLoggingListener sut;
+
+    @BeforeEach
+    void setup()
+    {
+        properties = new EventLoggingPropertiesImpl();
+        properties.setQueueSize(5);
+        properties.setBatchSize(3);
+        properties.setLingerTime(ofMillis(50));
+
+        adapterRegistry = mock(EventLoggingAdapterRegistry.class);
+        doReturn(Optional.of(new TestAdapter())).when(adapterRegistry).getAdapter(any());
+
+        batchSizes = new CopyOnWriteArrayList<>();
+        writerBusy = new CountDownLatch(1);
+        releaseWriter = new CountDownLatch(1);
+        repo = mock(EventRepository.class);
+        doAnswer(call -> {
+            writerBusy.countDown();
+            releaseWriter.await();
+            batchSizes.add(call.getArguments().length);
+            return null;
+        }).when(repo).create(any());
+    }
+
+    @AfterEach
+    void teardown() throws Exception
+    {
+        releaseWriter.countDown();
+        if (sut != null) {
+            sut.destroy();
+        }
+    }
+
+    @Test
+    void thatEventsAreWrittenInBatches() throws Exception
+    {
+        releaseWriter.countDown();
+        sut = new EventLoggingListener(repo, properties, adapterRegistry, spillFolder);
+
+        for (int i = 0; i < 5; i++) {
+            sut.onApplicationEvent(new TestEvent());
+        }
+
+        await().atMost(ofSeconds(5)).until(() -> sut.getWrittenEvents() == 5);
+        assertThat(batchSizes).allMatch(size -> size <= 3);
+        assertThat(sut.getDroppedEvents()).isZero();
+        assertThat(sut.getQueueDepth()).isZero();
+    }
+
+    @Test
+    void thatOldestEventsAreDroppedWhenQueueIsFull() throws Exception
+    {
+        properties.setOverflowPolicy(EventLoggingOverflowPolicy.DROP_OLDEST);
+        sut = new EventLoggingListener(repo, properties, adapterRegistry, spillFolder);
+
+        // Block the writer while it is writing the first event
+        sut.onApplicationEvent(new TestEvent());
+        writerBusy.await();
+
+        for (int i = 0; i < 8; i++) {
+            sut.onApplicationEvent(new TestEvent());
+        }
+
+        assertThat(sut.getQueueDepth()).isEqualTo(5);
+        assertThat(sut.getDroppedEvents()).isEqualTo(3);
+
+        releaseWriter.countDown();
+        await().atMost(ofSeconds(5)).until(() -> sut.getWrittenEvents() == 6);
+    }
+
+    @Test
+    void thatEventsAreSpilledAndRecoveredWhenQueueIsFull() throws Exception
+    {
+        properties.setOverflowPolicy(EventLoggingOverflowPolicy.SPILL);
+        sut = new EventLoggingListener(repo, properties, adapterRegistry, spillFolder);
+
+        // Block the writer while it is writing the first event
+        sut.onApplicationEvent(new TestEvent());
+        writerBusy.await();
+
+        for (int i = 0; i < 8; i++) {
+            sut.onApplicationEvent(new TestEvent());
+        }
+
+        assertThat(sut.getQueueDepth()).isEqualTo(5);
+        assertThat(sut.getSpilledEvents()).isEqualTo(3);
+        assertThat(spillFolder.listFiles()).hasSize(1);
+
+        releaseWriter.countDown();
+        await().atMost(ofSeconds(5)).until(() -> sut.getWrittenEvents() == 9);
+        assertThat(sut.getDroppedEvents()).isZero();
+        assertThat(spillFolder.listFiles()).isEmpty();
+    }
+
+    @Test
+    void thatUnreadableSpilledEventsAreMovedAside() throws Exception
+    {
+        Files.write(new File(spillFolder, "spill.jsonl").toPath(),
+                List.of(spilledEvent(1), "{broken", spilledEvent(2)), UTF_8);
+
+        releaseWriter.countDown();
+        sut = new EventLoggingListener(repo, properties, adapterRegistry, spillFolder);
+
+        await().atMost(ofSeconds(5)).until(
+                () -> List.of(spillFolder.list()).equals(List.of("spill.jsonl.rejected")));
+        assertThat(sut.getWrittenEvents()).isEqualTo(2);
+        assertThat(sut.getDroppedEvents()).isEqualTo(1);
+        assertThat(Files.readAllLines(new File(spillFolder, "spill.jsonl.rejected").toPath(),
+                UTF_8)).containsExactly("{broken");
+    }
+
+    @Test
+    void thatRecoveryResumesAfterLastCommittedBatch() throws Exception
+    {
+        Files.write(new File(spillFolder, "spill.jsonl").toPath(), List.of(spilledEvent(1),
+                spilledEvent(2), spilledEvent(3), spilledEvent(4), spilledEvent(5)), UTF_8);
+
+        // Writing the second batch fails once
+        List<Long> writtenDocuments = new CopyOnWriteArrayList<>();
+        AtomicInteger calls = new AtomicInteger();
+        doAnswer(call -> {
+            if (calls.incrementAndGet() == 2) {
+                throw new IllegalStateException("Database unavailable");
+            }
+            for (Object event : call.getArguments()) {
+                writtenDocuments.add(((LoggedEvent) event).getDocument());
+            }
+            return null;
+        }).when(repo).create(any());
+
+        sut = new EventLoggingListener(repo, properties, adapterRegistry, spillFolder);
+
+        await().atMost(ofSeconds(5)).until(() -> spillFolder.list().length == 0);
+        assertThat(calls.get()).isEqualTo(3);
+        assertThat(writtenDocuments).containsExactly(1L, 2L, 3L, 4L, 5L);
+    }
+
+    private static String spilledEvent(long aDocument)
+    {
+        return "{\"event\":\"TestEvent\",\"created\":0,\"user\":\"user\",\"project\":1,"
+                + "\"document\":" + aDocument + ",\"details\":\"{}\"}";
+    }
+
+    private static class TestEvent
+        extends ApplicationEvent
+    {
+        private static final long serialVersionUID = 1L;
+
+        public TestEvent()
+        {
+            super("test");
+        }
+    }
+
+    private static class TestAdapter
+        implements EventLoggingAdapter<ApplicationEvent>
+    {
+        @Override
+        public boolean accepts(Object aEvent)
+        {
+            return true;
+        }
+
+        @Override
+        public String getUser(ApplicationEvent aEvent)
+        {
+            return "user";
+        }
+
+        @Override
+        public LoggedEvent toLoggedEvent(ApplicationEvent aEvent) throws Exception
+        {
+            LoggedEvent e = EventLoggingAdapter.super.toLoggedEvent(aEvent);
+            e.setDetails("{\"value\": 1}");
+            return e;
+        }
+    }
+}
@@ -19,6 +19,7 @@ package de.tudarmstadt.ukp.inception.project.export;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.zip.ZipFile;
 
@@ -43,6 +44,28 @@ public interface ProjectExportService
             File aProjectZipFile)
         throws ProjectExportException, IOException, InterruptedException;
 
+    /**
+     * Exports the project as a ZIP archive directly into the given stream. The files produced by
+     * the project exporters are added to the archive as they are produced, so no temporary copy of
+     * the project is created. The stream is not closed.
+     * 
+     * @param aRequest
+     *            the export request.
+     * @param aMonitor
+     *            the export monitor.
+     * @param aOut
+     *            the stream to write the archive to.
+     * @throws ProjectExportException
+     *             if the export failed.
+     * @throws IOException
+     *             if there was an I/O problem.
+     * @throws InterruptedException
+     *             if the export was cancelled.
+     */
+    void exportProject(FullProjectExportRequest aRequest, ProjectExportTaskMonitor aMonitor,
+            OutputStream aOut)
+        throws ProjectExportException, IOException, InterruptedException;
+
     ProjectExportTaskHandle startProjectExportTask(FullProjectExportRequest aModel,
             String aUsername);
 
@@ -21,15 +21,19 @@ import static de.tudarmstadt.ukp.clarin.webanno.api.ProjectService.withProjectLo
 import static de.tudarmstadt.ukp.clarin.webanno.api.export.ProjectExportTaskState.NOT_STARTED;
 import static de.tudarmstadt.ukp.clarin.webanno.api.export.ProjectExportTaskState.RUNNING;
 import static java.lang.System.currentTimeMillis;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
 import static java.util.Collections.unmodifiableList;
 import static java.util.stream.Collectors.toList;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.time.DurationFormatUtils.formatDurationWords;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Deque;
@@ -47,10 +51,12 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.collections4.SetUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.commons.lang3.ClassUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -76,9 +82,7 @@ import de.tudarmstadt.ukp.clarin.webanno.api.export.ProjectImportRequest;
 import de.tudarmstadt.ukp.clarin.webanno.export.model.ExportedProject;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.support.JSONUtil;
-import de.tudarmstadt.ukp.clarin.webanno.support.ZipUtils;
 import de.tudarmstadt.ukp.clarin.webanno.support.logging.BaseLoggers;
-import de.tudarmstadt.ukp.clarin.webanno.support.logging.LogMessage;
 import de.tudarmstadt.ukp.inception.project.export.config.ProjectExportServiceAutoConfiguration;
 import de.tudarmstadt.ukp.inception.project.export.model.ProjectExportTask;
 import de.tudarmstadt.ukp.inception.project.export.task.backup.BackupProjectExportTask;
@@ -191,46 +195,32 @@ public class ProjectExportServiceImpl
             File projectZipFile)
         throws ProjectExportException, IOException, InterruptedException
     {
-        boolean success = false;
-        File exportTempDir = null;
-        try (var logCtx = withProjectLogger(aRequest.getProject())) {
-            // Directory to store source documents and annotation documents
-            exportTempDir = File.createTempFile("inception-project", "export");
-            exportTempDir.delete();
-            exportTempDir.mkdirs();
+        try (var os = new BufferedOutputStream(new FileOutputStream(projectZipFile))) {
+            exportProject(aRequest, aMonitor, os);
+        }
+    }
 
-            ExportedProject exProjekt = exportProjectToPath(aRequest, aMonitor, exportTempDir);
+    @Override
+    @Transactional
+    public void exportProject(FullProjectExportRequest aRequest, ProjectExportTaskMonitor aMonitor,
+            OutputStream aOut)
+        throws ProjectExportException, IOException, InterruptedException
+    {
+        try (var logCtx = withProjectLogger(aRequest.getProject());
+                var zip = new ZipOutputStream(CloseShieldOutputStream.wrap(aOut))) {
+            ExportedProject exProjekt = exportProjectToZip(aRequest, aMonitor, zip);
 
             // all metadata and project settings data from the database as JSON file
-            File projectSettings = new File(exportTempDir, EXPORTED_PROJECT + ".json");
-            JSONUtil.generatePrettyJson(exProjekt, projectSettings);
-
-            try {
-                ZipUtils.zipFolder(exportTempDir, projectZipFile);
-            }
-            finally {
-                System.gc();
-                FileUtils.forceDelete(exportTempDir);
-            }
+            zip.putNextEntry(new ZipEntry(EXPORTED_PROJECT + ".json"));
+            zip.write(JSONUtil.toPrettyJsonString(exProjekt).getBytes(UTF_8));
+            zip.closeEntry();
 
-            success = true;
-        }
-        finally {
-            if (!success && exportTempDir != null) {
-                try {
-                    FileUtils.forceDelete(exportTempDir);
-                }
-                catch (IOException e) {
-                    aMonitor.addMessage(LogMessage.error(this,
-                            "Unable to delete temporary export directory [%s]", exportTempDir));
-                    log.error("Unable to delete temporary export directory [{}]", exportTempDir);
-                }
-            }
+            zip.finish();
         }
     }
 
-    private ExportedProject exportProjectToPath(FullProjectExportRequest aRequest,
-            ProjectExportTaskMonitor aMonitor, File aStage)
+    private ExportedProject exportProjectToZip(FullProjectExportRequest aRequest,
+            ProjectExportTaskMonitor aMonitor, ZipOutputStream aZip)
         throws ProjectExportException, IOException, InterruptedException
     {
         Deque<ProjectExporter> deque = new LinkedList<>(exporters);
@@ -251,7 +241,7 @@ public class ProjectExportServiceImpl
 
                 if (exportersSeen.containsAll(exporter.getExportDependencies())) {
                     log.debug("Applying project exporter: {}", exporter);
-                    exporter.exportData(aRequest, aMonitor, exProject, aStage);
+                    exporter.exportData(aRequest, aMonitor, exProject, aZip);
                     exportersSeen.add(exporter.getClass());
                     exportersDeferred.clear();
                 }
@@ -18,16 +18,30 @@
 package de.tudarmstadt.ukp.inception.project.export;
 
 import static de.tudarmstadt.ukp.clarin.webanno.support.WebAnnoConst.INITIAL_CAS_PSEUDO_USER;
+import static de.tudarmstadt.ukp.clarin.webanno.support.logging.Logging.KEY_REPOSITORY_PATH;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
 import static org.apache.commons.io.FilenameUtils.removeExtension;
+import static org.apache.commons.lang3.StringUtils.repeat;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.junit.jupiter.api.BeforeEach;
@@ -36,15 +50,20 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.slf4j.MDC;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.DocumentImportExportService;
 import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
+import de.tudarmstadt.ukp.clarin.webanno.api.ProjectService;
 import de.tudarmstadt.ukp.clarin.webanno.api.config.RepositoryProperties;
+import de.tudarmstadt.ukp.clarin.webanno.api.export.FullProjectExportRequest;
+import de.tudarmstadt.ukp.clarin.webanno.api.export.ProjectExportTaskMonitor;
 import de.tudarmstadt.ukp.clarin.webanno.api.export.ProjectImportRequest;
 import de.tudarmstadt.ukp.clarin.webanno.export.model.ExportedProject;
 import de.tudarmstadt.ukp.clarin.webanno.export.model.ExportedSourceDocument;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.clarin.webanno.security.UserDao;
 import de.tudarmstadt.ukp.clarin.webanno.xmi.XmiFormatSupport;
 import de.tudarmstadt.ukp.inception.annotation.storage.CasStorageServiceImpl;
 import de.tudarmstadt.ukp.inception.annotation.storage.config.CasStorageBackupProperties;
@@ -56,6 +75,7 @@ import de.tudarmstadt.ukp.inception.export.config.DocumentImportExportServicePro
 import de.tudarmstadt.ukp.inception.export.config.DocumentImportExportServicePropertiesImpl;
 import de.tudarmstadt.ukp.inception.schema.AnnotationSchemaService;
 import de.tudarmstadt.ukp.inception.schema.exporters.AnnotationDocumentExporter;
+import de.tudarmstadt.ukp.inception.schema.exporters.AnnotationDocumentExporterPropertiesImpl;
 
 @ExtendWith(MockitoExtension.class)
 public class AnnotationDocumentsExporterTest
@@ -69,6 +89,8 @@ public class AnnotationDocumentsExporterTest
 
     private @Mock DocumentService documentService;
     private @Mock AnnotationSchemaService schemaService;
+    private @Mock UserDao userRepository;
+    private @Mock DocumentImportExportService mockImportExportService;
 
     private Project project;
     private File workFolder;
@@ -93,7 +115,7 @@ public class AnnotationDocumentsExporterTest
                 new CasStorageBackupProperties(), new CasStoragePropertiesImpl());
 
         casStorageService = new CasStorageServiceImpl(driver, new CasStorageCachePropertiesImpl(),
-                null, schemaService);
+                null, schemaService, null);
 
         importExportSerivce = new DocumentImportExportServiceImpl(repositoryProperties,
                 asList(new XmiFormatSupport()), casStorageService, schemaService, properties);
@@ -116,6 +138,126 @@ public class AnnotationDocumentsExporterTest
                 .containsExactlyInAnyOrder(INITIAL_CAS_PSEUDO_USER, "admin");
     }
 
+    @Test
+    public void thatExportingToZipKeepsDocumentOrder() throws Exception
+    {
+        List<SourceDocument> docs = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            SourceDocument doc = new SourceDocument();
+            doc.setId((long) i);
+            doc.setName("doc" + i + ".txt");
+            doc.setProject(project);
+            docs.add(doc);
+        }
+
+        when(documentService.listSourceDocuments(any())).thenReturn(docs);
+        doAnswer(invocation -> {
+            SourceDocument doc = invocation.getArgument(0);
+            OutputStream os = invocation.getArgument(2);
+            os.write(doc.getName().getBytes(UTF_8));
+            return null;
+        }).when(documentService).exportCas(any(), any(), any());
+
+        var request = new FullProjectExportRequest(project, null, false);
+        var monitor = new ProjectExportTaskMonitor(project, null, "test");
+        var buffer = new ByteArrayOutputStream();
+        try (var zip = new ZipOutputStream(buffer)) {
+            sut.exportData(request, monitor, new ExportedProject(), zip);
+        }
+
+        List<String> entries = new ArrayList<>();
+        try (var zip = new ZipInputStream(new ByteArrayInputStream(buffer.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                assertThat(new String(zip.readAllBytes(), UTF_8))
+                        .isEqualTo(docs.get(entries.size()).getName());
+                entries.add(entry.getName());
+            }
+        }
+
+        assertThat(entries).containsExactlyElementsOf(docs.stream() //
+                .map(doc -> "annotation_ser/" + doc.getName() + "/" + INITIAL_CAS_PSEUDO_USER
+                        + ".ser") //
+                .collect(toList()));
+    }
+
+    @Test
+    public void thatExportingWithFormatWorksOnPoolThreads() throws Exception
+    {
+        List<SourceDocument> docs = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            SourceDocument doc = new SourceDocument();
+            doc.setId((long) i);
+            doc.setName("doc" + i + ".txt");
+            doc.setProject(project);
+            docs.add(doc);
+        }
+
+        when(documentService.listSourceDocuments(any())).thenReturn(docs);
+        doAnswer(invocation -> {
+            SourceDocument doc = invocation.getArgument(0);
+            OutputStream os = invocation.getArgument(2);
+            os.write(expectedContent(doc).getBytes(UTF_8));
+            return null;
+        }).when(documentService).exportCas(any(), any(), any());
+
+        var format = new XmiFormatSupport();
+        when(mockImportExportService.getWritableFormatById(XmiFormatSupport.ID))
+                .thenReturn(Optional.of(format));
+        doAnswer(invocation -> {
+            SourceDocument doc = invocation.getArgument(0);
+            // Like the actual export, this fails without the logging context of the caller
+            try (var ctx = ProjectService.withProjectLogger(doc.getProject())) {
+                OutputStream os = invocation.getArgument(7);
+                os.write(expectedContent(doc).getBytes(UTF_8));
+            }
+            return null;
+        }).when(mockImportExportService).exportAnnotationDocument(any(), any(), any(), any(),
+                any(), anyBoolean(), any(), any(OutputStream.class));
+
+        var properties = new AnnotationDocumentExporterPropertiesImpl();
+        properties.setThreads(2);
+        var exporter = new AnnotationDocumentExporter(documentService, userRepository,
+                mockImportExportService, repositoryProperties, properties);
+
+        var request = new FullProjectExportRequest(project, XmiFormatSupport.ID, false);
+        var monitor = new ProjectExportTaskMonitor(project, null, "test");
+        var buffer = new ByteArrayOutputStream();
+        MDC.put(KEY_REPOSITORY_PATH, repositoryProperties.getPath().toString());
+        try (var zip = new ZipOutputStream(buffer)) {
+            exporter.exportData(request, monitor, new ExportedProject(), zip);
+        }
+        finally {
+            MDC.remove(KEY_REPOSITORY_PATH);
+        }
+
+        List<String> entries = new ArrayList<>();
+        try (var zip = new ZipInputStream(new ByteArrayInputStream(buffer.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                assertThat(new String(zip.readAllBytes(), UTF_8))
+                        .isEqualTo(expectedContent(docs.get(entries.size() / 2)));
+                entries.add(entry.getName());
+            }
+        }
+
+        assertThat(entries).containsExactlyElementsOf(docs.stream() //
+                .flatMap(doc -> Stream.of(
+                        "annotation_ser/" + doc.getName() + "/" + INITIAL_CAS_PSEUDO_USER + ".ser",
+                        "annotation/" + doc.getName() + "/" + INITIAL_CAS_PSEUDO_USER
+                                + format.getStreamedFileExtension())) //
+                .collect(toList()));
+    }
+
+    /**
+     * The first document is large enough to be spooled to disk during the export.
+     */
+    private String expectedContent(SourceDocument aDocument)
+    {
+        return aDocument.getId() == 1 ? repeat(aDocument.getName(), 300_000)
+                : aDocument.getName();
+    }
+
     private List<Pair<SourceDocument, String>> runImportAndFetchDocuments(ZipFile aZipFile)
         throws Exception
     {
@@ -31,6 +31,7 @@ import static java.lang.String.join;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableSet;
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toCollection;
 import static java.util.stream.Collectors.toList;
@@ -39,6 +40,8 @@ import static org.apache.commons.lang3.StringUtils.startsWith;
 import static org.apache.commons.lang3.StringUtils.substringAfter;
 import static org.apache.commons.lang3.time.DurationFormatUtils.formatDurationWords;
 import static org.hibernate.annotations.QueryHints.CACHEABLE;
+import static org.springframework.transaction.support.TransactionSynchronizationManager.isSynchronizationActive;
+import static org.springframework.transaction.support.TransactionSynchronizationManager.registerSynchronization;
 
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -47,10 +50,12 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.NoSuchFileException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Deque;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -62,6 +67,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Random;
 import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import javax.persistence.EntityManager;
@@ -72,6 +78,7 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.ClassUtils;
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -81,6 +88,10 @@ import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.core.annotation.AnnotationAwareOrderComparator;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.ProjectService;
 import de.tudarmstadt.ukp.clarin.webanno.api.config.RepositoryProperties;
@@ -99,6 +110,7 @@ import de.tudarmstadt.ukp.clarin.webanno.model.ProjectUserPermissions;
 import de.tudarmstadt.ukp.clarin.webanno.project.config.ProjectServiceAutoConfiguration;
 import de.tudarmstadt.ukp.clarin.webanno.security.Realm;
 import de.tudarmstadt.ukp.clarin.webanno.security.UserDao;
+import de.tudarmstadt.ukp.clarin.webanno.security.event.AfterUserRemovedEvent;
 import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
 import de.tudarmstadt.ukp.clarin.webanno.support.io.FastIOUtils;
 import de.tudarmstadt.ukp.clarin.webanno.support.logging.BaseLoggers;
@@ -112,6 +124,9 @@ import de.tudarmstadt.ukp.clarin.webanno.support.logging.BaseLoggers;
 public class ProjectServiceImpl
     implements ProjectService
 {
+    private static final int ROLE_CACHE_SIZE = 10_000;
+    private static final Duration ROLE_CACHE_EXPIRY = Duration.ofMinutes(15);
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private final EntityManager entityManager;
@@ -120,6 +135,14 @@ public class ProjectServiceImpl
     private final RepositoryProperties repositoryProperties;
     private final List<ProjectInitializer> initializerProxy;
 
+    /**
+     * Roles of a user in a project keyed by project ID and username. Permission checks are run
+     * many times per request (menus, sidebars, remote API endpoints), so we avoid hitting the
+     * database for every single check. Entries are dropped when permissions change, when the
+     * project is removed or when the user is removed.
+     */
+    private final Cache<Pair<Long, String>, Set<PermissionLevel>> roleCache;
+
     private List<ProjectInitializer> initializers;
 
     @Autowired
@@ -134,6 +157,11 @@ public class ProjectServiceImpl
         applicationEventPublisher = aApplicationEventPublisher;
         repositoryProperties = aRepositoryProperties;
         initializerProxy = aInitializerProxy;
+
+        roleCache = Caffeine.newBuilder() //
+                .maximumSize(ROLE_CACHE_SIZE) //
+                .expireAfterAccess(ROLE_CACHE_EXPIRY) //
+                .build();
     }
 
     @Override
@@ -178,8 +206,10 @@ public class ProjectServiceImpl
             log.info("Created permission [{}] for user [{}] on project {}", aPermission.getLevel(),
                     aPermission.getUser(), aPermission.getProject());
 
-            applicationEventPublisher.publishEvent(new ProjectPermissionsChangedEvent(this,
-                    aPermission.getProject(), asList(aPermission), emptyList()));
+            var event = new ProjectPermissionsChangedEvent(this, aPermission.getProject(),
+                    asList(aPermission), emptyList());
+            invalidateCachedRoles(event);
+            applicationEventPublisher.publishEvent(event);
         }
     }
 
@@ -355,14 +385,7 @@ public class ProjectServiceImpl
     @Transactional
     public boolean hasAnyRole(User aUser, Project aProject)
     {
-        String query = String.join("\n", //
-                "SELECT COUNT(*) FROM ProjectPermission ", //
-                "WHERE user = :user AND project = :project");
-
-        return entityManager.createQuery(query, Long.class) //
-                .setParameter("user", aUser.getUsername()) //
-                .setParameter("project", aProject) //
-                .getSingleResult() > 0;
+        return !getCachedRoles(aUser.getUsername(), aProject).isEmpty();
     }
 
     @Override
@@ -380,21 +403,94 @@ public class ProjectServiceImpl
     {
         Validate.notNull(aRole, "hasRole() requires at least one role to check");
 
-        var roles = new LinkedHashSet<>();
-        roles.add(aRole);
+        var grantedRoles = getCachedRoles(aUser, aProject);
+
+        if (grantedRoles.contains(aRole)) {
+            return true;
+        }
+
         if (aMoreRoles != null) {
-            roles.addAll(asList(aMoreRoles));
+            for (PermissionLevel role : aMoreRoles) {
+                if (grantedRoles.contains(role)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private Set<PermissionLevel> getCachedRoles(String aUser, Project aProject)
+    {
+        // Projects which have not been persisted yet cannot have any permissions
+        if (aProject.getId() == null) {
+            return loadRoles(aUser, aProject);
         }
 
+        return roleCache.get(Pair.of(aProject.getId(), aUser),
+                key -> loadRoles(aUser, aProject));
+    }
+
+    private Set<PermissionLevel> loadRoles(String aUser, Project aProject)
+    {
         String query = String.join("\n", //
-                "SELECT COUNT(*) FROM ProjectPermission ", //
-                "WHERE user = :user AND project = :project AND level IN (:roles)");
+                "SELECT level ", //
+                "FROM ProjectPermission ", //
+                "WHERE user =:user AND project =:project");
 
-        return entityManager.createQuery(query, Long.class) //
+        var roles = EnumSet.noneOf(PermissionLevel.class);
+        roles.addAll(entityManager.createQuery(query, PermissionLevel.class) //
                 .setParameter("user", aUser) //
                 .setParameter("project", aProject) //
-                .setParameter("roles", roles) //
-                .getSingleResult() > 0;
+                .getResultList());
+        return unmodifiableSet(roles);
+    }
+
+    private void invalidateCachedRoles(Predicate<Pair<Long, String>> aFilter)
+    {
+        roleCache.asMap().keySet().removeIf(aFilter);
+
+        // A concurrent request may re-populate the cache from the database before the change
+        // which triggered the invalidation has been committed - so we invalidate again once the
+        // transaction has completed
+        if (isSynchronizationActive()) {
+            registerSynchronization(new TransactionSynchronization()
+            {
+                @Override
+                public void afterCompletion(int aStatus)
+                {
+                    roleCache.asMap().keySet().removeIf(aFilter);
+                }
+            });
+        }
+    }
+
+    @EventListener
+    public void onProjectPermissionsChanged(ProjectPermissionsChangedEvent aEvent)
+    {
+        // Changes made through this service have already been handled
+        if (aEvent.getSource() != this) {
+            invalidateCachedRoles(aEvent);
+        }
+    }
+
+    private void invalidateCachedRoles(ProjectPermissionsChangedEvent aEvent)
+    {
+        var projectId = aEvent.getProject().getId();
+        var users = new HashSet<String>();
+        aEvent.getAddedPermissions().forEach(p -> users.add(p.getUser()));
+        aEvent.getRemovedPermissions().forEach(p -> users.add(p.getUser()));
+
+        invalidateCachedRoles(
+                key -> key.getKey().equals(projectId) && users.contains(key.getValue()));
+    }
+
+    @EventListener
+    public void onAfterUserRemoved(AfterUserRemovedEvent aEvent)
+    {
+        var username = aEvent.getUser().getUsername();
+
+        invalidateCachedRoles(key -> key.getValue().equals(username));
     }
 
     @Deprecated
@@ -493,8 +589,10 @@ public class ProjectServiceImpl
                         aProject);
             }
 
-            applicationEventPublisher.publishEvent(new ProjectPermissionsChangedEvent(this,
-                    aProject, grantedPermissions, revokedPermissions));
+            var event = new ProjectPermissionsChangedEvent(this, aProject, grantedPermissions,
+                    revokedPermissions);
+            invalidateCachedRoles(event);
+            applicationEventPublisher.publishEvent(event);
         }
     }
 
@@ -636,6 +734,9 @@ public class ProjectServiceImpl
                 entityManager.remove(permissions);
             }
 
+            var projectId = aProject.getId();
+            invalidateCachedRoles(key -> key.getKey().equals(projectId));
+
             entityManager.remove(project);
 
             // remove the project directory from the file system
@@ -666,8 +767,10 @@ public class ProjectServiceImpl
             log.info("Removed permission [{}] for user [{}] on project {}", aPermission.getLevel(),
                     aPermission.getUser(), aPermission.getProject());
 
-            applicationEventPublisher.publishEvent(new ProjectPermissionsChangedEvent(this,
-                    aPermission.getProject(), emptyList(), asList(aPermission)));
+            var event = new ProjectPermissionsChangedEvent(this, aPermission.getProject(),
+                    emptyList(), asList(aPermission));
+            invalidateCachedRoles(event);
+            applicationEventPublisher.publishEvent(event);
         }
     }
 
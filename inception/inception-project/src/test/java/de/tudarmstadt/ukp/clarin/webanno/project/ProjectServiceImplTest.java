@@ -315,6 +315,22 @@ public class ProjectServiceImplTest
         assertThat(sut.listRoles(testProject, beate)).isEmpty();
     }
 
+    @Test
+    void thatRoleChecksFollowPermissionChanges()
+    {
+        assertThat(sut.hasRole(kevin, testProject, ANNOTATOR)).isTrue();
+        assertThat(sut.hasRole(kevin, testProject, MANAGER)).isFalse();
+
+        sut.assignRole(testProject, kevin, MANAGER);
+        assertThat(sut.hasRole(kevin, testProject, MANAGER)).isTrue();
+        assertThat(sut.hasRole(kevin, testProject2, MANAGER)).isFalse();
+
+        sut.revokeAllRoles(testProject, kevin);
+        assertThat(sut.hasAnyRole(kevin, testProject)).isFalse();
+        assertThat(sut.hasRole(kevin, testProject, ANNOTATOR, MANAGER)).isFalse();
+        assertThat(sut.hasRole(kevin, testProjectManagedByKevin, MANAGER)).isTrue();
+    }
+
     @SpringBootConfiguration
     public static class SpringConfig
     {
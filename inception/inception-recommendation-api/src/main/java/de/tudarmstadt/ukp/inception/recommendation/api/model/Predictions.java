@@ -19,19 +19,15 @@ package de.tudarmstadt.ukp.inception.recommendation.api.model;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.newSetFromMap;
-import static java.util.stream.Collectors.toList;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.Validate;
 
@@ -56,14 +52,14 @@ public class Predictions
 {
     private static final long serialVersionUID = -1598768729246662885L;
 
-    private Map<ExtendedId, AnnotationSuggestion> predictions = new ConcurrentHashMap<>();
+    private final SuggestionStore predictions = new SuggestionStore();
     private Set<String> seenDocumentsForPrediction = newSetFromMap(new ConcurrentHashMap<>());
 
     private final Project project;
     private final User user;
     private final List<LogMessage> log = new ArrayList<>();
 
-    public Predictions(Project aProject, User aUser, Map<ExtendedId, SpanSuggestion> aPredictions)
+    public Predictions(Project aProject, User aUser, List<AnnotationSuggestion> aPredictions)
     {
         Validate.notNull(aProject, "Project must be specified");
         Validate.notNull(aUser, "User must be specified");
@@ -72,7 +68,7 @@ public class Predictions
         user = aUser;
 
         if (aPredictions != null) {
-            predictions = new ConcurrentHashMap<>(aPredictions);
+            putPredictions(aPredictions);
         }
     }
 
@@ -145,22 +141,11 @@ public class Predictions
      * {@code aWindowBegin} and {@code aWindowEnd} are {@code -1}, then they are ignored
      * respectively. This is useful when all suggestions should be fetched.
      */
-    @SuppressWarnings({ "rawtypes", "unchecked" })
     private <T extends AnnotationSuggestion> List<T> getFlattenedPredictions(Class<T> type,
             String aDocumentName, AnnotationLayer aLayer, int aWindowBegin, int aWindowEnd)
     {
-        return predictions.entrySet().stream().filter(f -> type.isInstance(f.getValue()))
-                .map(f -> (Entry<ExtendedId, T>) (Entry) f)
-                .filter(f -> f.getKey().getDocumentName().equals(aDocumentName))
-                .filter(f -> f.getKey().getLayerId() == aLayer.getId())
-                // .filter(f -> overlapping(f.getValue().getWindowBegin(),
-                // f.getValue().getWindowEnd(),
-                // aWindowBegin == -1 ? 0 : aWindowBegin,
-                // aWindowEnd == -1 ? MAX_VALUE : aWindowEnd))
-                .filter(f -> aWindowBegin == -1 || (f.getValue().getWindowBegin() >= aWindowBegin))
-                .filter(f -> aWindowEnd == -1 || (f.getValue().getWindowEnd() <= aWindowEnd))
-                .sorted(Comparator.comparingInt(e2 -> e2.getValue().getWindowBegin()))
-                .map(Map.Entry::getValue).collect(toList());
+        return predictions.getWindow(type, aDocumentName, aLayer.getId(), aWindowBegin,
+                aWindowEnd);
     }
 
     /**
@@ -173,11 +158,7 @@ public class Predictions
      */
     public Optional<AnnotationSuggestion> getPredictionByVID(SourceDocument aDocument, VID aVID)
     {
-        return predictions.values().stream() //
-                .filter(f -> f.getDocumentName().equals(aDocument.getName())) //
-                .filter(f -> f.getId() == aVID.getSubId()) //
-                .filter(f -> f.getRecommenderId() == aVID.getId()) //
-                .findFirst();
+        return predictions.getByVid(aDocument.getName(), aVID.getId(), aVID.getSubId());
     }
 
     /**
@@ -186,10 +167,7 @@ public class Predictions
      */
     public void putPredictions(List<AnnotationSuggestion> aPredictions)
     {
-        aPredictions.forEach(prediction -> predictions.put(new ExtendedId(user.getUsername(),
-                project.getId(), prediction.getDocumentName(), prediction.getLayerId(),
-                prediction.getPosition(), prediction.getRecommenderId(), prediction.getId(), -1),
-                prediction));
+        aPredictions.forEach(predictions::put);
     }
 
     public Project getProject()
@@ -202,11 +180,6 @@ public class Predictions
         return !predictions.isEmpty();
     }
 
-    public Map<ExtendedId, AnnotationSuggestion> getGroupedPredictions()
-    {
-        return predictions;
-    }
-
     public void clearPredictions()
     {
         predictions.clear();
@@ -215,7 +188,7 @@ public class Predictions
 
     public void removePredictions(Long recommenderId)
     {
-        predictions.entrySet().removeIf((p) -> p.getKey().getRecommenderId() == recommenderId);
+        predictions.removeByRecommender(recommenderId);
     }
 
     /**
@@ -235,34 +208,21 @@ public class Predictions
      *            the given annotation feature name
      * @return the annotation suggestions
      */
-    @SuppressWarnings({ "rawtypes", "unchecked" })
     public List<SpanSuggestion> getPredictionsByTokenAndFeature(String aDocumentName,
             AnnotationLayer aLayer, int aBegin, int aEnd, String aFeature)
     {
-        return predictions.entrySet().stream().filter(f -> f.getValue() instanceof SpanSuggestion)
-                .map(f -> (Entry<ExtendedId, SpanSuggestion>) (Entry) f)
-                .filter(f -> f.getKey().getDocumentName().equals(aDocumentName))
-                .filter(f -> f.getKey().getLayerId() == aLayer.getId())
-                .filter(f -> f.getValue().getBegin() == aBegin)
-                .filter(f -> f.getValue().getEnd() == aEnd)
-                .filter(f -> f.getValue().getFeature().equals(aFeature)).map(Map.Entry::getValue)
-                .collect(Collectors.toList());
+        return predictions.getSpansAt(aDocumentName, aLayer.getId(), aBegin, aEnd, aFeature);
     }
 
     public List<AnnotationSuggestion> getPredictionsByRecommenderAndDocument(
             Recommender aRecommender, String aDocument)
     {
-        return predictions.entrySet().stream()
-                .filter(f -> f.getKey().getRecommenderId() == (long) aRecommender.getId()
-                        && f.getKey().getDocumentName().equals(aDocument))
-                .map(Map.Entry::getValue).collect(Collectors.toList());
+        return predictions.getByRecommenderAndDocument(aRecommender.getId(), aDocument);
     }
 
     public List<AnnotationSuggestion> getPredictionsByDocument(String aDocument)
     {
-        return predictions.entrySet().stream()
-                .filter(f -> f.getKey().getDocumentName().equals(aDocument))
-                .map(Map.Entry::getValue).collect(Collectors.toList());
+        return predictions.getByDocument(aDocument);
     }
 
     public void markDocumentAsPredictionCompleted(SourceDocument aDocument)
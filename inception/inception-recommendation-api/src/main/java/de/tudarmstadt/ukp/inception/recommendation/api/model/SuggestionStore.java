@@ -0,0 +1,347 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.api.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VID;
+
+/**
+ * In-memory store for the suggestions held by {@link Predictions}. The suggestions are partitioned
+ * by document and layer. Within a layer, they are indexed by the begin of their window and, for
+ * the same begin, sorted by the end of their window. A query for a window of the document thus
+ * only looks at the suggestions starting within that window and stops at the first suggestion of
+ * each begin position which ends after the window. Additionally, each document partition maps
+ * recommender and suggestion IDs to the suggestions in order to resolve the {@link VID}s of
+ * rendered suggestions without a scan.
+ * <p>
+ * The store is synchronized internally.
+ */
+class SuggestionStore
+    implements Serializable
+{
+    private static final long serialVersionUID = 2373468541634520461L;
+
+    private final Map<String, DocumentPartition> documents = new HashMap<>();
+
+    private int size = 0;
+
+    /**
+     * Adds the given suggestion. A suggestion from the same recommender with the same ID in the
+     * same document is replaced, even if the new suggestion is at a different position.
+     */
+    synchronized void put(AnnotationSuggestion aSuggestion)
+    {
+        var document = documents.computeIfAbsent(aSuggestion.getDocumentName(),
+                $ -> new DocumentPartition());
+        if (document.put(aSuggestion)) {
+            size++;
+        }
+    }
+
+    /**
+     * @return the suggestions of the given type whose window is within the given window sorted by
+     *         their window begin. If {@code aWindowBegin} or {@code aWindowEnd} are {@code -1},
+     *         the window is not bounded on the respective side.
+     */
+    synchronized <T extends AnnotationSuggestion> List<T> getWindow(Class<T> aType,
+            String aDocumentName, long aLayerId, int aWindowBegin, int aWindowEnd)
+    {
+        var result = new ArrayList<T>();
+
+        var document = documents.get(aDocumentName);
+        if (document == null) {
+            return result;
+        }
+
+        var layer = document.layers.get(aLayerId);
+        if (layer == null) {
+            return result;
+        }
+
+        for (var bucket : layer.bucketsStartingIn(aWindowBegin, aWindowEnd).values()) {
+            for (var suggestion : bucket) {
+                // The bucket is sorted by window end, so all further suggestions end too late
+                if (aWindowEnd != -1 && suggestion.getWindowEnd() > aWindowEnd) {
+                    break;
+                }
+
+                if (aType.isInstance(suggestion)) {
+                    result.add(aType.cast(suggestion));
+                }
+            }
+        }
+
+        return result;
+    }
+
+    synchronized Optional<AnnotationSuggestion> getByVid(String aDocumentName, long aRecommenderId,
+            int aId)
+    {
+        var document = documents.get(aDocumentName);
+        if (document == null) {
+            return Optional.empty();
+        }
+
+        var suggestions = document.byVid.get(aRecommenderId);
+        if (suggestions == null) {
+            return Optional.empty();
+        }
+
+        return Optional.ofNullable(suggestions.get(aId));
+    }
+
+    synchronized List<SpanSuggestion> getSpansAt(String aDocumentName, long aLayerId, int aBegin,
+            int aEnd, String aFeature)
+    {
+        var result = new ArrayList<SpanSuggestion>();
+
+        var document = documents.get(aDocumentName);
+        if (document == null) {
+            return result;
+        }
+
+        var layer = document.layers.get(aLayerId);
+        if (layer == null) {
+            return result;
+        }
+
+        var bucket = layer.byWindowBegin.get(aBegin);
+        if (bucket == null) {
+            return result;
+        }
+
+        for (var suggestion : bucket) {
+            if (suggestion instanceof SpanSuggestion) {
+                var span = (SpanSuggestion) suggestion;
+                if (span.getBegin() == aBegin && span.getEnd() == aEnd
+                        && span.getFeature().equals(aFeature)) {
+                    result.add(span);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    synchronized List<AnnotationSuggestion> getByDocument(String aDocumentName)
+    {
+        var result = new ArrayList<AnnotationSuggestion>();
+
+        var document = documents.get(aDocumentName);
+        if (document != null) {
+            for (var layer : document.layers.values()) {
+                layer.byWindowBegin.values().forEach(result::addAll);
+            }
+        }
+
+        return result;
+    }
+
+    synchronized List<AnnotationSuggestion> getByRecommenderAndDocument(long aRecommenderId,
+            String aDocumentName)
+    {
+        var result = new ArrayList<AnnotationSuggestion>();
+
+        var document = documents.get(aDocumentName);
+        if (document == null || !document.byVid.containsKey(aRecommenderId)) {
+            return result;
+        }
+
+        for (var layer : document.layers.values()) {
+            for (var bucket : layer.byWindowBegin.values()) {
+                for (var suggestion : bucket) {
+                    if (suggestion.getRecommenderId() == aRecommenderId) {
+                        result.add(suggestion);
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    synchronized void removeByRecommender(long aRecommenderId)
+    {
+        var i = documents.values().iterator();
+        while (i.hasNext()) {
+            var document = i.next();
+            size -= document.removeByRecommender(aRecommenderId);
+            if (document.layers.isEmpty()) {
+                i.remove();
+            }
+        }
+    }
+
+    synchronized void clear()
+    {
+        documents.clear();
+        size = 0;
+    }
+
+    synchronized boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    synchronized int size()
+    {
+        return size;
+    }
+
+    private static class DocumentPartition
+        implements Serializable
+    {
+        private static final long serialVersionUID = -3457397536470146366L;
+
+        private final Map<Long, LayerPartition> layers = new HashMap<>();
+        private final Map<Long, Map<Integer, AnnotationSuggestion>> byVid = new HashMap<>();
+
+        /**
+         * @return {@code true} if the suggestion was added and {@code false} if it replaced a
+         *         previous suggestion with the same ID.
+         */
+        boolean put(AnnotationSuggestion aSuggestion)
+        {
+            var previous = byVid
+                    .computeIfAbsent(aSuggestion.getRecommenderId(), $ -> new HashMap<>())
+                    .put(aSuggestion.getId(), aSuggestion);
+
+            // The previous suggestion may be at a different position or even in a different layer
+            // - it must be removed from there, otherwise it would remain visible in window queries
+            // while it can no longer be resolved via its VID
+            if (previous != null) {
+                var previousLayer = layers.get(previous.getLayerId());
+                if (previousLayer != null) {
+                    previousLayer.remove(previous);
+                    if (previousLayer.byWindowBegin.isEmpty()) {
+                        layers.remove(previous.getLayerId());
+                    }
+                }
+            }
+
+            layers.computeIfAbsent(aSuggestion.getLayerId(), $ -> new LayerPartition())
+                    .add(aSuggestion);
+
+            return previous == null;
+        }
+
+        int removeByRecommender(long aRecommenderId)
+        {
+            if (byVid.remove(aRecommenderId) == null) {
+                return 0;
+            }
+
+            int removed = 0;
+            var i = layers.values().iterator();
+            while (i.hasNext()) {
+                var layer = i.next();
+                removed += layer.removeByRecommender(aRecommenderId);
+                if (layer.byWindowBegin.isEmpty()) {
+                    i.remove();
+                }
+            }
+            return removed;
+        }
+    }
+
+    private static class LayerPartition
+        implements Serializable
+    {
+        private static final long serialVersionUID = 8023458614218826125L;
+
+        private final TreeMap<Integer, List<AnnotationSuggestion>> byWindowBegin = new TreeMap<>();
+
+        void add(AnnotationSuggestion aSuggestion)
+        {
+            var bucket = byWindowBegin.computeIfAbsent(aSuggestion.getWindowBegin(),
+                    $ -> new ArrayList<>(1));
+
+            // Keep the bucket sorted by window end - suggestions with the same end remain in the
+            // order in which they were added
+            int i = bucket.size();
+            while (i > 0 && bucket.get(i - 1).getWindowEnd() > aSuggestion.getWindowEnd()) {
+                i--;
+            }
+            bucket.add(i, aSuggestion);
+        }
+
+        void remove(AnnotationSuggestion aSuggestion)
+        {
+            var bucket = byWindowBegin.get(aSuggestion.getWindowBegin());
+            if (bucket == null) {
+                return;
+            }
+
+            for (int i = 0; i < bucket.size(); i++) {
+                if (bucket.get(i) == aSuggestion) {
+                    bucket.remove(i);
+                    break;
+                }
+            }
+
+            if (bucket.isEmpty()) {
+                byWindowBegin.remove(aSuggestion.getWindowBegin());
+            }
+        }
+
+        NavigableMap<Integer, List<AnnotationSuggestion>> bucketsStartingIn(int aWindowBegin,
+                int aWindowEnd)
+        {
+            if (aWindowBegin != -1 && aWindowEnd != -1) {
+                if (aWindowBegin > aWindowEnd) {
+                    return new TreeMap<>();
+                }
+                return byWindowBegin.subMap(aWindowBegin, true, aWindowEnd, true);
+            }
+
+            if (aWindowBegin != -1) {
+                return byWindowBegin.tailMap(aWindowBegin, true);
+            }
+
+            if (aWindowEnd != -1) {
+                return byWindowBegin.headMap(aWindowEnd, true);
+            }
+
+            return byWindowBegin;
+        }
+
+        int removeByRecommender(long aRecommenderId)
+        {
+            int removed = 0;
+            var i = byWindowBegin.values().iterator();
+            while (i.hasNext()) {
+                var bucket = i.next();
+                int sizeBefore = bucket.size();
+                bucket.removeIf(s -> s.getRecommenderId() == aRecommenderId);
+                removed += sizeBefore - bucket.size();
+                if (bucket.isEmpty()) {
+                    i.remove();
+                }
+            }
+            return removed;
+        }
+    }
+}
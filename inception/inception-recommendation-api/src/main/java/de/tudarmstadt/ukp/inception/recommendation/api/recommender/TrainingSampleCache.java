@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.api.recommender;
+
+import static java.util.Collections.unmodifiableList;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Feature;
+import org.apache.uima.cas.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.type.CASMetadata;
+
+/**
+ * Keeps the training samples extracted from each document so that only documents which have
+ * changed since the last training need to be processed again. A document is recognized by the
+ * source document ID and the last-changed timestamp recorded in the {@link CASMetadata} of its
+ * CAS. CASes without this information are always processed again.
+ * <p>
+ * Recommenders can keep the cache in their {@link RecommenderContext} and carry it over to the
+ * next context in {@link RecommendationEngine#newContext(RecommenderContext)}.
+ * </p>
+ * 
+ * @param <S>
+ *            the sample type.
+ */
+public class TrainingSampleCache<S>
+{
+    private static final Logger LOG = LoggerFactory.getLogger(TrainingSampleCache.class);
+
+    private final Map<Long, CachedSamples<S>> samplesByDocument = new ConcurrentHashMap<>();
+
+    /**
+     * Collects the samples from the given CASes. Documents that are not part of the given CASes
+     * are dropped from the cache.
+     * 
+     * @param aCasses
+     *            the CASes to collect the samples from.
+     * @param aExtractor
+     *            extracts the samples from a single CAS.
+     * @param aLimit
+     *            the maximum number of samples to collect. Once the limit has been reached, the
+     *            remaining CASes are not looked at anymore.
+     * @return the samples of the CASes in the order of the CASes.
+     */
+    public List<S> getSamples(List<CAS> aCasses, Function<CAS, List<S>> aExtractor, int aLimit)
+    {
+        Set<Long> seenDocuments = new HashSet<>();
+        List<S> samples = new ArrayList<>();
+        int processed = 0;
+        int reused = 0;
+        for (CAS cas : aCasses) {
+            if (samples.size() >= aLimit) {
+                break;
+            }
+
+            processed++;
+
+            long documentId = getSourceDocumentId(cas);
+            long timestamp = getLastChanged(cas);
+
+            if (documentId < 0 || timestamp < 0) {
+                samples.addAll(aExtractor.apply(cas));
+                continue;
+            }
+
+            seenDocuments.add(documentId);
+
+            CachedSamples<S> cached = samplesByDocument.get(documentId);
+            if (cached != null && cached.timestamp == timestamp) {
+                samples.addAll(cached.samples);
+                reused++;
+                continue;
+            }
+
+            List<S> documentSamples = unmodifiableList(new ArrayList<>(aExtractor.apply(cas)));
+            samplesByDocument.put(documentId, new CachedSamples<>(timestamp, documentSamples));
+            samples.addAll(documentSamples);
+        }
+
+        // If we did not look at all the documents, we cannot tell which are gone
+        if (processed == aCasses.size()) {
+            samplesByDocument.keySet().retainAll(seenDocuments);
+        }
+
+        LOG.trace("Re-used samples of {} out of {} processed documents", reused, processed);
+
+        if (samples.size() > aLimit) {
+            return new ArrayList<>(samples.subList(0, aLimit));
+        }
+
+        return samples;
+    }
+
+    /**
+     * @return the number of documents for which samples are cached.
+     */
+    public int size()
+    {
+        return samplesByDocument.size();
+    }
+
+    private static long getSourceDocumentId(CAS aCas)
+    {
+        return getLongMetadata(aCas, "sourceDocumentId");
+    }
+
+    private static long getLastChanged(CAS aCas)
+    {
+        return getLongMetadata(aCas, "lastChangedOnDisk");
+    }
+
+    private static long getLongMetadata(CAS aCas, String aFeature)
+    {
+        Type type = aCas.getTypeSystem().getType(CASMetadata.class.getName());
+        if (type == null) {
+            return -1;
+        }
+
+        Feature feature = type.getFeatureByBaseName(aFeature);
+        if (feature == null) {
+            return -1;
+        }
+
+        return aCas.select(type) //
+                .map(cmd -> cmd.getLongValue(feature)) //
+                .findFirst() //
+                .orElse(-1l);
+    }
+
+    private static class CachedSamples<S>
+    {
+        private final long timestamp;
+        private final List<S> samples;
+
+        public CachedSamples(long aTimestamp, List<S> aSamples)
+        {
+            timestamp = aTimestamp;
+            samples = aSamples;
+        }
+    }
+}
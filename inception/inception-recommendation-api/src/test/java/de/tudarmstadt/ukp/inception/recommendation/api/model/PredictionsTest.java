@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.api.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+
+public class PredictionsTest
+{
+    private AnnotationLayer layer;
+    private SourceDocument document;
+    private Predictions sut;
+
+    @BeforeEach
+    public void setup()
+    {
+        var project = new Project("test");
+        project.setId(1l);
+
+        layer = new AnnotationLayer();
+        layer.setId(1l);
+
+        document = new SourceDocument("doc1", project, null);
+
+        sut = new Predictions(new User("user"), project);
+    }
+
+    @Test
+    public void thatWindowQueryReturnsSuggestionsWithinWindowInOrder()
+    {
+        var s1 = span(1, 1, "doc1", 20, 25);
+        var s2 = span(2, 1, "doc1", 0, 5);
+        var s3 = span(3, 1, "doc1", 8, 12);
+        var s4 = span(4, 1, "doc1", 10, 30);
+        var s5 = span(5, 1, "doc2", 8, 12);
+        var store = new SuggestionStore();
+        List.of(s1, s2, s3, s4, s5).forEach(store::put);
+
+        assertThat(store.getWindow(SpanSuggestion.class, "doc1", layer.getId(), 5, 25)) //
+                .containsExactly(s3, s1);
+        assertThat(store.getWindow(SpanSuggestion.class, "doc1", layer.getId(), -1, -1)) //
+                .containsExactly(s2, s3, s4, s1);
+        assertThat(store.getWindow(SpanSuggestion.class, "doc1", layer.getId(), 10, -1)) //
+                .containsExactly(s4, s1);
+        assertThat(store.getWindow(RelationSuggestion.class, "doc1", layer.getId(), -1, -1)) //
+                .isEmpty();
+        assertThat(store.size()).isEqualTo(5);
+    }
+
+    @Test
+    public void thatSuggestionsCanBeResolvedByVid()
+    {
+        var s1 = span(1, 1, "doc1", 0, 5);
+        var s2 = span(2, 1, "doc1", 8, 12);
+        var s3 = span(1, 2, "doc1", 8, 12);
+        sut.putPredictions(List.of(s1, s2, s3));
+
+        assertThat(sut.getPredictionByVID(document, s1.getVID())).containsSame(s1);
+        assertThat(sut.getPredictionByVID(document, s2.getVID())).containsSame(s2);
+        assertThat(sut.getPredictionByVID(document, s3.getVID())).containsSame(s3);
+        assertThat(sut.getPredictionByVID(document, span(3, 1, "doc1", 0, 5).getVID())).isEmpty();
+    }
+
+    @Test
+    public void thatSuggestionAtSamePositionIsReplaced()
+    {
+        var s1 = span(1, 1, "doc1", 0, 5);
+        var s1b = span(1, 1, "doc1", 0, 5);
+        sut.putPredictions(List.of(s1));
+        sut.putPredictions(List.of(s1b));
+
+        assertThat(sut.getPredictionsByDocument("doc1")).containsExactly(s1b);
+        assertThat(sut.getPredictionByVID(document, s1.getVID())).containsSame(s1b);
+    }
+
+    @Test
+    public void thatMovedSuggestionReplacesPreviousPosition()
+    {
+        var s1 = span(1, 1, "doc1", 0, 5);
+        var s2 = span(2, 1, "doc1", 8, 12);
+        sut.putPredictions(List.of(s1, s2));
+
+        // The re-predicted suggestion with the same ID is now at a different position
+        var s1b = span(1, 1, "doc1", 20, 25);
+        sut.putPredictions(List.of(s1b));
+
+        assertThat(sut.getPredictionByVID(document, s1.getVID())).containsSame(s1b);
+        assertThat(sut.getPredictionsByDocument("doc1")).containsExactlyInAnyOrder(s2, s1b);
+        assertThat(sut.getPredictionsByTokenAndFeature("doc1", layer, 0, 5, "value")).isEmpty();
+        assertThat(sut.getPredictionsByTokenAndFeature("doc1", layer, 20, 25, "value"))
+                .containsExactly(s1b);
+
+        var store = new SuggestionStore();
+        List.of(s1, s2, s1b).forEach(store::put);
+        assertThat(store.getWindow(SpanSuggestion.class, "doc1", layer.getId(), -1, -1)) //
+                .containsExactly(s2, s1b);
+        assertThat(store.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void thatWindowQueryStopsAtSuggestionsEndingAfterWindow()
+    {
+        var s1 = span(1, 1, "doc1", 0, 30);
+        var s2 = span(2, 1, "doc1", 0, 5);
+        var s3 = span(3, 1, "doc1", 0, 10);
+        var store = new SuggestionStore();
+        List.of(s1, s2, s3).forEach(store::put);
+
+        assertThat(store.getWindow(SpanSuggestion.class, "doc1", layer.getId(), 0, 10)) //
+                .containsExactly(s2, s3);
+        assertThat(store.getWindow(SpanSuggestion.class, "doc1", layer.getId(), 0, -1)) //
+                .containsExactly(s2, s3, s1);
+    }
+
+    @Test
+    public void thatSuggestionsCanBeRemovedByRecommender()
+    {
+        var rec1 = new Recommender();
+        rec1.setId(1l);
+        var rec2 = new Recommender();
+        rec2.setId(2l);
+
+        var s1 = span(1, 1, "doc1", 0, 5);
+        var s2 = span(2, 2, "doc1", 0, 5);
+        var s3 = span(3, 1, "doc2", 0, 5);
+        sut.putPredictions(List.of(s1, s2, s3));
+
+        assertThat(sut.getPredictionsByRecommenderAndDocument(rec1, "doc1")).containsExactly(s1);
+
+        sut.removePredictions(1l);
+
+        assertThat(sut.getPredictionsByRecommenderAndDocument(rec1, "doc1")).isEmpty();
+        assertThat(sut.getPredictionsByRecommenderAndDocument(rec2, "doc1")).containsExactly(s2);
+        assertThat(sut.getPredictionsByDocument("doc2")).isEmpty();
+        assertThat(sut.getPredictionByVID(document, s1.getVID())).isEmpty();
+        assertThat(sut.hasPredictions()).isTrue();
+
+        sut.removePredictions(2l);
+
+        assertThat(sut.hasPredictions()).isFalse();
+    }
+
+    @Test
+    public void thatSuggestionsCanBeFoundByTokenAndFeature()
+    {
+        var s1 = span(1, 1, "doc1", 0, 5);
+        var s2 = span(2, 2, "doc1", 0, 5);
+        var s3 = span(3, 1, "doc1", 0, 6);
+        sut.putPredictions(List.of(s1, s2, s3));
+
+        assertThat(sut.getPredictionsByTokenAndFeature("doc1", layer, 0, 5, "value"))
+                .containsExactly(s1, s2);
+        assertThat(sut.getPredictionsByTokenAndFeature("doc1", layer, 0, 5, "other")).isEmpty();
+    }
+
+    private SpanSuggestion span(int aId, long aRecommenderId, String aDocument, int aBegin,
+            int aEnd)
+    {
+        return new SpanSuggestion(aId, aRecommenderId, "rec" + aRecommenderId, layer.getId(),
+                "value", aDocument, aBegin, aEnd, "text", "label", "label", 0.5, null);
+    }
+}
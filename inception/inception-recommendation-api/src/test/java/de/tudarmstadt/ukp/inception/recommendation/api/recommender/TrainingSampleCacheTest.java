@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.api.recommender;
+
+import static java.util.Arrays.asList;
+import static org.apache.uima.fit.factory.JCasFactory.createJCas;
+import static org.apache.uima.fit.factory.JCasFactory.createText;
+import static org.apache.uima.fit.factory.TypeSystemDescriptionFactory.createTypeSystemDescription;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.jcas.JCas;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.type.CASMetadata;
+
+class TrainingSampleCacheTest
+{
+    private TrainingSampleCache<String> sut;
+    private List<String> extracted;
+
+    @BeforeEach
+    void setup()
+    {
+        sut = new TrainingSampleCache<>();
+        extracted = new ArrayList<>();
+    }
+
+    @Test
+    void thatUnchangedDocumentsAreNotExtractedAgain() throws Exception
+    {
+        var doc1 = makeCas("doc1", 1, 100);
+        var doc2 = makeCas("doc2", 2, 100);
+
+        assertThat(sut.getSamples(asList(doc1, doc2), this::extract, Integer.MAX_VALUE))
+                .containsExactly("doc1", "doc2");
+        assertThat(extracted).containsExactly("doc1", "doc2");
+
+        var doc2changed = makeCas("doc2*", 2, 200);
+
+        assertThat(sut.getSamples(asList(doc1, doc2changed), this::extract, Integer.MAX_VALUE))
+                .containsExactly("doc1", "doc2*");
+        assertThat(extracted).containsExactly("doc1", "doc2", "doc2*");
+    }
+
+    @Test
+    void thatRemovedDocumentsAreDropped() throws Exception
+    {
+        var doc1 = makeCas("doc1", 1, 100);
+        var doc2 = makeCas("doc2", 2, 100);
+
+        sut.getSamples(asList(doc1, doc2), this::extract, Integer.MAX_VALUE);
+        assertThat(sut.size()).isEqualTo(2);
+
+        sut.getSamples(asList(doc1), this::extract, Integer.MAX_VALUE);
+        assertThat(sut.size()).isEqualTo(1);
+    }
+
+    @Test
+    void thatLimitIsRespected() throws Exception
+    {
+        var doc1 = makeCas("doc1", 1, 100);
+        var doc2 = makeCas("doc2", 2, 100);
+
+        assertThat(sut.getSamples(asList(doc1, doc2), this::extract, 1)) //
+                .containsExactly("doc1");
+        assertThat(extracted).containsExactly("doc1");
+    }
+
+    @Test
+    void thatDocumentsWithoutMetadataAreAlwaysExtracted() throws Exception
+    {
+        var doc = createText("doc").getCas();
+
+        sut.getSamples(asList(doc), this::extract, Integer.MAX_VALUE);
+        sut.getSamples(asList(doc), this::extract, Integer.MAX_VALUE);
+
+        assertThat(extracted).containsExactly("doc", "doc");
+        assertThat(sut.size()).isZero();
+    }
+
+    private List<String> extract(CAS aCas)
+    {
+        extracted.add(aCas.getDocumentText());
+        return asList(aCas.getDocumentText());
+    }
+
+    private static CAS makeCas(String aText, long aDocumentId, long aTimestamp) throws Exception
+    {
+        JCas jcas = createJCas(createTypeSystemDescription(
+                "de/tudarmstadt/ukp/clarin/webanno/api/type/webanno-internal"));
+        jcas.setDocumentText(aText);
+        var cmd = new CASMetadata(jcas, 0, 0);
+        cmd.setSourceDocumentId(aDocumentId);
+        cmd.setLastChangedOnDisk(aTimestamp);
+        cmd.addToIndexes();
+        return jcas.getCas();
+    }
+}
@@ -22,4 +22,10 @@ public interface RecommenderProperties
     boolean isActionButtonsEnabled();
 
     boolean isEnabled();
+
+    /**
+     * @return the number of threads used to train the recommenders of a user. Recommenders are
+     *         independent of each other, so they can be trained in parallel.
+     */
+    int getTrainingThreads();
 }
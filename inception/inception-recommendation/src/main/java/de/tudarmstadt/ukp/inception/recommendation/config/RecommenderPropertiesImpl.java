@@ -30,6 +30,7 @@ public class RecommenderPropertiesImpl
 {
     private boolean enabled;
     private boolean actionButtonsEnabled;
+    private int trainingThreads = 2;
 
     @Override
     public boolean isEnabled()
@@ -52,4 +53,15 @@ public class RecommenderPropertiesImpl
     {
         actionButtonsEnabled = aActionButtonsEnabled;
     }
+
+    @Override
+    public int getTrainingThreads()
+    {
+        return trainingThreads;
+    }
+
+    public void setTrainingThreads(int aTrainingThreads)
+    {
+        trainingThreads = aTrainingThreads;
+    }
 }
@@ -59,6 +59,7 @@ import de.tudarmstadt.ukp.inception.recommendation.sidebar.RecommendationSidebar
 import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
 import de.tudarmstadt.ukp.inception.schema.AnnotationSchemaService;
 import de.tudarmstadt.ukp.inception.schema.feature.FeatureSupportRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
 
 /**
  * Provides all back-end Spring beans for the recommendation functionality.
@@ -77,11 +78,13 @@ public class RecommenderServiceAutoConfiguration
             RecommenderFactoryRegistry aRecommenderFactoryRegistry,
             SchedulingService aSchedulingService, AnnotationSchemaService aAnnoService,
             DocumentService aDocumentService, LearningRecordService aLearningRecordService,
-            ProjectService aProjectService, ApplicationEventPublisher aApplicationEventPublisher)
+            ProjectService aProjectService, ApplicationEventPublisher aApplicationEventPublisher,
+            @Autowired(required = false) MeterRegistry aMeterRegistry)
     {
         return new RecommendationServiceImpl(aPreferencesService, aSessionRegistry, aUserRepository,
                 aRecommenderFactoryRegistry, aSchedulingService, aAnnoService, aDocumentService,
-                aLearningRecordService, aProjectService, entityManager, aApplicationEventPublisher);
+                aLearningRecordService, aProjectService, entityManager, aApplicationEventPublisher,
+                aMeterRegistry);
     }
 
     @Bean
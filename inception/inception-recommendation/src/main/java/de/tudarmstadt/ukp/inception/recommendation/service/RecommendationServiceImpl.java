@@ -31,6 +31,7 @@ import static de.tudarmstadt.ukp.inception.recommendation.api.model.SuggestionDo
 import static de.tudarmstadt.ukp.inception.recommendation.api.recommender.TrainingCapability.TRAINING_NOT_SUPPORTED;
 import static java.lang.Math.max;
 import static java.lang.Math.min;
+import static java.util.Collections.emptyList;
 import static java.util.Comparator.comparingInt;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
@@ -165,6 +166,9 @@ import de.tudarmstadt.ukp.inception.scheduling.Task;
 import de.tudarmstadt.ukp.inception.schema.AnnotationSchemaService;
 import de.tudarmstadt.ukp.inception.schema.adapter.AnnotationComparisonUtils;
 import de.tudarmstadt.ukp.inception.schema.adapter.AnnotationException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 
 /**
  * The implementation of the RecommendationService.
@@ -194,6 +198,7 @@ public class RecommendationServiceImpl
     private final ProjectService projectService;
     private final ApplicationEventPublisher applicationEventPublisher;
     private final PreferencesService preferencesService;
+    private final MeterRegistry meterRegistry;
 
     private final ConcurrentMap<RecommendationStateKey, AtomicInteger> trainingTaskCounter;
     private final ConcurrentMap<RecommendationStateKey, RecommendationState> states;
@@ -223,7 +228,7 @@ public class RecommendationServiceImpl
             SchedulingService aSchedulingService, AnnotationSchemaService aAnnoService,
             DocumentService aDocumentService, LearningRecordService aLearningRecordService,
             ProjectService aProjectService, EntityManager aEntityManager,
-            ApplicationEventPublisher aApplicationEventPublisher)
+            ApplicationEventPublisher aApplicationEventPublisher, MeterRegistry aMeterRegistry)
     {
         preferencesService = aPreferencesService;
         sessionRegistry = aSessionRegistry;
@@ -236,6 +241,7 @@ public class RecommendationServiceImpl
         projectService = aProjectService;
         entityManager = aEntityManager;
         applicationEventPublisher = aApplicationEventPublisher;
+        meterRegistry = aMeterRegistry != null ? aMeterRegistry : Metrics.globalRegistry;
 
         trainingTaskCounter = new ConcurrentHashMap<>();
         states = new ConcurrentHashMap<>();
@@ -250,7 +256,7 @@ public class RecommendationServiceImpl
     {
         this(aPreferencesService, aSessionRegistry, aUserRepository, aRecommenderFactoryRegistry,
                 aSchedulingService, aAnnoService, aDocumentService, aLearningRecordService,
-                (ProjectService) null, aEntityManager, null);
+                (ProjectService) null, aEntityManager, null, null);
     }
 
     @Override
@@ -1601,11 +1607,38 @@ public class RecommendationServiceImpl
                 recommender.getLayer().getUiName());
 
         // Perform the actual prediction
-        Range predictedRange = aEngine.predict(aCtx, aPredictionCas, aPredictionBegin,
-                aPredictionEnd);
+        Range predictedRange;
+        Timer.Sample sample = Timer.start();
+        try {
+            predictedRange = aEngine.predict(aCtx, aPredictionCas, aPredictionBegin,
+                    aPredictionEnd);
+        }
+        finally {
+            sample.stop(Timer.builder("inception.recommender.prediction") //
+                    .description("Time taken by a recommender to predict on a document") //
+                    .tag("tool", String.valueOf(recommender.getTool())) //
+                    .register(meterRegistry));
+        }
+
+        // Inherit annotations that are outside the range which was predicted. Note that the
+        // engine might actually predict a different range from what was requested.
+        List<AnnotationSuggestion> inheritableSuggestions = emptyList();
+        if (aActivePredictions != null) {
+            inheritableSuggestions = aActivePredictions
+                    .getPredictionsByRecommenderAndDocument(recommender, aDocument.getName())
+                    .stream().filter(s -> !s.coveredBy(predictedRange)) //
+                    .collect(toList());
+        }
 
-        // Extract the suggestions from the data which the recommender has written into the CAS
-        var suggestions = extractSuggestions(aOriginalCas, aPredictionCas, aDocument, recommender);
+        // Extract the suggestions from the data which the recommender has written into the CAS.
+        // The IDs of the new suggestions continue after those of the inherited suggestions. The
+        // store identifies a suggestion by recommender and ID, so an inherited suggestion must
+        // not share its ID with a new one.
+        int firstId = inheritableSuggestions.stream() //
+                .mapToInt(AnnotationSuggestion::getId) //
+                .max().orElse(-1) + 1;
+        var suggestions = extractSuggestions(aOriginalCas, aPredictionCas, aDocument, recommender,
+                firstId);
 
         LOG.debug(
                 "{} for user {} on document {} in project {} generated {} predictions within range {}",
@@ -1615,13 +1648,6 @@ public class RecommendationServiceImpl
                 "Generated [%d] predictions within range %s", suggestions.size(), predictedRange));
 
         if (aActivePredictions != null) {
-            // Inherit annotations that are outside the range which was predicted. Note that the
-            // engine might actually predict a different range from what was requested.
-            List<AnnotationSuggestion> inheritableSuggestions = aActivePredictions
-                    .getPredictionsByRecommenderAndDocument(recommender, aDocument.getName())
-                    .stream().filter(s -> !s.coveredBy(predictedRange)) //
-                    .collect(toList());
-
             LOG.debug("{} for user {} on document {} in project {} inherited {} " //
                     + "predictions", recommender, aUser, aDocument, recommender.getProject(),
                     inheritableSuggestions.size());
@@ -1643,6 +1669,12 @@ public class RecommendationServiceImpl
 
     static List<AnnotationSuggestion> extractSuggestions(CAS aOriginalCas, CAS aPredictionCas,
             SourceDocument aDocument, Recommender aRecommender)
+    {
+        return extractSuggestions(aOriginalCas, aPredictionCas, aDocument, aRecommender, 0);
+    }
+
+    static List<AnnotationSuggestion> extractSuggestions(CAS aOriginalCas, CAS aPredictionCas,
+            SourceDocument aDocument, Recommender aRecommender, int aFirstId)
     {
         var layer = aRecommender.getLayer();
         var featureName = aRecommender.getFeature().getName();
@@ -1660,7 +1692,7 @@ public class RecommendationServiceImpl
         var isMultiLabels = TYPE_NAME_STRING_ARRAY.equals(labelFeature.getRange().getName());
 
         List<AnnotationSuggestion> result = new ArrayList<>();
-        int id = 0;
+        int id = aFirstId;
 
         var documentText = aOriginalCas.getDocumentText();
         for (FeatureStructure predictedFS : aPredictionCas.select(predictedType)) {
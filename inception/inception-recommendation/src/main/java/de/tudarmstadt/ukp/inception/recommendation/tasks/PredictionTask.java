@@ -33,6 +33,7 @@ import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
 import de.tudarmstadt.ukp.inception.annotation.storage.CasStorageSession;
 import de.tudarmstadt.ukp.inception.recommendation.api.RecommendationService;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.Predictions;
+import de.tudarmstadt.ukp.inception.scheduling.TaskPriority;
 
 /**
  * This consumer predicts new annotations for a given annotation layer, if a classification tool for
@@ -64,6 +65,13 @@ public class PredictionTask
         predictionEnd = aEnd;
     }
 
+    @Override
+    public TaskPriority getPriority()
+    {
+        // The user is typically waiting for the predictions to show up in the editor
+        return TaskPriority.INTERACTIVE;
+    }
+
     @Override
     public void execute()
     {
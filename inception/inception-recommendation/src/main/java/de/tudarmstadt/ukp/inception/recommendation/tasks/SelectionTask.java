@@ -118,6 +118,11 @@ public class SelectionTask
 
                 List<EvaluatedRecommender> evaluatedRecommenders = new ArrayList<>();
                 for (Recommender r : recommenders) {
+                    if (isCancelled()) {
+                        log.debug("[{}][{}]: Selection cancelled", getId(), userName);
+                        return;
+                    }
+
                     // Make sure we have the latest recommender config from the DB - the one from
                     // the active recommenders list may be outdated
                     Optional<Recommender> optRecommender = freshenRecommender(user, r);
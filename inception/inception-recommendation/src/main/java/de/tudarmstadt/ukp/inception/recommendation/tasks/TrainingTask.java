@@ -29,15 +29,20 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.persistence.NoResultException;
 
-import org.apache.commons.lang3.concurrent.LazyInitializer;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.Type;
 import org.apache.uima.fit.util.CasUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationEventPublisher;
 
@@ -48,6 +53,7 @@ import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
 import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+import de.tudarmstadt.ukp.clarin.webanno.support.logging.MDCContext;
 import de.tudarmstadt.ukp.inception.annotation.storage.CasStorageSession;
 import de.tudarmstadt.ukp.inception.recommendation.api.RecommendationService;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.EvaluatedRecommender;
@@ -56,9 +62,13 @@ import de.tudarmstadt.ukp.inception.recommendation.api.recommender.Recommendatio
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngineFactory;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.TrainingCapability;
+import de.tudarmstadt.ukp.inception.recommendation.config.RecommenderProperties;
 import de.tudarmstadt.ukp.inception.recommendation.event.RecommenderTaskEvent;
 import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
 import de.tudarmstadt.ukp.inception.schema.AnnotationSchemaService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 
 /**
  * This consumer trains a new classifier model, if a classification tool was selected before.
@@ -73,6 +83,8 @@ public class TrainingTask
     private @Autowired RecommendationService recommendationService;
     private @Autowired SchedulingService schedulingService;
     private @Autowired ApplicationEventPublisher appEventPublisher;
+    private @Autowired RecommenderProperties recommenderProperties;
+    private @Autowired(required = false) MeterRegistry meterRegistry;
 
     private final SourceDocument currentDocument;
 
@@ -94,21 +106,11 @@ public class TrainingTask
                     user.getUsername(), project, getTrigger());
             info("Starting training triggered by [%s]...", getTrigger());
 
-            // Read the CASes only when they are accessed the first time. This allows us to skip
-            // reading the CASes in case that no layer / recommender is available or if no
-            // recommender requires evaluation.
-            LazyInitializer<List<TrainingDocument>> casses = new LazyInitializer<List<TrainingDocument>>()
-            {
-                @Override
-                protected List<TrainingDocument> initialize()
-                {
-                    return readCasses(project, user);
-                }
-            };
-
             boolean seenSuccessfulTraining = false;
             boolean seenNonTrainingRecommender = false;
 
+            List<RecommenderTraining> trainings = new ArrayList<>();
+
             for (AnnotationLayer layer : annoService.listAnnotationLayer(project)) {
                 if (!layer.isEnabled()) {
                     continue;
@@ -126,6 +128,11 @@ public class TrainingTask
                 }
 
                 for (EvaluatedRecommender r : recommenders) {
+                    if (isCancelled()) {
+                        log.debug("[{}][{}]: Training cancelled", getId(), user.getUsername());
+                        return;
+                    }
+
                     // Make sure we have the latest recommender config from the DB - the one from
                     // the active recommenders list may be outdated
                     Recommender recommender;
@@ -145,8 +152,6 @@ public class TrainingTask
                         continue;
                     }
 
-                    long startTime = System.currentTimeMillis();
-
                     try {
                         Optional<RecommendationEngineFactory<?>> maybeFactory = recommendationService
                                 .getRecommenderFactory(recommender);
@@ -194,84 +199,30 @@ public class TrainingTask
                             continue;
                         }
 
-                        List<CAS> cassesForTraining = casses.get().stream() //
-                                .filter(e -> !recommender.getStatesIgnoredForTraining()
-                                        .contains(e.state))
-                                .filter(e -> containsTargetTypeAndFeature(recommender, e.cas))
-                                .map(e -> e.cas).collect(toList());
-
-                        // If no data for training is available, but the engine requires training,
-                        // do not mark as ready
-                        if (cassesForTraining.isEmpty() && capability == TRAINING_REQUIRED) {
-                            log.debug(
-                                    "[{}][{}][{}]: There are no annotations available to train on",
-                                    getId(), user.getUsername(), recommender.getName());
-                            warn("There are no [%s] annotations available to train on.",
-                                    layer.getUiName());
-                            // This can happen if there were already predictions based on existing
-                            // annotations, but all annotations have been removed/deleted. To ensure
-                            // that the prediction run removes the stale predictions, we need to
-                            // call it a success here.
-                            seenSuccessfulTraining = true;
-                            continue;
-                        }
-
-                        log.debug("[{}][{}][{}]: Training model on [{}] out of [{}] documents ...",
-                                getId(), user.getUsername(), recommender.getName(),
-                                cassesForTraining.size(), casses.get().size());
-                        info("Training model for [%s] on [%d] out of [%d] documents ...",
-                                layer.getUiName(), cassesForTraining.size(), casses.get().size());
-
-                        recommendationEngine.train(ctx, cassesForTraining);
-                        inheritLog(ctx.getMessages());
-
-                        long duration = System.currentTimeMillis() - startTime;
-
-                        if (!recommendationEngine.isReadyForPrediction(ctx)) {
-                            int docNum = casses.get().size();
-                            int trainDocNum = cassesForTraining.size();
-                            log.debug(
-                                    "[{}][{}][{}]: Training on [{}] out of [{}] documents not successful ({} ms)",
-                                    getId(), user.getUsername(), recommender.getName(), trainDocNum,
-                                    docNum, duration);
-                            info("Training not successful (%d ms).", duration);
-                            // The recommender may decide for legitimate reasons not to train and
-                            // then this event is annoying
-                            // appEventPublisher.publishEvent(new RecommenderTaskEvent(this,
-                            // user.getUsername(),
-                            // format("Training on %d out of %d documents not successful (%d ms)",
-                            // trainDocNum, docNum, duration),
-                            // recommender));
-                            continue;
-                        }
-
-                        log.debug(
-                                "[{}][{}][{}]: Training successful on [{}] out of [{}] documents ({} ms)",
-                                getId(), user.getUsername(), recommender.getName(),
-                                cassesForTraining.size(), casses.get().size(), duration);
-                        info("Training successful on [%d] out of [%d] documents (%d ms)",
-                                cassesForTraining.size(), casses.get().size(), duration);
-                        seenSuccessfulTraining = true;
-
-                        ctx.close();
-                        recommendationService.putContext(user, recommender, ctx);
+                        trainings.add(new RecommenderTraining(layer, recommender,
+                                recommendationEngine, ctx));
                     }
                     // Catching Throwable is intentional here as we want to continue the execution
                     // even if a particular recommender fails.
                     catch (Throwable e) {
-                        long duration = System.currentTimeMillis() - startTime;
-                        log.error("[{}][{}][{}]: Training failed ({} ms)", getId(),
-                                user.getUsername(), recommender.getName(),
-                                (System.currentTimeMillis() - startTime), e);
-                        error("Training failed (%d ms): %s", duration, getRootCauseMessage(e));
-                        appEventPublisher.publishEvent(new RecommenderTaskEvent(this,
-                                user.getUsername(), String.format("Training failed (%d ms) with %s",
-                                        duration, e.getMessage()),
-                                recommender));
+                        handleError(user, recommender, System.currentTimeMillis(), e);
                     }
                 }
             }
 
+            if (!trainings.isEmpty()) {
+                // The CASes are only read if there is at least one recommender to be trained. They
+                // are read here so that they are associated with the CAS storage session of the
+                // task and not with the session of one of the training threads.
+                List<TrainingDocument> casses = readCasses(project, user);
+                seenSuccessfulTraining = train(user, trainings, casses);
+            }
+
+            if (isCancelled()) {
+                log.debug("[{}][{}]: Training cancelled", getId(), user.getUsername());
+                return;
+            }
+
             if (!seenSuccessfulTraining && !seenNonTrainingRecommender) {
                 log.debug(
                         "[{}][{}]: No recommenders trained successfully and no non-training "
@@ -287,6 +238,174 @@ public class TrainingTask
         }
     }
 
+    /**
+     * Trains the given recommenders. Recommenders are independent of each other, so they are
+     * trained in parallel if multiple training threads have been configured. The CASes are shared
+     * between the threads. Recommenders must not modify them during training and must synchronize
+     * on the CAS when serializing it (UIMA-6162).
+     * 
+     * @return whether at least one of the recommenders has been trained successfully.
+     */
+    private boolean train(User aUser, List<RecommenderTraining> aTrainings,
+            List<TrainingDocument> aCasses)
+    {
+        int threads = Math.min(aTrainings.size(), recommenderProperties.getTrainingThreads());
+
+        if (threads <= 1) {
+            boolean seenSuccessfulTraining = false;
+            for (RecommenderTraining training : aTrainings) {
+                seenSuccessfulTraining |= train(aUser, training, aCasses);
+            }
+            return seenSuccessfulTraining;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+                new BasicThreadFactory.Builder() //
+                        .namingPattern("training-" + getId() + "-%d") //
+                        .daemon(true) //
+                        .build());
+
+        // The CAS storage relies on the logging context, e.g. to locate the repository
+        var loggingContext = MDC.getCopyOfContextMap();
+
+        List<Future<Boolean>> futures = new ArrayList<>();
+        try {
+            for (RecommenderTraining training : aTrainings) {
+                futures.add(executor.submit(() -> {
+                    try (var ctx = MDCContext.open()) {
+                        if (loggingContext != null) {
+                            MDC.setContextMap(loggingContext);
+                        }
+
+                        try (CasStorageSession session = CasStorageSession.openNested()) {
+                            return train(aUser, training, aCasses);
+                        }
+                    }
+                }));
+            }
+
+            boolean seenSuccessfulTraining = false;
+            for (Future<Boolean> future : futures) {
+                seenSuccessfulTraining |= future.get();
+            }
+            return seenSuccessfulTraining;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.debug("[{}][{}]: Training interrupted", getId(), aUser.getUsername());
+            return false;
+        }
+        catch (ExecutionException e) {
+            // Should not happen since train() catches everything
+            log.error("[{}][{}]: Training failed", getId(), aUser.getUsername(), e.getCause());
+            return false;
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private boolean train(User user, RecommenderTraining aTraining, List<TrainingDocument> aCasses)
+    {
+        AnnotationLayer layer = aTraining.layer;
+        Recommender recommender = aTraining.recommender;
+        RecommendationEngine recommendationEngine = aTraining.engine;
+        RecommenderContext ctx = aTraining.context;
+
+        if (isCancelled()) {
+            return false;
+        }
+
+        long startTime = System.currentTimeMillis();
+
+        try {
+            TrainingCapability capability = recommendationEngine.getTrainingCapability();
+
+            List<CAS> cassesForTraining = aCasses.stream() //
+                    .filter(e -> !recommender.getStatesIgnoredForTraining().contains(e.state))
+                    .filter(e -> containsTargetTypeAndFeature(recommender, e.cas))
+                    .map(e -> e.cas).collect(toList());
+
+            // If no data for training is available, but the engine requires training,
+            // do not mark as ready
+            if (cassesForTraining.isEmpty() && capability == TRAINING_REQUIRED) {
+                log.debug("[{}][{}][{}]: There are no annotations available to train on",
+                        getId(), user.getUsername(), recommender.getName());
+                warn("There are no [%s] annotations available to train on.", layer.getUiName());
+                // This can happen if there were already predictions based on existing
+                // annotations, but all annotations have been removed/deleted. To ensure
+                // that the prediction run removes the stale predictions, we need to
+                // call it a success here.
+                return true;
+            }
+
+            log.debug("[{}][{}][{}]: Training model on [{}] out of [{}] documents ...", getId(),
+                    user.getUsername(), recommender.getName(), cassesForTraining.size(),
+                    aCasses.size());
+            info("Training model for [%s] on [%d] out of [%d] documents ...", layer.getUiName(),
+                    cassesForTraining.size(), aCasses.size());
+
+            Timer.Sample sample = Timer.start();
+            try {
+                recommendationEngine.train(ctx, cassesForTraining);
+            }
+            finally {
+                sample.stop(Timer.builder("inception.recommender.training") //
+                        .description("Time taken to train a recommender") //
+                        .tag("tool", String.valueOf(recommender.getTool())) //
+                        .register(meterRegistry != null ? meterRegistry : Metrics.globalRegistry));
+            }
+            inheritLog(ctx.getMessages());
+
+            long duration = System.currentTimeMillis() - startTime;
+
+            if (!recommendationEngine.isReadyForPrediction(ctx)) {
+                int docNum = aCasses.size();
+                int trainDocNum = cassesForTraining.size();
+                log.debug(
+                        "[{}][{}][{}]: Training on [{}] out of [{}] documents not successful ({} ms)",
+                        getId(), user.getUsername(), recommender.getName(), trainDocNum, docNum,
+                        duration);
+                info("Training not successful (%d ms).", duration);
+                // The recommender may decide for legitimate reasons not to train and
+                // then this event is annoying
+                // appEventPublisher.publishEvent(new RecommenderTaskEvent(this,
+                // user.getUsername(),
+                // format("Training on %d out of %d documents not successful (%d ms)",
+                // trainDocNum, docNum, duration),
+                // recommender));
+                return false;
+            }
+
+            log.debug("[{}][{}][{}]: Training successful on [{}] out of [{}] documents ({} ms)",
+                    getId(), user.getUsername(), recommender.getName(), cassesForTraining.size(),
+                    aCasses.size(), duration);
+            info("Training successful on [%d] out of [%d] documents (%d ms)",
+                    cassesForTraining.size(), aCasses.size(), duration);
+
+            ctx.close();
+            recommendationService.putContext(user, recommender, ctx);
+            return true;
+        }
+        // Catching Throwable is intentional here as we want to continue the execution
+        // even if a particular recommender fails.
+        catch (Throwable e) {
+            handleError(user, recommender, startTime, e);
+            return false;
+        }
+    }
+
+    private void handleError(User aUser, Recommender aRecommender, long aStartTime, Throwable aError)
+    {
+        long duration = System.currentTimeMillis() - aStartTime;
+        log.error("[{}][{}][{}]: Training failed ({} ms)", getId(), aUser.getUsername(),
+                aRecommender.getName(), duration, aError);
+        error("Training failed (%d ms): %s", duration, getRootCauseMessage(aError));
+        appEventPublisher.publishEvent(new RecommenderTaskEvent(this, aUser.getUsername(),
+                String.format("Training failed (%d ms) with %s", duration, aError.getMessage()),
+                aRecommender));
+    }
+
     private List<TrainingDocument> readCasses(Project aProject, User aUser)
     {
         List<TrainingDocument> casses = new ArrayList<>();
@@ -334,6 +453,23 @@ public class TrainingTask
         return CasUtil.iterator(aCas, type).hasNext();
     }
 
+    private static class RecommenderTraining
+    {
+        private final AnnotationLayer layer;
+        private final Recommender recommender;
+        private final RecommendationEngine engine;
+        private final RecommenderContext context;
+
+        private RecommenderTraining(AnnotationLayer aLayer, Recommender aRecommender,
+                RecommendationEngine aEngine, RecommenderContext aContext)
+        {
+            layer = aLayer;
+            recommender = aRecommender;
+            engine = aEngine;
+            context = aContext;
+        }
+    }
+
     private static class TrainingDocument
     {
         private final CAS cas;
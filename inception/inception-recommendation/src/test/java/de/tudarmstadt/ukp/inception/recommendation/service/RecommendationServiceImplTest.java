@@ -40,6 +40,10 @@ import static org.apache.uima.fit.factory.TypeSystemDescriptionFactory.createTyp
 import static org.apache.uima.util.CasCreationUtils.mergeTypeSystems;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import org.apache.uima.UIMAFramework;
 import org.apache.uima.fit.factory.CasFactory;
@@ -49,17 +53,26 @@ import org.apache.uima.jcas.tcas.Annotation;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import de.tudarmstadt.ukp.clarin.webanno.api.ProjectService;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
 import de.tudarmstadt.ukp.clarin.webanno.support.WebAnnoConst;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.inception.recommendation.api.LearningRecordService;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.AnnotationSuggestion;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecord;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.Offset;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.Predictions;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.SpanSuggestion;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngine;
+import de.tudarmstadt.ukp.inception.rendering.model.Range;
+import de.tudarmstadt.ukp.inception.schema.AnnotationSchemaService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 class RecommendationServiceImplTest
 {
@@ -335,6 +348,84 @@ class RecommendationServiceImplTest
                         tuple("bar", 0.5d, "two", new Offset(5, 9)));
     }
 
+    @Test
+    void thatNewSuggestionsDoNotReuseIdsOfInheritedSuggestions() throws Exception
+    {
+        var tsd = UIMAFramework.getResourceSpecifierFactory().createTypeSystemDescription();
+        var predType = tsd.addType("Prediction", null, TYPE_NAME_ANNOTATION);
+        predType.addFeature("value", null, TYPE_NAME_STRING);
+        predType.addFeature("value" + FEATURE_NAME_SCORE_SUFFIX, null, TYPE_NAME_DOUBLE);
+        predType.addFeature("value" + FEATURE_NAME_SCORE_EXPLANATION_SUFFIX, null,
+                TYPE_NAME_STRING);
+        predType.addFeature(FEATURE_NAME_IS_PREDICTION, null, TYPE_NAME_BOOLEAN);
+
+        var targetCas = createCas(mergeTypeSystems(asList(tsd, createTypeSystemDescription())));
+        tokenBuilder.buildTokens(targetCas.getJCas(), "This is a test .\nAnother sentence here .");
+
+        var layer = AnnotationLayer.builder() //
+                .withId(1l) //
+                .forUimaType(targetCas.getTypeSystem().getType(predType.getName())) //
+                .withType(WebAnnoConst.SPAN_TYPE) //
+                .withAnchoringMode(TOKENS) //
+                .build();
+        var feature = AnnotationFeature.builder() //
+                .withId(1l) //
+                .withName("value") //
+                .withLayer(layer) //
+                .build();
+        var recommender = Recommender.builder() //
+                .withId(1l) //
+                .withEnabled(true) //
+                .withLayer(layer) //
+                .withFeature(feature) //
+                .withMaxRecommendations(3) //
+                .build();
+
+        // The new run only predicts on the first sentence
+        var suggestionCas = createCas(mergeTypeSystems(asList(tsd, createTypeSystemDescription())));
+        buildFS(suggestionCas, predType.getName()) //
+                .withFeature(Annotation._FeatName_begin, 0) //
+                .withFeature(Annotation._FeatName_end, 4) //
+                .withFeature("value", "foo") //
+                .withFeature("value" + FEATURE_NAME_SCORE_SUFFIX, 1.0d) //
+                .withFeature(FEATURE_NAME_IS_PREDICTION, true) //
+                .buildAndAddToIndexes();
+
+        var engine = mock(RecommendationEngine.class);
+        when(engine.getRecommender()).thenReturn(recommender);
+        when(engine.predict(any(), any(), anyInt(), anyInt())).thenReturn(new Range(0, 16));
+
+        // The suggestion in the second sentence is inherited from the previous run. It has the
+        // same ID which the first suggestion of the new run would get if numbering restarted.
+        var project = new Project("project");
+        var user = new User("user");
+        var inherited = new SpanSuggestion(0, recommender, layer.getId(), "value", doc1.getName(),
+                new Offset(17, 24), "Another", "bar", "bar", 0.5d, null);
+        var activePredictions = new Predictions(project, user, asList(inherited));
+
+        var sut = new RecommendationServiceImpl(null, null, null, null, null,
+                mock(AnnotationSchemaService.class), null, mock(LearningRecordService.class),
+                (ProjectService) null, null, null, new SimpleMeterRegistry());
+
+        var predictions = new Predictions(project, user, null);
+        sut.generateSuggestions(predictions, null, engine, activePredictions, doc1, targetCas,
+                suggestionCas, user, 0, 16);
+
+        var suggestions = predictions.getPredictionsByDocument(doc1.getName());
+        assertThat(suggestions) //
+                .extracting(AnnotationSuggestion::getLabel, AnnotationSuggestion::getPosition) //
+                .containsExactlyInAnyOrder( //
+                        tuple("foo", new Offset(0, 4)), //
+                        tuple("bar", new Offset(17, 24)));
+        assertThat(suggestions) //
+                .extracting(AnnotationSuggestion::getId) //
+                .doesNotHaveDuplicates();
+        for (var suggestion : suggestions) {
+            assertThat(predictions.getPredictionByVID(doc1, suggestion.getVID()))
+                    .containsSame(suggestion);
+        }
+    }
+
     private SpanSuggestion makeSuggestion(int aBegin, int aEnd, String aLabel, SourceDocument aDoc,
             AnnotationLayer aLayer, AnnotationFeature aFeature)
     {
@@ -88,7 +88,7 @@ public class RelationSuggestionVisibilityCalculationTest
         when(annoService.listSupportedFeatures(layer)).thenReturn(featureList);
 
         sut = new RecommendationServiceImpl(null, null, null, null, null, annoService, null,
-                recordService, null, (EntityManager) null, null);
+                recordService, null, (EntityManager) null, null, null);
     }
 
     @Test
@@ -35,7 +35,6 @@ import static org.springframework.http.MediaType.MULTIPART_FORM_DATA_VALUE;
 
 import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -52,6 +51,7 @@ import java.util.stream.Collectors;
 import java.util.zip.ZipFile;
 
 import javax.persistence.NoResultException;
+import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
@@ -71,8 +71,6 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplicat
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -428,7 +426,8 @@ public class AeroRemoteApiController
             "application/zip", APPLICATION_JSON_VALUE })
     public ResponseEntity<InputStreamResource> projectExport(
             @PathVariable(PARAM_PROJECT_ID) long aProjectId,
-            @RequestParam(value = PARAM_FORMAT) Optional<String> aFormat)
+            @RequestParam(value = PARAM_FORMAT) Optional<String> aFormat,
+            HttpServletResponse aResponse)
         throws Exception
     {
         // Get project (this also ensures that it exists and that the current user can access it
@@ -449,27 +448,13 @@ public class AeroRemoteApiController
                 aFormat.orElse(WebAnnoTsv3FormatSupport.ID), true);
         ProjectExportTaskMonitor monitor = new ProjectExportTaskMonitor(project, null,
                 "report-export");
-        File exportedFile = exportService.exportProject(request, monitor);
-
-        // Turn the file into a resource and auto-delete the file when the resource closes the
-        // stream.
-        InputStreamResource result = new InputStreamResource(new FileInputStream(exportedFile)
-        {
-            @Override
-            public void close() throws IOException
-            {
-                super.close();
-                FileUtils.forceDelete(exportedFile);
-            }
-        });
 
-        HttpHeaders httpHeaders = new HttpHeaders();
-        httpHeaders.setContentType(MediaType.valueOf("application/zip"));
-        httpHeaders.setContentLength(exportedFile.length());
-        httpHeaders.set("Content-Disposition",
-                "attachment; filename=\"" + exportedFile.getName() + "\"");
+        // Stream the archive directly to the client while it is being produced
+        prepareStreamingResponse(aResponse, project.getSlug() + ".zip");
+        aResponse.setContentType("application/zip");
+        exportService.exportProject(request, monitor, aResponse.getOutputStream());
 
-        return new ResponseEntity<>(result, httpHeaders, HttpStatus.OK);
+        return null;
     }
 
     @Operation(summary = "List documents in a project")
@@ -565,7 +550,8 @@ public class AeroRemoteApiController
             produces = { APPLICATION_OCTET_STREAM_VALUE, APPLICATION_JSON_VALUE })
     public ResponseEntity<?> documentRead(@PathVariable(PARAM_PROJECT_ID) long aProjectId,
             @PathVariable(PARAM_DOCUMENT_ID) long aDocumentId,
-            @RequestParam(value = PARAM_FORMAT) Optional<String> aFormat)
+            @RequestParam(value = PARAM_FORMAT) Optional<String> aFormat,
+            HttpServletResponse aResponse)
         throws Exception
     {
         // Get project (this also ensures that it exists and that the current user can access it
@@ -613,9 +599,18 @@ public class AeroRemoteApiController
                         importExportService.getWritableFormats().stream().map(FormatSupport::getId)
                                 .sorted().collect(Collectors.toList()).toString()));
 
-        // Create a temporary export file from the annotations
         CAS cas = documentService.createOrReadInitialCas(doc);
 
+        // If the format supports it, write the converted file directly to the client
+        if (format.isStreamable()) {
+            prepareStreamingResponse(aResponse, FilenameUtils.removeExtension(doc.getName())
+                    + format.getStreamedFileExtension());
+            importExportService.exportCasToStream(cas, doc, doc.getName(), format, true,
+                    aResponse.getOutputStream());
+            return null;
+        }
+
+        // Create a temporary export file from the annotations
         File exportedFile = null;
         try {
             // Load the converted file into memory
@@ -771,10 +766,12 @@ public class AeroRemoteApiController
     public ResponseEntity<byte[]> annotationsRead(@PathVariable(PARAM_PROJECT_ID) long aProjectId,
             @PathVariable(PARAM_DOCUMENT_ID) long aDocumentId,
             @PathVariable(PARAM_ANNOTATOR_ID) String aAnnotatorId,
-            @RequestParam(value = PARAM_FORMAT) Optional<String> aFormat)
+            @RequestParam(value = PARAM_FORMAT) Optional<String> aFormat,
+            HttpServletResponse aResponse)
         throws Exception
     {
-        return readAnnotation(aProjectId, aDocumentId, aAnnotatorId, Mode.ANNOTATION, aFormat);
+        return readAnnotation(aProjectId, aDocumentId, aAnnotatorId, Mode.ANNOTATION, aFormat,
+                aResponse);
     }
 
     @Operation(summary = "Delete a user's annotations of one document from a project")
@@ -866,11 +863,12 @@ public class AeroRemoteApiController
             produces = { APPLICATION_OCTET_STREAM_VALUE, APPLICATION_JSON_VALUE })
     public ResponseEntity<byte[]> curationRead(@PathVariable(PARAM_PROJECT_ID) long aProjectId,
             @PathVariable(PARAM_DOCUMENT_ID) long aDocumentId,
-            @RequestParam(value = PARAM_FORMAT) Optional<String> aFormat)
+            @RequestParam(value = PARAM_FORMAT) Optional<String> aFormat,
+            HttpServletResponse aResponse)
         throws Exception
     {
         return readAnnotation(aProjectId, aDocumentId, WebAnnoConst.CURATION_USER, Mode.CURATION,
-                aFormat);
+                aFormat, aResponse);
     }
 
     @Operation(summary = "Delete a user's annotations of one document from a project")
@@ -906,7 +904,8 @@ public class AeroRemoteApiController
     }
 
     private ResponseEntity<byte[]> readAnnotation(long aProjectId, long aDocumentId,
-            String aAnnotatorId, Mode aMode, Optional<String> aFormat)
+            String aAnnotatorId, Mode aMode, Optional<String> aFormat,
+            HttpServletResponse aResponse)
         throws RemoteApiException, ClassNotFoundException, IOException, UIMAException
     {
         // Get project (this also ensures that it exists and that the current user can access it
@@ -942,6 +941,15 @@ public class AeroRemoteApiController
             getAnnotation(doc, aAnnotatorId, false);
         }
 
+        // If the format supports it, write the annotations directly to the client
+        if (format.isStreamable()) {
+            prepareStreamingResponse(aResponse, FilenameUtils.removeExtension(doc.getName()) + "-"
+                    + aAnnotatorId + format.getStreamedFileExtension());
+            importExportService.exportAnnotationDocument(doc, aAnnotatorId, format,
+                    Mode.ANNOTATION, true, aResponse.getOutputStream());
+            return null;
+        }
+
         // Create a temporary export file from the annotations
         File exportedAnnoFile = null;
         byte[] resource;
@@ -968,6 +976,13 @@ public class AeroRemoteApiController
         return new ResponseEntity<>(resource, httpHeaders, OK);
     }
 
+    private void prepareStreamingResponse(HttpServletResponse aResponse, String aFilename)
+    {
+        aResponse.setStatus(OK.value());
+        aResponse.setContentType(APPLICATION_OCTET_STREAM_VALUE);
+        aResponse.setHeader("Content-Disposition", "attachment; filename=\"" + aFilename + "\"");
+    }
+
     private CAS createCompatibleCas(long aProjectId, long aDocumentId, MultipartFile aFile,
             Optional<String> aFormatId)
         throws RemoteApiException, ClassNotFoundException, IOException, UIMAException
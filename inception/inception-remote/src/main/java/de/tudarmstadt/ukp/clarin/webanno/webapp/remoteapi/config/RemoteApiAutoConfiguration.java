@@ -17,6 +17,7 @@
  */
 package de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.config;
 
+import java.io.File;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
@@ -29,6 +30,7 @@ import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import de.tudarmstadt.ukp.clarin.webanno.api.config.RepositoryProperties;
 import de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.LegacyRemoteApiController;
 import de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.aero.AeroRemoteApiController;
 import de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks.WebhookService;
@@ -103,9 +105,10 @@ public class RemoteApiAutoConfiguration
 
     @Bean
     public WebhookService webhookService(WebhooksConfiguration aConfiguration,
-            RestTemplateBuilder aRestTemplateBuilder)
+            RestTemplateBuilder aRestTemplateBuilder, RepositoryProperties aRepositoryProperties)
         throws KeyManagementException, NoSuchAlgorithmException, KeyStoreException
     {
-        return new WebhookService(aConfiguration, aRestTemplateBuilder);
+        return new WebhookService(aConfiguration, aRestTemplateBuilder,
+                new File(aRepositoryProperties.getPath(), "webhooks"));
     }
 }
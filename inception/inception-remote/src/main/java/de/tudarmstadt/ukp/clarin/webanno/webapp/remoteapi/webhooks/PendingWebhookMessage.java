@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks;
+
+import java.io.File;
+
+/**
+ * A webhook message waiting to be delivered to an endpoint.
+ */
+class PendingWebhookMessage
+{
+    private final String topic;
+    private final String json;
+    private final File file;
+    private int attempts;
+
+    /**
+     * @param aTopic
+     *            the topic of the message.
+     * @param aJson
+     *            the message body.
+     * @param aFile
+     *            the file in which the message is persisted until it has been delivered. May be
+     *            {@code null} if the message is only held in memory.
+     */
+    PendingWebhookMessage(String aTopic, String aJson, File aFile)
+    {
+        topic = aTopic;
+        json = aJson;
+        file = aFile;
+    }
+
+    String getTopic()
+    {
+        return topic;
+    }
+
+    String getJson()
+    {
+        return json;
+    }
+
+    File getFile()
+    {
+        return file;
+    }
+
+    int getAttempts()
+    {
+        return attempts;
+    }
+
+    int incrementAttempts()
+    {
+        return ++attempts;
+    }
+}
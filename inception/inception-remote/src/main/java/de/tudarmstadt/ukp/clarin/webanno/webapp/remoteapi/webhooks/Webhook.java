@@ -22,6 +22,7 @@ import java.util.List;
 
 public class Webhook
 {
+    private String id;
     private String url;
     private String secret;
     private String authHeader;
@@ -29,6 +30,23 @@ public class Webhook
     private boolean enabled = true;
     private List<String> topics = new ArrayList<>();
     private boolean verifyCertificates = true;
+    private int batchSize = 1;
+    private int maxConcurrentDeliveries = 1;
+
+    /**
+     * @return identifier of the hook. Pending messages are queued and stored separately for every
+     *         hook, even if several hooks use the same URL. If no ID is set, the position of the
+     *         hook in the list of global hooks is used together with its URL.
+     */
+    public String getId()
+    {
+        return id;
+    }
+
+    public void setId(String aId)
+    {
+        id = aId;
+    }
 
     public String getUrl()
     {
@@ -100,6 +118,33 @@ public class Webhook
         authHeaderValue = aAuthHeaderValue;
     }
 
+    /**
+     * @return maximum number of messages on the same topic sent to the endpoint in a single
+     *         request. If this is larger than one, the request body is a JSON array of messages.
+     */
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+
+    public void setBatchSize(int aBatchSize)
+    {
+        batchSize = aBatchSize;
+    }
+
+    /**
+     * @return maximum number of requests to the endpoint that may be in flight at the same time.
+     */
+    public int getMaxConcurrentDeliveries()
+    {
+        return maxConcurrentDeliveries;
+    }
+
+    public void setMaxConcurrentDeliveries(int aMaxConcurrentDeliveries)
+    {
+        maxConcurrentDeliveries = aMaxConcurrentDeliveries;
+    }
+
     @Override
     public String toString()
     {
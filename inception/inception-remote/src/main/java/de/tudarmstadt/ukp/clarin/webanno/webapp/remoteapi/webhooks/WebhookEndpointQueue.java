@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.ListIterator;
+
+/**
+ * Outbound queue of a single webhook. Keeps track of the deliveries currently in flight
+ * to the endpoint and of the back-off after failed deliveries so that a slow or unavailable
+ * endpoint does not hold up deliveries to other endpoints.
+ */
+class WebhookEndpointQueue
+{
+    private final String id;
+    private final Deque<PendingWebhookMessage> pending = new ArrayDeque<>();
+
+    private volatile Webhook hook;
+    private int inFlight;
+    private long retryAt;
+
+    WebhookEndpointQueue(String aId, Webhook aHook)
+    {
+        id = aId;
+        hook = aHook;
+    }
+
+    String getId()
+    {
+        return id;
+    }
+
+    Webhook getHook()
+    {
+        return hook;
+    }
+
+    /**
+     * Updates the hook settings, e.g. if the webhook configuration has been changed.
+     */
+    void setHook(Webhook aHook)
+    {
+        hook = aHook;
+    }
+
+    synchronized void add(PendingWebhookMessage aMessage)
+    {
+        pending.add(aMessage);
+    }
+
+    synchronized int size()
+    {
+        return pending.size();
+    }
+
+    /**
+     * Takes the next batch of messages to be delivered. A batch consists of consecutive messages
+     * sharing the same topic.
+     *
+     * @param aNow
+     *            the current time in milliseconds.
+     * @return the batch or an empty list if there is nothing to deliver, if the endpoint is
+     *         backing off after a failed delivery or if the endpoint already has the maximum number
+     *         of deliveries in flight.
+     */
+    synchronized List<PendingWebhookMessage> takeBatch(long aNow)
+    {
+        if (pending.isEmpty() || aNow < retryAt
+                || inFlight >= Math.max(1, hook.getMaxConcurrentDeliveries())) {
+            return Collections.emptyList();
+        }
+
+        int batchSize = Math.max(1, hook.getBatchSize());
+        String topic = pending.peek().getTopic();
+        List<PendingWebhookMessage> batch = new ArrayList<>();
+        while (batch.size() < batchSize && !pending.isEmpty()
+                && pending.peek().getTopic().equals(topic)) {
+            batch.add(pending.poll());
+        }
+
+        inFlight++;
+        return batch;
+    }
+
+    synchronized void delivered()
+    {
+        inFlight--;
+        retryAt = 0;
+    }
+
+    /**
+     * Puts the messages of a failed batch back at the head of the queue and makes the endpoint
+     * back off.
+     *
+     * @param aRetries
+     *            the messages to be retried.
+     * @param aRetryAt
+     *            the time in milliseconds before which no delivery is attempted.
+     */
+    synchronized void failed(List<PendingWebhookMessage> aRetries, long aRetryAt)
+    {
+        inFlight--;
+        ListIterator<PendingWebhookMessage> i = aRetries.listIterator(aRetries.size());
+        while (i.hasPrevious()) {
+            pending.addFirst(i.previous());
+        }
+        retryAt = Math.max(retryAt, aRetryAt);
+    }
+}
@@ -17,29 +17,47 @@
  */
 package de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks;
 
+import static java.lang.System.currentTimeMillis;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
+import static java.util.Comparator.comparing;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
+import java.io.File;
 import java.io.IOException;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.net.ssl.SSLContext;
 
 import org.apache.commons.codec.digest.DigestUtils;
-import org.apache.commons.lang3.tuple.Pair;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.ssl.TrustStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.ApplicationEvent;
@@ -47,7 +65,6 @@ import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.transaction.event.TransactionalEventListener;
 import org.springframework.web.client.RestTemplate;
 
@@ -61,13 +78,17 @@ import de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks.json.Document
 import de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks.json.ProjectStateChangeMessage;
 
 /**
+ * Delivers notifications about state changes to the configured webhooks. Messages are persisted in
+ * a spool folder until they have been delivered and are sent by a dedicated pool of delivery
+ * threads. Every endpoint has its own queue with a limit on concurrent deliveries and its own
+ * exponential back-off so that a slow or unavailable endpoint does not affect the others.
  * <p>
  * This class is exposed as a Spring Component via
  * {@link RemoteApiAutoConfiguration#webhookService}.
  * </p>
  */
 public class WebhookService
-    implements InitializingBean
+    implements InitializingBean, DisposableBean
 {
     private final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -80,6 +101,8 @@ public class WebhookService
     public static final String ANNOTATION_STATE = "ANNOTATION_STATE";
     public static final String PROJECT_STATE = "PROJECT_STATE";
 
+    private static final String SPOOL_FILE_SUFFIX = ".json";
+
     static {
         Map<Class<? extends ApplicationEvent>, String> names = new HashMap<>();
         names.put(ProjectStateChangedEvent.class, PROJECT_STATE);
@@ -89,16 +112,30 @@ public class WebhookService
     }
 
     private final WebhooksConfiguration configuration;
-    private final RestTemplateBuilder restTemplateBuilder;
+    private final File spoolFolder;
+    private final RestTemplate restTemplate;
+    private final RestTemplate nonValidatingRestTemplate;
+    private final ScheduledExecutorService deliveryPool;
+    private final Map<String, WebhookEndpointQueue> endpoints = new ConcurrentHashMap<>();
+    private final AtomicLong messageCounter = new AtomicLong();
 
     private HttpComponentsClientHttpRequestFactory nonValidatingRequestFactory = null;
 
+    /**
+     * @param aConfiguration
+     *            the webhook configuration.
+     * @param aRestTemplateBuilder
+     *            builder for the REST templates used to deliver the messages.
+     * @param aSpoolFolder
+     *            folder in which messages are persisted until they have been delivered. If this is
+     *            {@code null}, pending messages are only held in memory.
+     */
     public WebhookService(WebhooksConfiguration aConfiguration,
-            RestTemplateBuilder aRestTemplateBuilder)
+            RestTemplateBuilder aRestTemplateBuilder, File aSpoolFolder)
         throws KeyManagementException, NoSuchAlgorithmException, KeyStoreException
     {
         configuration = aConfiguration;
-        restTemplateBuilder = aRestTemplateBuilder;
+        spoolFolder = aSpoolFolder;
 
         TrustStrategy acceptingTrustStrategy = (X509Certificate[] chain, String authType) -> true;
 
@@ -111,6 +148,14 @@ public class WebhookService
 
         nonValidatingRequestFactory = new HttpComponentsClientHttpRequestFactory();
         nonValidatingRequestFactory.setHttpClient(httpClient);
+
+        restTemplate = aRestTemplateBuilder.build();
+        nonValidatingRestTemplate = aRestTemplateBuilder
+                .requestFactory(this::getNonValidatingRequestFactory).build();
+
+        deliveryPool = Executors.newScheduledThreadPool(configuration.getDeliveryThreads(),
+                new BasicThreadFactory.Builder().namingPattern("webhook-delivery-%d").daemon(true)
+                        .build());
     }
 
     @Override
@@ -121,16 +166,33 @@ public class WebhookService
 
     public void init()
     {
+        Set<String> hookIds = new HashSet<>();
+        for (Webhook hook : configuration.getGlobalHooks()) {
+            if (!hookIds.add(getHookId(hook))) {
+                throw new IllegalStateException(
+                        "Webhook ID [" + getHookId(hook) + "] is used by more than one webhook");
+            }
+        }
+
         if (!configuration.getGlobalHooks().isEmpty()) {
             log.info("Global webhooks registered:");
             for (Webhook hook : configuration.getGlobalHooks()) {
                 log.info("- " + hook);
             }
         }
+
+        recoverPendingMessages();
+    }
+
+    @Override
+    public void destroy()
+    {
+        // Messages which have not been delivered yet remain in the spool folder and are delivered
+        // after the next start
+        deliveryPool.shutdownNow();
     }
 
     @TransactionalEventListener(fallbackExecution = true)
-    @Async
     public void onApplicationEvent(ApplicationEvent aEvent)
     {
         String topic = EVENT_TOPICS.get(aEvent.getClass());
@@ -153,75 +215,238 @@ public class WebhookService
             return;
         }
 
-        dispatch(topic, message);
+        enqueue(topic, message);
     }
 
-    private void dispatch(String topic, Object message)
+    private void enqueue(String aTopic, Object aMessage)
     {
         var relevantHooks = configuration.getGlobalHooks().stream() //
                 .filter(Webhook::isEnabled) //
-                .filter(h -> h.getTopics().contains(topic)) //
-                .map(h -> Pair.of(h, new AtomicInteger(0))) //
+                .filter(h -> h.getTopics().contains(aTopic)) //
                 .collect(toList());
 
-        while (!relevantHooks.isEmpty()) {
-            var i = relevantHooks.iterator();
+        if (relevantHooks.isEmpty()) {
+            return;
+        }
 
-            while (i.hasNext()) {
-                var hookAndCount = i.next();
+        String json;
+        try {
+            json = JSONUtil.toJsonString(aMessage);
+        }
+        catch (IOException e) {
+            log.error("Unable to serialize webhook message on topic [{}]", aTopic, e);
+            return;
+        }
 
-                try {
-                    sendNotification(topic, message, hookAndCount.getKey());
-                    i.remove();
+        for (Webhook hook : relevantHooks) {
+            var endpoint = getEndpoint(hook);
+            endpoint.add(new PendingWebhookMessage(aTopic, json, persist(hook, aTopic, json)));
+            drain(endpoint);
+        }
+    }
+
+    private WebhookEndpointQueue getEndpoint(Webhook aHook)
+    {
+        return endpoints.compute(getHookId(aHook), (id, endpoint) -> {
+            if (endpoint == null) {
+                return new WebhookEndpointQueue(id, aHook);
+            }
+
+            endpoint.setHook(aHook);
+            return endpoint;
+        });
+    }
+
+    /**
+     * Starts deliveries to the given endpoint as far as its concurrency limit and back-off allow.
+     */
+    private void drain(WebhookEndpointQueue aEndpoint)
+    {
+        List<PendingWebhookMessage> batch;
+        while (!(batch = aEndpoint.takeBatch(currentTimeMillis())).isEmpty()) {
+            var pendingBatch = batch;
+            try {
+                deliveryPool.execute(() -> deliver(aEndpoint, pendingBatch));
+            }
+            catch (RejectedExecutionException e) {
+                // Shutting down - the messages remain in the spool folder
+                return;
+            }
+        }
+    }
+
+    private void deliver(WebhookEndpointQueue aEndpoint, List<PendingWebhookMessage> aBatch)
+    {
+        var hook = aEndpoint.getHook();
+        var topic = aBatch.get(0).getTopic();
+
+        try {
+            sendNotification(topic, toRequestBody(hook, aBatch), hook);
+            aBatch.forEach(this::discard);
+            aEndpoint.delivered();
+        }
+        catch (Exception e) {
+            List<PendingWebhookMessage> retries = new ArrayList<>();
+            int attempts = 0;
+            for (var message : aBatch) {
+                int attempt = message.incrementAttempts();
+                if (attempt <= configuration.getRetryCount()) {
+                    retries.add(message);
+                    attempts = Math.max(attempts, attempt);
                 }
-                catch (Exception e) {
-                    if (hookAndCount.getValue().get() < configuration.getRetryCount()) {
-                        if (log.isDebugEnabled()) {
-                            log.error("Unable to send webhook [{}]: {} - retrying in a moment",
-                                    hookAndCount.getKey().getUrl(), e.getMessage(), e);
-                        }
-                        else {
-                            log.error("Unable to send webhook [{}]: {} - retrying in a moment",
-                                    hookAndCount.getKey().getUrl(), e.getMessage());
-                        }
-                        hookAndCount.getValue().incrementAndGet();
-                    }
-                    else {
-                        if (log.isDebugEnabled()) {
-                            log.error("Unable to invoke webhook [{}]: {} - giving up",
-                                    hookAndCount.getKey().getUrl(), e.getMessage(), e);
-                        }
-                        else {
-                            log.error("Unable to invoke webhook [{}]: {} - giving up",
-                                    hookAndCount.getKey().getUrl(), e.getMessage());
-                        }
-                        i.remove();
-                    }
+                else {
+                    discard(message);
                 }
             }
 
-            try {
-                Thread.sleep(configuration.getRetryDelay());
+            if (!retries.isEmpty()) {
+                long delay = getRetryDelay(attempts);
+                if (log.isDebugEnabled()) {
+                    log.error("Unable to send webhook [{}]: {} - retrying in {}ms", hook.getUrl(),
+                            e.getMessage(), delay, e);
+                }
+                else {
+                    log.error("Unable to send webhook [{}]: {} - retrying in {}ms", hook.getUrl(),
+                            e.getMessage(), delay);
+                }
+
+                aEndpoint.failed(retries, currentTimeMillis() + delay);
+                try {
+                    deliveryPool.schedule(() -> drain(aEndpoint), delay, MILLISECONDS);
+                }
+                catch (RejectedExecutionException ex) {
+                    // Shutting down - the messages remain in the spool folder
+                }
             }
-            catch (InterruptedException e) {
-                // Ignore
+            else {
+                if (log.isDebugEnabled()) {
+                    log.error("Unable to invoke webhook [{}]: {} - giving up", hook.getUrl(),
+                            e.getMessage(), e);
+                }
+                else {
+                    log.error("Unable to invoke webhook [{}]: {} - giving up", hook.getUrl(),
+                            e.getMessage());
+                }
+
+                aEndpoint.failed(emptyList(), 0);
             }
         }
+
+        drain(aEndpoint);
     }
 
-    private void sendNotification(String topic, Object message, Webhook hook) throws IOException
+    private long getRetryDelay(int aAttempts)
     {
-        log.trace("Sending webhook message on topic [{}] to [{}]", topic, hook.getUrl());
+        long delay = (long) configuration.getRetryDelay() << Math.min(aAttempts - 1, 20);
+        return Math.min(delay, Math.max(configuration.getRetryDelay(),
+                configuration.getMaxRetryDelay()));
+    }
+
+    private String toRequestBody(Webhook aHook, List<PendingWebhookMessage> aBatch)
+    {
+        // Hooks which accept batches always receive an array, even if it contains only a single
+        // message
+        if (aHook.getBatchSize() <= 1 && aBatch.size() == 1) {
+            return aBatch.get(0).getJson();
+        }
 
-        // Configure rest template without SSL certification check if that is disabled.
-        RestTemplate restTemplate;
-        if (hook.isVerifyCertificates()) {
-            restTemplate = restTemplateBuilder.build();
+        return aBatch.stream() //
+                .map(PendingWebhookMessage::getJson) //
+                .collect(joining(",", "[", "]"));
+    }
+
+    /**
+     * Hooks are identified by their ID and not by their URL. Several hooks may use the same URL with
+     * different secrets, authentication headers or topics - they must neither share a queue nor a
+     * spool folder.
+     */
+    private String getHookId(Webhook aHook)
+    {
+        if (isNotBlank(aHook.getId())) {
+            return aHook.getId();
         }
-        else {
-            restTemplate = restTemplateBuilder.requestFactory(this::getNonValidatingRequestFactory)
-                    .build();
+
+        return configuration.getGlobalHooks().indexOf(aHook) + ":" + aHook.getUrl();
+    }
+
+    private File getSpoolFolder(Webhook aHook)
+    {
+        return new File(spoolFolder, DigestUtils.sha256Hex(getHookId(aHook)));
+    }
+
+    private File persist(Webhook aHook, String aTopic, String aJson)
+    {
+        if (spoolFolder == null) {
+            return null;
+        }
+
+        File file = new File(getSpoolFolder(aHook), String.format("%013d-%09d-%s%s",
+                currentTimeMillis(), messageCounter.incrementAndGet(), aTopic, SPOOL_FILE_SUFFIX));
+        try {
+            FileUtils.writeStringToFile(file, aJson, UTF_8);
+            return file;
+        }
+        catch (IOException e) {
+            log.error("Unable to persist webhook message for [{}] - keeping it only in memory",
+                    aHook.getUrl(), e);
+            return null;
+        }
+    }
+
+    private void discard(PendingWebhookMessage aMessage)
+    {
+        if (aMessage.getFile() != null && !FileUtils.deleteQuietly(aMessage.getFile())) {
+            log.warn("Unable to delete delivered webhook message [{}]", aMessage.getFile());
         }
+    }
+
+    private void recoverPendingMessages()
+    {
+        if (spoolFolder == null) {
+            return;
+        }
+
+        for (Webhook hook : configuration.getGlobalHooks()) {
+            if (!hook.isEnabled()) {
+                continue;
+            }
+
+            File[] files = getSpoolFolder(hook)
+                    .listFiles((dir, name) -> name.endsWith(SPOOL_FILE_SUFFIX));
+            if (files == null || files.length == 0) {
+                continue;
+            }
+
+            // The file names start with the time the message was queued
+            Arrays.sort(files, comparing(File::getName));
+
+            var endpoint = getEndpoint(hook);
+            for (File file : files) {
+                String name = file.getName();
+                String topic = name.substring(name.lastIndexOf('-') + 1,
+                        name.length() - SPOOL_FILE_SUFFIX.length());
+                try {
+                    endpoint.add(new PendingWebhookMessage(topic,
+                            FileUtils.readFileToString(file, UTF_8), file));
+                }
+                catch (IOException e) {
+                    log.error("Unable to read pending webhook message [{}]", file, e);
+                }
+            }
+
+            log.info("Recovered {} pending webhook messages for [{}]", endpoint.size(),
+                    hook.getUrl());
+            drain(endpoint);
+        }
+    }
+
+    private void sendNotification(String topic, String json, Webhook hook) throws IOException
+    {
+        log.trace("Sending webhook message on topic [{}] to [{}]", topic, hook.getUrl());
+
+        // Use rest template without SSL certification check if that is disabled.
+        RestTemplate template = hook.isVerifyCertificates() ? restTemplate
+                : nonValidatingRestTemplate;
 
         HttpHeaders requestHeaders = new HttpHeaders();
         requestHeaders.setContentType(MediaType.APPLICATION_JSON);
@@ -229,7 +454,6 @@ public class WebhookService
 
         // If a secret is set, then add a digest header that allows the client to verify
         // the message integrity
-        String json = JSONUtil.toJsonString(message);
         if (isNotBlank(hook.getSecret())) {
             String digest = DigestUtils.shaHex(hook.getSecret() + json);
             requestHeaders.set(X_AERO_SIGNATURE, digest);
@@ -240,7 +464,7 @@ public class WebhookService
         }
 
         HttpEntity<?> httpEntity = new HttpEntity<Object>(json, requestHeaders);
-        restTemplate.postForEntity(hook.getUrl(), httpEntity, Void.class);
+        template.postForEntity(hook.getUrl(), httpEntity, Void.class);
     }
 
     private HttpComponentsClientHttpRequestFactory getNonValidatingRequestFactory()
@@ -49,6 +49,13 @@ public class WebhooksConfiguration
     @Max(value = 3)
     private int retryCount = 0;
 
+    @Min(value = 10)
+    private int maxRetryDelay = 60_000;
+
+    @Min(value = 1)
+    @Max(value = 64)
+    private int deliveryThreads = 4;
+
     public List<Webhook> getGlobalHooks()
     {
         return globalHooks;
@@ -78,4 +85,28 @@ public class WebhooksConfiguration
     {
         retryDelay = aRetryDelay;
     }
+
+    /**
+     * @return upper bound for the delay between retries. The retry delay doubles with every failed
+     *         attempt until it reaches this value.
+     */
+    public int getMaxRetryDelay()
+    {
+        return maxRetryDelay;
+    }
+
+    public void setMaxRetryDelay(int aMaxRetryDelay)
+    {
+        maxRetryDelay = aMaxRetryDelay;
+    }
+
+    public int getDeliveryThreads()
+    {
+        return deliveryThreads;
+    }
+
+    public void setDeliveryThreads(int aDeliveryThreads)
+    {
+        deliveryThreads = aDeliveryThreads;
+    }
 }
@@ -20,9 +20,11 @@ package de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.aero;
 import static de.tudarmstadt.ukp.clarin.webanno.security.model.Role.ROLE_ADMIN;
 import static de.tudarmstadt.ukp.clarin.webanno.security.model.Role.ROLE_REMOTE;
 import static de.tudarmstadt.ukp.clarin.webanno.security.model.Role.ROLE_USER;
+import static org.hamcrest.Matchers.containsString;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 import static org.springframework.http.MediaType.TEXT_PLAIN_VALUE;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -49,6 +51,7 @@ import org.springframework.web.context.WebApplicationContext;
 
 import de.tudarmstadt.ukp.clarin.webanno.security.UserDao;
 import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+import de.tudarmstadt.ukp.clarin.webanno.tsv.WebAnnoTsv3FormatSupport;
 import de.tudarmstadt.ukp.inception.log.config.EventLoggingAutoConfiguration;
 import de.tudarmstadt.ukp.inception.search.config.SearchServiceAutoConfiguration;
 import de.tudarmstadt.ukp.inception.support.deployment.DeploymentModeServiceImpl;
@@ -152,6 +155,22 @@ public class AeroRemoteApiController_Document_Test
                 .andExpect(content().string(documentContent));
     }
 
+    @Test
+    void testImportExportDocumentConverted() throws Exception
+    {
+        String documentName = "test.txt";
+        String documentContent = "This is a test.";
+
+        adminActor.importTextDocument(1l, documentName, documentContent) //
+                .andExpect(status().isCreated());
+
+        adminActor.exportDocument(1l, 1l, WebAnnoTsv3FormatSupport.ID) //
+                .andExpect(status().isOk()) //
+                .andExpect(header().string("Content-Disposition",
+                        "attachment; filename=\"test.tsv\"")) //
+                .andExpect(content().string(containsString("#Text=" + documentContent)));
+    }
+
     @Test
     void thatNonManagerCannotImportDocuments() throws Exception
     {
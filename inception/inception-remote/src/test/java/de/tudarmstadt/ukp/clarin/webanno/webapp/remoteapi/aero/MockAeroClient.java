@@ -85,6 +85,14 @@ class MockAeroClient
                 .param("format", "text"));
     }
 
+    ResultActions exportDocument(long aProjectId, long aDocId, String aFormat) throws Exception
+    {
+        return mvc.perform(get(API_BASE + "/projects/" + aProjectId + "/documents/" + aDocId)
+                .with(csrf().asHeader()) //
+                .with(user(username).roles(roles)) //
+                .param("format", aFormat));
+    }
+
     ResultActions deleteDocument(long aProjectId, long aDocId) throws Exception
     {
         return mvc.perform(delete(API_BASE + "/projects/" + aProjectId + "/documents/" + aDocId) //
@@ -21,17 +21,27 @@ import static de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks.Webhoo
 import static de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks.WebhookService.DOCUMENT_STATE;
 import static de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks.WebhookService.PROJECT_STATE;
 import static de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks.WebhookService.X_AERO_NOTIFICATION;
+import static de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks.WebhookService.X_AERO_SIGNATURE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.Duration.ofMillis;
+import static java.time.Duration.ofSeconds;
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 
+import java.io.File;
 import java.lang.invoke.MethodHandles;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -45,6 +55,7 @@ import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguratio
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -56,6 +67,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 
+import de.tudarmstadt.ukp.clarin.webanno.api.config.RepositoryAutoConfiguration;
 import de.tudarmstadt.ukp.clarin.webanno.api.event.AnnotationStateChangeEvent;
 import de.tudarmstadt.ukp.clarin.webanno.api.event.DocumentStateChangedEvent;
 import de.tudarmstadt.ukp.clarin.webanno.api.event.ProjectStateChangedEvent;
@@ -67,6 +79,7 @@ import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
 import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocumentState;
 import de.tudarmstadt.ukp.clarin.webanno.security.config.SecurityAutoConfiguration;
 import de.tudarmstadt.ukp.clarin.webanno.support.ApplicationContextProvider;
+import de.tudarmstadt.ukp.clarin.webanno.support.JSONUtil;
 import de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.config.RemoteApiAutoConfiguration;
 import de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks.WebhookServiceTest.TestService;
 import de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks.json.AnnotationStateChangeMessage;
@@ -87,6 +100,7 @@ import de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks.json.ProjectS
                 RestTemplateAutoConfiguration.class, //
                 DispatcherServletAutoConfiguration.class, //
                 WebMvcAutoConfiguration.class, //
+                RepositoryAutoConfiguration.class, //
                 RemoteApiAutoConfiguration.class, //
                 TestService.class })
 @EntityScan({ //
@@ -102,6 +116,7 @@ public class WebhookServiceTest
     private @Autowired ApplicationEventPublisher applicationEventPublisher;
     private @Autowired WebhooksConfiguration webhooksConfiguration;
     private @Autowired TestService testService;
+    private @Autowired RestTemplateBuilder restTemplateBuilder;
 
     private Project project;
     private SourceDocument doc;
@@ -149,10 +164,11 @@ public class WebhookServiceTest
         var event = new ProjectStateChangedEvent(this, project, ProjectState.CURATION_FINISHED);
         applicationEventPublisher.publishEvent(event);
 
+        await().atMost(ofSeconds(5)).untilAsserted(() -> //
         assertThat(testService.projectStateChangeMsgs) //
                 .extracting(Pair::getLeft) //
                 .usingRecursiveFieldByFieldElementComparator() //
-                .containsExactly(new ProjectStateChangeMessage(event));
+                .containsExactly(new ProjectStateChangeMessage(event)));
     }
 
     @Test
@@ -163,10 +179,11 @@ public class WebhookServiceTest
         var event = new AnnotationStateChangeEvent(this, ann, AnnotationDocumentState.IN_PROGRESS);
         applicationEventPublisher.publishEvent(event);
 
+        await().atMost(ofSeconds(5)).untilAsserted(() -> //
         assertThat(testService.annStateChangeMsgs) //
                 .extracting(Pair::getLeft) //
                 .usingRecursiveFieldByFieldElementComparator() //
-                .containsExactly(new AnnotationStateChangeMessage(event));
+                .containsExactly(new AnnotationStateChangeMessage(event)));
     }
 
     @Test
@@ -177,10 +194,11 @@ public class WebhookServiceTest
         var event = new DocumentStateChangedEvent(this, doc, SourceDocumentState.NEW);
         applicationEventPublisher.publishEvent(event);
 
+        await().atMost(ofSeconds(5)).untilAsserted(() -> //
         assertThat(testService.docStateChangeMsgs) //
                 .extracting(Pair::getLeft) //
                 .usingRecursiveFieldByFieldElementComparator() //
-                .containsExactly(new DocumentStateChangeMessage(event));
+                .containsExactly(new DocumentStateChangeMessage(event)));
     }
 
     @Test
@@ -196,10 +214,11 @@ public class WebhookServiceTest
         applicationEventPublisher
                 .publishEvent(new DocumentStateChangedEvent(this, doc, SourceDocumentState.NEW));
 
+        await().atMost(ofSeconds(5)).untilAsserted(() -> //
         assertThat(testService.docStateChangeMsgs) //
                 .extracting(Pair::getRight) //
                 .extracting(httpHeaders -> httpHeaders.getOrEmpty(header)) //
-                .containsExactly(asList(headerValue));
+                .containsExactly(asList(headerValue)));
     }
 
     @Test
@@ -213,29 +232,118 @@ public class WebhookServiceTest
         var event = new AnnotationStateChangeEvent(this, ann, AnnotationDocumentState.IN_PROGRESS);
         applicationEventPublisher.publishEvent(event);
 
-        assertThat(testService.callCount).isEqualTo(2);
-
+        await().atMost(ofSeconds(5)).untilAsserted(() -> //
         assertThat(testService.annStateChangeMsgs) //
                 .extracting(Pair::getLeft) //
                 .usingRecursiveFieldByFieldElementComparator() //
-                .containsExactly(new AnnotationStateChangeMessage(event));
+                .containsExactly(new AnnotationStateChangeMessage(event)));
+
+        assertThat(testService.callCount).hasValue(2);
+    }
+
+    @Test
+    public void thatMessagesQueuedDuringBackOffAreBatched() throws Exception
+    {
+        webhooksConfiguration.setRetryCount(3);
+        webhooksConfiguration.setRetryDelay(500);
+        hook.setUrl("http://localhost:" + port + "/test/failFirstTimeRaw");
+        hook.setTopics(asList(ANNOTATION_STATE));
+        hook.setBatchSize(10);
+
+        for (int i = 0; i < 3; i++) {
+            applicationEventPublisher.publishEvent(
+                    new AnnotationStateChangeEvent(this, ann, AnnotationDocumentState.IN_PROGRESS));
+        }
+
+        await().atMost(ofSeconds(5)).until(() -> testService.rawBodies.size() == 1);
+
+        assertThat(testService.callCount).hasValue(2);
+        assertThat(JSONUtil.fromJsonString(AnnotationStateChangeMessage[].class,
+                testService.rawBodies.get(0))).hasSize(3);
+    }
+
+    @Test
+    public void thatHooksWithSameUrlAreDeliveredSeparately()
+    {
+        hook.setTopics(asList(DOCUMENT_STATE));
+        hook.setSecret("secret-1");
+
+        var otherHook = new Webhook();
+        otherHook.setUrl(hook.getUrl());
+        otherHook.setTopics(asList(DOCUMENT_STATE));
+        otherHook.setSecret("secret-2");
+
+        webhooksConfiguration.setGlobalHooks(asList(hook, otherHook));
+
+        applicationEventPublisher
+                .publishEvent(new DocumentStateChangedEvent(this, doc, SourceDocumentState.NEW));
+
+        await().atMost(ofSeconds(5)).until(() -> testService.docStateChangeMsgs.size() == 2);
+
+        // Every hook signs the message with its own secret
+        assertThat(testService.docStateChangeMsgs) //
+                .extracting(Pair::getRight) //
+                .extracting(httpHeaders -> httpHeaders.getFirst(X_AERO_SIGNATURE)) //
+                .doesNotContainNull() //
+                .doesNotHaveDuplicates();
+    }
+
+    @Test
+    public void thatPendingMessagesAreRecoveredOnlyForTheirHook(@TempDir File aSpoolFolder)
+        throws Exception
+    {
+        hook.setId("hook-1");
+        hook.setTopics(asList(DOCUMENT_STATE));
+
+        var otherHook = new Webhook();
+        otherHook.setId("hook-2");
+        otherHook.setUrl(hook.getUrl());
+        otherHook.setTopics(asList(DOCUMENT_STATE));
+
+        webhooksConfiguration.setGlobalHooks(asList(hook, otherHook));
+
+        var message = new DocumentStateChangeMessage(
+                new DocumentStateChangedEvent(this, doc, SourceDocumentState.NEW));
+        var pendingFile = new File(new File(aSpoolFolder, DigestUtils.sha256Hex("hook-1")),
+                "0000000000001-000000001-" + DOCUMENT_STATE + ".json");
+        FileUtils.writeStringToFile(pendingFile, JSONUtil.toJsonString(message), UTF_8);
+
+        var sut = new WebhookService(webhooksConfiguration, restTemplateBuilder, aSpoolFolder);
+        try {
+            sut.init();
+
+            await().atMost(ofSeconds(5)).until(() -> testService.docStateChangeMsgs.size() == 1);
+            await().atMost(ofSeconds(5)).until(() -> !pendingFile.exists());
+
+            // Make sure the message is not delivered a second time via the other hook
+            await().during(ofMillis(500)).atMost(ofSeconds(1))
+                    .until(() -> testService.docStateChangeMsgs.size() == 1);
+        }
+        finally {
+            sut.destroy();
+        }
     }
 
     @RequestMapping("/test")
     @Controller
     public static class TestService
     {
-        private List<Pair<ProjectStateChangeMessage, HttpHeaders>> projectStateChangeMsgs = new ArrayList<>();
-        private List<Pair<DocumentStateChangeMessage, HttpHeaders>> docStateChangeMsgs = new ArrayList<>();
-        private List<Pair<AnnotationStateChangeMessage, HttpHeaders>> annStateChangeMsgs = new ArrayList<>();
-        private int callCount;
+        private List<Pair<ProjectStateChangeMessage, HttpHeaders>> projectStateChangeMsgs =
+                new CopyOnWriteArrayList<>();
+        private List<Pair<DocumentStateChangeMessage, HttpHeaders>> docStateChangeMsgs =
+                new CopyOnWriteArrayList<>();
+        private List<Pair<AnnotationStateChangeMessage, HttpHeaders>> annStateChangeMsgs =
+                new CopyOnWriteArrayList<>();
+        private List<String> rawBodies = new CopyOnWriteArrayList<>();
+        private AtomicInteger callCount = new AtomicInteger();
 
         public void reset()
         {
             projectStateChangeMsgs.clear();
             docStateChangeMsgs.clear();
             annStateChangeMsgs.clear();
-            callCount = 0;
+            rawBodies.clear();
+            callCount.set(0);
         }
 
         @PostMapping( //
@@ -289,15 +397,30 @@ public class WebhookServiceTest
                 @RequestBody AnnotationStateChangeMessage aMsg)
             throws Exception
         {
-            callCount++;
-
-            if (callCount == 1) {
+            if (callCount.incrementAndGet() == 1) {
                 return ResponseEntity.internalServerError().build();
             }
 
             annStateChangeMsgs.add(Pair.of(aMsg, aHeaders));
             return ResponseEntity.ok().build();
         }
+
+        @PostMapping( //
+                value = "/failFirstTimeRaw", //
+                headers = X_AERO_NOTIFICATION + "=" + ANNOTATION_STATE, //
+                consumes = APPLICATION_JSON_VALUE)
+        public ResponseEntity<Void> failFirstTimeRaw( //
+                @RequestHeader HttpHeaders aHeaders, //
+                @RequestBody String aBody)
+            throws Exception
+        {
+            if (callCount.incrementAndGet() == 1) {
+                return ResponseEntity.internalServerError().build();
+            }
+
+            rawBodies.add(aBody);
+            return ResponseEntity.ok().build();
+        }
     }
 
     @Configuration
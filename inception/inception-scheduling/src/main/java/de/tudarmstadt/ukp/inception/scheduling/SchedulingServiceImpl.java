@@ -19,20 +19,28 @@ package de.tudarmstadt.ukp.inception.scheduling;
 
 import static de.tudarmstadt.ukp.inception.scheduling.MatchResult.NO_MATCH;
 import static de.tudarmstadt.ukp.inception.scheduling.MatchResult.UNQUEUE_EXISTING_AND_QUEUE_THIS;
+import static de.tudarmstadt.ukp.inception.scheduling.TaskPriority.INTERACTIVE;
+import static de.tudarmstadt.ukp.inception.scheduling.TaskPriority.MAINTENANCE;
 import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.counting;
+import static java.util.stream.Collectors.groupingBy;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Iterator;
+import java.util.Comparator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
 
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
@@ -54,6 +62,10 @@ import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
 import de.tudarmstadt.ukp.inception.scheduling.config.SchedulingProperties;
 import de.tudarmstadt.ukp.inception.scheduling.config.SchedulingServiceAutoConfiguration;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 
 /**
  * <p>
@@ -71,34 +83,75 @@ public class SchedulingServiceImpl
     private final ScheduledExecutorService watchdog;
     private final SessionRegistry sessionRegistry;
 
+    private final int numberOfThreads;
+    private final int reservedInteractiveThreads;
+    private final int maxMaintenanceThreads;
+    private final int queueSize;
+
     private final List<Task> runningTasks;
     private final List<Task> enqueuedTasks;
+    private final List<Task> dispatchedTasks;
     private final Set<Project> deletionPending;
 
+    private final MeterRegistry meterRegistry;
+    private final ThreadLocal<Timer.Sample> runningTaskTimer;
+
     @Autowired
     public SchedulingServiceImpl(ApplicationContext aApplicationContext,
-            SchedulingProperties aConfig, SessionRegistry aSessionRegistry)
+            SchedulingProperties aConfig, SessionRegistry aSessionRegistry,
+            @Autowired(required = false) MeterRegistry aMeterRegistry)
     {
         sessionRegistry = aSessionRegistry;
         applicationContext = aApplicationContext;
-        executor = new InspectableThreadPoolExecutor(aConfig.getNumberOfThreads(),
-                aConfig.getQueueSize(), this::beforeExecute, this::afterExecute);
+        numberOfThreads = aConfig.getNumberOfThreads();
+        reservedInteractiveThreads = aConfig.getReservedInteractiveThreads();
+        maxMaintenanceThreads = aConfig.getMaxMaintenanceThreads();
+        queueSize = aConfig.getQueueSize();
+        executor = new InspectableThreadPoolExecutor(numberOfThreads, aConfig.getQueueSize(),
+                this::beforeExecute, this::afterExecute);
         runningTasks = Collections.synchronizedList(new ArrayList<>());
         enqueuedTasks = Collections.synchronizedList(new ArrayList<>());
+        dispatchedTasks = Collections.synchronizedList(new ArrayList<>());
         deletionPending = Collections.synchronizedSet(new LinkedHashSet<>());
         watchdog = Executors.newScheduledThreadPool(1);
         watchdog.scheduleAtFixedRate(this::scheduleEligibleTasks, 5, 5, SECONDS);
+
+        meterRegistry = aMeterRegistry != null ? aMeterRegistry : Metrics.globalRegistry;
+        runningTaskTimer = new ThreadLocal<>();
+        registerTaskGauge("enqueued", enqueuedTasks, List::size);
+        registerTaskGauge("scheduled", executor, e -> e.getQueue().size());
+        registerTaskGauge("running", runningTasks, List::size);
+    }
+
+    private <T> void registerTaskGauge(String aState, T aObject, ToDoubleFunction<T> aFunction)
+    {
+        Gauge.builder("inception.scheduling.tasks", aObject, aFunction) //
+                .description("Number of tasks in the scheduler by state") //
+                .tag("state", aState) //
+                .register(meterRegistry);
     }
 
     private void beforeExecute(Thread aThread, Runnable aRunnable)
     {
         runningTasks.add((Task) aRunnable);
+        // Before and after execution hooks are called on the thread running the task
+        runningTaskTimer.set(Timer.start());
         log.debug("Starting task [{}]", aRunnable);
     }
 
     private void afterExecute(Runnable aRunnable, Throwable aThrowable)
     {
+        Timer.Sample sample = runningTaskTimer.get();
+        if (sample != null) {
+            runningTaskTimer.remove();
+            sample.stop(Timer.builder("inception.scheduling.task.duration") //
+                    .description("Time taken to run a task") //
+                    .tag("type", aRunnable.getClass().getSimpleName()) //
+                    .register(meterRegistry));
+        }
+
         runningTasks.remove(aRunnable);
+        dispatchedTasks.remove(aRunnable);
         log.debug("Completed task [{}]", aRunnable);
         scheduleEligibleTasks();
     }
@@ -168,6 +221,8 @@ public class SchedulingServiceImpl
      * 
      * @param aTask
      *            the task to be enqueued.
+     * @throws RejectedExecutionException
+     *             if the queue already holds the maximum number of waiting tasks.
      */
     @Override
     public synchronized void enqueue(Task aTask)
@@ -205,25 +260,36 @@ public class SchedulingServiceImpl
 
         if (containsMatchingTask(getScheduledTasks(), aTask)) {
             log.debug("Matching task already scheduled - adding to queue: [{}]", aTask);
-            enqueuedTasks.add(aTask);
+            addToQueue(aTask);
             return;
         }
 
         if (containsMatchingTask(getRunningTasks(), aTask)) {
             log.debug("Matching task already running - adding to queue: [{}]", aTask);
-            enqueuedTasks.add(aTask);
+            addToQueue(aTask);
             return;
         }
 
         if (!aTask.isReadyToStart()) {
             log.debug("Task not yet ready to start - adding to queue: [{}]", aTask);
-            enqueuedTasks.add(aTask);
+            addToQueue(aTask);
             return;
         }
 
-        schedule(aTask);
+        // The task is eligible, but whether it can start right away depends on the free threads
+        // and on the other tasks competing for them
+        addToQueue(aTask);
+        scheduleEligibleTasks();
+    }
+
+    private void addToQueue(Task aTask)
+    {
+        if (enqueuedTasks.size() >= queueSize) {
+            throw new RejectedExecutionException("Scheduler queue is full (" + queueSize
+                    + " tasks waiting) - rejecting task [" + aTask + "]");
+        }
 
-        logState();
+        enqueuedTasks.add(aTask);
     }
 
     private MatchResult matchTask(Task aTask, Task aEnqueueTask)
@@ -249,8 +315,9 @@ public class SchedulingServiceImpl
      * 
      * @param aTask
      *            the task to be scheduled.
+     * @return whether the executor accepted the task.
      */
-    private void schedule(Task aTask)
+    private boolean schedule(Task aTask)
     {
         log.debug("Scheduling task [{}]", aTask);
 
@@ -259,24 +326,97 @@ public class SchedulingServiceImpl
         factory.autowireBean(aTask);
         factory.initializeBean(aTask, "transientTask");
 
-        executor.execute(aTask);
+        dispatchedTasks.add(aTask);
+        try {
+            executor.execute(aTask);
+            return true;
+        }
+        catch (RejectedExecutionException e) {
+            // Otherwise the task would keep occupying a thread and its project's fair share
+            dispatchedTasks.remove(aTask);
+            log.warn("Executor rejected task [{}] - discarding it", aTask, e);
+            return false;
+        }
     }
 
+    /**
+     * Hands eligible tasks to the executor as long as it has free threads. Tasks are only handed
+     * over when they can start immediately, so the order in which they start is decided here: first
+     * by {@link TaskPriority}, then by preferring the projects and users which currently have the
+     * fewest tasks running, and finally by the order in which the tasks were enqueued.
+     */
     private synchronized void scheduleEligibleTasks()
     {
-        Iterator<Task> i = enqueuedTasks.iterator();
+        int freeThreads = numberOfThreads - dispatchedTasks.size();
+        while (freeThreads > 0) {
+            Optional<Task> next = selectNextTask();
+            if (next.isEmpty()) {
+                break;
+            }
 
-        while (i.hasNext()) {
-            Task t = i.next();
-            if (!getScheduledAndRunningTasks().contains(t) && t.isReadyToStart()) {
-                i.remove();
-                schedule(t);
+            enqueuedTasks.remove(next.get());
+            if (!schedule(next.get())) {
+                // The executor is shutting down - no point in trying the other tasks
+                break;
             }
+            freeThreads--;
         }
 
         logState();
     }
 
+    private Optional<Task> selectNextTask()
+    {
+        List<Task> dispatched = new ArrayList<>(dispatchedTasks);
+
+        Map<Project, Long> tasksPerProject = dispatched.stream() //
+                .filter(t -> t.getProject() != null) //
+                .collect(groupingBy(Task::getProject, counting()));
+        Map<String, Long> tasksPerUser = dispatched.stream() //
+                .filter(t -> t.getUser().map(User::getUsername).isPresent()) //
+                .collect(groupingBy(t -> t.getUser().get().getUsername(), counting()));
+
+        Comparator<Task> fairShare = Comparator //
+                .comparing(Task::getPriority) //
+                .thenComparingLong(t -> tasksPerProject.getOrDefault(t.getProject(), 0l)) //
+                .thenComparingLong(t -> t.getUser() //
+                        .map(u -> tasksPerUser.getOrDefault(u.getUsername(), 0l)) //
+                        .orElse(0l));
+
+        // Stream.min() returns the first of several equal elements, so the enqueuing order is
+        // retained among tasks which are equal in terms of fair share
+        return new ArrayList<>(enqueuedTasks).stream() //
+                .filter(t -> !dispatched.contains(t)) //
+                .filter(Task::isReadyToStart) //
+                .filter(t -> isLaneAvailable(t.getPriority(), dispatched)) //
+                .min(fairShare);
+    }
+
+    private boolean isLaneAvailable(TaskPriority aPriority, List<Task> aDispatched)
+    {
+        if (aPriority == INTERACTIVE) {
+            return true;
+        }
+
+        // Keep some threads free for interactive tasks - but always allow at least one thread for
+        // non-interactive tasks so they cannot starve
+        long nonInteractive = aDispatched.stream() //
+                .filter(t -> t.getPriority() != INTERACTIVE) //
+                .count();
+        if (nonInteractive >= Math.max(1, numberOfThreads - reservedInteractiveThreads)) {
+            return false;
+        }
+
+        if (aPriority == MAINTENANCE) {
+            long maintenance = aDispatched.stream() //
+                    .filter(t -> t.getPriority() == MAINTENANCE) //
+                    .count();
+            return maintenance < Math.max(1, maxMaintenanceThreads);
+        }
+
+        return true;
+    }
+
     /**
      * Removes all task for the user with name {@code aUsername} from the scheduler's queue.
      * 
@@ -303,16 +443,35 @@ public class SchedulingServiceImpl
     {
         Validate.notNull(aProject, "Project name must be specified");
 
-        stopAllTasksMatching(t -> t.getProject().equals(aProject));
+        stopAllTasksMatching(t -> aProject.equals(t.getProject()));
     }
 
     @Override
     public synchronized void stopAllTasksMatching(Predicate<Task> aPredicate)
     {
         enqueuedTasks.removeIf(aPredicate);
-        executor.getQueue().removeIf(runnable -> aPredicate.test((Task) runnable));
 
-        // TODO: Stop the running tasks as well
+        List<Task> unscheduled = new ArrayList<>();
+        executor.getQueue().removeIf(runnable -> {
+            Task task = (Task) runnable;
+            if (aPredicate.test(task)) {
+                unscheduled.add(task);
+                return true;
+            }
+            return false;
+        });
+        dispatchedTasks.removeAll(unscheduled);
+
+        // Running tasks cannot be stopped forcefully - ask them to stop at the next opportunity
+        getRunningTasks().stream() //
+                .filter(aPredicate) //
+                .forEach(task -> {
+                    log.debug("Requesting running task to stop: [{}]", task);
+                    task.cancel();
+                });
+
+        // The tasks we removed from the executor may have freed up threads
+        scheduleEligibleTasks();
     }
 
     @EventListener
@@ -359,6 +518,7 @@ public class SchedulingServiceImpl
         log.info("Shutting down scheduling service!");
         enqueuedTasks.clear();
         executor.getQueue().clear();
+        getRunningTasks().forEach(Task::cancel);
         watchdog.shutdownNow();
         executor.shutdownNow();
     }
@@ -45,6 +45,8 @@ public abstract class Task
     private final String trigger;
     private final int id;
 
+    private volatile boolean cancelled = false;
+
     public Task(Project aProject, String aTrigger)
     {
         this(null, aProject, aTrigger);
@@ -91,9 +93,39 @@ public abstract class Task
         return true;
     }
 
+    /**
+     * @return the scheduling lane of the task.
+     */
+    public TaskPriority getPriority()
+    {
+        return TaskPriority.BACKGROUND;
+    }
+
+    /**
+     * Requests the task to stop. Cancellation is cooperative: a task that has not been started yet
+     * will not run at all, while a running task is expected to check {@link #isCancelled()} at
+     * suitable points and to return early.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    /**
+     * @return whether the task has been requested to stop.
+     */
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
     @Override
     public void run()
     {
+        if (isCancelled()) {
+            return;
+        }
+
         try {
             // We are in a new thread. Set up thread-specific MDC
             if (repositoryProperties != null) {
@@ -125,7 +157,8 @@ public abstract class Task
         sb.append("user=").append(user != null ? user.getUsername() : "<SYSTEM>");
         sb.append(", project=").append(project.getName());
         sb.append(", trigger=\"").append(trigger);
-        sb.append("\"}");
+        sb.append("\", priority=").append(getPriority());
+        sb.append("}");
         return sb.toString();
     }
 
@@ -24,6 +24,8 @@ public class SchedulingProperties
 {
     private int numberOfThreads = 4;
     private int queueSize = 100;
+    private int reservedInteractiveThreads = 1;
+    private int maxMaintenanceThreads = 2;
 
     public int getNumberOfThreads()
     {
@@ -44,4 +46,30 @@ public class SchedulingProperties
     {
         queueSize = aQueueSize;
     }
+
+    /**
+     * @return number of threads which are kept free for {@code INTERACTIVE} tasks.
+     */
+    public int getReservedInteractiveThreads()
+    {
+        return reservedInteractiveThreads;
+    }
+
+    public void setReservedInteractiveThreads(int aReservedInteractiveThreads)
+    {
+        reservedInteractiveThreads = aReservedInteractiveThreads;
+    }
+
+    /**
+     * @return maximum number of threads which may run {@code MAINTENANCE} tasks at the same time.
+     */
+    public int getMaxMaintenanceThreads()
+    {
+        return maxMaintenanceThreads;
+    }
+
+    public void setMaxMaintenanceThreads(int aMaxMaintenanceThreads)
+    {
+        maxMaintenanceThreads = aMaxMaintenanceThreads;
+    }
 }
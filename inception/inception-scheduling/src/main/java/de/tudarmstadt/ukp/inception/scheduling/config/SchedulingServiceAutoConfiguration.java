@@ -17,6 +17,7 @@
  */
 package de.tudarmstadt.ukp.inception.scheduling.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
@@ -25,6 +26,7 @@ import org.springframework.security.core.session.SessionRegistry;
 
 import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
 import de.tudarmstadt.ukp.inception.scheduling.SchedulingServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Configuration
 @EnableConfigurationProperties({ SchedulingProperties.class })
@@ -32,8 +34,10 @@ public class SchedulingServiceAutoConfiguration
 {
     @Bean
     public SchedulingService schedulingService(ApplicationContext aApplicationContext,
-            SchedulingProperties aConfig, SessionRegistry aSessionRegistry)
+            SchedulingProperties aConfig, SessionRegistry aSessionRegistry,
+            @Autowired(required = false) MeterRegistry aMeterRegistry)
     {
-        return new SchedulingServiceImpl(aApplicationContext, aConfig, aSessionRegistry);
+        return new SchedulingServiceImpl(aApplicationContext, aConfig, aSessionRegistry,
+                aMeterRegistry);
     }
 }
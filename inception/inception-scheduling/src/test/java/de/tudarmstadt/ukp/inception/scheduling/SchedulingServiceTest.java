@@ -20,11 +20,13 @@ package de.tudarmstadt.ukp.inception.scheduling;
 import static java.util.Arrays.asList;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.awaitility.Awaitility.await;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -39,6 +41,8 @@ import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
 import de.tudarmstadt.ukp.inception.scheduling.config.SchedulingProperties;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @ExtendWith(MockitoExtension.class)
 public class SchedulingServiceTest
 {
@@ -52,7 +56,7 @@ public class SchedulingServiceTest
         when(mockContext.getAutowireCapableBeanFactory())
                 .thenReturn(mock(AutowireCapableBeanFactory.class));
 
-        sut = new SchedulingServiceImpl(mockContext, new SchedulingProperties(), null);
+        sut = new SchedulingServiceImpl(mockContext, new SchedulingProperties(), null, null);
     }
 
     @AfterEach
@@ -112,6 +116,143 @@ public class SchedulingServiceTest
                 .doesNotContain(tasksToRemove);
     }
 
+    @Test
+    public void thatInteractiveTasksDoNotWaitForBackgroundTasks()
+    {
+        SchedulingProperties properties = new SchedulingProperties();
+        properties.setNumberOfThreads(2);
+        properties.setReservedInteractiveThreads(1);
+        sut.destroy();
+        sut = new SchedulingServiceImpl(mockContext, properties, null, null);
+
+        Task background1 = buildDummyTask("user1", "project1");
+        Task background2 = buildDummyTask("user2", "project2");
+        Task interactive = new DummyTask(buildUser("user3"), buildProject("project3"),
+                TaskPriority.INTERACTIVE);
+
+        sut.enqueue(background1);
+        sut.enqueue(background2);
+        sut.enqueue(interactive);
+
+        await().atMost(15, SECONDS).until(() -> sut.getRunningTasks().size() == 2);
+
+        assertThat(sut.getRunningTasks()) //
+                .as("Interactive task should run on the reserved thread")
+                .containsExactlyInAnyOrder(background1, interactive);
+        assertThat(sut.getEnqueuedTasks()) //
+                .as("Second background task should wait")
+                .containsExactly(background2);
+    }
+
+    @Test
+    public void thatTasksFromLessBusyProjectsAreStartedFirst()
+    {
+        SchedulingProperties properties = new SchedulingProperties();
+        properties.setNumberOfThreads(3);
+        properties.setReservedInteractiveThreads(1);
+        sut.destroy();
+        sut = new SchedulingServiceImpl(mockContext, properties, null, null);
+
+        Task busy1 = buildDummyTask("user1", "busy-project");
+        Task busy2 = buildDummyTask("user2", "busy-project");
+        Task busy3 = buildDummyTask("user3", "busy-project");
+        Task other = buildDummyTask("user4", "other-project");
+
+        // Occupy all threads available to background tasks
+        sut.enqueue(busy1);
+        sut.enqueue(busy2);
+        await().atMost(15, SECONDS).until(() -> sut.getRunningTasks().size() == 2);
+
+        sut.enqueue(busy3);
+        sut.enqueue(other);
+        assertThat(sut.getEnqueuedTasks()).containsExactly(busy3, other);
+
+        // Free up one thread
+        sut.stopAllTasksForUser("user1");
+
+        await().atMost(15, SECONDS).until(() -> sut.getRunningTasks().contains(other));
+
+        assertThat(sut.getRunningTasks()) //
+                .as("Task from the less busy project should overtake the earlier task")
+                .containsExactlyInAnyOrder(busy2, other);
+        assertThat(sut.getEnqueuedTasks()).containsExactly(busy3);
+    }
+
+    @Test
+    public void thatQueueSizeIsEnforced()
+    {
+        SchedulingProperties properties = new SchedulingProperties();
+        properties.setNumberOfThreads(1);
+        properties.setQueueSize(2);
+        sut.destroy();
+        sut = new SchedulingServiceImpl(mockContext, properties, null, null);
+
+        Task running = buildDummyTask("user1", "project1");
+        Task waiting1 = buildDummyTask("user2", "project1");
+        Task waiting2 = buildDummyTask("user3", "project1");
+        Task rejected = buildDummyTask("user4", "project1");
+
+        sut.enqueue(running);
+        sut.enqueue(waiting1);
+        sut.enqueue(waiting2);
+
+        assertThatExceptionOfType(RejectedExecutionException.class) //
+                .isThrownBy(() -> sut.enqueue(rejected));
+        assertThat(sut.getEnqueuedTasks()).containsExactly(waiting1, waiting2);
+
+        // Once a task completes, there is room in the queue again
+        sut.stopAllTasksForUser("user1");
+        await().atMost(15, SECONDS).until(() -> sut.getEnqueuedTasks().size() == 1);
+
+        sut.enqueue(rejected);
+        assertThat(sut.getEnqueuedTasks()).containsExactly(waiting2, rejected);
+    }
+
+    @Test
+    public void thatRunningTasksCanBeCancelled()
+    {
+        Task task = buildDummyTask("testUser", "project1");
+
+        sut.enqueue(task);
+
+        await().atMost(15, SECONDS).until(() -> sut.getRunningTasks().contains(task));
+
+        sut.stopAllTasksForUser("testUser");
+
+        assertThat(task.isCancelled()).isTrue();
+        await().atMost(15, SECONDS).until(() -> sut.getRunningTasks().isEmpty());
+    }
+
+    @Test
+    public void thatSchedulerMetricsAreRecorded()
+    {
+        var meterRegistry = new SimpleMeterRegistry();
+        sut.destroy();
+        sut = new SchedulingServiceImpl(mockContext, new SchedulingProperties(), null,
+                meterRegistry);
+
+        Task task = buildDummyTask("testUser", "project1");
+
+        sut.enqueue(task);
+
+        await().atMost(15, SECONDS).until(() -> meterRegistry.get("inception.scheduling.tasks")
+                .tag("state", "running").gauge().value() == 1.0);
+        assertThat(meterRegistry.get("inception.scheduling.tasks").tag("state", "enqueued")
+                .gauge().value()).isEqualTo(0.0);
+        assertThat(meterRegistry.get("inception.scheduling.tasks").tag("state", "scheduled")
+                .gauge().value()).isEqualTo(0.0);
+
+        sut.stopAllTasksForUser("testUser");
+
+        await().atMost(15, SECONDS).until(() -> {
+            var timer = meterRegistry.find("inception.scheduling.task.duration")
+                    .tag("type", DummyTask.class.getSimpleName()).timer();
+            return timer != null && timer.count() == 1;
+        });
+        assertThat(meterRegistry.get("inception.scheduling.tasks").tag("state", "running")
+                .gauge().value()).isEqualTo(0.0);
+    }
+
     private User buildUser(String aUsername)
     {
         return new User(aUsername);
@@ -131,21 +272,35 @@ public class SchedulingServiceTest
     }
 
     /**
-     * DummyTask is a task that does nothing and just sleeps until interrupted. if interrupted, it
-     * just finishes running and returns.
+     * DummyTask is a task that does nothing and just sleeps until interrupted or cancelled. If
+     * interrupted or cancelled, it just finishes running and returns.
      */
     private static class DummyTask
         extends Task
     {
+        private final TaskPriority priority;
+
         DummyTask(User aUser, Project aProject)
+        {
+            this(aUser, aProject, TaskPriority.BACKGROUND);
+        }
+
+        DummyTask(User aUser, Project aProject, TaskPriority aPriority)
         {
             super(aUser, aProject, "JUnit");
+            priority = aPriority;
+        }
+
+        @Override
+        public TaskPriority getPriority()
+        {
+            return priority;
         }
 
         @Override
         public void execute()
         {
-            while (!Thread.currentThread().isInterrupted()) {
+            while (!Thread.currentThread().isInterrupted() && !isCancelled()) {
                 try {
                     Thread.sleep(1000);
                 }
@@ -57,6 +57,8 @@ import de.tudarmstadt.ukp.inception.annotation.layer.span.SpanOverlapBehavior;
 import de.tudarmstadt.ukp.inception.rendering.config.AnnotationEditorProperties;
 import de.tudarmstadt.ukp.inception.schema.AnnotationSchemaService;
 import de.tudarmstadt.ukp.inception.schema.exporters.AnnotationDocumentExporter;
+import de.tudarmstadt.ukp.inception.schema.exporters.AnnotationDocumentExporterProperties;
+import de.tudarmstadt.ukp.inception.schema.exporters.AnnotationDocumentExporterPropertiesImpl;
 import de.tudarmstadt.ukp.inception.schema.exporters.LayerExporter;
 import de.tudarmstadt.ukp.inception.schema.exporters.TagSetExporter;
 import de.tudarmstadt.ukp.inception.schema.feature.FeatureSupport;
@@ -71,7 +73,8 @@ import de.tudarmstadt.ukp.inception.schema.service.FeatureSupportRegistryImpl;
 @EnableConfigurationProperties({ //
         StringFeatureSupportPropertiesImpl.class, //
         LinkFeatureSupportPropertiesImpl.class, //
-        AnnotationEditorPropertiesImpl.class })
+        AnnotationEditorPropertiesImpl.class, //
+        AnnotationDocumentExporterPropertiesImpl.class })
 public class AnnotationSchemaServiceAutoConfiguration
 {
     private @PersistenceContext EntityManager entityManager;
@@ -213,10 +216,11 @@ public class AnnotationSchemaServiceAutoConfiguration
     @Bean
     public AnnotationDocumentExporter annotationDocumentExporter(DocumentService aDocumentService,
             UserDao aUserRepository, DocumentImportExportService aImportExportService,
-            RepositoryProperties aRepositoryProperties)
+            RepositoryProperties aRepositoryProperties,
+            AnnotationDocumentExporterProperties aProperties)
     {
         return new AnnotationDocumentExporter(aDocumentService, aUserRepository,
-                aImportExportService, aRepositoryProperties);
+                aImportExportService, aRepositoryProperties, aProperties);
     }
 
     @Bean
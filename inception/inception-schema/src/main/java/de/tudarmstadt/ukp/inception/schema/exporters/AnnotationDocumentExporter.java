@@ -29,39 +29,45 @@ import static java.lang.Math.ceil;
 import static java.lang.System.currentTimeMillis;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
-import static org.apache.commons.io.FileUtils.copyFileToDirectory;
 import static org.apache.commons.io.FileUtils.forceDelete;
-import static org.apache.commons.io.FileUtils.forceMkdir;
 import static org.apache.commons.io.FilenameUtils.getExtension;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.output.DeferredFileOutputStream;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.commons.lang3.time.DurationFormatUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.uima.UIMAException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
@@ -71,6 +77,7 @@ import de.tudarmstadt.ukp.clarin.webanno.api.DocumentImportExportService;
 import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
 import de.tudarmstadt.ukp.clarin.webanno.api.config.RepositoryProperties;
 import de.tudarmstadt.ukp.clarin.webanno.api.export.FullProjectExportRequest;
+import de.tudarmstadt.ukp.clarin.webanno.api.export.ProjectExportStage;
 import de.tudarmstadt.ukp.clarin.webanno.api.export.ProjectExportTaskMonitor;
 import de.tudarmstadt.ukp.clarin.webanno.api.export.ProjectExporter;
 import de.tudarmstadt.ukp.clarin.webanno.api.export.ProjectImportRequest;
@@ -84,6 +91,7 @@ import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
 import de.tudarmstadt.ukp.clarin.webanno.security.UserDao;
 import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
 import de.tudarmstadt.ukp.clarin.webanno.support.logging.LogMessage;
+import de.tudarmstadt.ukp.clarin.webanno.support.logging.MDCContext;
 import de.tudarmstadt.ukp.inception.annotation.storage.CasStorageSession;
 import de.tudarmstadt.ukp.inception.documents.exporters.SourceDocumentExporter;
 import de.tudarmstadt.ukp.inception.schema.config.AnnotationSchemaServiceAutoConfiguration;
@@ -97,9 +105,17 @@ import de.tudarmstadt.ukp.inception.schema.config.AnnotationSchemaServiceAutoCon
 public class AnnotationDocumentExporter
     implements ProjectExporter
 {
-    private static final String ANNOTATION_ORIGINAL_FOLDER = "/annotation/";
+    private static final String ANNOTATION_ORIGINAL_FOLDER = "annotation/";
     private static final String ANNOTATION_AS_SERIALISED_CAS = "annotation_ser";
-    private static final String ANNOTATION_CAS_FOLDER = "/" + ANNOTATION_AS_SERIALISED_CAS + "/";
+    private static final String ANNOTATION_CAS_FOLDER = ANNOTATION_AS_SERIALISED_CAS + "/";
+
+    private static final int MAX_PENDING_DOCUMENTS_PER_THREAD = 2;
+
+    /**
+     * Converted files up to this size are kept in memory until they are staged. Larger files are
+     * spooled to a temporary file.
+     */
+    private static final int MAX_IN_MEMORY_FILE_SIZE = 1024 * 1024;
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -107,16 +123,27 @@ public class AnnotationDocumentExporter
     private final UserDao userRepository;
     private final DocumentImportExportService importExportService;
     private final RepositoryProperties repositoryProperties;
+    private final AnnotationDocumentExporterProperties properties;
 
-    @Autowired
     public AnnotationDocumentExporter(DocumentService aDocumentService, UserDao aUserRepository,
             DocumentImportExportService aImportExportService,
             RepositoryProperties aRepositoryProperties)
+    {
+        this(aDocumentService, aUserRepository, aImportExportService, aRepositoryProperties,
+                new AnnotationDocumentExporterPropertiesImpl());
+    }
+
+    @Autowired
+    public AnnotationDocumentExporter(DocumentService aDocumentService, UserDao aUserRepository,
+            DocumentImportExportService aImportExportService,
+            RepositoryProperties aRepositoryProperties,
+            AnnotationDocumentExporterProperties aProperties)
     {
         documentService = aDocumentService;
         userRepository = aUserRepository;
         importExportService = aImportExportService;
         repositoryProperties = aRepositoryProperties;
+        properties = aProperties;
     }
 
     @Override
@@ -137,7 +164,18 @@ public class AnnotationDocumentExporter
         throws UIMAException, ClassNotFoundException, IOException, InterruptedException
     {
         exportAnnotationDocuments(aMonitor, aRequest.getProject(), aExProject);
-        exportAnnotationDocumentContents(aRequest, aMonitor, aExProject, aStage);
+        exportAnnotationDocumentContents(aRequest, aMonitor, aExProject,
+                ProjectExportStage.folder(aStage));
+    }
+
+    @Override
+    public void exportData(FullProjectExportRequest aRequest, ProjectExportTaskMonitor aMonitor,
+            ExportedProject aExProject, ZipOutputStream aZip)
+        throws UIMAException, ClassNotFoundException, IOException, InterruptedException
+    {
+        exportAnnotationDocuments(aMonitor, aRequest.getProject(), aExProject);
+        exportAnnotationDocumentContents(aRequest, aMonitor, aExProject,
+                ProjectExportStage.zip(aZip));
     }
 
     private void exportAnnotationDocuments(ProjectExportTaskMonitor aMonitor, Project aProject,
@@ -163,18 +201,27 @@ public class AnnotationDocumentExporter
         aExProject.setAnnotationDocuments(annotationDocuments);
     }
 
+    /**
+     * Converts the annotation documents on a bounded worker pool. The converted files of each
+     * source document are handed to the stage in document order from the calling thread, so the
+     * stage does not need to be thread-safe. At most {@link #MAX_PENDING_DOCUMENTS_PER_THREAD}
+     * converted documents per worker wait to be staged. Of their files, only those up to
+     * {@link #MAX_IN_MEMORY_FILE_SIZE} are held in memory, the others are spooled to disk.
+     */
     private void exportAnnotationDocumentContents(FullProjectExportRequest aRequest,
-            ProjectExportTaskMonitor aMonitor, ExportedProject aExProject, File aStage)
+            ProjectExportTaskMonitor aMonitor, ExportedProject aExProject,
+            ProjectExportStage aStage)
         throws UIMAException, ClassNotFoundException, IOException, InterruptedException
     {
         Project project = aRequest.getProject();
 
         // The export process may store project-related information in this context to ensure it
-        // is looked up only once during the bulk operation and the DB is not hit too often.
-        Map<Pair<Project, String>, Object> bulkOperationContext = new HashMap<>();
+        // is looked up only once during the bulk operation and the DB is not hit too often. The
+        // objects cached in the context are not thread-safe, so each worker gets its own.
+        ThreadLocal<Map<Pair<Project, String>, Object>> bulkOperationContext = ThreadLocal
+                .withInitial(HashMap::new);
 
         List<SourceDocument> documents = documentService.listSourceDocuments(project);
-        int i = 1;
         int initProgress = aMonitor.getProgress();
 
         // Create a map containing the annotation documents for each source document. Doing this
@@ -188,13 +235,25 @@ public class AnnotationDocumentExporter
         LoadingCache<String, User> usersCache = Caffeine.newBuilder()
                 .build(key -> userRepository.get(key));
 
-        for (SourceDocument srcDoc : documents) {
-            // check if the export has been cancelled
-            if (Thread.interrupted()) {
-                throw new InterruptedException();
-            }
+        int threads = Math.max(1, properties.getThreads());
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+                new BasicThreadFactory.Builder() //
+                        .namingPattern("annotation-document-export-%d") //
+                        .daemon(true) //
+                        .build());
+
+        // The CAS storage relies on the logging context, e.g. to locate the repository
+        var loggingContext = MDC.getCopyOfContextMap();
+
+        Deque<Future<List<StagedFile>>> pending = new ArrayDeque<>();
+        int staged = 0;
+        try {
+            for (SourceDocument srcDoc : documents) {
+                // check if the export has been cancelled
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
 
-            try (CasStorageSession session = CasStorageSession.openNested()) {
                 FormatSupport format = null;
                 if (aRequest.getFormat() != null) {
                     // Determine which format to use for export
@@ -223,25 +282,14 @@ public class AnnotationDocumentExporter
                 // component that affects its output.
 
                 // If the initial CAS does not exist yet, it must be created before export.
-                if (!documentService.existsInitialCas(srcDoc)) {
-                    documentService.createOrReadInitialCas(srcDoc);
-                }
-
-                File targetDir = new File(aStage, ANNOTATION_CAS_FOLDER + srcDoc.getName());
-                forceMkdir(targetDir);
-
-                try (OutputStream os = new FileOutputStream(
-                        new File(targetDir, INITIAL_CAS_PSEUDO_USER + ".ser"))) {
-                    documentService.exportCas(srcDoc, INITIAL_CAS_PSEUDO_USER, os);
-                }
-
-                if (format != null) {
-                    exportAdditionalFormat(aStage, bulkOperationContext, srcDoc, format,
-                            INITIAL_CAS_PSEUDO_USER);
+                try (CasStorageSession session = CasStorageSession.openNested()) {
+                    if (!documentService.existsInitialCas(srcDoc)) {
+                        documentService.createOrReadInitialCas(srcDoc);
+                    }
                 }
 
-                log.info("Exported annotation document content for user [{}] for source document "
-                        + "{} in project {}", INITIAL_CAS_PSEUDO_USER, srcDoc, project);
+                List<String> users = new ArrayList<>();
+                users.add(INITIAL_CAS_PSEUDO_USER);
 
                 //
                 // Export per-user annotation document
@@ -257,60 +305,190 @@ public class AnnotationDocumentExporter
                             && documentService.existsCas(annDoc)
                             && !annDoc.getState().equals(AnnotationDocumentState.NEW)
                             && !annDoc.getState().equals(AnnotationDocumentState.IGNORE)) {
+                        users.add(annDoc.getUser());
+                    }
+                }
 
-                        exportSerializedCas(aStage, srcDoc, annDoc);
-
-                        if (format != null) {
-                            exportAdditionalFormat(aStage, bulkOperationContext, srcDoc, format,
-                                    annDoc.getUser());
+                FormatSupport docFormat = format;
+                pending.add(executor.submit(() -> {
+                    try (var ctx = MDCContext.open()) {
+                        if (loggingContext != null) {
+                            MDC.setContextMap(loggingContext);
                         }
 
-                        log.info("Exported annotation document content for user [{}] for " //
-                                + "source document {} in project {}", annDoc.getUser(), srcDoc,
-                                project);
+                        return exportDocument(srcDoc, users, docFormat,
+                                bulkOperationContext.get());
                     }
+                }));
+
+                while (pending.size() >= threads * MAX_PENDING_DOCUMENTS_PER_THREAD) {
+                    stageNext(pending, aStage);
+                    staged++;
+                    aMonitor.setProgress(initProgress
+                            + (int) ceil(((double) staged) / documents.size() * 80.0));
                 }
             }
 
-            aMonitor.setProgress(initProgress + (int) ceil(((double) i) / documents.size() * 80.0));
-            i++;
+            while (!pending.isEmpty()) {
+                stageNext(pending, aStage);
+                staged++;
+                aMonitor.setProgress(
+                        initProgress + (int) ceil(((double) staged) / documents.size() * 80.0));
+            }
+        }
+        finally {
+            executor.shutdownNow();
+            discardPending(executor, pending);
+        }
+    }
+
+    /**
+     * Removes the spooled files of documents that have been converted but not staged because the
+     * export failed or was cancelled.
+     */
+    private void discardPending(ExecutorService aExecutor,
+            Deque<Future<List<StagedFile>>> aPending)
+    {
+        if (aPending.isEmpty()) {
+            return;
+        }
+
+        try {
+            // Documents still being converted may yet spool files
+            aExecutor.awaitTermination(1, MINUTES);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        for (Future<List<StagedFile>> future : aPending) {
+            // Documents which never started have no files
+            if (!future.isDone() || future.isCancelled()) {
+                continue;
+            }
+
+            try {
+                future.get().forEach(StagedFile::discard);
+            }
+            catch (InterruptedException | ExecutionException e) {
+                // Failed documents do not leave any files behind
+            }
+        }
+    }
+
+    private void stageNext(Deque<Future<List<StagedFile>>> aPending, ProjectExportStage aStage)
+        throws UIMAException, ClassNotFoundException, IOException, InterruptedException
+    {
+        List<StagedFile> files;
+        try {
+            files = aPending.poll().get();
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UIMAException) {
+                throw (UIMAException) cause;
+            }
+            if (cause instanceof ClassNotFoundException) {
+                throw (ClassNotFoundException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+
+        try {
+            for (StagedFile file : files) {
+                aStage.write(file.path, file.content::writeTo);
+            }
+        }
+        finally {
+            files.forEach(StagedFile::discard);
+        }
+    }
+
+    private List<StagedFile> exportDocument(SourceDocument aSrcDoc, List<String> aUsers,
+            FormatSupport aFormat, Map<Pair<Project, String>, Object> aBulkOperationContext)
+        throws UIMAException, IOException, ClassNotFoundException
+    {
+        List<StagedFile> files = new ArrayList<>();
+
+        try (CasStorageSession session = CasStorageSession.openNested()) {
+            for (String username : aUsers) {
+                files.add(exportSerializedCas(aSrcDoc, username));
+
+                if (aFormat != null) {
+                    files.add(exportAdditionalFormat(aBulkOperationContext, aSrcDoc, aFormat,
+                            username));
+                }
+
+                log.info("Exported annotation document content for user [{}] for source document "
+                        + "{} in project {}", username, aSrcDoc, aSrcDoc.getProject());
+            }
+        }
+        catch (UIMAException | IOException | ClassNotFoundException | RuntimeException e) {
+            files.forEach(StagedFile::discard);
+            throw e;
         }
+
+        return files;
     }
 
-    private void exportSerializedCas(File aStage, SourceDocument srcDoc, AnnotationDocument annDoc)
-        throws IOException, FileNotFoundException
+    private StagedFile exportSerializedCas(SourceDocument srcDoc, String aUsername)
+        throws IOException
     {
-        File annSerDir = new File(
-                aStage.getAbsolutePath() + ANNOTATION_CAS_FOLDER + srcDoc.getName());
-        forceMkdir(annSerDir);
-        try (OutputStream os = new FileOutputStream(
-                new File(annSerDir, annDoc.getUser() + ".ser"))) {
-            documentService.exportCas(srcDoc, annDoc.getUser(), os);
+        var file = new StagedFile(
+                ANNOTATION_CAS_FOLDER + srcDoc.getName() + "/" + aUsername + ".ser");
+        try (var out = file.content) {
+            documentService.exportCas(srcDoc, aUsername, out);
+        }
+        catch (IOException | RuntimeException e) {
+            file.discard();
+            throw e;
         }
+        return file;
     }
 
-    private void exportAdditionalFormat(File aStage,
+    private StagedFile exportAdditionalFormat(
             Map<Pair<Project, String>, Object> bulkOperationContext, SourceDocument srcDoc,
             FormatSupport format, String aUsername)
         throws UIMAException, IOException, ClassNotFoundException
     {
-        File annDocDir = new File(
-                aStage.getAbsolutePath() + ANNOTATION_ORIGINAL_FOLDER + srcDoc.getName());
+        String annDocDir = ANNOTATION_ORIGINAL_FOLDER + srcDoc.getName() + "/";
+
+        // Safe-guard for legacy instances where user name validity has not been checked.
+        boolean validUsername = userRepository.isValidUsername(aUsername)
+                || RESERVED_USERNAMES.contains(aUsername);
+
+        if (validUsername && format.isStreamable()) {
+            var file = new StagedFile(annDocDir + aUsername + format.getStreamedFileExtension());
+            try (var out = file.content) {
+                importExportService.exportAnnotationDocument(srcDoc, aUsername, format, aUsername,
+                        ANNOTATION, false, bulkOperationContext, out);
+            }
+            catch (UIMAException | IOException | RuntimeException e) {
+                file.discard();
+                throw e;
+            }
+            return file;
+        }
+
         File annFile = null;
         try {
             annFile = importExportService.exportAnnotationDocument(srcDoc, aUsername, format,
                     aUsername, ANNOTATION, false, bulkOperationContext);
-            forceMkdir(annDocDir);
 
-            if (userRepository.isValidUsername(aUsername)
-                    || RESERVED_USERNAMES.contains(aUsername)) {
-                // Safe-guard for legacy instances where user name validity has not been checked.
-                var filename = aUsername + "." + getExtension(annFile.getName());
-                FileUtils.copyFile(annFile, new File(annDocDir, filename));
+            var filename = validUsername ? aUsername + "." + getExtension(annFile.getName())
+                    : annFile.getName();
+            var file = new StagedFile(annDocDir + filename);
+            try (var out = file.content) {
+                Files.copy(annFile.toPath(), out);
             }
-            else {
-                copyFileToDirectory(annFile, annDocDir);
+            catch (IOException | RuntimeException e) {
+                file.discard();
+                throw e;
             }
+            return file;
         }
         finally {
             if (annFile != null) {
@@ -437,4 +615,24 @@ public class AnnotationDocumentExporter
                     aProject.getName(), aProject.getId());
         }
     }
+
+    private static class StagedFile
+    {
+        private final String path;
+        private final DeferredFileOutputStream content;
+
+        public StagedFile(String aPath)
+        {
+            path = aPath;
+            content = new DeferredFileOutputStream(MAX_IN_MEMORY_FILE_SIZE, "export", ".tmp",
+                    null);
+        }
+
+        public void discard()
+        {
+            if (!content.isInMemory()) {
+                FileUtils.deleteQuietly(content.getFile());
+            }
+        }
+    }
 }
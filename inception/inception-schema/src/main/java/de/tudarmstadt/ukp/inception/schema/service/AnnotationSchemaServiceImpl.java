@@ -28,6 +28,7 @@ import static de.tudarmstadt.ukp.clarin.webanno.support.uima.ICasUtil.selectByAd
 import static de.tudarmstadt.ukp.inception.schema.AttachedAnnotation.Direction.INCOMING;
 import static de.tudarmstadt.ukp.inception.schema.AttachedAnnotation.Direction.LOOP;
 import static de.tudarmstadt.ukp.inception.schema.AttachedAnnotation.Direction.OUTGOING;
+import static java.lang.Boolean.TRUE;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Objects.isNull;
@@ -39,6 +40,8 @@ import static org.apache.uima.cas.impl.Serialization.serializeWithCompression;
 import static org.apache.uima.fit.factory.TypeSystemDescriptionFactory.createTypeSystemDescription;
 import static org.apache.uima.util.CasCreationUtils.mergeTypeSystems;
 import static org.hibernate.annotations.QueryHints.CACHEABLE;
+import static org.springframework.transaction.support.TransactionSynchronizationManager.isSynchronizationActive;
+import static org.springframework.transaction.support.TransactionSynchronizationManager.registerSynchronization;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -50,6 +53,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
@@ -77,14 +81,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.CasUpgradeMode;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.util.TypeSystemAnalysis;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.util.TypeSystemAnalysis.RelationDetails;
+import de.tudarmstadt.ukp.clarin.webanno.api.event.BeforeProjectRemovedEvent;
+import de.tudarmstadt.ukp.clarin.webanno.api.event.LayerConfigurationChangedEvent;
 import de.tudarmstadt.ukp.clarin.webanno.api.event.TagCreatedEvent;
 import de.tudarmstadt.ukp.clarin.webanno.api.event.TagDeletedEvent;
 import de.tudarmstadt.ukp.clarin.webanno.api.event.TagUpdatedEvent;
@@ -135,6 +144,14 @@ public class AnnotationSchemaServiceImpl
     private final TypeSystemDescription builtInTypes;
     private final AnnotationEditorProperties annotationEditorProperties;
 
+    /**
+     * Version of the type system of each project. The version is bumped whenever the layer or
+     * feature configuration of a project changes. Cached project type systems are only used if
+     * their version matches the current version of the project.
+     */
+    private final Map<Long, Long> projectTypeSystemVersions = new ConcurrentHashMap<>();
+    private final Cache<Long, ProjectTypeSystem> projectTypeSystemCache;
+
     public AnnotationSchemaServiceImpl()
     {
         this(null, null, null, null, null);
@@ -157,6 +174,11 @@ public class AnnotationSchemaServiceImpl
                 .maximumSize(10 * 1024) //
                 .build(this::loadImmutableTags);
 
+        projectTypeSystemCache = Caffeine.newBuilder() //
+                .expireAfterAccess(30, MINUTES) //
+                .maximumSize(1024) //
+                .build();
+
         try {
             builtInTypes = createTypeSystemDescription();
         }
@@ -284,6 +306,8 @@ public class AnnotationSchemaServiceImpl
                 entityManager.merge(aLayer);
                 log.info("Updated layer {} in project {}", aLayer, aLayer.getProject());
             }
+
+            bumpProjectTypeSystemVersion(aLayer.getProject());
         }
     }
 
@@ -300,6 +324,8 @@ public class AnnotationSchemaServiceImpl
                 entityManager.merge(aFeature);
                 log.info("Updated feature {} in project {}", aFeature, aFeature.getProject());
             }
+
+            bumpProjectTypeSystemVersion(aFeature.getProject());
         }
     }
 
@@ -523,7 +549,7 @@ public class AnnotationSchemaServiceImpl
 
         TypeSystemDescription tsd;
         try {
-            tsd = getFullProjectTypeSystem(aProject);
+            tsd = getProjectTypeSystem(aProject).description;
         }
         catch (ResourceInitializationException e) {
             throw new RuntimeException(e);
@@ -922,6 +948,8 @@ public class AnnotationSchemaServiceImpl
                     entityManager.contains(aFeature) ? aFeature : entityManager.merge(aFeature));
 
             log.info("Removed feature {} from project {}", aFeature, aFeature.getProject());
+
+            bumpProjectTypeSystemVersion(aFeature.getProject());
         }
     }
 
@@ -949,6 +977,8 @@ public class AnnotationSchemaServiceImpl
             entityManager.remove(layer);
 
             log.info("Removed layer {} from project {}", aLayer, aLayer.getProject());
+
+            bumpProjectTypeSystemVersion(aLayer.getProject());
         }
     }
 
@@ -1110,6 +1140,18 @@ public class AnnotationSchemaServiceImpl
     public TypeSystemDescription getFullProjectTypeSystem(Project aProject,
             boolean aIncludeInternalTypes)
         throws ResourceInitializationException
+    {
+        if (aIncludeInternalTypes) {
+            // Callers may modify the type system description, so we hand out a copy
+            return (TypeSystemDescription) getProjectTypeSystem(aProject).description.clone();
+        }
+
+        return buildFullProjectTypeSystem(aProject, false);
+    }
+
+    private TypeSystemDescription buildFullProjectTypeSystem(Project aProject,
+            boolean aIncludeInternalTypes)
+        throws ResourceInitializationException
     {
         List<TypeSystemDescription> typeSystems = new ArrayList<>();
 
@@ -1129,6 +1171,71 @@ public class AnnotationSchemaServiceImpl
         return mergeTypeSystems(typeSystems);
     }
 
+    /**
+     * @return the cached type system of the given project, building it if the cached version is
+     *         missing or outdated.
+     */
+    private ProjectTypeSystem getProjectTypeSystem(Project aProject)
+        throws ResourceInitializationException
+    {
+        // Projects which have not been persisted yet cannot be cached
+        if (aProject.getId() == null) {
+            return new ProjectTypeSystem(-1, buildFullProjectTypeSystem(aProject, true));
+        }
+
+        // Obtain the version before building the type system - if the configuration changes
+        // while we build, the entry we put into the cache is already outdated and will be
+        // rebuilt on the next access
+        long version = projectTypeSystemVersions.getOrDefault(aProject.getId(), 0l);
+
+        ProjectTypeSystem cached = projectTypeSystemCache.getIfPresent(aProject.getId());
+        if (cached != null && cached.version == version) {
+            return cached;
+        }
+
+        ProjectTypeSystem fresh = new ProjectTypeSystem(version,
+                buildFullProjectTypeSystem(aProject, true));
+        projectTypeSystemCache.put(aProject.getId(), fresh);
+        return fresh;
+    }
+
+    private void bumpProjectTypeSystemVersion(Project aProject)
+    {
+        if (aProject == null || aProject.getId() == null) {
+            return;
+        }
+
+        Long projectId = aProject.getId();
+        projectTypeSystemVersions.merge(projectId, 1l, Long::sum);
+
+        // Another thread may rebuild the type system from the database before the change that
+        // triggered the bump is committed - bump again once the transaction has completed
+        if (isSynchronizationActive()) {
+            registerSynchronization(new TransactionSynchronization()
+            {
+                @Override
+                public void afterCompletion(int aStatus)
+                {
+                    projectTypeSystemVersions.merge(projectId, 1l, Long::sum);
+                }
+            });
+        }
+    }
+
+    @EventListener
+    public void onLayerConfigurationChanged(LayerConfigurationChangedEvent aEvent)
+    {
+        bumpProjectTypeSystemVersion(aEvent.getProject());
+    }
+
+    @EventListener
+    public void onBeforeProjectRemoved(BeforeProjectRemovedEvent aEvent)
+    {
+        Long projectId = aEvent.getProject().getId();
+        projectTypeSystemCache.invalidate(projectId);
+        projectTypeSystemVersions.remove(projectId);
+    }
+
     @Override
     public void upgradeCas(CAS aCas, AnnotationDocument aAnnotationDocument)
         throws UIMAException, IOException
@@ -1177,8 +1284,10 @@ public class AnnotationSchemaServiceImpl
     @Override
     public void upgradeCas(CAS aCas, Project aProject) throws UIMAException, IOException
     {
-        TypeSystemDescription ts = getFullProjectTypeSystem(aProject);
-        upgradeCas(aCas, ts);
+        CasStorageSession.get().assertWritingPermitted(aCas);
+
+        ProjectTypeSystem ts = getProjectTypeSystem(aProject);
+        _upgradeCas(aCas, aCas, ts.emptyCasTemplate);
     }
 
     @Override
@@ -1199,7 +1308,7 @@ public class AnnotationSchemaServiceImpl
     public boolean upgradeCasIfRequired(Iterable<CAS> aCasIter, Project aProject)
         throws UIMAException, IOException
     {
-        TypeSystemDescription ts = getFullProjectTypeSystem(aProject);
+        ProjectTypeSystem ts = getProjectTypeSystem(aProject);
 
         // Check if the current CAS already contains the required type system
         boolean upgradePerformed = false;
@@ -1213,7 +1322,7 @@ public class AnnotationSchemaServiceImpl
             CasStorageSession.get().assertWritingPermitted(cas);
 
             if (isUpgradeRequired(cas, ts)) {
-                upgradeCas(cas, ts);
+                _upgradeCas(cas, cas, ts.emptyCasTemplate);
                 upgradePerformed = true;
             }
         }
@@ -1247,6 +1356,18 @@ public class AnnotationSchemaServiceImpl
     public static void _upgradeCas(CAS aSourceCas, CAS aTargetCas,
             TypeSystemDescription aTargetTypeSystem)
         throws IOException, ResourceInitializationException
+    {
+        CAS tempCas = CasFactory.createCas(aTargetTypeSystem);
+        _upgradeCas(aSourceCas, aTargetCas, serializeCASComplete((CASImpl) tempCas));
+    }
+
+    /**
+     * Load the contents from the source CAS and write them into the target CAS which is
+     * re-initialized from the given template of an empty CAS using the target type system.
+     */
+    private static void _upgradeCas(CAS aSourceCas, CAS aTargetCas,
+            CASCompleteSerializer aEmptyCasTemplate)
+        throws IOException, ResourceInitializationException
     {
         // Save source CAS type system (do this early since we might do an in-place upgrade)
         TypeSystem sourceTypeSystem = aSourceCas.getTypeSystem();
@@ -1266,9 +1387,7 @@ public class AnnotationSchemaServiceImpl
         CAS realTargetCas = getRealCas(aTargetCas);
         // UIMA-6162 Workaround: synchronize CAS during de/serialization
         synchronized (((CASImpl) realTargetCas).getBaseCAS()) {
-            CAS tempCas = CasFactory.createCas(aTargetTypeSystem);
-            CASCompleteSerializer serializer = serializeCASComplete((CASImpl) tempCas);
-            deserializeCASComplete(serializer, (CASImpl) realTargetCas);
+            deserializeCASComplete(aEmptyCasTemplate, (CASImpl) realTargetCas);
 
             // Leniently load the source CAS contents into the target CAS
             CasIOUtils.load(new ByteArrayInputStream(serializedCasContents.toByteArray()),
@@ -1276,6 +1395,28 @@ public class AnnotationSchemaServiceImpl
         }
     }
 
+    /**
+     * Check if the current CAS already contains the required type system. Type systems which have
+     * been found to be compatible with the project type system are remembered, so the full check
+     * only needs to run once per distinct type system.
+     */
+    private boolean isUpgradeRequired(CAS aCas, ProjectTypeSystem aTargetTypeSystem)
+    {
+        TypeSystem ts = aCas.getTypeSystem();
+
+        if (ts == aTargetTypeSystem.typeSystem
+                || aTargetTypeSystem.compatibleTypeSystems.getIfPresent(ts) != null) {
+            return false;
+        }
+
+        if (isUpgradeRequired(aCas, aTargetTypeSystem.description)) {
+            return true;
+        }
+
+        aTargetTypeSystem.compatibleTypeSystems.put(ts, TRUE);
+        return false;
+    }
+
     /**
      * Check if the current CAS already contains the required type system.
      */
@@ -1574,4 +1715,34 @@ public class AnnotationSchemaServiceImpl
             return false;
         }
     }
+
+    /**
+     * The full type system of a project at a given version together with the committed type
+     * system and a serialized empty CAS using this type system. Upgrading a CAS re-initializes it
+     * from the empty CAS template which avoids creating a new CAS for every upgrade.
+     */
+    private static class ProjectTypeSystem
+    {
+        private final long version;
+        private final TypeSystemDescription description;
+        private final TypeSystem typeSystem;
+        private final CASCompleteSerializer emptyCasTemplate;
+        private final Cache<TypeSystem, Boolean> compatibleTypeSystems;
+
+        public ProjectTypeSystem(long aVersion, TypeSystemDescription aDescription)
+            throws ResourceInitializationException
+        {
+            version = aVersion;
+            description = aDescription;
+
+            CAS emptyCas = CasFactory.createCas(aDescription);
+            typeSystem = emptyCas.getTypeSystem();
+            emptyCasTemplate = serializeCASComplete((CASImpl) getRealCas(emptyCas));
+
+            // Weak keys are compared by identity which is what we want here
+            compatibleTypeSystems = Caffeine.newBuilder() //
+                    .weakKeys() //
+                    .build();
+        }
+    }
 }
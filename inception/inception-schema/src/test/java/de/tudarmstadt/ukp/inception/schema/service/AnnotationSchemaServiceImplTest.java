@@ -17,21 +17,199 @@
  */
 package de.tudarmstadt.ukp.inception.schema.service;
 
+import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode.EXCLUSIVE_WRITE_ACCESS;
+import static de.tudarmstadt.ukp.clarin.webanno.support.logging.Logging.KEY_REPOSITORY_PATH;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.apache.uima.cas.CAS.TYPE_NAME_ANNOTATION;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.EntityManager;
 
 import org.apache.uima.UIMAFramework;
+import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.FeatureStructure;
 import org.apache.uima.cas.impl.CASImpl;
+import org.apache.uima.fit.factory.CasFactory;
 import org.apache.uima.jcas.tcas.Annotation;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.resource.metadata.impl.TypeSystemDescription_impl;
 import org.apache.uima.util.AutoCloseableNoException;
 import org.apache.uima.util.CasCreationUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.event.LayerConfigurationChangedEvent;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.inception.annotation.storage.CasStorageSession;
 
 class AnnotationSchemaServiceImplTest
 {
+    private static final String CUSTOM_TYPE = "custom.Span";
+
+    private AnnotationSchemaServiceImpl sut;
+    private CasStorageSession casStorageSession;
+    private Project project;
+    private AnnotationLayer layer;
+    private AnnotationFeature feature;
+    private List<String> customTypes;
+    private AtomicInteger typeSystemBuilds;
+
+    @BeforeEach
+    void setup()
+    {
+        MDC.put(KEY_REPOSITORY_PATH, "/repository");
+        casStorageSession = CasStorageSession.open();
+
+        project = new Project("project");
+        project.setId(1l);
+
+        layer = new AnnotationLayer();
+        layer.setName(CUSTOM_TYPE);
+        layer.setProject(project);
+
+        feature = new AnnotationFeature("value", CAS.TYPE_NAME_STRING);
+        feature.setLayer(layer);
+        feature.setProject(project);
+
+        customTypes = new ArrayList<>();
+        typeSystemBuilds = new AtomicInteger();
+
+        // The project-specific types are usually generated from the layers in the database - here
+        // they are simply taken from a list
+        sut = spy(new AnnotationSchemaServiceImpl(null, null, null, null,
+                mock(EntityManager.class)));
+        doAnswer(call -> {
+            typeSystemBuilds.incrementAndGet();
+            TypeSystemDescription tsd = new TypeSystemDescription_impl();
+            customTypes.forEach(type -> tsd.addType(type, "", TYPE_NAME_ANNOTATION));
+            return tsd;
+        }).when(sut).getCustomProjectTypes(project);
+        doReturn(emptyList()).when(sut).listAnnotationFeature(layer);
+        doReturn(emptyList()).when(sut).listAttachingFeatures(layer);
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        casStorageSession.close();
+        MDC.remove(KEY_REPOSITORY_PATH);
+    }
+
+    @Test
+    void thatRepeatedCallsUseTheCachedTypeSystem() throws Exception
+    {
+        sut.getFullProjectTypeSystem(project);
+        sut.getFullProjectTypeSystem(project);
+        sut.upgradeCasIfRequired(asList(newCas()), project);
+
+        assertThat(typeSystemBuilds).hasValue(1);
+    }
+
+    @Test
+    void thatSchemaChangesInvalidateTheCachedTypeSystem() throws Exception
+    {
+        Map<String, Runnable> changes = new LinkedHashMap<>();
+        changes.put("create layer", () -> sut.createOrUpdateLayer(layer));
+        changes.put("create feature", () -> sut.createFeature(feature));
+        changes.put("remove feature", () -> sut.removeFeature(feature));
+        changes.put("remove layer", () -> sut.removeLayer(layer));
+        changes.put("layer configuration changed", () -> sut
+                .onLayerConfigurationChanged(new LayerConfigurationChangedEvent(this, project)));
+
+        sut.getFullProjectTypeSystem(project);
+
+        int expectedBuilds = 1;
+        for (var change : changes.entrySet()) {
+            change.getValue().run();
+            sut.getFullProjectTypeSystem(project);
+            sut.getFullProjectTypeSystem(project);
+
+            expectedBuilds++;
+            assertThat(typeSystemBuilds) //
+                    .as("Type system is rebuilt once after [%s]", change.getKey()) //
+                    .hasValue(expectedBuilds);
+        }
+    }
+
+    @Test
+    void thatCallersCanModifyTheTypeSystemWithoutAffectingTheCache() throws Exception
+    {
+        TypeSystemDescription tsd = sut.getFullProjectTypeSystem(project);
+        tsd.addType("modified.Type", "", TYPE_NAME_ANNOTATION);
+
+        assertThat(sut.getFullProjectTypeSystem(project).getType("modified.Type")).isNull();
+        assertThat(typeSystemBuilds).hasValue(1);
+    }
+
+    @Test
+    void thatUpgradedCasesDoNotShareStateWithTheEmptyCasTemplate() throws Exception
+    {
+        customTypes.add(CUSTOM_TYPE);
+
+        CAS cas1 = newCas(CasCreationUtils.createCas());
+        sut.upgradeCas(cas1, project);
+        cas1.setDocumentText("First CAS");
+        cas1.addFsToIndexes(cas1.createAnnotation(cas1.getTypeSystem().getType(CUSTOM_TYPE), 0,
+                5));
+
+        CAS cas2 = newCas(CasCreationUtils.createCas());
+        sut.upgradeCas(cas2, project);
+
+        assertThat(cas2.getDocumentText()).isNull();
+        assertThat(cas2.getAnnotationIndex(cas2.getTypeSystem().getType(CUSTOM_TYPE))).isEmpty();
+        assertThat(cas1.getAnnotationIndex(cas1.getTypeSystem().getType(CUSTOM_TYPE))).hasSize(1);
+        assertThat(typeSystemBuilds).hasValue(1);
+    }
+
+    @Test
+    void thatUpgradeIsOnlyRequiredAfterSchemaChange() throws Exception
+    {
+        CAS cas = newCas();
+
+        assertThat(sut.upgradeCasIfRequired(asList(cas), project)) //
+                .as("CAS already uses the project type system") //
+                .isFalse();
+
+        customTypes.add(CUSTOM_TYPE);
+        sut.onLayerConfigurationChanged(new LayerConfigurationChangedEvent(this, project));
+        assertThat(sut.upgradeCasIfRequired(asList(cas), project)) //
+                .as("CAS lacks the type added by the schema change") //
+                .isTrue();
+        assertThat(cas.getTypeSystem().getType(CUSTOM_TYPE)).isNotNull();
+
+        assertThat(sut.upgradeCasIfRequired(asList(cas), project)) //
+                .as("CAS has already been upgraded") //
+                .isFalse();
+    }
+
+    private CAS newCas() throws Exception
+    {
+        return newCas(CasFactory.createCas(sut.getFullProjectTypeSystem(project)));
+    }
+
+    private CAS newCas(CAS aCas)
+    {
+        casStorageSession.add("cas" + aCas.hashCode(), EXCLUSIVE_WRITE_ACCESS, aCas);
+        return aCas;
+    }
+
     @Test
     void testCasUpgradePerformsGarbageCollection() throws Exception
     {
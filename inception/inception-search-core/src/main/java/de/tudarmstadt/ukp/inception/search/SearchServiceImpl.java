@@ -19,35 +19,53 @@ package de.tudarmstadt.ukp.inception.search;
 
 import static de.tudarmstadt.ukp.clarin.webanno.api.CasUpgradeMode.NO_CAS_UPGRADE;
 import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode.UNMANAGED_ACCESS;
-import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode.UNMANAGED_NON_INITIALIZING_ACCESS;
+import static de.tudarmstadt.ukp.clarin.webanno.support.WebAnnoConst.CHAIN_TYPE;
 import static de.tudarmstadt.ukp.inception.search.SearchCasUtils.casToByteArray;
 import static de.tudarmstadt.ukp.inception.search.model.AnnotationSearchState.KEY_SEARCH_STATE;
 import static java.lang.System.currentTimeMillis;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Comparator.comparing;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toUnmodifiableSet;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.commons.lang3.function.FailableBiConsumer;
+import org.apache.commons.lang3.function.FailableConsumer;
+import org.apache.commons.lang3.function.FailableFunction;
+import org.apache.commons.lang3.function.FailableRunnable;
+import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
@@ -68,6 +86,10 @@ import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
 import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+import de.tudarmstadt.ukp.clarin.webanno.support.logging.MDCContext;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.inception.annotation.layer.chain.ChainAdapter;
 import de.tudarmstadt.ukp.inception.annotation.storage.CasStorageSession;
 import de.tudarmstadt.ukp.inception.preferences.PreferencesService;
 import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
@@ -82,6 +104,7 @@ import de.tudarmstadt.ukp.inception.search.model.BulkIndexingContext;
 import de.tudarmstadt.ukp.inception.search.model.Index;
 import de.tudarmstadt.ukp.inception.search.model.Monitor;
 import de.tudarmstadt.ukp.inception.search.model.Progress;
+import de.tudarmstadt.ukp.inception.search.model.ReindexCheckpoint;
 import de.tudarmstadt.ukp.inception.search.scheduling.tasks.IndexAnnotationDocumentTask;
 import de.tudarmstadt.ukp.inception.search.scheduling.tasks.IndexSourceDocumentTask;
 import de.tudarmstadt.ukp.inception.search.scheduling.tasks.IndexingTask_ImplBase;
@@ -108,8 +131,15 @@ public class SearchServiceImpl
     private final SchedulingService schedulingService;
     private final SearchServiceProperties properties;
     private final ScheduledExecutorService indexClosingScheduler;
+    private final ExecutorService reindexExecutor;
     private final PreferencesService preferencesService;
 
+    /**
+     * Number of documents after which the re-indexing checkpoint is updated and the index
+     * committed.
+     */
+    private static final int REINDEX_BATCH_SIZE = 50;
+
     // In fact - the only factory we have at the moment...
     private final String DEFAULT_PHSYICAL_INDEX_FACTORY = "mtasDocumentIndexFactory";
 
@@ -133,6 +163,12 @@ public class SearchServiceImpl
 
         indexClosingScheduler = new ScheduledThreadPoolExecutor(0);
         indexClosingScheduler.scheduleWithFixedDelay(this::closeIdleIndexes, 10, 10, SECONDS);
+
+        reindexExecutor = Executors.newFixedThreadPool(
+                Math.max(1, properties.getReindexThreads()), new BasicThreadFactory.Builder() //
+                        .daemon(true) //
+                        .namingPattern("search-reindex-%d") //
+                        .build());
     }
 
     private void closeIdleIndexes()
@@ -179,6 +215,8 @@ public class SearchServiceImpl
             }
         }
 
+        reindexExecutor.shutdownNow();
+
         while (!indexes.isEmpty()) {
             synchronized (indexes) {
                 List<PooledIndex> pooledIndexesSnapshot = new ArrayList<>(indexes.values());
@@ -610,6 +648,12 @@ public class SearchServiceImpl
 
     /**
      * Re-index the project. If there is no physical index, create a new one.
+     * <p>
+     * The CASes are loaded and indexed by a pool of worker threads while the calling thread tracks
+     * the progress in the order of the document IDs. After every batch of documents, a checkpoint
+     * is recorded in the index. If a re-indexing run is interrupted (e.g. by a shutdown), the next run continues from
+     * the checkpoint instead of clearing the index - unless the layer configuration or the set of
+     * annotators have changed in the meantime.
      */
     @Override
     @Transactional
@@ -627,77 +671,127 @@ public class SearchServiceImpl
             Index index = pooledIndex.get();
             index.setInvalid(true);
 
-            // Clear the index
-            try {
-                index.getPhysicalIndex().clear();
-            }
-            catch (IndexRebuildRequiredException e) {
-                // We can ignore this since we are rebuilding the index already anyway
-            }
+            PhysicalIndex physicalIndex = index.getPhysicalIndex();
 
             Set<String> usersWithPermissions = projectService
                     .listProjectUsersWithPermissions(aProject).stream() //
                     .map(User::getUsername) //
                     .collect(toUnmodifiableSet());
+            // The documents are indexed in the order of their IDs so that the checkpoint only
+            // needs to remember the last document of each kind that has been indexed
             List<AnnotationDocument> annotationDocuments = documentService
                     .listAnnotationDocuments(aProject).stream()
                     .filter(annDoc -> usersWithPermissions.contains(annDoc.getUser())) //
+                    .sorted(comparing(AnnotationDocument::getId)) //
+                    .collect(toList());
+            List<SourceDocument> sourceDocuments = documentService.listSourceDocuments(aProject)
+                    .stream() //
+                    .sorted(comparing(SourceDocument::getId)) //
                     .collect(toList());
-            List<SourceDocument> sourceDocuments = documentService.listSourceDocuments(aProject);
-
-            monitor.setTodo(annotationDocuments.size() + sourceDocuments.size());
 
             // We do not need write access and do not want to add to the exclusive access CAS cache,
             // so we would normally use SHARED_READ_ONLY_ACCESS. However, that mode can only be used
             // with AUTO_CAS_UPGRADE which makes things slow. We want NO_CAS_UPGRADE.
-            // So we use UNMANAGED_NON_INITIALIZING_ACCESS for the annotation CASes to avoid
-            // initializing CASes for users who have not started working on a document but for which
-            // an AnnotationDocument item exists (e.g. locked documents).
+            // So we read partial CASes for the annotation CASes which are unmanaged, never
+            // initialize CASes for users who have not started working on a document but for which
+            // an AnnotationDocument item exists (e.g. locked documents), and which only contain the
+            // layers that are actually indexed.
             // For INITIAL_CASes, we use UNMANAGED_ACCESS since the INITIAL_CAS should always
             // exist.
-            final var accessModeAnnotationCas = UNMANAGED_NON_INITIALIZING_ACCESS;
             final var accessModeInitialCas = UNMANAGED_ACCESS;
             final var casUpgradeMode = NO_CAS_UPGRADE;
 
             var prefs = preferencesService.loadDefaultTraitsForProject(KEY_SEARCH_STATE, aProject);
             try (var indexContext = BulkIndexingContext.init(aProject, schemaService, true,
                     prefs)) {
-                // Index all the source documents
-                for (SourceDocument doc : sourceDocuments) {
-                    if (isPerformNoMoreActions(pooledIndex)) {
-                        return;
+                var indexedTypes = getIndexedTypes(indexContext);
+                var fingerprint = getReindexFingerprint(indexContext, usersWithPermissions);
+
+                var resumableCheckpoint = getReindexCheckpoint(physicalIndex)
+                        .filter(cp -> fingerprint.equals(cp.getFingerprint()));
+                boolean resume = resumableCheckpoint.isPresent();
+                var checkpoint = new AtomicReference<ReindexCheckpoint>();
+                if (resume) {
+                    checkpoint.set(resumableCheckpoint.get());
+                    log.info("Resuming re-indexing of project {} after source document {} and "
+                            + "annotation document {}", aProject,
+                            checkpoint.get().getLastSourceDocumentId(),
+                            checkpoint.get().getLastAnnotationDocumentId());
+                }
+                else {
+                    // Clear the index
+                    try {
+                        physicalIndex.clear();
                     }
-
-                    try (CasStorageSession session = CasStorageSession.openNested()) {
-                        byte[] casAsByteArray = casToByteArray(documentService
-                                .createOrReadInitialCas(doc, casUpgradeMode, accessModeInitialCas));
-                        indexDocument(pooledIndex, doc, casAsByteArray);
+                    catch (IndexRebuildRequiredException e) {
+                        // We can ignore this since we are rebuilding the index already anyway
                     }
 
-                    monitor.incDone();
+                    checkpoint.set(new ReindexCheckpoint(fingerprint, -1, -1));
+                    physicalIndex.setReindexCheckpoint(checkpoint.get());
                 }
 
-                // Index all the annotation documents
-                for (AnnotationDocument doc : annotationDocuments) {
-                    if (isPerformNoMoreActions(pooledIndex)) {
-                        return;
-                    }
+                var lastSourceDocumentId = checkpoint.get().getLastSourceDocumentId();
+                var pendingSourceDocuments = sourceDocuments.stream() //
+                        .filter(doc -> doc.getId() > lastSourceDocumentId) //
+                        .collect(toList());
+                var lastAnnotationDocumentId = checkpoint.get().getLastAnnotationDocumentId();
+                var pendingAnnotationDocuments = annotationDocuments.stream() //
+                        .filter(doc -> doc.getId() > lastAnnotationDocumentId) //
+                        .collect(toList());
+
+                monitor.set(
+                        sourceDocuments.size() - pendingSourceDocuments.size()
+                                + annotationDocuments.size() - pendingAnnotationDocuments.size(),
+                        annotationDocuments.size() + sourceDocuments.size());
+
+                // The checkpoint is stored once per batch of documents - storing it schedules a
+                // commit of the index and only then the indexed documents become durable
+                FailableRunnable<IOException> commitBatch = () -> physicalIndex
+                        .setReindexCheckpoint(checkpoint.get());
 
-                    try (CasStorageSession session = CasStorageSession.openNested()) {
-                        byte[] casAsByteArray = casToByteArray(
-                                documentService.readAnnotationCas(doc.getDocument(), doc.getUser(),
-                                        casUpgradeMode, accessModeAnnotationCas));
-                        indexDocument(pooledIndex, doc, "reindex", casAsByteArray);
-                    }
-                    catch (FileNotFoundException e) {
-                        // Ignore it if a annotation CAS does not exist yet
-                    }
+                // Index all the source documents
+                boolean completed = loadAndIndex(pooledIndex, monitor, pendingSourceDocuments, //
+                        doc -> casToByteArray(documentService.createOrReadInitialCas(doc,
+                                casUpgradeMode, accessModeInitialCas)), //
+                        (doc, casAsByteArray) -> {
+                            if (resume) {
+                                // The document may have been indexed after the checkpoint was
+                                // recorded - during a full re-index the source document index
+                                // does not remove old versions by itself
+                                physicalIndex.deindexDocument(doc);
+                            }
+                            physicalIndex.indexDocument(doc, casAsByteArray);
+                        }, //
+                        doc -> {
+                            checkpoint.set(checkpoint.get().withLastSourceDocumentId(doc.getId()));
+                            monitor.incDone();
+                        }, //
+                        commitBatch);
+
+                if (!completed) {
+                    return;
+                }
 
-                    monitor.incDone();
+                // Index all the annotation documents
+                completed = loadAndIndex(pooledIndex, monitor, pendingAnnotationDocuments, //
+                        doc -> casToByteArray(documentService.readPartialAnnotationCas(
+                                doc.getDocument(), doc.getUser(), indexedTypes)), //
+                        physicalIndex::indexDocument, //
+                        doc -> {
+                            checkpoint.set(
+                                    checkpoint.get().withLastAnnotationDocumentId(doc.getId()));
+                            monitor.incDone();
+                        }, //
+                        commitBatch);
+
+                if (!completed) {
+                    return;
                 }
             }
 
-            // After re-indexing, reset the invalid flag
+            // After re-indexing, drop the checkpoint and reset the invalid flag
+            physicalIndex.clearReindexCheckpoint();
             index.setInvalid(false);
             entityManager.merge(index);
         }
@@ -705,6 +799,205 @@ public class SearchServiceImpl
         log.info("Re-indexing project {} complete!", aProject);
     }
 
+    /**
+     * Loads the CASes for the given documents and adds them to the index on the re-indexing
+     * executor. The MTAS token collections are built while a document is added to the index writer,
+     * so the parsing is spread over the executor as well. The calling thread waits for the
+     * documents in the order of the given list and passes them to the completion callback, so the
+     * checkpoint only ever covers documents which have actually been indexed. Every
+     * {@link #REINDEX_BATCH_SIZE} documents and when stopping, the batch is committed. Only a
+     * bounded number of documents is in flight to limit the memory consumption. If the CAS of a
+     * document does not exist, the document is completed without being indexed.
+     * 
+     * @return {@code false} if the re-indexing was aborted before all documents were indexed.
+     */
+    private <T> boolean loadAndIndex(PooledIndex aPooledIndex, Monitor aMonitor,
+            List<T> aDocuments, FailableFunction<T, byte[], IOException> aLoader,
+            FailableBiConsumer<T, byte[], IOException> aIndexer,
+            FailableConsumer<T, IOException> aCompleted,
+            FailableRunnable<IOException> aCommitBatch)
+        throws IOException
+    {
+        var maxInFlight = Math.max(1, properties.getReindexThreads()) * 2;
+        var pending = new ArrayDeque<Pair<T, Future<?>>>();
+        var documentIterator = aDocuments.iterator();
+        var aborted = new AtomicBoolean(false);
+        // The CAS storage relies on the logging context, e.g. to locate the repository and the
+        // MTAS parser picks up the indexed layers and features from the bulk indexing context
+        var loggingContext = MDC.getCopyOfContextMap();
+        var indexingContext = BulkIndexingContext.get().orElse(null);
+
+        boolean completed = true;
+        int uncommitted = 0;
+        try {
+            while (documentIterator.hasNext() || !pending.isEmpty()) {
+                while (documentIterator.hasNext() && pending.size() < maxInFlight) {
+                    var doc = documentIterator.next();
+                    pending.add(Pair.of(doc, reindexExecutor.submit(() -> {
+                        if (aborted.get()) {
+                            return null;
+                        }
+
+                        try (var ctx = MDCContext.open()) {
+                            if (loggingContext != null) {
+                                MDC.setContextMap(loggingContext);
+                            }
+                            BulkIndexingContext.set(indexingContext);
+
+                            loadAndIndexDocument(doc, aLoader, aIndexer);
+                            return null;
+                        }
+                        finally {
+                            BulkIndexingContext.clear();
+                        }
+                    })));
+                }
+
+                if (isPerformNoMoreActions(aPooledIndex) || aMonitor.isCancelled()) {
+                    completed = false;
+                    break;
+                }
+
+                var next = pending.poll();
+                try {
+                    next.getValue().get();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    completed = false;
+                    break;
+                }
+                catch (java.util.concurrent.ExecutionException e) {
+                    if (e.getCause() instanceof IndexRebuildRequiredException) {
+                        var index = aPooledIndex.get();
+                        invalidateIndexAndForceIndexRebuild(index.getProject(), index,
+                                "reindex[error]");
+                        return false;
+                    }
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new IOException(e.getCause());
+                }
+
+                aCompleted.accept(next.getKey());
+                uncommitted++;
+
+                if (uncommitted >= REINDEX_BATCH_SIZE) {
+                    aCommitBatch.run();
+                    uncommitted = 0;
+                }
+            }
+
+            // Also when stopping early, record the progress so the next run can continue from here
+            if (uncommitted > 0) {
+                aCommitBatch.run();
+            }
+
+            return completed;
+        }
+        finally {
+            // Documents that have not been started yet are skipped, but we wait for those that are
+            // currently being indexed so that nothing is written to the index after we return
+            aborted.set(true);
+            for (var p : pending) {
+                try {
+                    p.getValue().get();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                catch (Exception e) {
+                    // Already reported by the worker or irrelevant since we are bailing out
+                }
+            }
+        }
+    }
+
+    private <T> void loadAndIndexDocument(T aDocument,
+            FailableFunction<T, byte[], IOException> aLoader,
+            FailableBiConsumer<T, byte[], IOException> aIndexer)
+        throws IOException
+    {
+        byte[] casAsByteArray;
+        try (CasStorageSession session = CasStorageSession.openNested()) {
+            casAsByteArray = aLoader.apply(aDocument);
+        }
+        catch (FileNotFoundException e) {
+            // A missing CAS - nothing to index then
+            return;
+        }
+
+        try {
+            aIndexer.accept(aDocument, casAsByteArray);
+        }
+        catch (IndexRebuildRequiredException e) {
+            throw e;
+        }
+        catch (IOException e) {
+            log.error("Error indexing {} in project {}", aDocument,
+                    BulkIndexingContext.get().map(BulkIndexingContext::getProject).orElse(null),
+                    e);
+        }
+    }
+
+    private Optional<ReindexCheckpoint> getReindexCheckpoint(PhysicalIndex aPhysicalIndex)
+    {
+        try {
+            return aPhysicalIndex.getReindexCheckpoint();
+        }
+        catch (IOException e) {
+            // If the checkpoint cannot be read, we simply rebuild the index from scratch
+            log.debug("Unable to read re-indexing checkpoint", e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Calculates a fingerprint over everything that determines the contents of the index apart from
+     * the documents themselves. A checkpoint is only used if its fingerprint matches.
+     */
+    private String getReindexFingerprint(BulkIndexingContext aIndexContext, Set<String> aUsers)
+    {
+        var sb = new StringBuilder();
+        aIndexContext.getLayers().stream() //
+                .sorted(comparing(AnnotationLayer::getId)) //
+                .forEach(layer -> sb.append("L|").append(layer.getId()).append('|')
+                        .append(layer.getName()).append('|').append(layer.getType())
+                        .append('\n'));
+        aIndexContext.getFeatures().stream() //
+                .sorted(comparing(AnnotationFeature::getId)) //
+                .forEach(feature -> sb.append("F|").append(feature.getId()).append('|')
+                        .append(feature.getName()).append('|').append(feature.getType())
+                        .append('|').append(feature.getTraits()).append('\n'));
+        aUsers.stream().sorted().forEach(user -> sb.append("U|").append(user).append('\n'));
+        sb.append("C|").append(aIndexContext.getIndexingSettings().isCaseSensitive());
+
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(sb.toString().getBytes(UTF_8)));
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Set<String> getIndexedTypes(BulkIndexingContext aIndexContext)
+    {
+        var types = new HashSet<String>();
+        types.add(Token.class.getName());
+        types.add(Sentence.class.getName());
+        for (var layer : aIndexContext.getLayers()) {
+            types.add(layer.getName());
+            if (CHAIN_TYPE.equals(layer.getType())) {
+                types.add(layer.getName() + ChainAdapter.CHAIN);
+                types.add(layer.getName() + ChainAdapter.LINK);
+            }
+        }
+        return types;
+    }
+
     /**
      * For testing only...
      */
@@ -27,4 +27,9 @@ public interface SearchServiceProperties
      * @return time to keep an index open after it has last been used.
      */
     Duration getIndexKeepOpenTime();
+
+    /**
+     * @return number of threads loading and indexing documents in parallel while re-indexing a project.
+     */
+    int getReindexThreads();
 }
@@ -30,6 +30,7 @@ import de.tudarmstadt.ukp.inception.search.SearchQueryRequest;
 import de.tudarmstadt.ukp.inception.search.SearchResult;
 import de.tudarmstadt.ukp.inception.search.StatisticRequest;
 import de.tudarmstadt.ukp.inception.search.StatisticsResult;
+import de.tudarmstadt.ukp.inception.search.model.ReindexCheckpoint;
 
 public interface PhysicalIndex
 {
@@ -94,4 +95,40 @@ public interface PhysicalIndex
     public Optional<String> getTimestamp(long aSrcDocId, long aAnnoDocId) throws IOException;
 
     void indexDocument(SourceDocument aSourceDocument, byte[] aBinaryCas) throws IOException;
+
+    /**
+     * @return the checkpoint of an interrupted re-indexing run, if the index has recorded one.
+     * @throws IOException
+     *             if there was an I/O-level problem
+     */
+    default Optional<ReindexCheckpoint> getReindexCheckpoint() throws IOException
+    {
+        return Optional.empty();
+    }
+
+    /**
+     * Records the progress of a re-indexing run. The checkpoint should become durable together with
+     * the documents that have been indexed up to that point, so that a run which is interrupted can
+     * be resumed without clearing the index. Indexes that cannot store a checkpoint ignore it.
+     * 
+     * @param aCheckpoint
+     *            the checkpoint
+     * @throws IOException
+     *             if there was an I/O-level problem
+     */
+    default void setReindexCheckpoint(ReindexCheckpoint aCheckpoint) throws IOException
+    {
+        // Not supported by default
+    }
+
+    /**
+     * Removes the re-indexing checkpoint, e.g. after a re-indexing run completed.
+     * 
+     * @throws IOException
+     *             if there was an I/O-level problem
+     */
+    default void clearReindexCheckpoint() throws IOException
+    {
+        // Not supported by default
+    }
 }
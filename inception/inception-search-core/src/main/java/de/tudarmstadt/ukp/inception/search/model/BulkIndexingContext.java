@@ -92,6 +92,19 @@ public class BulkIndexingContext
         return indexingContext;
     }
 
+    /**
+     * Makes the given context available to the current thread, e.g. to a worker thread which indexes
+     * documents on behalf of the thread that initialized the context. The caller must
+     * {@link #clear()} the context when the work is done.
+     * 
+     * @param aContext
+     *            the context. May be {@code null}.
+     */
+    public static void set(BulkIndexingContext aContext)
+    {
+        INSTANCE.set(aContext);
+    }
+
     public static Optional<BulkIndexingContext> get()
     {
         return Optional.ofNullable(INSTANCE.get());
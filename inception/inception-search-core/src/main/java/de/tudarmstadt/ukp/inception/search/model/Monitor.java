@@ -28,6 +28,7 @@ public class Monitor
     private long lastDuration;
     private int done;
     private int todo;
+    private volatile boolean cancelled;
 
     public Monitor()
     {
@@ -85,6 +86,19 @@ public class Monitor
         return done >= todo;
     }
 
+    /**
+     * Requests the monitored process to stop at the next opportunity.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
     @Override
     public String toString()
     {
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.search.model;
+
+/**
+ * Records how far a full re-indexing run has progressed. Source documents and annotation documents
+ * are indexed in the order of their IDs, so the highest ID of each kind that has been written to
+ * the index is sufficient to resume an interrupted run. The fingerprint identifies the layer
+ * configuration and set of annotators the run was started with - if it no longer matches, the
+ * checkpoint must not be used.
+ */
+public class ReindexCheckpoint
+{
+    private final String fingerprint;
+    private final long lastSourceDocumentId;
+    private final long lastAnnotationDocumentId;
+
+    public ReindexCheckpoint(String aFingerprint, long aLastSourceDocumentId,
+            long aLastAnnotationDocumentId)
+    {
+        fingerprint = aFingerprint;
+        lastSourceDocumentId = aLastSourceDocumentId;
+        lastAnnotationDocumentId = aLastAnnotationDocumentId;
+    }
+
+    public String getFingerprint()
+    {
+        return fingerprint;
+    }
+
+    public long getLastSourceDocumentId()
+    {
+        return lastSourceDocumentId;
+    }
+
+    public long getLastAnnotationDocumentId()
+    {
+        return lastAnnotationDocumentId;
+    }
+
+    public ReindexCheckpoint withLastSourceDocumentId(long aId)
+    {
+        return new ReindexCheckpoint(fingerprint, aId, lastAnnotationDocumentId);
+    }
+
+    public ReindexCheckpoint withLastAnnotationDocumentId(long aId)
+    {
+        return new ReindexCheckpoint(fingerprint, lastSourceDocumentId, aId);
+    }
+}
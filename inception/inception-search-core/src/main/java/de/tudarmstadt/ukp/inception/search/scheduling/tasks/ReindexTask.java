@@ -34,6 +34,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.inception.scheduling.MatchResult;
 import de.tudarmstadt.ukp.inception.scheduling.Task;
+import de.tudarmstadt.ukp.inception.scheduling.TaskPriority;
 import de.tudarmstadt.ukp.inception.search.SearchService;
 import de.tudarmstadt.ukp.inception.search.model.Monitor;
 import de.tudarmstadt.ukp.inception.search.model.Progress;
@@ -67,6 +68,20 @@ public class ReindexTask
         }
     }
 
+    @Override
+    public TaskPriority getPriority()
+    {
+        return TaskPriority.MAINTENANCE;
+    }
+
+    @Override
+    public void cancel()
+    {
+        super.cancel();
+        // An interrupted re-indexing run can be resumed from its checkpoint later
+        monitor.cancel();
+    }
+
     @Override
     public Progress getProgress()
     {
@@ -31,6 +31,7 @@ import static de.tudarmstadt.ukp.inception.search.index.mtas.MtasUimaParser.PARA
 import static de.tudarmstadt.ukp.inception.search.index.mtas.MtasUimaParser.getIndexedName;
 import static de.tudarmstadt.ukp.inception.search.index.mtas.MtasUtils.decodeFSAddress;
 import static java.util.Comparator.comparingLong;
+import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.stream.Collectors.toList;
 import static mtas.analysis.util.MtasTokenizerFactory.ARGUMENT_PARSER;
@@ -74,13 +75,18 @@ import org.apache.lucene.codecs.Codec;
 import org.apache.lucene.document.DateTools;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.search.BooleanClause;
@@ -94,9 +100,12 @@ import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.spans.SpanWeight;
 import org.apache.lucene.search.spans.Spans;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.openjson.JSONObject;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
@@ -120,6 +129,11 @@ import de.tudarmstadt.ukp.inception.search.index.IndexRebuildRequiredException;
 import de.tudarmstadt.ukp.inception.search.index.PhysicalIndex;
 import de.tudarmstadt.ukp.inception.search.model.AnnotationSearchState;
 import de.tudarmstadt.ukp.inception.search.model.BulkIndexingContext;
+import de.tudarmstadt.ukp.inception.search.model.ReindexCheckpoint;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
@@ -174,6 +188,16 @@ public class MtasDocumentIndex
     /** The Constant FIELD_TIMESTAMP. */
     private static final String FIELD_TIMESTAMP = "timestamp";
 
+    /**
+     * Keys under which the re-indexing checkpoint is stored in the Lucene commit user data. This
+     * ensures that the checkpoint only becomes durable together with the documents it covers.
+     */
+    private static final String COMMIT_DATA_REINDEX_FINGERPRINT = "reindex.fingerprint";
+    private static final String COMMIT_DATA_REINDEX_LAST_SOURCE_DOCUMENT_ID = //
+            "reindex.lastSourceDocumentId";
+    private static final String COMMIT_DATA_REINDEX_LAST_ANNOTATION_DOCUMENT_ID = //
+            "reindex.lastAnnotationDocumentId";
+
     // Default prefix for CQL queries
     private static final String DEFAULT_PREFIX = "Token";
 
@@ -181,6 +205,18 @@ public class MtasDocumentIndex
 
     private static final String EMPTY_FEATURE_VALUE_KEY = "<Empty>";
 
+    /**
+     * Maximum number of query hits kept in the query hits cache of an index.
+     */
+    private static final int QUERY_HITS_CACHE_SIZE = 250_000;
+
+    /**
+     * Maximum number of hits of a single query kept in the query hits cache. For queries with more
+     * hits, only the first hits are cached. Requests for pages beyond those run the query again,
+     * but stop collecting once the requested page has been reached.
+     */
+    private static final int QUERY_HITS_CACHE_MAX_HITS_PER_QUERY = QUERY_HITS_CACHE_SIZE / 10;
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private final FeatureIndexingSupportRegistry featureIndexingSupportRegistry;
@@ -189,14 +225,23 @@ public class MtasDocumentIndex
     private final Project project;
     private final File repositoryDir;
     private final ScheduledExecutorService schedulerService;
+    private final Timer commitTimer;
+    private final Counter queryCounter;
+    private final Cache<QueryHitsKey, QueryHits> queryHitsCache;
 
     private IndexWriter _indexWriter;
     private ReferenceManager<IndexSearcher> _searcherManager;
     private ScheduledFuture<?> _commitFuture;
 
+    /**
+     * Whether to add doc values for the document metadata. Only disabled in tests in order to
+     * produce documents like they were indexed by earlier versions.
+     */
+    private boolean docValuesEnabled = true;
+
     public MtasDocumentIndex(Project aProject, DocumentService aDocumentService, String aDir,
             FeatureIndexingSupportRegistry aFeatureIndexingSupportRegistry,
-            FeatureSupportRegistry aFeatureSupportRegistry)
+            FeatureSupportRegistry aFeatureSupportRegistry, MeterRegistry aMeterRegistry)
     {
         documentService = aDocumentService;
         project = aProject;
@@ -205,6 +250,20 @@ public class MtasDocumentIndex
         repositoryDir = new File(aDir);
 
         schedulerService = new ScheduledThreadPoolExecutor(0);
+
+        commitTimer = Timer.builder("inception.search.index.commit") //
+                .description("Time taken to commit changes to the search index") //
+                .register(aMeterRegistry != null ? aMeterRegistry : Metrics.globalRegistry);
+
+        queryCounter = Counter.builder("inception.search.index.query") //
+                .description("Number of queries run on the search index (excluding cache hits)") //
+                .register(aMeterRegistry != null ? aMeterRegistry : Metrics.globalRegistry);
+
+        queryHitsCache = Caffeine.newBuilder() //
+                .expireAfterAccess(5, MINUTES) //
+                .maximumWeight(QUERY_HITS_CACHE_SIZE) //
+                .weigher((QueryHitsKey key, QueryHits value) -> value.hits.size()) //
+                .build();
     }
 
     private synchronized IndexWriter getIndexWriter() throws IOException
@@ -302,7 +361,7 @@ public class MtasDocumentIndex
 
         if (_indexWriter != null) {
             try {
-                _indexWriter.commit();
+                commitIndexWriter();
             }
             catch (IOException e) {
                 log.error("Error committing changes to index for project [{}]({})",
@@ -349,6 +408,7 @@ public class MtasDocumentIndex
         finally {
             _indexWriter = null;
             _searcherManager = null;
+            queryHitsCache.invalidateAll();
             log.debug("Closed index for project {}", project);
         }
     }
@@ -379,12 +439,29 @@ public class MtasDocumentIndex
         _commitFuture = schedulerService.schedule(this::commit, 3, SECONDS);
     }
 
+    private void commitIndexWriter() throws IOException
+    {
+        boolean changed = _indexWriter.hasUncommittedChanges();
+
+        Timer.Sample sample = Timer.start();
+        try {
+            _indexWriter.commit();
+        }
+        finally {
+            sample.stop(commitTimer);
+        }
+
+        if (changed) {
+            queryHitsCache.invalidateAll();
+        }
+    }
+
     private void commit()
     {
         try {
             log.debug("Executing future to index for project {}", project);
             if (_indexWriter != null && _indexWriter.isOpen()) {
-                _indexWriter.commit();
+                commitIndexWriter();
                 log.debug("Committed changes to index for project {}", project);
 
                 if (_searcherManager != null) {
@@ -490,19 +567,26 @@ public class MtasDocumentIndex
             searcher = getSearcherManager().acquire();
             IndexReader reader = searcher.getIndexReader();
 
-            for (int i = 0; i < reader.maxDoc(); i++) {
-                String sourceID = reader.document(i).get(FIELD_SOURCE_DOCUMENT_ID);
-                String annotationID = reader.document(i).get(FIELD_ANNOTATION_DOCUMENT_ID);
-                // a -1 indicates source document
-                if (Long.valueOf(annotationID) != -1L) {
-                    if (reader.document(i).get(FIELD_USER)
-                            .equals(aStatisticRequest.getUser().getUsername())) {
-                        fullDocSet.add(i);
+            for (LeafReaderContext leafReaderContext : reader.leaves()) {
+                DocumentMetadata metadata = new DocumentMetadata(leafReaderContext.reader());
+                for (int i = 0; i < leafReaderContext.reader().maxDoc(); i++) {
+                    if (!metadata.advance(i)) {
+                        continue;
+                    }
+
+                    int docId = leafReaderContext.docBase + i;
+                    // a -1 indicates source document
+                    if (metadata.getAnnotationDocumentId() != -1L) {
+                        if (metadata.getUser()
+                                .equals(aStatisticRequest.getUser().getUsername())) {
+                            fullDocSet.add(docId);
+                        }
+                    }
+                    // source document without annotation layer? then user is not relevant
+                    else if (!annotatableDocuments
+                            .containsKey(metadata.getSourceDocumentId())) {
+                        fullDocSet.add(docId);
                     }
-                }
-                // source document without annotation layer? then user is not relevant
-                else if (!annotatableDocuments.containsKey(Long.valueOf(sourceID))) {
-                    fullDocSet.add(i);
                 }
             }
         }
@@ -784,29 +868,21 @@ public class MtasDocumentIndex
             try {
                 Spans spans = spanweight.getSpans(leafReaderContext, SpanWeight.Postings.POSITIONS);
                 SegmentReader segmentReader = (SegmentReader) leafReaderContext.reader();
+                DocumentMetadata metadata = new DocumentMetadata(segmentReader);
                 if (spans != null) {
                     while (spans.nextDoc() != Spans.NO_MORE_DOCS) {
                         if (segmentReader.numDocs() == segmentReader.maxDoc()
                                 || segmentReader.getLiveDocs().get(spans.docID())) {
-                            Document document = segmentReader.document(spans.docID());
-
-                            // Retrieve user
-                            String user = document.get(FIELD_USER);
-
                             // Retrieve source and annotation document ids
-                            String rawSourceDocumentId = document.get(FIELD_SOURCE_DOCUMENT_ID);
-                            String rawAnnotationDocumentId = document
-                                    .get(FIELD_ANNOTATION_DOCUMENT_ID);
-                            if (rawSourceDocumentId == null || rawAnnotationDocumentId == null) {
-                                log.trace(
-                                        "Indexed document lacks source/annotation document IDs"
-                                                + " - source: {}, annotation: {}",
-                                        rawSourceDocumentId, rawAnnotationDocumentId);
+                            if (!metadata.advance(spans.docID())) {
+                                log.trace("Indexed document lacks source/annotation document IDs");
                                 continue;
-
                             }
-                            long sourceDocumentId = Long.valueOf(rawSourceDocumentId);
-                            long annotationDocumentId = Long.valueOf(rawAnnotationDocumentId);
+
+                            // Retrieve user
+                            String user = metadata.getUser();
+                            long sourceDocumentId = metadata.getSourceDocumentId();
+                            long annotationDocumentId = metadata.getAnnotationDocumentId();
 
                             // If the query is limited to a given document, skip any results
                             // which are not in the given document
@@ -886,6 +962,7 @@ public class MtasDocumentIndex
         for (LeafReaderContext leafReaderContext : aLeaves) {
             Spans spans = spanweight.getSpans(leafReaderContext, SpanWeight.Postings.POSITIONS);
             SegmentReader segmentReader = (SegmentReader) leafReaderContext.reader();
+            DocumentMetadata metadata = new DocumentMetadata(segmentReader);
             LongList idList = new LongArrayList();
             // no spans -> no docs
             if (spans != null) {
@@ -895,16 +972,12 @@ public class MtasDocumentIndex
                     // below
                     if (segmentReader.numDocs() == segmentReader.maxDoc()
                             || segmentReader.getLiveDocs().get(spans.docID())) {
-                        // get a document
-                        Document document = segmentReader.document(spans.docID());
-
-                        String rawSourceDocumentId = document.get(FIELD_SOURCE_DOCUMENT_ID);
                         // go to the next document if the docId is not set
-                        if (rawSourceDocumentId == null) {
+                        if (!metadata.advance(spans.docID())) {
                             continue;
                         }
                         // add id to the list of ids for this leafReaderContext
-                        idList.add(Long.parseLong(rawSourceDocumentId));
+                        idList.add(metadata.getSourceDocumentId());
                     }
                 }
             }
@@ -926,58 +999,235 @@ public class MtasDocumentIndex
     {
         Map<String, List<SearchResult>> results = new LinkedHashMap<>();
 
-        ListIterator<LeafReaderContext> leafReaderContextIterator = sortLeaves(
-                searcher.getIndexReader().leaves(), searcher, q).listIterator();
-
         Map<SourceDocument, AnnotationDocument> sourceAnnotationDocPairs = documentService
                 .listAnnotatableDocuments(aRequest.getProject(), aRequest.getUser());
         Map<Long, SourceDocument> sourceDocumentIndex = new HashMap<>();
         sourceAnnotationDocPairs.entrySet().stream()
                 .forEach(e -> sourceDocumentIndex.put(e.getKey().getId(), e.getKey()));
 
+        long offset = aRequest.getOffset();
+        long count = aRequest.getCount();
+
+        List<QueryHit> hits = getHits(searcher, aRequest, q, sourceAnnotationDocPairs,
+                sourceDocumentIndex, offset + count);
+
+        List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        Map<Integer, CodecInfo> codecInfos = new HashMap<>();
+
+        long end = Math.min(hits.size(), offset + count);
+
+        for (long i = offset; i < end; i++) {
+            QueryHit hit = hits.get((int) i);
+
+            try {
+                CodecInfo mtasCodecInfo = codecInfos.get(hit.leaf);
+                if (mtasCodecInfo == null) {
+                    Terms terms = leaves.get(hit.leaf).reader().terms(FIELD_CONTENT);
+                    mtasCodecInfo = CodecInfo.getCodecInfoFromTerms(terms);
+                    codecInfos.put(hit.leaf, mtasCodecInfo);
+                }
+
+                int matchStart = hit.matchStart;
+                int matchEnd = hit.matchEnd;
+
+                int windowStart = Math.max(matchStart - RESULT_WINDOW_SIZE, 0);
+                int windowEnd = matchEnd + RESULT_WINDOW_SIZE - 1;
+
+                // Retrieve all indexed objects within the matching range
+                List<MtasTokenString> tokens = mtasCodecInfo.getObjectsByPositions(FIELD_CONTENT,
+                        hit.doc, windowStart, windowEnd);
+
+                tokens.sort(Comparator.comparing(MtasTokenString::getOffsetStart));
+
+                if (tokens.isEmpty()) {
+                    continue;
+                }
+
+                AnnotationDocument annotationDocument = sourceAnnotationDocPairs
+                        .get(sourceDocumentIndex.get(hit.sourceDocumentId));
+
+                SearchResult result = new SearchResult();
+                StringBuilder resultText = new StringBuilder();
+                StringBuilder leftContext = new StringBuilder();
+                StringBuilder rightContext = new StringBuilder();
+                result.setDocumentId(hit.sourceDocumentId);
+                result.setDocumentTitle(hit.documentTitle);
+                result.setOffsetStart(tokens.stream()
+                        .filter(t -> t.getPositionStart() >= matchStart
+                                && t.getPositionEnd() < matchEnd)
+                        .mapToInt(MtasTokenString::getOffsetStart).min().getAsInt());
+                result.setOffsetEnd(tokens.stream()
+                        .filter(t -> t.getPositionStart() >= matchStart
+                                && t.getPositionEnd() < matchEnd)
+                        .mapToInt(MtasTokenString::getOffsetEnd).max().getAsInt());
+                result.setTokenStart(matchStart);
+                result.setTokenLength(matchEnd - matchStart);
+                result.setReadOnly(annotationDocument != null
+                        && FINISHED.equals(annotationDocument.getState()));
+                result.setSelectedForAnnotation(!result.isReadOnly());
+
+                MtasTokenString prevToken = null;
+                for (MtasTokenString token : tokens) {
+                    if (!token.getPrefix().equals(DEFAULT_PREFIX)) {
+                        continue;
+                    }
+
+                    // When searching for an annotation, we don't get the matching
+                    // text back... not sure why...
+                    String tokenText = CodecUtil.termValue(token.getValue());
+                    if (tokenText == null) {
+                        continue;
+                    }
+
+                    if (token.getPositionStart() < matchStart) {
+                        fill(leftContext, prevToken, token);
+                        leftContext.append(tokenText);
+                    }
+                    else if (token.getPositionStart() >= matchEnd) {
+                        fill(rightContext, prevToken, token);
+                        rightContext.append(tokenText);
+                    }
+                    else {
+                        // Only add the whitespace to the match if we already have
+                        // added any text to the match - otherwise consider the
+                        // whitespace to be part of the left context
+                        if (resultText.length() > 0) {
+                            fill(resultText, prevToken, token);
+                        }
+                        else {
+                            fill(leftContext, prevToken, token);
+                        }
+                        resultText.append(tokenText);
+                    }
+                    prevToken = token;
+                }
+                result.setText(resultText.toString());
+                result.setLeftContext(leftContext.toString());
+                result.setRightContext(rightContext.toString());
+
+                AnnotationLayer groupingLayer = aRequest.getAnnoationLayer();
+                AnnotationFeature groupingFeature = aRequest.getAnnotationFeature();
+
+                if (groupingLayer != null && groupingFeature != null) {
+                    List<String> featureValues = featureValuesAtMatch(tokens, matchStart,
+                            matchEnd, groupingLayer, groupingFeature);
+                    for (String featureValue : featureValues) {
+                        addToResults(results, featureValue, result);
+                    }
+                }
+                else {
+                    // if no annotation feature is specified group by document title
+                    addToResults(results, result.getDocumentTitle(), result);
+                }
+            }
+            catch (Exception e) {
+                log.error("Unable to process query results", e);
+            }
+        }
+
+        var sortedResults = new LinkedHashMap<String, List<SearchResult>>();
+        var sortedKeys = results.keySet().stream().sorted().collect(toList());
+        for (var key : sortedKeys) {
+            sortedResults.put(key, results.get(key));
+        }
+
+        return sortedResults;
+    }
+
+    /**
+     * Returns the hits of the query in the order in which they are presented to the user - at
+     * least the first {@code aLimit} hits, if there are that many. Only the positions of the hits
+     * are collected here - the text and the grouping values are only extracted for the hits which
+     * are actually requested. The hits are cached, so paging through the results or changing the
+     * grouping does not need to run the query again. For queries with very many hits, only the
+     * first {@link #QUERY_HITS_CACHE_MAX_HITS_PER_QUERY} hits are cached. The cache is cleared when
+     * changes to the index are committed and entries are only used as long as the searcher still
+     * uses the same index reader as when the entry was created.
+     */
+    private List<QueryHit> getHits(IndexSearcher searcher, SearchQueryRequest aRequest,
+            MtasSpanQuery q, Map<SourceDocument, AnnotationDocument> aSourceAnnotationDocPairs,
+            Map<Long, SourceDocument> aSourceDocumentIndex, long aLimit)
+        throws IOException
+    {
+        // Which documents are annotatable and which of them already have an annotation document
+        // determines which hits are filtered out, so it must be part of the key
+        Map<Long, Boolean> documentFilter = new HashMap<>();
+        aSourceAnnotationDocPairs.forEach(
+                (srcDoc, annDoc) -> documentFilter.put(srcDoc.getId(), annDoc != null));
+
+        QueryHitsKey key = new QueryHitsKey(
+                preprocessQuery(aRequest.getQuery(), aRequest.getSearchSettings()),
+                aRequest.getUser().getUsername(),
+                aRequest.getLimitedToDocument().map(SourceDocument::getId).orElse(null),
+                documentFilter);
+
+        IndexReader.CacheHelper readerCacheHelper = searcher.getIndexReader()
+                .getReaderCacheHelper();
+        if (readerCacheHelper == null) {
+            return collectHits(searcher, aRequest, q, aSourceAnnotationDocPairs,
+                    aSourceDocumentIndex, null, aLimit).hits;
+        }
+
+        IndexReader.CacheKey readerKey = readerCacheHelper.getKey();
+        QueryHits cachedHits = queryHitsCache.getIfPresent(key);
+        if (cachedHits != null && cachedHits.readerKey == readerKey
+                && (cachedHits.complete || cachedHits.hits.size() >= aLimit)) {
+            return cachedHits.hits;
+        }
+
+        // Collect at least as many hits as can be cached so that the following pages can be served
+        // from the cache, but do not collect more hits than necessary for the requested page
+        QueryHits hits = collectHits(searcher, aRequest, q, aSourceAnnotationDocPairs,
+                aSourceDocumentIndex, readerKey,
+                Math.max(aLimit, QUERY_HITS_CACHE_MAX_HITS_PER_QUERY));
+        if (hits.hits.size() <= QUERY_HITS_CACHE_MAX_HITS_PER_QUERY) {
+            queryHitsCache.put(key, hits);
+        }
+        return hits.hits;
+    }
+
+    private QueryHits collectHits(IndexSearcher searcher, SearchQueryRequest aRequest,
+            MtasSpanQuery q, Map<SourceDocument, AnnotationDocument> aSourceAnnotationDocPairs,
+            Map<Long, SourceDocument> aSourceDocumentIndex, IndexReader.CacheKey aReaderKey,
+            long aLimit)
+        throws IOException
+    {
+        queryCounter.increment();
+
+        List<QueryHit> hits = new ArrayList<>();
+
+        ListIterator<LeafReaderContext> leafReaderContextIterator = sortLeaves(
+                searcher.getIndexReader().leaves(), searcher, q).listIterator();
+
         final float boost = 0;
         SpanWeight spanweight = q.rewrite(searcher.getIndexReader()).createWeight(searcher,
                 COMPLETE_NO_SCORES, boost);
 
-        long offset = aRequest.getOffset();
-        long count = aRequest.getCount();
-        long current = 0;
-
-        resultIteration: while (leafReaderContextIterator.hasNext()) {
+        while (leafReaderContextIterator.hasNext()) {
             LeafReaderContext leafReaderContext = leafReaderContextIterator.next();
 
             try {
                 Spans spans = spanweight.getSpans(leafReaderContext, SpanWeight.Postings.POSITIONS);
                 SegmentReader segmentReader = (SegmentReader) leafReaderContext.reader();
-                Terms terms = segmentReader.terms(FIELD_CONTENT);
-                CodecInfo mtasCodecInfo = CodecInfo.getCodecInfoFromTerms(terms);
+                DocumentMetadata metadata = new DocumentMetadata(segmentReader);
                 if (spans != null) {
                     while (spans.nextDoc() != Spans.NO_MORE_DOCS) {
                         if (segmentReader.numDocs() == segmentReader.maxDoc()
                                 || segmentReader.getLiveDocs().get(spans.docID())) {
-                            Document document = segmentReader.document(spans.docID());
-
-                            // Retrieve user
-                            String user = document.get(FIELD_USER);
-
                             // Retrieve source and annotation document ids
-                            String rawSourceDocumentId = document.get(FIELD_SOURCE_DOCUMENT_ID);
-                            String rawAnnotationDocumentId = document
-                                    .get(FIELD_ANNOTATION_DOCUMENT_ID);
-                            if (rawSourceDocumentId == null || rawAnnotationDocumentId == null) {
-                                log.trace(
-                                        "Indexed document lacks source/annotation document IDs"
-                                                + " - source: {}, annotation: {}",
-                                        rawSourceDocumentId, rawAnnotationDocumentId);
+                            if (!metadata.advance(spans.docID())) {
+                                log.trace("Indexed document lacks source/annotation document IDs");
                                 continue;
-
                             }
 
-                            long sourceDocumentId = Long.valueOf(rawSourceDocumentId);
-                            long annotationDocumentId = Long.valueOf(rawAnnotationDocumentId);
+                            // Retrieve user
+                            String user = metadata.getUser();
+
+                            long sourceDocumentId = metadata.getSourceDocumentId();
+                            long annotationDocumentId = metadata.getAnnotationDocumentId();
                             boolean matchInSourceDocument = annotationDocumentId == -1;
 
-                            SourceDocument sourceDocument = sourceDocumentIndex
+                            SourceDocument sourceDocument = aSourceDocumentIndex
                                     .get(sourceDocumentId);
 
                             if (sourceDocument == null) {
@@ -985,7 +1235,7 @@ public class MtasDocumentIndex
                                 continue;
                             }
 
-                            AnnotationDocument annotationDocument = sourceAnnotationDocPairs
+                            AnnotationDocument annotationDocument = aSourceAnnotationDocPairs
                                     .get(sourceDocument);
 
                             if (annotationDocument != null
@@ -1030,111 +1280,17 @@ public class MtasDocumentIndex
                             }
 
                             // Retrieve document title
-                            String documentTitle = document.get(FIELD_TITLE);
-
-                            // String idValue = segmentReader.document(spans.docID())
-                            // .getField(FIELD_ID).stringValue();
-                            // log.debug("******** New doc {}-{}", + spans.docID(), idValue);
+                            String documentTitle = metadata.getTitle();
 
                             while (spans.nextStartPosition() != Spans.NO_MORE_POSITIONS) {
-                                if (current < offset) {
-                                    current++;
-                                    continue;
-                                }
-                                if (current - offset + 1 > count) {
-                                    break resultIteration;
-                                }
-                                current++;
-                                int matchStart = spans.startPosition();
-                                int matchEnd = spans.endPosition();
-
-                                int windowStart = Math.max(matchStart - RESULT_WINDOW_SIZE, 0);
-                                int windowEnd = matchEnd + RESULT_WINDOW_SIZE - 1;
-
-                                // Retrieve all indexed objects within the matching range
-                                List<MtasTokenString> tokens = mtasCodecInfo.getObjectsByPositions(
-                                        FIELD_CONTENT, spans.docID(), windowStart, windowEnd);
-
-                                tokens.sort(Comparator.comparing(MtasTokenString::getOffsetStart));
-
-                                if (tokens.isEmpty()) {
-                                    continue;
+                                if (hits.size() >= aLimit) {
+                                    // There are more hits than requested
+                                    return new QueryHits(aReaderKey, hits, false);
                                 }
 
-                                SearchResult result = new SearchResult();
-                                StringBuilder resultText = new StringBuilder();
-                                StringBuilder leftContext = new StringBuilder();
-                                StringBuilder rightContext = new StringBuilder();
-                                result.setDocumentId(sourceDocumentId);
-                                result.setDocumentTitle(documentTitle);
-                                result.setOffsetStart(tokens.stream()
-                                        .filter(t -> t.getPositionStart() >= matchStart
-                                                && t.getPositionEnd() < matchEnd)
-                                        .mapToInt(MtasTokenString::getOffsetStart).min()
-                                        .getAsInt());
-                                result.setOffsetEnd(tokens.stream()
-                                        .filter(t -> t.getPositionStart() >= matchStart
-                                                && t.getPositionEnd() < matchEnd)
-                                        .mapToInt(MtasTokenString::getOffsetEnd).max().getAsInt());
-                                result.setTokenStart(matchStart);
-                                result.setTokenLength(matchEnd - matchStart);
-                                result.setReadOnly(annotationDocument != null
-                                        && FINISHED.equals(annotationDocument.getState()));
-                                result.setSelectedForAnnotation(!result.isReadOnly());
-
-                                MtasTokenString prevToken = null;
-                                for (MtasTokenString token : tokens) {
-                                    if (!token.getPrefix().equals(DEFAULT_PREFIX)) {
-                                        continue;
-                                    }
-
-                                    // When searching for an annotation, we don't get the matching
-                                    // text back... not sure why...
-                                    String tokenText = CodecUtil.termValue(token.getValue());
-                                    if (tokenText == null) {
-                                        continue;
-                                    }
-
-                                    if (token.getPositionStart() < matchStart) {
-                                        fill(leftContext, prevToken, token);
-                                        leftContext.append(tokenText);
-                                    }
-                                    else if (token.getPositionStart() >= matchEnd) {
-                                        fill(rightContext, prevToken, token);
-                                        rightContext.append(tokenText);
-                                    }
-                                    else {
-                                        // Only add the whitespace to the match if we already have
-                                        // added any text to the match - otherwise consider the
-                                        // whitespace to be part of the left context
-                                        if (resultText.length() > 0) {
-                                            fill(resultText, prevToken, token);
-                                        }
-                                        else {
-                                            fill(leftContext, prevToken, token);
-                                        }
-                                        resultText.append(tokenText);
-                                    }
-                                    prevToken = token;
-                                }
-                                result.setText(resultText.toString());
-                                result.setLeftContext(leftContext.toString());
-                                result.setRightContext(rightContext.toString());
-
-                                AnnotationLayer groupingLayer = aRequest.getAnnoationLayer();
-                                AnnotationFeature groupingFeature = aRequest.getAnnotationFeature();
-
-                                if (groupingLayer != null && groupingFeature != null) {
-                                    List<String> featureValues = featureValuesAtMatch(tokens,
-                                            matchStart, matchEnd, groupingLayer, groupingFeature);
-                                    for (String featureValue : featureValues) {
-                                        addToResults(results, featureValue, result);
-                                    }
-                                }
-                                else {
-                                    // if no annotation feature is specified group by document title
-                                    addToResults(results, result.getDocumentTitle(), result);
-                                }
+                                hits.add(new QueryHit(leafReaderContext.ord, spans.docID(),
+                                        sourceDocumentId, documentTitle, spans.startPosition(),
+                                        spans.endPosition()));
                             }
                         }
                     }
@@ -1145,13 +1301,7 @@ public class MtasDocumentIndex
             }
         }
 
-        var sortedResults = new LinkedHashMap<String, List<SearchResult>>();
-        var sortedKeys = results.keySet().stream().sorted().collect(toList());
-        for (var key : sortedKeys) {
-            sortedResults.put(key, results.get(key));
-        }
-
-        return sortedResults;
+        return new QueryHits(aReaderKey, hits, true);
     }
 
     private void addToResults(Map<String, List<SearchResult>> aResultsMap, String aKey,
@@ -1259,6 +1409,16 @@ public class MtasDocumentIndex
         doc.add(new StringField(FIELD_TIMESTAMP, timestamp, Field.Store.YES));
         doc.add(new TextField(FIELD_CONTENT, encodedCAS, Field.Store.NO));
 
+        // Add doc values for the fields needed when processing query hits, so they can be
+        // accessed without loading the stored fields
+        if (docValuesEnabled) {
+            doc.add(new NumericDocValuesField(FIELD_SOURCE_DOCUMENT_ID, aSourceDocumentId));
+            doc.add(new NumericDocValuesField(FIELD_ANNOTATION_DOCUMENT_ID,
+                    aAnnotationDocumentId));
+            doc.add(new SortedDocValuesField(FIELD_TITLE, new BytesRef(aDocumentTitle)));
+            doc.add(new SortedDocValuesField(FIELD_USER, new BytesRef(aUser)));
+        }
+
         // Add document to the Lucene index
         indexWriter.addDocument(doc);
 
@@ -1487,6 +1647,68 @@ public class MtasDocumentIndex
         return result;
     }
 
+    @Override
+    public Optional<ReindexCheckpoint> getReindexCheckpoint() throws IOException
+    {
+        if (!isCreated()) {
+            return Optional.empty();
+        }
+
+        // When the writer is opened, the live commit data is initialized from the last commit
+        var commitData = new HashMap<String, String>();
+        var liveCommitData = getIndexWriter().getLiveCommitData();
+        if (liveCommitData != null) {
+            liveCommitData.forEach(e -> commitData.put(e.getKey(), e.getValue()));
+        }
+
+        var fingerprint = commitData.get(COMMIT_DATA_REINDEX_FINGERPRINT);
+        if (fingerprint == null) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(new ReindexCheckpoint(fingerprint,
+                    Long.parseLong(commitData.get(COMMIT_DATA_REINDEX_LAST_SOURCE_DOCUMENT_ID)),
+                    Long.parseLong(
+                            commitData.get(COMMIT_DATA_REINDEX_LAST_ANNOTATION_DOCUMENT_ID))));
+        }
+        catch (NumberFormatException e) {
+            log.warn("Ignoring invalid re-indexing checkpoint in project [{}]({})",
+                    project.getName(), project.getId());
+            return Optional.empty();
+        }
+    }
+
+    void setDocValuesEnabled(boolean aDocValuesEnabled)
+    {
+        docValuesEnabled = aDocValuesEnabled;
+    }
+
+    @Override
+    public void setReindexCheckpoint(ReindexCheckpoint aCheckpoint) throws IOException
+    {
+        var commitData = Map.of( //
+                COMMIT_DATA_REINDEX_FINGERPRINT, aCheckpoint.getFingerprint(), //
+                COMMIT_DATA_REINDEX_LAST_SOURCE_DOCUMENT_ID,
+                String.valueOf(aCheckpoint.getLastSourceDocumentId()), //
+                COMMIT_DATA_REINDEX_LAST_ANNOTATION_DOCUMENT_ID,
+                String.valueOf(aCheckpoint.getLastAnnotationDocumentId()));
+
+        getIndexWriter().setLiveCommitData(commitData.entrySet());
+        scheduleCommit();
+    }
+
+    @Override
+    public void clearReindexCheckpoint() throws IOException
+    {
+        if (!isCreated()) {
+            return;
+        }
+
+        getIndexWriter().setLiveCommitData(Map.<String, String> of().entrySet());
+        scheduleCommit();
+    }
+
     public Project getProject()
     {
         return project;
@@ -1506,6 +1728,175 @@ public class MtasDocumentIndex
             throws Exception;
     }
 
+    /**
+     * Provides the source document ID, annotation document ID, user and title of the documents in
+     * an index segment. These are read from the doc values. Documents which have been indexed
+     * before the doc values were added fall back to loading the stored fields. Documents must be
+     * visited in increasing order.
+     */
+    private static final class DocumentMetadata
+    {
+        private final LeafReader reader;
+        private final NumericDocValues sourceDocumentIds;
+        private final NumericDocValues annotationDocumentIds;
+        private final SortedDocValues users;
+        private final SortedDocValues titles;
+
+        private int doc = -1;
+        private Document storedDocument;
+
+        public DocumentMetadata(LeafReader aReader) throws IOException
+        {
+            reader = aReader;
+            sourceDocumentIds = aReader.getNumericDocValues(FIELD_SOURCE_DOCUMENT_ID);
+            annotationDocumentIds = aReader.getNumericDocValues(FIELD_ANNOTATION_DOCUMENT_ID);
+            users = aReader.getSortedDocValues(FIELD_USER);
+            titles = aReader.getSortedDocValues(FIELD_TITLE);
+        }
+
+        /**
+         * @param aDoc
+         *            the segment-local document number.
+         * @return if the document has a source and annotation document ID.
+         */
+        public boolean advance(int aDoc) throws IOException
+        {
+            doc = aDoc;
+            storedDocument = null;
+
+            if (sourceDocumentIds != null && sourceDocumentIds.advanceExact(aDoc)
+                    && annotationDocumentIds != null && annotationDocumentIds.advanceExact(aDoc)) {
+                return true;
+            }
+
+            storedDocument = reader.document(aDoc);
+            return storedDocument.get(FIELD_SOURCE_DOCUMENT_ID) != null
+                    && storedDocument.get(FIELD_ANNOTATION_DOCUMENT_ID) != null;
+        }
+
+        public long getSourceDocumentId() throws IOException
+        {
+            if (storedDocument != null) {
+                return Long.parseLong(storedDocument.get(FIELD_SOURCE_DOCUMENT_ID));
+            }
+
+            return sourceDocumentIds.longValue();
+        }
+
+        public long getAnnotationDocumentId() throws IOException
+        {
+            if (storedDocument != null) {
+                return Long.parseLong(storedDocument.get(FIELD_ANNOTATION_DOCUMENT_ID));
+            }
+
+            return annotationDocumentIds.longValue();
+        }
+
+        public String getUser() throws IOException
+        {
+            return getString(users, FIELD_USER);
+        }
+
+        public String getTitle() throws IOException
+        {
+            return getString(titles, FIELD_TITLE);
+        }
+
+        private String getString(SortedDocValues aValues, String aField) throws IOException
+        {
+            if (storedDocument != null) {
+                return storedDocument.get(aField);
+            }
+
+            if (aValues != null && aValues.advanceExact(doc)) {
+                return aValues.lookupOrd(aValues.ordValue()).utf8ToString();
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * Position of a query hit in the index.
+     */
+    private static final class QueryHit
+    {
+        private final int leaf;
+        private final int doc;
+        private final long sourceDocumentId;
+        private final String documentTitle;
+        private final int matchStart;
+        private final int matchEnd;
+
+        public QueryHit(int aLeaf, int aDoc, long aSourceDocumentId, String aDocumentTitle,
+                int aMatchStart, int aMatchEnd)
+        {
+            leaf = aLeaf;
+            doc = aDoc;
+            sourceDocumentId = aSourceDocumentId;
+            documentTitle = aDocumentTitle;
+            matchStart = aMatchStart;
+            matchEnd = aMatchEnd;
+        }
+    }
+
+    /**
+     * Hits of a query together with the key of the index reader they were obtained from. The leaf
+     * and document numbers in the hits are only valid for this particular reader. If the hits are
+     * not {@code complete}, they are only the first hits of the query.
+     */
+    private static final class QueryHits
+    {
+        private final IndexReader.CacheKey readerKey;
+        private final List<QueryHit> hits;
+        private final boolean complete;
+
+        public QueryHits(IndexReader.CacheKey aReaderKey, List<QueryHit> aHits, boolean aComplete)
+        {
+            readerKey = aReaderKey;
+            hits = aHits;
+            complete = aComplete;
+        }
+    }
+
+    private static final class QueryHitsKey
+    {
+        private final String query;
+        private final String user;
+        private final Long limitedToDocument;
+        private final Map<Long, Boolean> documentFilter;
+
+        public QueryHitsKey(String aQuery, String aUser, Long aLimitedToDocument,
+                Map<Long, Boolean> aDocumentFilter)
+        {
+            query = aQuery;
+            user = aUser;
+            limitedToDocument = aLimitedToDocument;
+            documentFilter = aDocumentFilter;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            QueryHitsKey other = (QueryHitsKey) o;
+            return query.equals(other.query) && user.equals(other.user)
+                    && Objects.equals(limitedToDocument, other.limitedToDocument)
+                    && documentFilter.equals(other.documentFilter);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(query, user, limitedToDocument, documentFilter);
+        }
+    }
+
     @Override
     public void indexDocument(AnnotationDocument aDocument, byte[] aBinaryCas) throws IOException
     {
@@ -1536,7 +1927,7 @@ public class MtasDocumentIndex
         // deindexDocument(srcDocId, annoDocId, user, oldTimestamp.get());
         // }
 
-        scheduleCommit();
+        scheduleCommitUnlessFullReindex();
     }
 
     @Override
@@ -1550,6 +1941,17 @@ public class MtasDocumentIndex
         }
 
         indexDocument(aSourceDocument.getName(), aSourceDocument.getId(), -1, "", aBinaryCas);
-        scheduleCommit();
+        scheduleCommitUnlessFullReindex();
+    }
+
+    /**
+     * During a full re-index, the documents are committed in batches together with the re-indexing
+     * checkpoint (see {@link #setReindexCheckpoint}) instead of after every document.
+     */
+    private void scheduleCommitUnlessFullReindex()
+    {
+        if (!BulkIndexingContext.isFullReindexInProgress()) {
+            scheduleCommit();
+        }
     }
 }
@@ -31,6 +31,7 @@ import de.tudarmstadt.ukp.inception.search.FeatureIndexingSupportRegistry;
 import de.tudarmstadt.ukp.inception.search.index.PhysicalIndex;
 import de.tudarmstadt.ukp.inception.search.index.PhysicalIndexFactoryImplBase;
 import de.tudarmstadt.ukp.inception.search.index.mtas.config.MtasDocumentIndexAutoConfiguration;
+import io.micrometer.core.instrument.MeterRegistry;
 
 /**
  * Support for MTAS-based internal search.
@@ -46,17 +47,20 @@ public class MtasDocumentIndexFactory
     private final RepositoryProperties repositoryProperties;
     private final FeatureIndexingSupportRegistry featureIndexingSupportRegistry;
     private final FeatureSupportRegistry featureSupportRegistry;
+    private final MeterRegistry meterRegistry;
 
     @Autowired
     public MtasDocumentIndexFactory(DocumentService aDocumentService,
             RepositoryProperties aRepositoryProperties,
             FeatureIndexingSupportRegistry aFeatureIndexingSupportRegistry,
-            FeatureSupportRegistry aFeatureSupportRegistry)
+            FeatureSupportRegistry aFeatureSupportRegistry,
+            @Autowired(required = false) MeterRegistry aMeterRegistry)
     {
         documentService = aDocumentService;
         repositoryProperties = aRepositoryProperties;
         featureIndexingSupportRegistry = aFeatureIndexingSupportRegistry;
         featureSupportRegistry = aFeatureSupportRegistry;
+        meterRegistry = aMeterRegistry;
     }
 
     @Override
@@ -70,6 +74,6 @@ public class MtasDocumentIndexFactory
     {
         return new MtasDocumentIndex(aProject, documentService,
                 repositoryProperties.getPath().getAbsolutePath(), featureIndexingSupportRegistry,
-                featureSupportRegistry);
+                featureSupportRegistry, meterRegistry);
     }
 }
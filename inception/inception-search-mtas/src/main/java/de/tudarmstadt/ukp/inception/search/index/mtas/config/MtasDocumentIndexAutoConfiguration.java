@@ -17,6 +17,7 @@
  */
 package de.tudarmstadt.ukp.inception.search.index.mtas.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.context.annotation.Bean;
@@ -28,6 +29,7 @@ import de.tudarmstadt.ukp.inception.search.FeatureIndexingSupportRegistry;
 import de.tudarmstadt.ukp.inception.search.config.SearchServiceAutoConfiguration;
 import de.tudarmstadt.ukp.inception.search.index.PhysicalIndexRegistry;
 import de.tudarmstadt.ukp.inception.search.index.mtas.MtasDocumentIndexFactory;
+import io.micrometer.core.instrument.MeterRegistry;
 
 @AutoConfigureAfter(SearchServiceAutoConfiguration.class)
 @ConditionalOnBean(PhysicalIndexRegistry.class)
@@ -37,9 +39,10 @@ public class MtasDocumentIndexAutoConfiguration
     public MtasDocumentIndexFactory mtasDocumentIndexFactory(DocumentService aDocumentService,
             RepositoryProperties aRepositoryProperties,
             FeatureIndexingSupportRegistry aFeatureIndexingSupportRegistry,
-            FeatureSupportRegistry aFeatureSupportRegistry)
+            FeatureSupportRegistry aFeatureSupportRegistry,
+            @Autowired(required = false) MeterRegistry aMeterRegistry)
     {
         return new MtasDocumentIndexFactory(aDocumentService, aRepositoryProperties,
-                aFeatureIndexingSupportRegistry, aFeatureSupportRegistry);
+                aFeatureIndexingSupportRegistry, aFeatureSupportRegistry, aMeterRegistry);
     }
 }
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.search.index.mtas;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.inception.search.model.ReindexCheckpoint;
+
+public class MtasDocumentIndexCheckpointTest
+{
+    private @TempDir File repositoryDir;
+
+    @Test
+    public void thatReindexCheckpointSurvivesReopeningIndex() throws Exception
+    {
+        var project = new Project("test");
+        project.setId(1l);
+
+        var index = new MtasDocumentIndex(project, null, repositoryDir.getPath(), null, null, null);
+        try {
+            index.open();
+            assertThat(index.getReindexCheckpoint()).isEmpty();
+
+            index.setReindexCheckpoint(new ReindexCheckpoint("abc", 3, 7));
+        }
+        finally {
+            index.close();
+        }
+
+        index = new MtasDocumentIndex(project, null, repositoryDir.getPath(), null, null, null);
+        try {
+            assertThat(index.getReindexCheckpoint()).get() //
+                    .usingRecursiveComparison() //
+                    .isEqualTo(new ReindexCheckpoint("abc", 3, 7));
+
+            index.clearReindexCheckpoint();
+        }
+        finally {
+            index.close();
+        }
+
+        index = new MtasDocumentIndex(project, null, repositoryDir.getPath(), null, null, null);
+        try {
+            assertThat(index.getReindexCheckpoint()).isEmpty();
+        }
+        finally {
+            index.close();
+        }
+    }
+}
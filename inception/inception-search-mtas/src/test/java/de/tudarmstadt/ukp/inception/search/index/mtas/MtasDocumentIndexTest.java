@@ -17,15 +17,19 @@
  */
 package de.tudarmstadt.ukp.inception.search.index.mtas;
 
+import static de.tudarmstadt.ukp.inception.search.SearchCasUtils.casToByteArray;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.awaitility.Awaitility.await;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.InputStream;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -85,12 +89,19 @@ import de.tudarmstadt.ukp.inception.kb.config.KnowledgeBaseServiceAutoConfigurat
 import de.tudarmstadt.ukp.inception.preferences.config.PreferencesServiceAutoConfig;
 import de.tudarmstadt.ukp.inception.scheduling.config.SchedulingServiceAutoConfiguration;
 import de.tudarmstadt.ukp.inception.schema.config.AnnotationSchemaServiceAutoConfiguration;
+import de.tudarmstadt.ukp.inception.schema.feature.FeatureSupportRegistry;
+import de.tudarmstadt.ukp.inception.search.FeatureIndexingSupportRegistry;
 import de.tudarmstadt.ukp.inception.search.LayerStatistics;
+import de.tudarmstadt.ukp.inception.search.SearchQueryRequest;
 import de.tudarmstadt.ukp.inception.search.SearchResult;
 import de.tudarmstadt.ukp.inception.search.SearchService;
+import de.tudarmstadt.ukp.inception.search.StatisticRequest;
 import de.tudarmstadt.ukp.inception.search.StatisticsResult;
 import de.tudarmstadt.ukp.inception.search.config.SearchServiceAutoConfiguration;
 import de.tudarmstadt.ukp.inception.search.index.mtas.config.MtasDocumentIndexAutoConfiguration;
+import de.tudarmstadt.ukp.inception.search.model.AnnotationSearchState;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 @EnableAutoConfiguration
 @EntityScan({ //
@@ -135,6 +146,9 @@ public class MtasDocumentIndexTest
     private @Autowired ProjectService projectService;
     private @Autowired DocumentService documentService;
     private @Autowired SearchService searchService;
+    private @Autowired MeterRegistry meterRegistry;
+    private @Autowired FeatureIndexingSupportRegistry featureIndexingSupportRegistry;
+    private @Autowired FeatureSupportRegistry featureSupportRegistry;
 
     private User user;
 
@@ -621,6 +635,176 @@ public class MtasDocumentIndexTest
                 .containsExactlyElementsOf(resultsAfter.keySet());
     }
 
+    @Test
+    public void thatPagedResultsMatchUnpagedResults() throws Exception
+    {
+        Project project = new Project("paged-results");
+
+        createProject(project);
+
+        SourceDocument sourceDocument1 = new SourceDocument("Raw text document 1", project,
+                "text");
+        SourceDocument sourceDocument2 = new SourceDocument("Raw text document 2", project,
+                "text");
+
+        uploadDocument(
+                Pair.of(sourceDocument1, "Galicia is in Spain. The capital of Galicia is "
+                        + "Santiago de Compostela."),
+                Pair.of(sourceDocument2, "Galicia borders Portugal."));
+
+        String query = "Galicia";
+
+        List<SearchResult> unpagedResults = searchService.query(user, project, query);
+
+        List<SearchResult> pagedResults = new ArrayList<>();
+        for (int page = 0; page < 4; page++) {
+            searchService.query(user, project, query, null, null, null, page, 1).values()
+                    .forEach(pagedResults::addAll);
+        }
+
+        assertThat(unpagedResults).hasSize(3);
+        assertThat(pagedResults) //
+                .extracting(SearchResult::getDocumentId, SearchResult::getOffsetStart)
+                .containsExactlyElementsOf(unpagedResults.stream() //
+                        .map(r -> tuple(r.getDocumentId(), r.getOffsetStart())) //
+                        .collect(toList()));
+
+        // Adding a document must not leave stale hits in the cache
+        SourceDocument sourceDocument3 = new SourceDocument("Raw text document 3", project,
+                "text");
+        uploadDocument(Pair.of(sourceDocument3, "Galicia is green."));
+
+        assertThat(searchService.query(user, project, query)).hasSize(4);
+    }
+
+    @Test
+    public void thatSecondPageDoesNotRunQueryAgain() throws Exception
+    {
+        Project project = new Project("second-page");
+
+        createProject(project);
+
+        SourceDocument sourceDocument = new SourceDocument("Raw text document", project, "text");
+
+        uploadDocument(Pair.of(sourceDocument, "Galicia is in Spain. The capital of Galicia is "
+                + "Santiago de Compostela."));
+
+        String query = "Galicia";
+
+        var firstPage = searchService.query(user, project, query, null, null, null, 0, 1);
+        double queryCount = meterRegistry.get("inception.search.index.query").counter().count();
+        var secondPage = searchService.query(user, project, query, null, null, null, 1, 1);
+
+        assertThat(meterRegistry.get("inception.search.index.query").counter().count())
+                .isEqualTo(queryCount);
+        assertThat(firstPage.values().stream().flatMap(List::stream).collect(toList())) //
+                .extracting(SearchResult::getOffsetStart) //
+                .containsExactly(0);
+        assertThat(secondPage.values().stream().flatMap(List::stream).collect(toList())) //
+                .extracting(SearchResult::getOffsetStart) //
+                .containsExactly(36);
+    }
+
+    @Test
+    public void thatDocumentsWithoutDocValuesGiveSameResults() throws Exception
+    {
+        Project project = new Project("stored-field-fallback");
+
+        createProject(project);
+
+        SourceDocument sourceDocument1 = new SourceDocument("Annotation document", project,
+                "text");
+        SourceDocument sourceDocument2 = new SourceDocument("Raw text document", project, "text");
+
+        uploadDocument(
+                Pair.of(sourceDocument1, "The capital of Galicia is Santiago de Compostela."));
+        annotateDocumentAdvanced(project, user, sourceDocument1);
+        uploadDocument(Pair.of(sourceDocument2, "Galicia is green."));
+
+        AnnotationDocument annotationDocument = documentService
+                .getAnnotationDocument(sourceDocument1, user);
+
+        byte[] sourceCas1;
+        byte[] sourceCas2;
+        byte[] annotationCas;
+        try (CasStorageSession casStorageSession = CasStorageSession.open()) {
+            sourceCas1 = casToByteArray(documentService.createOrReadInitialCas(sourceDocument1));
+            sourceCas2 = casToByteArray(documentService.createOrReadInitialCas(sourceDocument2));
+            annotationCas = casToByteArray(documentService.readAnnotationCas(annotationDocument));
+        }
+
+        // Write one index with and one without doc values - the latter one is what indexes
+        // created by earlier versions look like and where the stored fields are used instead
+        for (boolean docValues : new boolean[] { true, false }) {
+            var index = createIndex(project, docValues);
+            try {
+                index.open();
+                index.indexDocument(sourceDocument1, sourceCas1);
+                index.indexDocument(sourceDocument2, sourceCas2);
+                index.indexDocument(annotationDocument, annotationCas);
+            }
+            finally {
+                index.close();
+            }
+        }
+
+        AnnotationLayer ne = new AnnotationLayer();
+        ne.setUiName("Named entity");
+        AnnotationFeature value = new AnnotationFeature();
+        value.setUiName("value");
+        value.setLayer(ne);
+        Set<AnnotationFeature> features = new HashSet<AnnotationFeature>();
+        features.add(value);
+
+        var withDocValues = createIndex(project, true);
+        var withoutDocValues = createIndex(project, false);
+        try {
+            for (String query : List.of("Galicia", "<Named_entity.value=\"LOC\"/>")) {
+                var queryRequest = new SearchQueryRequest(project, user, query,
+                        new AnnotationSearchState());
+
+                var expectedResults = withDocValues.executeQuery(queryRequest);
+                assertThat(expectedResults).isNotEmpty();
+                assertThat(withoutDocValues.executeQuery(queryRequest)) //
+                        .usingRecursiveComparison() //
+                        .isEqualTo(expectedResults);
+                assertThat(withoutDocValues.numberOfQueryResults(queryRequest)) //
+                        .isEqualTo(withDocValues.numberOfQueryResults(queryRequest));
+            }
+
+            var statisticRequest = new StatisticRequest(project, user, Integer.MIN_VALUE,
+                    Integer.MAX_VALUE, features, null, new AnnotationSearchState());
+
+            var expectedDocuments = withDocValues.getUniqueDocuments(statisticRequest);
+            assertThat(expectedDocuments).hasSize(2);
+            assertThat(withoutDocValues.getUniqueDocuments(statisticRequest))
+                    .containsExactlyElementsOf(expectedDocuments);
+
+            assertThat(withoutDocValues.getLayerStatistics(statisticRequest, "<Token=\"\"/>",
+                    expectedDocuments)) //
+                            .usingRecursiveComparison() //
+                            .isEqualTo(withDocValues.getLayerStatistics(statisticRequest,
+                                    "<Token=\"\"/>", expectedDocuments));
+            assertThat(withoutDocValues.getAnnotationStatistics(statisticRequest)) //
+                    .usingRecursiveComparison() //
+                    .isEqualTo(withDocValues.getAnnotationStatistics(statisticRequest));
+        }
+        finally {
+            withDocValues.close();
+            withoutDocValues.close();
+        }
+    }
+
+    private MtasDocumentIndex createIndex(Project aProject, boolean aDocValues)
+    {
+        File dir = new File(TEST_OUTPUT_FOLDER,
+                "doc-values-" + aProject.getId() + "-" + aDocValues);
+        var index = new MtasDocumentIndex(aProject, documentService, dir.getPath(),
+                featureIndexingSupportRegistry, featureSupportRegistry, null);
+        index.setDocValuesEnabled(aDocValues);
+        return index;
+    }
+
     @Disabled("This test is flaky, but I do not know why - maybe some race condition in the indexing")
     @Test
     public void testStatistics() throws Exception
@@ -717,5 +901,11 @@ public class MtasDocumentIndexTest
         {
             return new ApplicationContextProvider();
         }
+
+        @Bean
+        public MeterRegistry meterRegistry()
+        {
+            return new SimpleMeterRegistry();
+        }
     }
 }
@@ -122,7 +122,7 @@ public class MtasUpgradeTest
 
         index = new MtasDocumentIndex(project, documentService,
                 repositoryProperties.getPath().getAbsolutePath(), featureIndexingSupportRegistry,
-                featureSupportRegistry);
+                featureSupportRegistry, null);
     }
 
     @AfterEach
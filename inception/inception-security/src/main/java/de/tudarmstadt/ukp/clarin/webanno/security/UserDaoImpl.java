@@ -28,6 +28,7 @@ import static de.tudarmstadt.ukp.inception.support.deployment.DeploymentModeServ
 import static de.tudarmstadt.ukp.inception.support.text.TextUtils.containsAnyCharacterMatching;
 import static de.tudarmstadt.ukp.inception.support.text.TextUtils.sortAndRemoveDuplicateCharacters;
 import static de.tudarmstadt.ukp.inception.support.text.TextUtils.startsWithMatching;
+import static java.util.Collections.emptyList;
 import static org.apache.commons.lang3.StringUtils.contains;
 import static org.apache.commons.lang3.StringUtils.containsAny;
 import static org.apache.commons.lang3.StringUtils.defaultString;
@@ -51,6 +52,7 @@ import org.apache.commons.validator.routines.EmailValidator;
 import org.apache.wicket.validation.ValidationError;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.security.core.Authentication;
@@ -64,6 +66,7 @@ import org.springframework.transaction.support.TransactionTemplate;
 
 import de.tudarmstadt.ukp.clarin.webanno.security.config.SecurityAutoConfiguration;
 import de.tudarmstadt.ukp.clarin.webanno.security.config.SecurityProperties;
+import de.tudarmstadt.ukp.clarin.webanno.security.event.AfterUserRemovedEvent;
 import de.tudarmstadt.ukp.clarin.webanno.security.model.Authority;
 import de.tudarmstadt.ukp.clarin.webanno.security.model.Role;
 import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
@@ -114,14 +117,17 @@ public class UserDaoImpl
     private final SecurityProperties securityProperties;
     private final PlatformTransactionManager transactionManager;
     private final SessionRegistry sessionRegistry;
+    private final ApplicationEventPublisher applicationEventPublisher;
 
     public UserDaoImpl(EntityManager aEntityManager, SecurityProperties aSecurityProperties,
-            PlatformTransactionManager aTransactionManager, SessionRegistry aSessionRegistry)
+            PlatformTransactionManager aTransactionManager, SessionRegistry aSessionRegistry,
+            ApplicationEventPublisher aApplicationEventPublisher)
     {
         entityManager = aEntityManager;
         securityProperties = aSecurityProperties;
         transactionManager = aTransactionManager;
         sessionRegistry = aSessionRegistry;
+        applicationEventPublisher = aApplicationEventPublisher;
     }
 
     @EventListener
@@ -224,6 +230,15 @@ public class UserDaoImpl
         }
 
         entityManager.remove(entityManager.merge(aUser));
+
+        publishUserRemoved(aUser);
+    }
+
+    private void publishUserRemoved(User aUser)
+    {
+        if (applicationEventPublisher != null) {
+            applicationEventPublisher.publishEvent(new AfterUserRemovedEvent(this, aUser));
+        }
     }
 
     @Override
@@ -250,18 +265,27 @@ public class UserDaoImpl
                 sessionRegistry.getAllSessions(user.getUsername(), false)
                         .forEach(_session -> _session.expireNow());
                 entityManager.remove(user);
+                publishUserRemoved(user);
             }
 
             return usersInRealm.size();
         }
         else {
+            List<User> usersInRealm = applicationEventPublisher != null
+                    ? listAllUsersFromRealm(aRealm)
+                    : emptyList();
+
             String query = String.join("\n", //
                     "DELETE FROM " + User.class.getName(), //
                     "WHERE realm = :realm");
 
-            return entityManager.createQuery(query) //
+            int deleted = entityManager.createQuery(query) //
                     .setParameter("realm", aRealm) //
                     .executeUpdate();
+
+            usersInRealm.forEach(this::publishUserRemoved);
+
+            return deleted;
         }
     }
 
@@ -28,6 +28,7 @@ import javax.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
@@ -66,10 +67,10 @@ public class SecurityAutoConfiguration
     @Bean("userRepository")
     public UserDao userService(SecurityProperties aSecurityProperties,
             @Autowired(required = false) SessionRegistry aSessionRegistry,
-            OAuth2Adapter aOAuth2Adapter)
+            OAuth2Adapter aOAuth2Adapter, ApplicationEventPublisher aApplicationEventPublisher)
     {
         return new UserDaoImpl(entityManager, aSecurityProperties, transactionManager,
-                aSessionRegistry);
+                aSessionRegistry, aApplicationEventPublisher);
     }
 
     @Bean
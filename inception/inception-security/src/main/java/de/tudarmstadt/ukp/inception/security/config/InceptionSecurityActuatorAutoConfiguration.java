@@ -36,6 +36,9 @@ public class InceptionSecurityActuatorAutoConfiguration
         aHttp.csrf().disable();
         aHttp.authorizeRequests() //
                 .antMatchers(BASE_URL + "/health").permitAll() //
+                // Metrics may only be scraped locally, e.g. by a Prometheus agent on the same host
+                .antMatchers(BASE_URL + "/prometheus") //
+                .access("hasIpAddress('127.0.0.1') or hasIpAddress('::1')") //
                 .anyRequest().denyAll();
         aHttp.sessionManagement() //
                 .sessionCreationPolicy(STATELESS);
@@ -84,13 +84,29 @@ public class ZipUtils
     public static void zipFolder(File srcFolder, File destZipFile) throws IOException
     {
         try (var zip = new ZipOutputStream(new FileOutputStream(destZipFile));) {
-            for (File file : srcFolder.getAbsoluteFile().listFiles()) {
-                addToZip(zip, srcFolder.getAbsoluteFile(), file);
-            }
+            zipFolder(srcFolder, zip);
             zip.flush();
         }
     }
 
+    /**
+     * Adds all files in the given folder to the given ZIP stream. The entry names are the paths of
+     * the files relative to the folder. The stream is not closed.
+     * 
+     * @param srcFolder
+     *            source folder.
+     * @param aZip
+     *            target ZIP stream.
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    public static void zipFolder(File srcFolder, ZipOutputStream aZip) throws IOException
+    {
+        for (File file : srcFolder.getAbsoluteFile().listFiles()) {
+            addToZip(aZip, srcFolder.getAbsoluteFile(), file);
+        }
+    }
+
     private static void addToZip(ZipOutputStream zip, File aBasePath, File aPath) throws IOException
     {
         if (aPath.isDirectory()) {
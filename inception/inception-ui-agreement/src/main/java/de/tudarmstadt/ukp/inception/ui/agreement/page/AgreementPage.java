@@ -17,9 +17,6 @@
  */
 package de.tudarmstadt.ukp.inception.ui.agreement.page;
 
-import static de.tudarmstadt.ukp.clarin.webanno.api.CasUpgradeMode.AUTO_CAS_UPGRADE;
-import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode.SHARED_READ_ONLY_ACCESS;
-import static de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocumentState.FINISHED;
 import static de.tudarmstadt.ukp.clarin.webanno.model.PermissionLevel.ANNOTATOR;
 import static de.tudarmstadt.ukp.clarin.webanno.model.PermissionLevel.CURATOR;
 import static de.tudarmstadt.ukp.clarin.webanno.model.PermissionLevel.MANAGER;
@@ -27,19 +24,15 @@ import static de.tudarmstadt.ukp.clarin.webanno.support.lambda.LambdaBehavior.en
 import static de.tudarmstadt.ukp.clarin.webanno.ui.core.page.ProjectPageBase.NS_PROJECT;
 import static de.tudarmstadt.ukp.clarin.webanno.ui.core.page.ProjectPageBase.PAGE_PARAM_PROJECT;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.commons.lang3.tuple.Pair;
-import org.apache.uima.cas.CAS;
-import org.apache.uima.cas.FeatureStructure;
-import org.apache.uima.fit.util.FSUtil;
 import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.feedback.IFeedback;
@@ -59,14 +52,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wicketstuff.annotation.mount.MountPath;
 
+import de.tudarmstadt.ukp.clarin.webanno.agreement.AgreementService;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.AgreementTables;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.AgreementMeasure;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.AgreementMeasureSupport;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.AgreementMeasureSupportRegistry;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.DefaultAgreementTraits;
 import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
 import de.tudarmstadt.ukp.clarin.webanno.api.ProjectService;
-import de.tudarmstadt.ukp.clarin.webanno.api.annotation.util.WebAnnoCasUtil;
-import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocument;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
@@ -98,6 +91,7 @@ public class AgreementPage
     private @SpringBean AnnotationSchemaService annotationService;
     private @SpringBean UserDao userRepository;
     private @SpringBean AgreementMeasureSupportRegistry agreementRegistry;
+    private @SpringBean AgreementService agreementService;
 
     private AgreementForm agreementForm;
     private WebMarkupContainer resultsContainer;
@@ -230,19 +224,32 @@ public class AgreementPage
                     (DefaultAgreementTraits) traitsContainer.get(MID_TRAITS)
                             .getDefaultModelObject());
 
-            Map<String, List<CAS>> casMap = getCasMap();
+            AgreementTables tables;
+            try {
+                tables = getTables(measure);
+            }
+            catch (Exception e) {
+                error("Unable to load data: " + ExceptionUtils.getRootCauseMessage(e));
+                LOG.error("Unable to load data", e);
+                aTarget.addChildren(getPage(), IFeedback.class);
+                return;
+            }
+
+            if (!tables.getErrors().isEmpty()) {
+                tables.getErrors().forEach(this::error);
+                aTarget.addChildren(getPage(), IFeedback.class);
+            }
 
-            if (casMap.values().stream().allMatch(list -> list == null || list.isEmpty())) {
+            if (tables.isEmpty() || tables.getRaters().isEmpty()) {
                 error("No documents with annotations were found.");
                 aTarget.addChildren(getPage(), IFeedback.class);
             }
             else {
-                Serializable result = measure.getAgreement(casMap);
+                Serializable result = agreementService.calculateAgreement(measure, tables);
                 resultsContainer.addOrReplace(ams.createResultsPanel(MID_RESULTS, Model.of(result),
-                        AgreementPage.this::getCasMap));
+                        AgreementPage.this::getTables));
                 aTarget.add(resultsContainer);
             }
-
         }
 
         List<Pair<String, String>> listMeasures()
@@ -281,93 +288,51 @@ public class AgreementPage
         Pair<String, String> measure;
     }
 
-    // The CASes cannot be serialized, so we make them transient here. However, it does not matter
-    // as we do not access the field directly but via getCases() which will re-load them if
-    // necessary, e.g. if the transient field is empty after a session is restored from a
-    // persisted state.
-    private transient Map<String, List<CAS>> cachedCASes;
-    private transient Project cachedProject;
-    private transient boolean cachedLimitToFinishedDocuments;
+    // The tables are only kept to avoid re-extracting them when the results panel requests
+    // them, e.g. for exporting. If the transient field is empty after a session is restored from
+    // a persisted state, they are obtained again from the agreement service which caches them.
+    private transient AgreementTables cachedTables;
 
-    public Map<String, List<CAS>> getCasMap()
+    private AgreementTables getTables(AgreementMeasure<?> aMeasure) throws IOException
     {
-        if (agreementForm.featureList.getModelObject() == null) {
-            return Collections.emptyMap();
-        }
-
-        Project project = agreementForm.featureList.getModelObject().getProject();
-
-        DefaultAgreementTraits traits = (DefaultAgreementTraits) agreementForm.traitsContainer
-                .get(MID_TRAITS).getDefaultModelObject();
-
-        // Avoid reloading the CASes when switching features within the same project
-        if (cachedCASes != null && project.equals(cachedProject)
-                && cachedLimitToFinishedDocuments == traits.isLimitToFinishedDocuments()) {
-            return cachedCASes;
-        }
+        Project project = aMeasure.getFeature().getProject();
 
         List<User> users = projectService.listProjectUsersWithPermissions(project, ANNOTATOR);
 
         List<SourceDocument> sourceDocuments = documentService.listSourceDocuments(project);
 
-        cachedCASes = new LinkedHashMap<>();
-        for (User user : users) {
-            List<CAS> cases = new ArrayList<>();
-
-            // Bulk-fetch all source documents for which there is already an annotation document for
-            // the user which is faster then checking for their existence individually
-            List<SourceDocument> docsForUser = documentService
-                    .listAnnotationDocuments(project, user).stream()
-                    .map(AnnotationDocument::getDocument).distinct().collect(Collectors.toList());
-
-            nextDocument: for (SourceDocument document : sourceDocuments) {
-                CAS cas = null;
-
-                try {
-                    if (docsForUser.contains(document)) {
-                        AnnotationDocument annotationDocument = documentService
-                                .getAnnotationDocument(document, user);
-
-                        if (traits.isLimitToFinishedDocuments()
-                                && !annotationDocument.getState().equals(FINISHED)) {
-                            // Add a skip marker (null) for the current CAS to the CAS list - this
-                            // is necessary because we expect the CAS lists for all users to have
-                            // the same size
-                            cases.add(null);
-                            continue nextDocument;
-                        }
-                    }
-
-                    // Reads the user's annotation document or the initial source document -
-                    // depending on what is available
-                    cas = documentService.readAnnotationCas(document, user.getUsername(),
-                            AUTO_CAS_UPGRADE, SHARED_READ_ONLY_ACCESS);
-                }
-                catch (Exception e) {
-                    error("Unable to load data: " + ExceptionUtils.getRootCauseMessage(e));
-                    LOG.error("Unable to load data", e);
-                }
+        cachedTables = agreementService.extractTables(aMeasure, sourceDocuments, users,
+                aMeasure.getTraits().isLimitToFinishedDocuments());
 
-                if (cas != null) {
-                    // Set the CAS name in the DocumentMetaData so that we can pick it
-                    // up in the Diff position for the purpose of debugging / transparency.
-                    FeatureStructure dmd = WebAnnoCasUtil.getDocumentMetadata(cas);
-                    FSUtil.setFeature(dmd, "documentId", document.getName());
-                    FSUtil.setFeature(dmd, "collectionId", document.getProject().getName());
-
-                }
+        return cachedTables;
+    }
 
-                // The next line can enter null values into the list if a user didn't work on this
-                // source document yet.
-                cases.add(cas);
-            }
+    @SuppressWarnings("rawtypes")
+    public AgreementTables getTables()
+    {
+        if (cachedTables != null) {
+            return cachedTables;
+        }
 
-            cachedCASes.put(user.getUsername(), cases);
+        AnnotationFeature feature = agreementForm.featureList.getModelObject();
+        Pair<String, String> measureHandle = agreementForm.measureDropDown.getModelObject();
+        if (feature == null || measureHandle == null) {
+            return new AgreementTables(Collections.emptyList(), Collections.emptyList());
         }
 
-        cachedProject = project;
-        cachedLimitToFinishedDocuments = traits.isLimitToFinishedDocuments();
+        AgreementMeasureSupport ams = agreementRegistry
+                .getAgreementMeasureSupport(measureHandle.getKey());
 
-        return cachedCASes;
+        @SuppressWarnings("unchecked")
+        AgreementMeasure<?> measure = ams.createMeasure(feature,
+                (DefaultAgreementTraits) agreementForm.traitsContainer.get(MID_TRAITS)
+                        .getDefaultModelObject());
+
+        try {
+            return getTables(measure);
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Unable to load data", e);
+        }
     }
 }
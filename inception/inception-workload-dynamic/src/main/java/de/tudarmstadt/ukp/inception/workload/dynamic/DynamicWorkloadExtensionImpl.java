@@ -18,6 +18,7 @@
 package de.tudarmstadt.ukp.inception.workload.dynamic;
 
 import static de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocumentState.IN_PROGRESS;
+import static de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocumentStateChangeFlag.EXPLICIT_ANNOTATOR_USER_ACTION;
 import static de.tudarmstadt.ukp.clarin.webanno.model.PermissionLevel.CURATOR;
 import static de.tudarmstadt.ukp.clarin.webanno.model.PermissionLevel.MANAGER;
 import static de.tudarmstadt.ukp.clarin.webanno.model.SourceDocumentState.ANNOTATION_FINISHED;
@@ -27,6 +28,7 @@ import static de.tudarmstadt.ukp.clarin.webanno.model.SourceDocumentState.CURATI
 import static de.tudarmstadt.ukp.clarin.webanno.support.JSONUtil.fromJsonString;
 
 import java.io.IOException;
+import java.sql.Timestamp;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.HashMap;
@@ -37,17 +39,21 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
 import org.apache.uima.UIMAException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
 import org.springframework.security.core.session.SessionRegistry;
 import org.springframework.transaction.annotation.Transactional;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
 import de.tudarmstadt.ukp.clarin.webanno.api.ProjectService;
 import de.tudarmstadt.ukp.clarin.webanno.api.SourceDocumentStateStats;
+import de.tudarmstadt.ukp.clarin.webanno.api.event.BeforeProjectRemovedEvent;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocument;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocumentState;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
@@ -59,6 +65,7 @@ import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
 import de.tudarmstadt.ukp.clarin.webanno.support.JSONUtil;
 import de.tudarmstadt.ukp.inception.annotation.storage.CasStorageSession;
 import de.tudarmstadt.ukp.inception.workload.dynamic.config.DynamicWorkloadManagerAutoConfiguration;
+import de.tudarmstadt.ukp.inception.workload.dynamic.event.DynamicWorkloadStateWatcher;
 import de.tudarmstadt.ukp.inception.workload.dynamic.trait.DynamicWorkloadTraits;
 import de.tudarmstadt.ukp.inception.workload.dynamic.workflow.WorkflowExtension;
 import de.tudarmstadt.ukp.inception.workload.dynamic.workflow.WorkflowExtensionPoint;
@@ -84,6 +91,8 @@ public class DynamicWorkloadExtensionImpl
     private final UserDao userRepository;
     private final SessionRegistry sessionRegistry;
 
+    private final ConcurrentMap<Long, Object> assignmentLocks = new ConcurrentHashMap<>();
+
     public DynamicWorkloadExtensionImpl(WorkloadManagementService aWorkloadManagementService,
             WorkflowExtensionPoint aWorkflowExtensionPoint, DocumentService aDocumentService,
             ProjectService aProjectService, UserDao aUserRepository,
@@ -150,54 +159,79 @@ public class DynamicWorkloadExtensionImpl
         }
     }
 
+    /**
+     * Picks the next document for the given user and claims it by marking the user's annotation
+     * document as in-progress. Choosing and claiming happen while holding a per-project lock, so
+     * concurrent requests see each other's claims and a document cannot be handed out to more
+     * users than required. This method must not run in an outer transaction - otherwise the claim
+     * would only become visible to other requests after the lock has been released.
+     * <p>
+     * Abandoned documents are not released here but by the periodic
+     * {@link DynamicWorkloadStateWatcher abandonment check}.
+     */
     @Override
     public Optional<SourceDocument> nextDocumentToAnnotate(Project aProject, User aUser)
     {
-        // First, check if there are other documents which have been in the state INPROGRESS
-        // Load the first one found
-        List<AnnotationDocument> inProgressDocuments = documentService
-                .listAnnotationDocumentsWithStateForUser(aProject, aUser, IN_PROGRESS);
-        if (!inProgressDocuments.isEmpty()) {
-            return Optional.of(inProgressDocuments.get(0).getDocument());
-        }
-
-        // Make sure that any documents that could be eligible for annotation due to having been
-        // abandoned by another user are available
-        freshenStatus(aProject);
+        synchronized (assignmentLocks.computeIfAbsent(aProject.getId(), _id -> new Object())) {
+            // First, check if there are other documents which have been in the state INPROGRESS
+            // Load the first one found
+            List<AnnotationDocument> inProgressDocuments = documentService
+                    .listAnnotationDocumentsWithStateForUser(aProject, aUser, IN_PROGRESS);
+            if (!inProgressDocuments.isEmpty()) {
+                return Optional.of(inProgressDocuments.get(0).getDocument());
+            }
 
-        WorkloadManager currentWorkload = workloadManagementService
-                .loadOrCreateWorkloadManagerConfiguration(aProject);
+            WorkloadManager currentWorkload = workloadManagementService
+                    .loadOrCreateWorkloadManagerConfiguration(aProject);
 
-        // If there are no traits set yet, use the DefaultWorkflowExtension
-        // otherwise select the current one
-        DynamicWorkloadTraits traits = readTraits(currentWorkload);
-        WorkflowExtension currentWorkflowExtension = workflowExtensionPoint
-                .getExtension(traits.getWorkflowType()) //
-                .orElseGet(DefaultWorkflowExtension::new);
-
-        // Get all documents for which the state is NEW, or which have not been created yet.
-        List<SourceDocument> sourceDocuments = documentService
-                .listAnnotatableDocuments(aProject, aUser).entrySet().stream()
-                .filter(entry -> entry.getValue() == null
-                        || entry.getValue().getState() == AnnotationDocumentState.NEW)
-                .map(entry -> entry.getKey()).collect(Collectors.toList());
-
-        // Rearrange list of documents according to current workflow
-        sourceDocuments = currentWorkflowExtension.rankDocuments(sourceDocuments);
-
-        for (SourceDocument doc : sourceDocuments) {
-            // FIXME: repeated query to DB should be optimized into a single query returning
-            // a map of documents / annotator counts
-
-            // Check if there are less annotators working on the selected document than
-            // the target number of annotation set by the project manager
-            if ((workloadManagementService.getNumberOfUsersWorkingOnADocument(doc)) < (traits
-                    .getDefaultNumberOfAnnotations())) {
-                return Optional.of(doc);
+            // If there are no traits set yet, use the DefaultWorkflowExtension
+            // otherwise select the current one
+            DynamicWorkloadTraits traits = readTraits(currentWorkload);
+            WorkflowExtension currentWorkflowExtension = workflowExtensionPoint
+                    .getExtension(traits.getWorkflowType()) //
+                    .orElseGet(DefaultWorkflowExtension::new);
+
+            // Get all documents for which the state is NEW, or which have not been created yet.
+            List<SourceDocument> sourceDocuments = documentService
+                    .listAnnotatableDocuments(aProject, aUser).entrySet().stream()
+                    .filter(entry -> entry.getValue() == null
+                            || entry.getValue().getState() == AnnotationDocumentState.NEW)
+                    .map(entry -> entry.getKey()).collect(Collectors.toList());
+
+            // Rearrange list of documents according to current workflow
+            sourceDocuments = currentWorkflowExtension.rankDocuments(sourceDocuments);
+
+            Map<Long, Long> annotatorCounts = workloadManagementService
+                    .getNumberOfUsersWorkingOnDocuments(aProject);
+
+            for (SourceDocument doc : sourceDocuments) {
+                // Check if there are less annotators working on the selected document than
+                // the target number of annotation set by the project manager
+                if (annotatorCounts.getOrDefault(doc.getId(), 0L) < traits
+                        .getDefaultNumberOfAnnotations()) {
+                    claimDocument(doc, aUser);
+                    return Optional.of(doc);
+                }
             }
+
+            return Optional.empty();
         }
+    }
 
-        return Optional.empty();
+    @EventListener
+    public void onBeforeProjectRemoved(BeforeProjectRemovedEvent aEvent)
+    {
+        assignmentLocks.remove(aEvent.getProject().getId());
+    }
+
+    private void claimDocument(SourceDocument aDocument, User aUser)
+    {
+        AnnotationDocument annotationDocument = documentService
+                .createOrGetAnnotationDocument(aDocument, aUser);
+        // Setting the timestamp ensures the claim is not immediately considered as abandoned
+        annotationDocument.setTimestamp(new Timestamp(System.currentTimeMillis()));
+        documentService.setAnnotationDocumentState(annotationDocument, IN_PROGRESS,
+                EXPLICIT_ANNOTATOR_USER_ACTION);
     }
 
     @Override
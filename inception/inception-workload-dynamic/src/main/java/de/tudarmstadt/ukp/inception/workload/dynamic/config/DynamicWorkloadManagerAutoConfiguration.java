@@ -77,9 +77,10 @@ public class DynamicWorkloadManagerAutoConfiguration
 
     @Bean
     public DynamicWorkloadStateWatcher dynamicWorkloadStateWatcher(
-            SchedulingService aSchedulingService)
+            SchedulingService aSchedulingService,
+            WorkloadManagementService aWorkloadManagementService)
     {
-        return new DynamicWorkloadStateWatcher(aSchedulingService);
+        return new DynamicWorkloadStateWatcher(aSchedulingService, aWorkloadManagementService);
     }
 
     @Bean
@@ -17,27 +17,66 @@
  */
 package de.tudarmstadt.ukp.inception.workload.dynamic.event;
 
+import static de.tudarmstadt.ukp.inception.workload.dynamic.DynamicWorkloadExtension.DYNAMIC_WORKLOAD_MANAGER_EXTENSION_ID;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.context.event.EventListener;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.event.AnnotationStateChangeEvent;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocument;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
 import de.tudarmstadt.ukp.inception.workload.dynamic.config.DynamicWorkloadManagerAutoConfiguration;
+import de.tudarmstadt.ukp.inception.workload.model.WorkloadManagementService;
 
 /**
- * Watches the state of the annotations and documents in dynamic workload projects.
+ * Watches the state of the annotations and documents in dynamic workload projects. Also
+ * periodically schedules a check for abandoned documents in all dynamic workload projects, so that
+ * assigning the next document to an annotator does not have to take care of this.
  * <p>
  * This class is exposed as a Spring Component via
  * {@link DynamicWorkloadManagerAutoConfiguration#dynamicWorkloadStateWatcher}
  * </p>
  */
 public class DynamicWorkloadStateWatcher
+    implements DisposableBean
 {
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private static final Duration ABANDONMENT_CHECK_INTERVAL = Duration.ofMinutes(1);
+
     private final SchedulingService schedulingService;
+    private final WorkloadManagementService workloadManagementService;
+    private final ScheduledExecutorService abandonmentCheckScheduler;
 
-    public DynamicWorkloadStateWatcher(SchedulingService aSchedulingService)
+    public DynamicWorkloadStateWatcher(SchedulingService aSchedulingService,
+            WorkloadManagementService aWorkloadManagementService)
     {
         schedulingService = aSchedulingService;
+        workloadManagementService = aWorkloadManagementService;
+
+        abandonmentCheckScheduler = Executors.newSingleThreadScheduledExecutor(
+                new BasicThreadFactory.Builder() //
+                        .namingPattern("dynamic-workload-abandonment-check") //
+                        .daemon(true) //
+                        .build());
+        abandonmentCheckScheduler.scheduleWithFixedDelay(this::scheduleAbandonmentChecks,
+                ABANDONMENT_CHECK_INTERVAL.toMillis(), ABANDONMENT_CHECK_INTERVAL.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy()
+    {
+        abandonmentCheckScheduler.shutdownNow();
     }
 
     @EventListener
@@ -51,4 +90,19 @@ public class DynamicWorkloadStateWatcher
         schedulingService.enqueue(new DynamicWorkloadUpdateDocumentStateTask(
                 aAnnotationDocument.getDocument(), getClass().getSimpleName()));
     }
+
+    private void scheduleAbandonmentChecks()
+    {
+        try {
+            for (Project project : workloadManagementService
+                    .listProjectsWithWorkloadManager(DYNAMIC_WORKLOAD_MANAGER_EXTENSION_ID)) {
+                schedulingService.enqueue(new DynamicWorkloadAbandonmentCheckTask(project,
+                        getClass().getSimpleName()));
+            }
+        }
+        catch (Exception e) {
+            // Must not propagate - otherwise the executor would cancel all further checks
+            log.error("Unable to schedule abandonment checks", e);
+        }
+    }
 }
@@ -206,6 +206,9 @@ public class DynamicWorkloadExtensionImplTest
 
         sleep(traits.getAbandonationTimeout().multipliedBy(2).toMillis());
 
+        // This is normally triggered periodically by the DynamicWorkloadStateWatcher
+        dynamicWorkloadExtension.freshenStatus(project);
+
         Optional<SourceDocument> nextDoc = dynamicWorkloadExtension.nextDocumentToAnnotate(project,
                 annotator);
 
@@ -215,6 +218,30 @@ public class DynamicWorkloadExtensionImplTest
                 .isPresent().get().isEqualTo("1.txt");
     }
 
+    @Test
+    public void thatAssignedDocumentsAreClaimed() throws Exception
+    {
+        createSourceDocument("1.txt");
+
+        Optional<SourceDocument> nextDoc = dynamicWorkloadExtension.nextDocumentToAnnotate(project,
+                annotator);
+
+        assertThat(nextDoc) //
+                .map(SourceDocument::getName) //
+                .isPresent().get().isEqualTo("1.txt");
+        assertThat(documentService.getAnnotationDocument(nextDoc.get(), annotator).getState()) //
+                .as("Assigned document has been claimed by the annotator") //
+                .isEqualTo(AnnotationDocumentState.IN_PROGRESS);
+
+        assertThat(dynamicWorkloadExtension.nextDocumentToAnnotate(project, otherAnnotator)) //
+                .as("Document claimed by another user is not assigned again") //
+                .isNotPresent();
+
+        assertThat(dynamicWorkloadExtension.nextDocumentToAnnotate(project, annotator)) //
+                .as("Repeated request returns the claimed document") //
+                .isEqualTo(nextDoc);
+    }
+
     private SourceDocument createSourceDocument(String aName)
     {
         return documentService
@@ -18,6 +18,7 @@
 package de.tudarmstadt.ukp.inception.workload.model;
 
 import java.util.List;
+import java.util.Map;
 
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocument;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocumentState;
@@ -48,4 +49,20 @@ public interface WorkloadManagementService
             SourceDocument aSourceDocument, AnnotationDocumentState aState);
 
     Long getNumberOfUsersWorkingOnADocument(SourceDocument aDocument);
+
+    /**
+     * @return the number of users working on or having finished each document of the given
+     *         project, keyed by the ID of the source document. Documents nobody is working on are
+     *         not contained in the map.
+     * @param aProject
+     *            a project
+     */
+    Map<Long, Long> getNumberOfUsersWorkingOnDocuments(Project aProject);
+
+    /**
+     * @return all projects configured to use the given workload manager type.
+     * @param aType
+     *            the workload manager extension ID
+     */
+    List<Project> listProjectsWithWorkloadManager(String aType);
 }
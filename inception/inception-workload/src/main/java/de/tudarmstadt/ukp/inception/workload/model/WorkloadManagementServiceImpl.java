@@ -23,7 +23,9 @@ import static java.lang.String.join;
 import static java.util.Arrays.asList;
 
 import java.io.Serializable;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
@@ -173,4 +175,45 @@ public class WorkloadManagementServiceImpl
                 .setParameter("states", asList(IN_PROGRESS, FINISHED)) //
                 .getSingleResult();
     }
+
+    /**
+     * This method is a fast DB search to get the number of users working on each SourceDocument
+     * in a specific Project using a single aggregate query.
+     */
+    @Override
+    @Transactional
+    public Map<Long, Long> getNumberOfUsersWorkingOnDocuments(Project aProject)
+    {
+        String query = String.join("\n", //
+                "SELECT document.id, COUNT(*)", //
+                "FROM AnnotationDocument", //
+                "WHERE project = :project", //
+                "AND state IN (:states)", //
+                "GROUP BY document.id");
+
+        List<Object[]> rows = entityManager.createQuery(query, Object[].class) //
+                .setParameter("project", aProject) //
+                .setParameter("states", asList(IN_PROGRESS, FINISHED)) //
+                .getResultList();
+
+        Map<Long, Long> result = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            result.put((Long) row[0], (Long) row[1]);
+        }
+        return result;
+    }
+
+    @Override
+    @Transactional
+    public List<Project> listProjectsWithWorkloadManager(String aType)
+    {
+        String query = String.join("\n", //
+                "SELECT wm.project", //
+                "FROM WorkloadManager wm", //
+                "WHERE wm.workloadType = :type");
+
+        return entityManager.createQuery(query, Project.class) //
+                .setParameter("type", aType) //
+                .getResultList();
+    }
 }